@@ -0,0 +1,75 @@
+package com.seriousapp.serious.app.damage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matches the tags of one return against the default catalog, next to the exact lookup the matcher
+ * replaced, which misses reworded tags such as "page torn". The tag sets mirror what a return sees:
+ * generic vision labels, a few damage labels in vision wording and the librarian's own tags. Building
+ * the matcher happens once per catalog version and is measured separately.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DamageTagMatcherBenchmark {
+    private static final Map<String, List<String>> TAG_SETS = Map.of(
+            "clean", List.of("book", "text", "indoor", "paper", "table", "font", "publication", "cover",
+                    "document", "handwriting", "page", "design"),
+            "damaged", List.of("book", "text", "indoor", "paper", "page torn", "water-stained", "Tears", "table",
+                    "font", "publication", "mould", "dog-eared pages", "sticker", "cover"),
+            "librarian", List.of("Torn Pages", "highlighter on page 4", "bent spine", "pen marks", "loose binding",
+                    "missing book cover"));
+
+    @Param({"clean", "damaged", "librarian"})
+    String tagSet;
+
+    private List<String> tags;
+    private DamageTagMatcher matcher;
+
+    @Setup
+    public void setUp() {
+        tags = TAG_SETS.get(tagSet);
+        matcher = DamageTagMatcher.build(DamagePriceDefaults.PRICES.keySet());
+    }
+
+    @Benchmark
+    public Set<String> matcher() {
+        return matcher.match(tags);
+    }
+
+    @Benchmark
+    public Set<String> exactLookup() {
+        Set<String> damages = new HashSet<>();
+        for (String tag : tags) {
+            String normalized = DamagePriceCatalog.normalize(tag);
+            if (DamagePriceDefaults.PRICES.containsKey(normalized)) {
+                damages.add(normalized);
+            }
+        }
+        return damages;
+    }
+
+    @Benchmark
+    public DamageTagMatcher build() {
+        return DamageTagMatcher.build(DamagePriceDefaults.PRICES.keySet());
+    }
+}
@@ -0,0 +1,147 @@
+package com.seriousapp.serious.app.mail;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders the borrow email with the Mustache templates and with the StringBuilder code they replaced in
+ * {@code AdminService}. Run with {@code -prof gc} to compare {@code gc.alloc.rate.norm}, the bytes
+ * allocated per render.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmailTemplatesBenchmark {
+    @Param({"0", "4"})
+    int imageCount;
+
+    private EmailTemplates templates;
+    private Map<String, Object> model;
+    private List<String> imageUrls;
+    private LocalDate borrowDate;
+
+    @Setup
+    public void setUp() throws IOException {
+        templates = new EmailTemplates(new PathMatchingResourcePatternResolver(), "classpath:/templates/mail/", false);
+        borrowDate = LocalDate.of(2026, 3, 14);
+        imageUrls = new ArrayList<>();
+        List<Map<String, String>> images = new ArrayList<>();
+        for (int i = 0; i < imageCount; i++) {
+            String url = "https://blobs.example.com/records/12/borrow/" + i + ".jpg";
+            imageUrls.add(url);
+            images.add(Map.of("url", url, "thumbnailUrl", thumbnailFor(url)));
+        }
+        model = new HashMap<>();
+        model.put("studentName", "Thabo Mokoena");
+        model.put("studentNumber", "2023045678");
+        model.put("bookTitle", "Mathematics Grade 10");
+        model.put("bookAuthor", "Siyavula");
+        model.put("borrowDate", borrowDate);
+        model.put("images", images);
+        model.put("hasImages", !images.isEmpty());
+    }
+
+    @Benchmark
+    public EmailBody mustache() {
+        return templates.render("borrow", model);
+    }
+
+    @Benchmark
+    public EmailBody stringBuilder() {
+        return new EmailBody(legacyText(), legacyHtml());
+    }
+
+    private String legacyText() {
+        StringBuilder body = new StringBuilder();
+        body.append("Dear Parent/Guardian,\n\n");
+        body.append("We are pleased to inform you that your child has borrowed a book from the school library.\n\n");
+        body.append("Student Details:\n");
+        body.append("  Name: ").append("Thabo").append(" ").append("Mokoena").append("\n");
+        body.append("  Student Number: ").append("2023045678").append("\n\n");
+        body.append("Book Details:\n");
+        body.append("  Title: ").append("Mathematics Grade 10").append("\n");
+        body.append("  Author: ").append("Siyavula").append("\n");
+        body.append("  Borrow Date: ").append(borrowDate).append("\n\n");
+        body.append("Please ensure the book is returned by the due date in good condition to avoid any fines.\n");
+        body.append("If you would like to see the condition of the book at the time of borrowing, you can view the following images:\n");
+        for (String url : imageUrls) {
+            body.append("  ").append(url).append("\n");
+        }
+        body.append("\nIf you have any questions, please contact the school library.\n\n");
+        body.append("Best regards,\n");
+        body.append("School Library Team");
+        return body.toString();
+    }
+
+    private String legacyHtml() {
+        StringBuilder html = new StringBuilder();
+        html.append("<html><body style=\"font-family: Arial, sans-serif; line-height: 1.6; color: #333;\">");
+        html.append("<p>Dear Parent/Guardian,</p>");
+        html.append("<p>We are pleased to inform you that your child has borrowed a book from the school library.</p>");
+        html.append("<div style=\"margin: 20px 0;\">");
+        html.append("<h3 style=\"color: #2c5282;\">Student Details:</h3>");
+        html.append("<ul style=\"list-style-type: none; padding-left: 20px;\">");
+        html.append("<li><strong>Name:</strong> ").append("Thabo").append(" ").append("Mokoena").append("</li>");
+        html.append("<li><strong>Student Number:</strong> ").append("2023045678").append("</li>");
+        html.append("</ul>");
+        html.append("</div>");
+        html.append("<div style=\"margin: 20px 0;\">");
+        html.append("<h3 style=\"color: #2c5282;\">Book Details:</h3>");
+        html.append("<ul style=\"list-style-type: none; padding-left: 20px;\">");
+        html.append("<li><strong>Title:</strong> ").append("Mathematics Grade 10").append("</li>");
+        html.append("<li><strong>Author:</strong> ").append("Siyavula").append("</li>");
+        html.append("<li><strong>Borrow Date:</strong> ").append(borrowDate).append("</li>");
+        html.append("</ul>");
+        html.append("</div>");
+        html.append("<p style=\"color: #744210; background-color: #fefcbf; padding: 15px; border-radius: 4px;\">");
+        html.append("Please ensure the book is returned by the due date in good condition to avoid any fines.");
+        html.append("</p>");
+        if (!imageUrls.isEmpty()) {
+            html.append("<div style=\"margin: 20px 0;\">");
+            html.append("<p>If you would like to see the condition of the book at the time of borrowing, you can view the following images:</p>");
+            html.append("<div style=\"display: flex; flex-wrap: wrap; gap: 10px;\">");
+            for (String url : imageUrls) {
+                html.append("<div>");
+                html.append("<a href=\"").append(url).append("\">");
+                html.append("<img src=\"").append(thumbnailFor(url)).append("\" alt=\"Book condition\" ");
+                html.append("style=\"max-width: 300px; border: 1px solid #e2e8f0; border-radius: 4px; margin: 5px;\"/>");
+                html.append("</a>");
+                html.append("</div>");
+            }
+            html.append("</div>");
+            html.append("</div>");
+        }
+        html.append("<p style=\"margin-top: 20px;\">If you have any questions, please contact the school library.</p>");
+        html.append("<p style=\"margin-top: 30px;\">");
+        html.append("Best regards,<br>");
+        html.append("School Library Team");
+        html.append("</p>");
+        html.append("</body></html>");
+        return html.toString();
+    }
+
+    private static String thumbnailFor(String url) {
+        return url.replace(".jpg", "-thumb.jpg");
+    }
+}
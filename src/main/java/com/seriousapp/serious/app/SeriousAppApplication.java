@@ -2,8 +2,10 @@ package com.seriousapp.serious.app;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class SeriousAppApplication {
 
 	public static void main(String[] args) {
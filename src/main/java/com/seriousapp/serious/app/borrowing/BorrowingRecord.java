@@ -42,4 +42,21 @@ public class BorrowingRecord {
 
     @ElementCollection
     private Set<String> returnTags = new HashSet<>();
+
+    // Content hashes of the borrow photos, return photos that look the same reuse their tags
+    @ElementCollection
+    @CollectionTable(name = "borrowing_record_image_hashes", joinColumns = @JoinColumn(name = "borrowing_record_id"))
+    @Column(name = "content_hash", length = 64)
+    private Set<String> imageContentHashes = new HashSet<>();
+
+    // Images were stored while the vision service was unavailable, so their tags are still missing
+    @Column(name = "needs_reanalysis", columnDefinition = "boolean not null default false")
+    private boolean needsReanalysis;
+
+    // Written only by OverdueFineAccrual, so saving a record never overwrites a concurrent accrual
+    @Column(name = "overdue_fine", columnDefinition = "double precision not null default 0", insertable = false, updatable = false)
+    private double overdueFine;
+
+    @Column(name = "overdue_accrued_through", insertable = false, updatable = false)
+    private LocalDate overdueAccruedThrough;
 }
@@ -0,0 +1,127 @@
+package com.seriousapp.serious.app.borrowing.overdue;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Charges a daily fine for every open loan past its due date. Each chunk is a single statement that picks
+ * the next open records by id, adds the fine for the days since they were last charged (capped per loan),
+ * moves {@code overdue_accrued_through} to today, records the charges in the fine ledger and adds the
+ * totals to the students' outstanding fines.
+ * Records already charged through today are skipped, so running the job again the same day charges
+ * nothing, and a missed night is caught up by the next run. Loans that reached the cap are skipped as
+ * well, so the job and its row count only cover loans that still accrue.
+ */
+@Slf4j
+@Component
+public class OverdueFineAccrual {
+    private static final String ACCRUE_CHUNK = """
+            WITH chunk AS (
+                SELECT id,
+                       LEAST(:dailyFine * (:today - COALESCE(overdue_accrued_through, due_date)),
+                             GREATEST(:maxFine - overdue_fine, 0)) AS charge
+                FROM borrowing_record
+                WHERE return_date IS NULL
+                  AND due_date < :today
+                  AND (overdue_accrued_through IS NULL OR overdue_accrued_through < :today)
+                  AND overdue_fine < :maxFine
+                  AND id > :afterId
+                ORDER BY id
+                LIMIT :limit
+                FOR UPDATE SKIP LOCKED
+            ), accrued AS (
+                UPDATE borrowing_record r
+                SET overdue_fine = r.overdue_fine + c.charge,
+                    overdue_accrued_through = :today
+                FROM chunk c
+                WHERE r.id = c.id
+                RETURNING r.id, r.student_id, c.charge
+            ), charged AS (
+                UPDATE students s
+                SET outstanding_fines = s.outstanding_fines + t.total
+                FROM (SELECT student_id, SUM(charge) AS total FROM accrued GROUP BY student_id) t
+                WHERE s.id = t.student_id
+                RETURNING s.id
+            ), ledger AS (
+                INSERT INTO fine_transactions (student_id, type, amount, description, borrowing_record_id, created_at)
+                SELECT student_id, 'CHARGE', charge, 'Overdue fine', id, now()
+                FROM accrued
+                WHERE charge > 0
+            )
+            SELECT COUNT(*) AS rows_processed, COALESCE(MAX(id), 0) AS last_id, COALESCE(SUM(charge), 0) AS total_charged
+            FROM accrued
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final Counter rowsProcessed;
+    private final Counter amountCharged;
+    private final Timer duration;
+
+    @Value("${overdue.fines.daily-fine:1.0}")
+    private double dailyFine;
+    @Value("${overdue.fines.max-fine-per-loan:50.0}")
+    private double maxFinePerLoan;
+    @Value("${overdue.fines.chunk-size:1000}")
+    private int chunkSize;
+
+    public OverdueFineAccrual(NamedParameterJdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.rowsProcessed = Counter.builder("fines.overdue.accrual.rows")
+                .register(meterRegistry);
+        this.amountCharged = Counter.builder("fines.overdue.accrual.amount")
+                .register(meterRegistry);
+        this.duration = Timer.builder("fines.overdue.accrual.duration")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${overdue.fines.cron:0 15 0 * * *}")
+    public void accrueNightly() {
+        accrue(LocalDate.now());
+    }
+
+    /**
+     * Charges open loans overdue on {@code today}. Each chunk commits on its own, so a failure part way
+     * keeps the chunks already done and the next run continues with the rest.
+     */
+    public void accrue(LocalDate today) {
+        long started = System.nanoTime();
+        long afterId = 0;
+        long total = 0;
+        double totalCharged = 0;
+        while (true) {
+            var params = new MapSqlParameterSource()
+                    .addValue("today", today)
+                    .addValue("afterId", afterId)
+                    .addValue("limit", chunkSize)
+                    .addValue("dailyFine", dailyFine)
+                    .addValue("maxFine", maxFinePerLoan);
+            ChunkResult chunk = jdbcTemplate.queryForObject(ACCRUE_CHUNK, params, (rs, rowNum) ->
+                    new ChunkResult(rs.getLong("rows_processed"), rs.getLong("last_id"), rs.getDouble("total_charged")));
+            if (chunk == null || chunk.rows() == 0) {
+                break;
+            }
+            rowsProcessed.increment(chunk.rows());
+            amountCharged.increment(chunk.charged());
+            total += chunk.rows();
+            totalCharged += chunk.charged();
+            afterId = chunk.lastId();
+        }
+
+        long elapsed = System.nanoTime() - started;
+        duration.record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("Accrued overdue fines through {} on {} loans, {} charged in {} ms",
+                today, total, String.format("%.2f", totalCharged), TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    private record ChunkResult(long rows, long lastId, double charged) {}
+}
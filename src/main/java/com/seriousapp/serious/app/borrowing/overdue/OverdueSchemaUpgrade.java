@@ -0,0 +1,25 @@
+package com.seriousapp.serious.app.borrowing.overdue;
+
+import com.seriousapp.serious.app.configurations.SchemaUpgrade;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Partial index over open loans for {@link OverdueFineAccrual}, which only ever scans those by id.
+ */
+@Component
+public class OverdueSchemaUpgrade implements SchemaUpgrade {
+
+    @Override
+    public String name() {
+        return "overdue-open-loans-index";
+    }
+
+    @Override
+    public void apply(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("""
+                CREATE INDEX IF NOT EXISTS idx_borrowing_record_open_due
+                ON borrowing_record (id, due_date) WHERE return_date IS NULL
+                """);
+    }
+}
@@ -0,0 +1,10 @@
+package com.seriousapp.serious.app.borrowing.returns;
+
+/**
+ * An idempotency key was replayed for a different return than the one it was first used for.
+ */
+public class IdempotencyKeyConflictException extends RuntimeException {
+    public IdempotencyKeyConflictException(String idempotencyKey) {
+        super("Idempotency key " + idempotencyKey + " was already used for another return");
+    }
+}
@@ -0,0 +1,70 @@
+package com.seriousapp.serious.app.borrowing.returns;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Damage assessment of a returned book, queued by the return endpoint and run by {@link ReturnJobWorker}.
+ */
+@Data
+@Entity
+@Table(name = "return_jobs", indexes = {
+        @Index(name = "idx_return_jobs_status_run_after", columnList = "status, run_after")
+})
+public class ReturnJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "idempotency_key", unique = true, length = 128)
+    private String idempotencyKey;
+
+    @Column(name = "record_id", nullable = false)
+    private Long recordId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private ReturnJobStatus status = ReturnJobStatus.PENDING;
+
+    private int attempts;
+
+    @Column(name = "run_after")
+    private Instant runAfter;
+
+    // Lease of the worker running the job, an expired lease makes the job claimable again
+    @Column(name = "locked_until")
+    private Instant lockedUntil;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "amount_owed")
+    private Double amountOwed;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "return_job_images", joinColumns = @JoinColumn(name = "job_id"))
+    @Column(name = "blob_name", length = 1024)
+    private Set<String> imageBlobs = new HashSet<>();
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "return_job_known_tags", joinColumns = @JoinColumn(name = "job_id"))
+    @Column(name = "tag")
+    private Set<String> knownTags = new HashSet<>();
+
+    @CreationTimestamp
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    @Column(name = "completed_at")
+    private Instant completedAt;
+}
@@ -0,0 +1,46 @@
+package com.seriousapp.serious.app.borrowing.returns;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ReturnJobRepository extends JpaRepository<ReturnJob, Long> {
+    Optional<ReturnJob> findByIdempotencyKey(String idempotencyKey);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT j FROM ReturnJob j WHERE j.id = :id")
+    Optional<ReturnJob> findByIdForUpdate(Long id);
+
+    /**
+     * Due jobs plus jobs whose worker lease ran out. Rows locked by another poller are skipped rather
+     * than waited for, so concurrent pollers never claim the same job.
+     */
+    @Query(value = """
+            SELECT id FROM return_jobs
+            WHERE (status = 'PENDING' AND run_after <= :now)
+               OR (status = 'RUNNING' AND locked_until < :now)
+            ORDER BY id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<Long> findClaimableIds(@Param("now") Instant now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("""
+            UPDATE ReturnJob j
+            SET j.status = com.seriousapp.serious.app.borrowing.returns.ReturnJobStatus.RUNNING,
+                j.attempts = j.attempts + 1,
+                j.lockedUntil = :lockedUntil
+            WHERE j.id IN :ids
+            """)
+    int markRunning(@Param("ids") List<Long> ids, @Param("lockedUntil") Instant lockedUntil);
+}
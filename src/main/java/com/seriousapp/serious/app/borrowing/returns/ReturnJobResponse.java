@@ -0,0 +1,30 @@
+package com.seriousapp.serious.app.borrowing.returns;
+
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+public class ReturnJobResponse {
+    private Long jobId;
+    private Long recordId;
+    private ReturnJobStatus status;
+    private int attempts;
+    private Double amountOwed;
+    private String lastError;
+    private Instant createdAt;
+    private Instant completedAt;
+
+    public static ReturnJobResponse from(ReturnJob job) {
+        ReturnJobResponse response = new ReturnJobResponse();
+        response.setJobId(job.getId());
+        response.setRecordId(job.getRecordId());
+        response.setStatus(job.getStatus());
+        response.setAttempts(job.getAttempts());
+        response.setAmountOwed(job.getAmountOwed());
+        response.setLastError(job.getLastError());
+        response.setCreatedAt(job.getCreatedAt());
+        response.setCompletedAt(job.getCompletedAt());
+        return response;
+    }
+}
@@ -0,0 +1,37 @@
+package com.seriousapp.serious.app.borrowing.returns;
+
+import com.seriousapp.serious.app.configurations.SchemaUpgrade;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Hibernate writes the check constraint of an enum column only when it creates the table, so databases
+ * created before {@link ReturnJobStatus#RECEIVING} existed reject claimed jobs. Drops such outdated checks,
+ * the column is only ever written from the enum.
+ */
+@Slf4j
+@Component
+public class ReturnJobSchemaUpgrade implements SchemaUpgrade {
+
+    @Override
+    public String name() {
+        return "return-job-statuses";
+    }
+
+    @Override
+    public void apply(JdbcTemplate jdbcTemplate) {
+        List<String> outdated = jdbcTemplate.queryForList("""
+                SELECT conname FROM pg_constraint
+                WHERE conrelid = to_regclass('return_jobs') AND contype = 'c'
+                  AND pg_get_constraintdef(oid) LIKE '%status%'
+                  AND pg_get_constraintdef(oid) NOT LIKE '%RECEIVING%'
+                """, String.class);
+        for (String constraint : outdated) {
+            jdbcTemplate.execute("ALTER TABLE return_jobs DROP CONSTRAINT \"" + constraint + "\"");
+            log.info("Dropped outdated status check {} of return_jobs", constraint);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.seriousapp.serious.app.borrowing.returns;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReturnJobService {
+    private static final int MAX_ERROR_LENGTH = 1000;
+    // A RECEIVING claim left behind by an attempt that died can be taken over once its lease has run out
+    private static final String CLAIM_IDEMPOTENCY_KEY = """
+            INSERT INTO return_jobs (idempotency_key, record_id, status, attempts, locked_until, created_at, updated_at)
+            VALUES (:idempotencyKey, :recordId, 'RECEIVING', 0, :lockedUntil, now(), now())
+            ON CONFLICT (idempotency_key) DO UPDATE
+                SET record_id = EXCLUDED.record_id, locked_until = EXCLUDED.locked_until, updated_at = now()
+                WHERE return_jobs.status = 'RECEIVING' AND return_jobs.locked_until < :now
+            RETURNING id
+            """;
+
+    private final ReturnJobRepository returnJobRepository;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Value("${returns.jobs.lease-ms:300000}")
+    private long leaseMillis;
+    @Value("${returns.jobs.max-attempts:5}")
+    private int maxAttempts;
+    @Value("${returns.jobs.retry-backoff-ms:5000}")
+    private long retryBackoffMillis;
+
+    public Optional<ReturnJob> findById(Long jobId) {
+        return returnJobRepository.findById(jobId);
+    }
+
+    public Optional<ReturnJob> findByIdempotencyKey(String idempotencyKey) {
+        return returnJobRepository.findByIdempotencyKey(idempotencyKey);
+    }
+
+    /**
+     * Claims an idempotency key for a return of the record before any of the request is read. The unique
+     * key decides between concurrent attempts: the result is empty when another attempt holds the key,
+     * and {@link #findByIdempotencyKey} then returns that attempt's job.
+     */
+    @Transactional
+    public Optional<ReturnJob> claimIdempotencyKey(String idempotencyKey, Long recordId) {
+        Instant now = Instant.now();
+        List<Long> claimed = jdbcTemplate.queryForList(CLAIM_IDEMPOTENCY_KEY, new MapSqlParameterSource()
+                .addValue("idempotencyKey", idempotencyKey)
+                .addValue("recordId", recordId)
+                .addValue("lockedUntil", Timestamp.from(now.plusMillis(leaseMillis)))
+                .addValue("now", Timestamp.from(now)), Long.class);
+        return claimed.stream().findFirst().flatMap(returnJobRepository::findById);
+    }
+
+    /**
+     * Drops a claim whose request could not be received, so a retry with the same key starts afresh.
+     * Leaves the job alone if another attempt has taken the claim over in the meantime.
+     */
+    @Transactional
+    public void releaseClaim(ReturnJob claim) {
+        returnJobRepository.findByIdForUpdate(claim.getId())
+                .filter(job -> job.getStatus() == ReturnJobStatus.RECEIVING && job.getLockedUntil().equals(claim.getLockedUntil()))
+                .ifPresent(returnJobRepository::delete);
+    }
+
+    /**
+     * Queues the assessment of a received return, as a new job or on the job whose idempotency key the
+     * request claimed.
+     */
+    @Transactional
+    public ReturnJob enqueue(Long recordId, ReturnJob claim, List<String> imageBlobs, List<String> knownTags) {
+        ReturnJob job = claim == null ? new ReturnJob() : returnJobRepository.findByIdForUpdate(claim.getId())
+                .filter(claimed -> claimed.getStatus() == ReturnJobStatus.RECEIVING)
+                .orElseThrow(() -> new RuntimeException("Idempotency key " + claim.getIdempotencyKey() + " is no longer claimed"));
+        job.setRecordId(recordId);
+        job.setStatus(ReturnJobStatus.PENDING);
+        job.setLockedUntil(null);
+        job.setRunAfter(Instant.now());
+        job.getImageBlobs().addAll(imageBlobs);
+        job.getKnownTags().addAll(knownTags);
+        return returnJobRepository.save(job);
+    }
+
+    /**
+     * Claims up to {@code limit} due jobs for this instance by moving them to RUNNING under a lease.
+     */
+    @Transactional
+    public List<Long> claim(int limit) {
+        Instant now = Instant.now();
+        List<Long> ids = returnJobRepository.findClaimableIds(now, limit);
+        if (!ids.isEmpty()) {
+            returnJobRepository.markRunning(ids, now.plusMillis(leaseMillis));
+        }
+        return ids;
+    }
+
+    public Optional<ReturnJob> findRunning(Long jobId) {
+        return returnJobRepository.findById(jobId)
+                .filter(job -> job.getStatus() == ReturnJobStatus.RUNNING);
+    }
+
+    /**
+     * Locks a claimed job for the rest of the caller's transaction. Empty when the job is no longer
+     * running, i.e. an earlier holder of the lease already finished it.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Optional<ReturnJob> lockRunning(Long jobId) {
+        return returnJobRepository.findByIdForUpdate(jobId)
+                .filter(job -> job.getStatus() == ReturnJobStatus.RUNNING);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void complete(ReturnJob job, double amountOwed) {
+        job.setStatus(ReturnJobStatus.DONE);
+        job.setAmountOwed(amountOwed);
+        job.setLastError(null);
+        job.setLockedUntil(null);
+        job.setCompletedAt(Instant.now());
+        returnJobRepository.save(job);
+    }
+
+    /**
+     * Records a failed attempt and schedules a retry with exponential backoff, or gives up once the
+     * attempts are used up.
+     */
+    @Transactional
+    public ReturnJobStatus fail(Long jobId, Exception error) {
+        ReturnJob job = returnJobRepository.findById(jobId)
+                .orElseThrow(() -> new RuntimeException("Return job " + jobId + " not found"));
+
+        String message = error.getClass().getSimpleName() + ": " + error.getMessage();
+        job.setLastError(message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message);
+        job.setLockedUntil(null);
+        if (job.getAttempts() >= maxAttempts) {
+            job.setStatus(ReturnJobStatus.FAILED);
+            job.setCompletedAt(Instant.now());
+            log.error("Return job {} failed after {} attempts", jobId, job.getAttempts());
+        } else {
+            long backoff = retryBackoffMillis << Math.min(job.getAttempts() - 1, 10);
+            job.setStatus(ReturnJobStatus.PENDING);
+            job.setRunAfter(Instant.now().plusMillis(backoff));
+        }
+        returnJobRepository.save(job);
+        return job.getStatus();
+    }
+}
@@ -0,0 +1,10 @@
+package com.seriousapp.serious.app.borrowing.returns;
+
+public enum ReturnJobStatus {
+    // Idempotency key claimed, the request's images are still being received
+    RECEIVING,
+    PENDING,
+    RUNNING,
+    DONE,
+    FAILED
+}
@@ -0,0 +1,108 @@
+package com.seriousapp.serious.app.borrowing.returns;
+
+import com.seriousapp.serious.app.images.ImagePipeline;
+import com.seriousapp.serious.app.users.admin.AdminService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Polls the {@code return_jobs} queue and runs damage assessments on a fixed number of workers. Jobs are
+ * only claimed when a worker is free, so a busy instance leaves them to other instances.
+ */
+@Slf4j
+@Component
+public class ReturnJobWorker {
+    private final ReturnJobService returnJobService;
+    private final AdminService adminService;
+    private final ImagePipeline imagePipeline;
+    private final ExecutorService workers;
+    private final Semaphore freeWorkers;
+    private final Counter done;
+    private final Counter retried;
+    private final Counter failed;
+    private final Timer duration;
+
+    public ReturnJobWorker(
+            ReturnJobService returnJobService,
+            AdminService adminService,
+            ImagePipeline imagePipeline,
+            @Value("${returns.jobs.workers:2}") int workerCount,
+            MeterRegistry meterRegistry
+    ) {
+        this.returnJobService = returnJobService;
+        this.adminService = adminService;
+        this.imagePipeline = imagePipeline;
+        this.workers = Executors.newFixedThreadPool(workerCount, new CustomizableThreadFactory("return-job-"));
+        this.freeWorkers = new Semaphore(workerCount);
+        this.done = outcomeCounter(meterRegistry, "done");
+        this.retried = outcomeCounter(meterRegistry, "retry");
+        this.failed = outcomeCounter(meterRegistry, "failed");
+        this.duration = Timer.builder("returns.jobs.duration")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${returns.jobs.poll-interval-ms:1000}")
+    public void poll() {
+        int free = freeWorkers.availablePermits();
+        if (free == 0) {
+            return;
+        }
+
+        List<Long> jobIds = returnJobService.claim(free);
+        for (Long jobId : jobIds) {
+            freeWorkers.acquireUninterruptibly();
+            workers.execute(() -> {
+                try {
+                    run(jobId);
+                } finally {
+                    freeWorkers.release();
+                }
+            });
+        }
+    }
+
+    private void run(Long jobId) {
+        Timer.Sample sample = Timer.start();
+        try {
+            adminService.assessReturn(jobId).ifPresent(job -> {
+                imagePipeline.deleteStaged(List.copyOf(job.getImageBlobs()));
+                done.increment();
+            });
+        } catch (RuntimeException e) {
+            log.error("Return job {} failed: {}", jobId, e.getMessage(), e);
+            if (returnJobService.fail(jobId, e) == ReturnJobStatus.FAILED) {
+                failed.increment();
+                // Nothing processes the staged images of a failed job any more
+                returnJobService.findById(jobId)
+                        .ifPresent(job -> imagePipeline.deleteStaged(List.copyOf(job.getImageBlobs())));
+            } else {
+                retried.increment();
+            }
+        } finally {
+            sample.stop(duration);
+        }
+    }
+
+    private static Counter outcomeCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("returns.jobs")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdown();
+    }
+}
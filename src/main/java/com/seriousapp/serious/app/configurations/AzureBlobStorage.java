@@ -6,8 +6,10 @@ import com.azure.storage.blob.BlobServiceClientBuilder;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 
 @Configuration
+@Profile("!offline")
 public class AzureBlobStorage {
     @Value("${azure.storage.connection.string}")
     private String connectionString;
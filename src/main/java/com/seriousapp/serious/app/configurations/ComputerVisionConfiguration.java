@@ -0,0 +1,67 @@
+package com.seriousapp.serious.app.configurations;
+
+import com.azure.ai.vision.imageanalysis.ImageAnalysisClient;
+import com.azure.ai.vision.imageanalysis.ImageAnalysisClientBuilder;
+import com.azure.core.credential.KeyCredential;
+import com.azure.core.http.HttpClient;
+import com.azure.core.http.policy.ExponentialBackoffOptions;
+import com.azure.core.http.policy.RetryOptions;
+import com.azure.core.util.HttpClientOptions;
+import com.seriousapp.serious.app.images.VisionResilienceProperties;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.time.Duration;
+
+@Configuration
+@Profile("!offline")
+public class ComputerVisionConfiguration {
+    @Value("${computer.vision.endpoint}")
+    private String computerVisionEndpoint;
+    @Value("${computer.vision.key}")
+    private String computerVisionKey;
+
+    @Value("${computer.vision.http.max-connections:32}")
+    private int maxConnections;
+    @Value("${computer.vision.http.connect-timeout-ms:1500}")
+    private long connectTimeoutMillis;
+    @Value("${computer.vision.http.response-timeout-ms:3000}")
+    private long responseTimeoutMillis;
+    @Value("${computer.vision.retry.max-retries:1}")
+    private int maxRetries;
+    @Value("${computer.vision.retry.base-delay-ms:250}")
+    private long retryBaseDelayMillis;
+    @Value("${computer.vision.retry.max-delay-ms:500}")
+    private long retryMaxDelayMillis;
+
+    // One client for the whole application so every request reuses the same pooled, warmed-up connections
+    @Bean
+    public ImageAnalysisClient imageAnalysisClient(VisionResilienceProperties resilienceProperties) {
+        // Retries the caller has already given up on only hold on to a bulkhead slot, so all attempts must fit the call timeout
+        long worstCaseMillis = (maxRetries + 1) * (connectTimeoutMillis + responseTimeoutMillis) + maxRetries * retryMaxDelayMillis;
+        if (worstCaseMillis > resilienceProperties.getTimeoutMillis()) {
+            throw new IllegalStateException("Vision HTTP attempts can take " + worstCaseMillis + "ms, more than the "
+                    + resilienceProperties.getTimeoutMillis() + "ms call timeout (computer.vision.resilience.timeout-millis)");
+        }
+
+        HttpClient httpClient = HttpClient.createDefault(new HttpClientOptions()
+                .setMaximumConnectionPoolSize(maxConnections)
+                .setConnectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                .setResponseTimeout(Duration.ofMillis(responseTimeoutMillis))
+                .setReadTimeout(Duration.ofMillis(responseTimeoutMillis)));
+
+        RetryOptions retryOptions = new RetryOptions(new ExponentialBackoffOptions()
+                .setMaxRetries(maxRetries)
+                .setBaseDelay(Duration.ofMillis(retryBaseDelayMillis))
+                .setMaxDelay(Duration.ofMillis(retryMaxDelayMillis)));
+
+        return new ImageAnalysisClientBuilder()
+                .endpoint(computerVisionEndpoint)
+                .credential(new KeyCredential(computerVisionKey))
+                .httpClient(httpClient)
+                .retryOptions(retryOptions)
+                .buildClient();
+    }
+}
@@ -0,0 +1,13 @@
+package com.seriousapp.serious.app.configurations;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * A schema or data change that {@code ddl-auto=update} cannot make, such as dropping a column, a
+ * backfill or a partial index. Implementations must be idempotent, they run on every startup.
+ */
+public interface SchemaUpgrade {
+    String name();
+
+    void apply(JdbcTemplate jdbcTemplate);
+}
@@ -0,0 +1,43 @@
+package com.seriousapp.serious.app.configurations;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Applies every {@link SchemaUpgrade} once all beans exist, so after Hibernate has updated the schema
+ * and before the web server takes requests. Each upgrade runs in its own transaction under an advisory
+ * lock, so instances starting together apply them one at a time. A failing upgrade stops startup.
+ */
+@Slf4j
+@Component
+public class SchemaUpgrades implements SmartInitializingSingleton {
+    // Arbitrary key shared by all instances of this application
+    private static final long LOCK_KEY = 7_342_190_551L;
+
+    private final List<SchemaUpgrade> upgrades;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public SchemaUpgrades(List<SchemaUpgrade> upgrades, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.upgrades = upgrades;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (SchemaUpgrade upgrade : upgrades) {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.execute("SELECT pg_advisory_xact_lock(" + LOCK_KEY + ")");
+                upgrade.apply(jdbcTemplate);
+            });
+            log.debug("Schema upgrade {} is applied", upgrade.name());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.seriousapp.serious.app.configurations.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs password verification on a small fixed pool so a login burst cannot occupy every request
+ * thread with BCrypt. When the queue is full, work is rejected immediately and callers should shed load.
+ */
+@Component
+public class AuthenticationExecutor {
+    private final ThreadPoolExecutor executor;
+    private final Counter rejected;
+    @Getter
+    private final int retryAfterSeconds;
+
+    public AuthenticationExecutor(
+            @Value("${application.security.login.threads:0}") int threads,
+            @Value("${application.security.login.queue-capacity:64}") int queueCapacity,
+            @Value("${application.security.login.retry-after-seconds:2}") int retryAfterSeconds,
+            MeterRegistry meterRegistry
+    ) {
+        this.retryAfterSeconds = retryAfterSeconds;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                poolSize,
+                poolSize,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "auth-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        this.rejected = Counter.builder("auth.executor.rejected")
+                .register(meterRegistry);
+        Gauge.builder("auth.executor.queue.depth", executor, e -> e.getQueue().size())
+                .register(meterRegistry);
+        Gauge.builder("auth.executor.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+    }
+
+    public <T> T execute(Callable<T> task) throws ExecutionException, InterruptedException {
+        final Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+        return future.get();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
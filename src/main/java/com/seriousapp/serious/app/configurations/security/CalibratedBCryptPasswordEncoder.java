@@ -0,0 +1,60 @@
+package com.seriousapp.serious.app.configurations.security;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * BCrypt encoder whose cost is chosen at startup so a single hash takes roughly the configured
+ * target time on this machine. Stored hashes with any other cost are reported as needing an upgrade,
+ * which lets {@code DaoAuthenticationProvider} re-hash them transparently on the next successful login.
+ */
+@Slf4j
+@Getter
+public class CalibratedBCryptPasswordEncoder extends BCryptPasswordEncoder {
+    private static final Pattern BCRYPT_PATTERN = Pattern.compile("\\A\\$2([ayb])?\\$(\\d\\d)\\$[./0-9A-Za-z]{53}");
+    private static final String CALIBRATION_PASSWORD = "calibration-password";
+
+    private final int strength;
+
+    public CalibratedBCryptPasswordEncoder(int strength) {
+        super(strength);
+        this.strength = strength;
+    }
+
+    public static CalibratedBCryptPasswordEncoder calibrate(long targetMillis, int minStrength, int maxStrength) {
+        int strength = minStrength;
+        long elapsed = measure(strength);
+        // Each additional cost round doubles the hashing time
+        while (strength < maxStrength && elapsed * 2 <= targetMillis) {
+            strength++;
+            elapsed *= 2;
+        }
+        log.info("Calibrated BCrypt strength {} (~{} ms per hash, target {} ms)", strength, elapsed, targetMillis);
+        return new CalibratedBCryptPasswordEncoder(strength);
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.isEmpty()) {
+            return false;
+        }
+        Matcher matcher = BCRYPT_PATTERN.matcher(encodedPassword);
+        if (!matcher.matches()) {
+            return false;
+        }
+        return Integer.parseInt(matcher.group(2)) != strength;
+    }
+
+    private static long measure(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        // Warm up once so class loading and JIT do not skew the measurement
+        encoder.encode(CALIBRATION_PASSWORD);
+        long start = System.nanoTime();
+        encoder.encode(CALIBRATION_PASSWORD);
+        return Math.max(1, (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,159 @@
+package com.seriousapp.serious.app.configurations.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Per-client token bucket limiting for configured route groups. Runs after {@code JWTFilter}, so
+ * authenticated callers are limited per user and anonymous ones per client address, or per submitted
+ * username and address in groups with a key field such as login. Expensive groups (login, image
+ * uploads) get their own buckets and cannot drain the budget of cheap requests.
+ */
+@Slf4j
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+    private final RateLimitProperties properties;
+    private final ObjectMapper objectMapper;
+    private final TokenBucketRateLimiter limiter;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final Map<String, Counter> admitted = new HashMap<>();
+    private final Map<String, Counter> rejected = new HashMap<>();
+
+    public RateLimitFilter(RateLimitProperties properties, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.limiter = new TokenBucketRateLimiter(properties.getStripes());
+        properties.getGroups().keySet().forEach(group -> {
+            admitted.put(group, Counter.builder("ratelimit.requests")
+                    .tag("group", group)
+                    .tag("outcome", "admitted")
+                    .register(meterRegistry));
+            rejected.put(group, Counter.builder("ratelimit.requests")
+                    .tag("group", group)
+                    .tag("outcome", "rejected")
+                    .register(meterRegistry));
+        });
+        Gauge.builder("ratelimit.buckets", limiter, TokenBucketRateLimiter::size)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        if (!properties.isEnabled()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String groupName = matchGroup(request.getMethod(), path);
+        if (groupName == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        RateLimitProperties.Group group = properties.getGroups().get(groupName);
+        HttpServletRequest limitedRequest = request;
+        String key = authenticatedKey();
+        if (key == null) {
+            String address = "ip:" + request.getRemoteAddr();
+            key = address;
+            if (group.getKeyField() != null) {
+                if (!limiter.tryAcquire(groupName + ":" + address, group.getAddressCapacity(), group.getAddressRefillPerSecond())) {
+                    reject(response, groupName, address, group.getAddressRefillPerSecond());
+                    return;
+                }
+                String submitted = null;
+                CachedBodyRequest cached = CachedBodyRequest.of(request, group.getMaxKeyBodyBytes());
+                if (cached != null) {
+                    limitedRequest = cached;
+                    submitted = readKeyField(cached.getBody(), group.getKeyField());
+                }
+                key = "key:" + (submitted != null ? submitted : "") + "@" + address;
+            }
+        }
+
+        if (!limiter.tryAcquire(groupName + ":" + key, group.getCapacity(), group.getRefillPerSecond())) {
+            reject(response, groupName, key, group.getRefillPerSecond());
+            return;
+        }
+        admitted.get(groupName).increment();
+        filterChain.doFilter(limitedRequest, response);
+    }
+
+    @Scheduled(fixedDelayString = "${rate-limit.idle-eviction-millis:600000}")
+    public void evictIdleBuckets() {
+        limiter.evictIdle(properties.getIdleEvictionMillis() * 1_000_000);
+    }
+
+    private String matchGroup(String method, String path) {
+        for (var group : properties.getGroups().entrySet()) {
+            List<String> methods = group.getValue().getMethods();
+            if (!methods.isEmpty() && methods.stream().noneMatch(method::equalsIgnoreCase)) {
+                continue;
+            }
+            for (String pattern : group.getValue().getPatterns()) {
+                if (pathMatcher.match(pattern, path)) {
+                    return group.getKey();
+                }
+            }
+        }
+        return null;
+    }
+
+    private void reject(HttpServletResponse response, String groupName, String key, double refillPerSecond) {
+        rejected.get(groupName).increment();
+        log.debug("Rate limited {} on route group {}", key, groupName);
+        long retryAfter = (long) Math.ceil(1.0 / Math.max(refillPerSecond, 0.001));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+    }
+
+    private String readKeyField(byte[] body, String field) {
+        try {
+            JsonNode value = objectMapper.readTree(body).path(field);
+            return value.isTextual() && !value.asText().isBlank()
+                    ? value.asText().trim().toLowerCase(Locale.ROOT)
+                    : null;
+        } catch (IOException e) {
+            // Malformed bodies are limited by address and rejected by the controller
+            return null;
+        }
+    }
+
+    private String authenticatedKey() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "user:" + authentication.getName();
+        }
+        return null;
+    }
+}
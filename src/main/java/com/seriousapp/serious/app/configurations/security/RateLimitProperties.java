@@ -0,0 +1,37 @@
+package com.seriousapp.serious.app.configurations.security;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+    private boolean enabled = true;
+    private int stripes = 64;
+    private long idleEvictionMillis = 600_000;
+    // Groups are matched in declaration order, the first group whose pattern matches wins
+    private Map<String, Group> groups = new LinkedHashMap<>();
+
+    @Data
+    public static class Group {
+        private List<String> patterns = new ArrayList<>();
+        // HTTP methods the group applies to, empty means all; other requests fall through to later groups
+        private List<String> methods = new ArrayList<>();
+        private double capacity = 20;
+        private double refillPerSecond = 10;
+        // Anonymous callers are keyed by this JSON body field plus their address instead of the address
+        // alone, so people behind one school NAT do not share a bucket. The address as a whole is then
+        // limited by the address budget, which is sized for a shared egress.
+        private String keyField;
+        private double addressCapacity = 300;
+        private double addressRefillPerSecond = 10;
+        private int maxKeyBodyBytes = 8192;
+    }
+}
@@ -1,7 +1,9 @@
 package com.seriousapp.serious.app.configurations.security;
 
 import com.seriousapp.serious.app.jwt.JWTFilter;
+import com.seriousapp.serious.app.jwt.LogoutService;
 import com.seriousapp.serious.app.users.UserService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
@@ -13,9 +15,11 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.authentication.logout.HttpStatusReturningLogoutSuccessHandler;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.cors.CorsConfigurationSource;
@@ -28,20 +32,28 @@ public class SecurityConfig {
 
     private final UserService userDetailsService;
     private final JWTFilter jwtAuthenticationFilter;
+    private final LogoutService logoutService;
+    private final RateLimitFilter rateLimitFilter;
 
     public SecurityConfig(@Lazy UserService userDetailsService,
-                          @Lazy JWTFilter jwtAuthenticationFilter) {
+                          @Lazy JWTFilter jwtAuthenticationFilter,
+                          @Lazy LogoutService logoutService,
+                          @Lazy RateLimitFilter rateLimitFilter) {
         this.userDetailsService = userDetailsService;
         this.jwtAuthenticationFilter = jwtAuthenticationFilter;
+        this.logoutService = logoutService;
+        this.rateLimitFilter = rateLimitFilter;
     }
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, AuthenticationProvider authenticationProvider) throws Exception {
         http
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/api/auth/**", "/api/**").permitAll()
+                        // Blob files of the offline profile, the handler only exists there
+                        .requestMatchers("/offline-blobs/**").permitAll()
 //                        .requestMatchers("/api/admin/**").hasRole("ADMIN")
 //                        .requestMatchers("/api/student/**").hasRole("STUDENT")
                         .anyRequest().authenticated()
@@ -49,22 +61,34 @@ public class SecurityConfig {
                 .sessionManagement(session -> session
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
                 )
-                .authenticationProvider(authenticationProvider())
-                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+                .authenticationProvider(authenticationProvider)
+                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterAfter(rateLimitFilter, JWTFilter.class)
+                .logout(logout -> logout
+                        .logoutUrl("/api/auth/logout")
+                        .addLogoutHandler(logoutService)
+                        .logoutSuccessHandler(new HttpStatusReturningLogoutSuccessHandler(HttpStatus.OK))
+                );
 
         return http.build();
     }
 
     @Bean
-    public BCryptPasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BCryptPasswordEncoder passwordEncoder(
+            @Value("${application.security.bcrypt.target-millis:250}") long targetMillis,
+            @Value("${application.security.bcrypt.min-strength:10}") int minStrength,
+            @Value("${application.security.bcrypt.max-strength:14}") int maxStrength
+    ) {
+        return CalibratedBCryptPasswordEncoder.calibrate(targetMillis, minStrength, maxStrength);
     }
 
     @Bean
-    public AuthenticationProvider authenticationProvider() {
+    public AuthenticationProvider authenticationProvider(BCryptPasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setPasswordEncoder(passwordEncoder);
+        // Re-hashes stored passwords whose cost differs from the calibrated strength on successful login
+        authProvider.setUserDetailsPasswordService(userDetailsService);
         return authProvider;
     }
 
@@ -0,0 +1,83 @@
+package com.seriousapp.serious.app.configurations.security;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token buckets keyed by client, partitioned over a fixed number of lock stripes so unrelated
+ * clients rarely contend on the same lock.
+ */
+public class TokenBucketRateLimiter {
+    private final ReentrantLock[] locks;
+    private final Map<String, Bucket>[] buckets;
+
+    @SuppressWarnings("unchecked")
+    public TokenBucketRateLimiter(int stripes) {
+        this.locks = new ReentrantLock[stripes];
+        this.buckets = new Map[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+            buckets[i] = new HashMap<>();
+        }
+    }
+
+    public boolean tryAcquire(String key, double capacity, double refillPerSecond) {
+        int stripe = (key.hashCode() & Integer.MAX_VALUE) % locks.length;
+        long now = System.nanoTime();
+        ReentrantLock lock = locks[stripe];
+        lock.lock();
+        try {
+            Bucket bucket = buckets[stripe].computeIfAbsent(key, k -> new Bucket(capacity, now));
+            double elapsedSeconds = (now - bucket.lastRefill) / 1_000_000_000.0;
+            bucket.tokens = Math.min(capacity, bucket.tokens + elapsedSeconds * refillPerSecond);
+            bucket.lastRefill = now;
+            if (bucket.tokens >= 1.0) {
+                bucket.tokens -= 1.0;
+                return true;
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i].lock();
+            try {
+                size += buckets[i].size();
+            } finally {
+                locks[i].unlock();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Drops buckets that have not been touched for the given time; an idle bucket would be full again
+     * anyway, so forgetting it does not change any decision.
+     */
+    public void evictIdle(long idleNanos) {
+        long now = System.nanoTime();
+        for (int i = 0; i < locks.length; i++) {
+            locks[i].lock();
+            try {
+                buckets[i].values().removeIf(bucket -> now - bucket.lastRefill > idleNanos);
+            } finally {
+                locks[i].unlock();
+            }
+        }
+    }
+
+    private static final class Bucket {
+        private double tokens;
+        private long lastRefill;
+
+        private Bucket(double tokens, long lastRefill) {
+            this.tokens = tokens;
+            this.lastRefill = lastRefill;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.seriousapp.serious.app.damage;
+
+import java.util.Set;
+
+/**
+ * Catalog damages charged for a return and their total price. A lost book is charged its own price,
+ * which the catalog does not know, so {@code lost} is reported on its own with no damages.
+ */
+public record DamageAssessment(Set<String> damages, double amount, boolean lost) {}
@@ -0,0 +1,32 @@
+package com.seriousapp.serious.app.damage;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.Instant;
+
+@Data
+@Entity
+@Table(name = "damage_prices")
+public class DamagePrice {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Stored normalised, see DamagePriceCatalog.normalize
+    @Column(nullable = false, unique = true)
+    private String tag;
+
+    @Column(nullable = false)
+    private double price;
+
+    @CreationTimestamp
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+}
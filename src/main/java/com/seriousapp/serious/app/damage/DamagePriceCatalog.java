@@ -0,0 +1,154 @@
+package com.seriousapp.serious.app.damage;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Damage prices held as an immutable snapshot of the {@code damage_prices} table. Readers only
+ * dereference the current snapshot, so pricing a return takes no lock and allocates nothing; a change
+ * builds a new snapshot and swaps it in. Snapshots are rebuilt after every change made through
+ * {@link DamagePriceService} and periodically, to pick up changes made by other instances. Each snapshot
+ * carries a {@link DamageTagMatcher} compiled for its tags, so matching never sees a different catalog
+ * version than pricing. The first snapshot is loaded once all beans exist, before schedulers start and
+ * before the web server takes requests, so no return is ever priced against an empty catalog.
+ */
+@Slf4j
+@Component
+public class DamagePriceCatalog implements SmartInitializingSingleton {
+    private final DamagePriceRepository damagePriceRepository;
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(
+            new Snapshot(0, Map.of(), DamageTagMatcher.build(Set.of())));
+
+    public DamagePriceCatalog(DamagePriceRepository damagePriceRepository, MeterRegistry meterRegistry) {
+        this.damagePriceRepository = damagePriceRepository;
+        Gauge.builder("damage.prices.version", snapshot, current -> current.get().version())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Lower case with runs of whitespace collapsed, the form tags are stored and looked up in. Tags that
+     * are already normalised, as vision tags usually are, are returned as they are without allocating.
+     */
+    public static String normalize(String tag) {
+        if (isNormalized(tag)) {
+            return tag;
+        }
+        StringBuilder normalized = new StringBuilder(tag.length());
+        boolean space = false;
+        for (int i = 0; i < tag.length(); i++) {
+            char c = tag.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = normalized.length() > 0;
+            } else {
+                if (space) {
+                    normalized.append(' ');
+                    space = false;
+                }
+                normalized.append(c);
+            }
+        }
+        return normalized.toString().toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isNormalized(String tag) {
+        // Starting as if after a space rejects leading whitespace and empty tags
+        char previous = ' ';
+        for (int i = 0; i < tag.length(); i++) {
+            char c = tag.charAt(i);
+            if (Character.isWhitespace(c)) {
+                if (c != ' ' || previous == ' ') {
+                    return false;
+                }
+            } else if (Character.isSurrogate(c) || Character.toLowerCase(c) != c) {
+                return false;
+            }
+            previous = c;
+        }
+        return previous != ' ';
+    }
+
+    /**
+     * Price of one normalised tag, zero when the tag is not a priced damage.
+     */
+    public double priceOf(String normalizedTag) {
+        return snapshot.get().prices().getOrDefault(normalizedTag, 0.0);
+    }
+
+    /**
+     * Damages found in the tags of a returned book that were not already present when it was borrowed,
+     * and their total price, all from the same snapshot. A book reported lost is assessed as lost only.
+     */
+    public DamageAssessment assess(Collection<String> returnTags, Collection<String> borrowTags) {
+        Snapshot current = snapshot.get();
+        Set<String> damages = current.matcher().match(returnTags);
+        damages.removeAll(current.matcher().match(borrowTags));
+        if (damages.contains(DamageTagMatcher.LOST)) {
+            return new DamageAssessment(Set.of(), 0.0, true);
+        }
+        double total = 0.0;
+        for (String damage : damages) {
+            total += current.prices().getOrDefault(damage, 0.0);
+        }
+        return new DamageAssessment(Set.copyOf(damages), total, false);
+    }
+
+    public Snapshot current() {
+        return snapshot.get();
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        seedAndLoad();
+    }
+
+    public void seedAndLoad() {
+        if (damagePriceRepository.count() == 0) {
+            log.info("Seeding damage price catalog with {} default prices", DamagePriceDefaults.PRICES.size());
+            damagePriceRepository.saveAll(DamagePriceDefaults.PRICES.entrySet().stream()
+                    .map(entry -> {
+                        DamagePrice price = new DamagePrice();
+                        price.setTag(normalize(entry.getKey()));
+                        price.setPrice(entry.getValue());
+                        return price;
+                    })
+                    .toList());
+        }
+        reload();
+    }
+
+    @Scheduled(fixedDelayString = "${damage.prices.refresh-interval-ms:60000}", initialDelayString = "${damage.prices.refresh-interval-ms:60000}")
+    public void refresh() {
+        reload();
+    }
+
+    /**
+     * Rebuilds the snapshot from the table. Synchronized so a snapshot built from an older read can never
+     * replace one built from a newer read.
+     */
+    public synchronized void reload() {
+        Map<String, Double> prices = new HashMap<>();
+        for (DamagePrice price : damagePriceRepository.findAll()) {
+            prices.put(normalize(price.getTag()), price.getPrice());
+        }
+        Snapshot current = snapshot.get();
+        if (current.version() > 0 && current.prices().equals(prices)) {
+            return;
+        }
+        Snapshot next = new Snapshot(current.version() + 1, Map.copyOf(prices), DamageTagMatcher.build(prices.keySet()));
+        snapshot.set(next);
+        log.info("Loaded damage price catalog version {} with {} prices", next.version(), prices.size());
+    }
+
+    public record Snapshot(long version, Map<String, Double> prices, DamageTagMatcher matcher) {}
+}
@@ -0,0 +1,40 @@
+package com.seriousapp.serious.app.damage;
+
+import io.swagger.v3.oas.annotations.Operation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/damage-prices")
+@RequiredArgsConstructor
+public class DamagePriceController {
+    private final DamagePriceService damagePriceService;
+
+    @Operation(summary = "List damage prices")
+    @GetMapping
+    public ResponseEntity<List<DamagePrice>> getDamagePrices() {
+        return ResponseEntity.ok(damagePriceService.findAll());
+    }
+
+    @Operation(summary = "Add a damage price")
+    @PostMapping
+    public ResponseEntity<DamagePrice> createDamagePrice(@RequestBody DamagePriceRequest request) {
+        return ResponseEntity.ok(damagePriceService.create(request));
+    }
+
+    @Operation(summary = "Change a damage price")
+    @PutMapping("/{id}")
+    public ResponseEntity<DamagePrice> updateDamagePrice(@PathVariable Long id, @RequestBody DamagePriceRequest request) {
+        return ResponseEntity.ok(damagePriceService.update(id, request));
+    }
+
+    @Operation(summary = "Remove a damage price")
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteDamagePrice(@PathVariable Long id) {
+        damagePriceService.delete(id);
+        return ResponseEntity.noContent().build();
+    }
+}
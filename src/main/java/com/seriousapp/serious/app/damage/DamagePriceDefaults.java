@@ -0,0 +1,59 @@
+package com.seriousapp.serious.app.damage;
+
+import java.util.Map;
+
+/**
+ * Prices the catalog is seeded with when the {@code damage_prices} table is empty.
+ */
+final class DamagePriceDefaults {
+    static final Map<String, Double> PRICES = Map.ofEntries(
+            Map.entry("missing book cover", 90.0),
+            Map.entry("torn pages", 50.0),
+            Map.entry("water damage", 40.0),
+            Map.entry("writing/markings added", 15.0),
+            Map.entry("highlighting", 10.0),
+            Map.entry("bent cover", 25.0),
+            Map.entry("bent pages", 15.0),
+            Map.entry("sticker", 5.0),
+            Map.entry("scratched cover", 30.0),
+            Map.entry("dog ear", 10.0),
+            Map.entry("faded cover", 20.0),
+            Map.entry("loose pages", 35.0),
+            Map.entry("mold", 60.0),
+            Map.entry("tape", 10.0),
+            Map.entry("pages missing", 80.0),
+            Map.entry("burnt pages", 100.0),
+            Map.entry("bent spine", 30.0),
+            Map.entry("broken spine", 70.0),
+            Map.entry("stains present", 8.0),
+            Map.entry("dirty cover", 15.0),
+            Map.entry("scratched pages", 20.0),
+            Map.entry("ripped cover", 50.0),
+            Map.entry("ripped pages", 40.0),
+            Map.entry("folded pages", 10.0),
+            Map.entry("cracked cover", 45.0),
+            Map.entry("cracked pages", 30.0),
+            Map.entry("peeling cover", 35.0),
+            Map.entry("peeling pages", 20.0),
+            Map.entry("discoloration", 25.0),
+            Map.entry("faded pages", 15.0),
+            Map.entry("creased cover", 20.0),
+            Map.entry("creased pages", 10.0),
+            Map.entry("frayed edges", 15.0),
+            Map.entry("loose binding", 40.0),
+            Map.entry("broken binding", 80.0),
+            Map.entry("missing dust jacket", 30.0),
+            Map.entry("damaged dust jacket", 25.0),
+            Map.entry("damaged cover page", 30.0),
+            Map.entry("damaged back cover", 30.0),
+            Map.entry("loose cover", 40.0),
+            Map.entry("loose back cover", 40.0),
+            Map.entry("broken cover", 70.0),
+            Map.entry("broken back cover", 70.0),
+            Map.entry("missing cover page", 90.0),
+            Map.entry("missing back cover", 90.0)
+    );
+
+    private DamagePriceDefaults() {
+    }
+}
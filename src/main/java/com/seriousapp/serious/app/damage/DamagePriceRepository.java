@@ -0,0 +1,11 @@
+package com.seriousapp.serious.app.damage;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface DamagePriceRepository extends JpaRepository<DamagePrice, Long> {
+    Optional<DamagePrice> findByTag(String tag);
+}
@@ -0,0 +1,9 @@
+package com.seriousapp.serious.app.damage;
+
+import lombok.Data;
+
+@Data
+public class DamagePriceRequest {
+    private String tag;
+    private double price;
+}
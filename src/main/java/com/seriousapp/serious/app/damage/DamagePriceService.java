@@ -0,0 +1,65 @@
+package com.seriousapp.serious.app.damage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class DamagePriceService {
+    private final DamagePriceRepository damagePriceRepository;
+    private final DamagePriceCatalog damagePriceCatalog;
+
+    public List<DamagePrice> findAll() {
+        return damagePriceRepository.findAll();
+    }
+
+    public DamagePrice create(DamagePriceRequest request) {
+        String tag = validTag(request);
+        if (damagePriceRepository.findByTag(tag).isPresent()) {
+            throw new RuntimeException("A price for damage '" + tag + "' already exists");
+        }
+        DamagePrice price = new DamagePrice();
+        price.setTag(tag);
+        price.setPrice(validPrice(request));
+        DamagePrice saved = damagePriceRepository.save(price);
+        damagePriceCatalog.reload();
+        return saved;
+    }
+
+    public DamagePrice update(Long id, DamagePriceRequest request) {
+        DamagePrice price = damagePriceRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Damage price not found"));
+        String tag = validTag(request);
+        damagePriceRepository.findByTag(tag)
+                .filter(existing -> !existing.getId().equals(id))
+                .ifPresent(existing -> {
+                    throw new RuntimeException("A price for damage '" + tag + "' already exists");
+                });
+        price.setTag(tag);
+        price.setPrice(validPrice(request));
+        DamagePrice saved = damagePriceRepository.save(price);
+        damagePriceCatalog.reload();
+        return saved;
+    }
+
+    public void delete(Long id) {
+        damagePriceRepository.deleteById(id);
+        damagePriceCatalog.reload();
+    }
+
+    private static String validTag(DamagePriceRequest request) {
+        if (request.getTag() == null || request.getTag().isBlank()) {
+            throw new RuntimeException("Damage tag is required");
+        }
+        return DamagePriceCatalog.normalize(request.getTag());
+    }
+
+    private static double validPrice(DamagePriceRequest request) {
+        if (request.getPrice() < 0) {
+            throw new RuntimeException("Damage price cannot be negative");
+        }
+        return request.getPrice();
+    }
+}
@@ -0,0 +1,294 @@
+package com.seriousapp.serious.app.damage;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Maps free-form tags ("page torn", "Tears", "water-stained") to damage catalog entries. Tags and catalog
+ * phrases are reduced to the same form: lower case words without punctuation, each word stemmed and
+ * replaced by its canonical synonym. All phrases (in every word order, plus a table of alias phrases)
+ * are compiled into one Aho-Corasick automaton, so a tag is matched against the whole catalog in a
+ * single pass. When matches overlap the longest phrase wins, so a tag naming a specific entry is not
+ * also charged for a shorter entry inside it. A tag that says the book is lost matches {@link #LOST},
+ * whatever the catalog holds.
+ *
+ * Instances are immutable and built once per catalog snapshot.
+ */
+public final class DamageTagMatcher {
+    /**
+     * Target of tags reporting the book as lost, which is charged the book price instead of a catalog price.
+     */
+    public static final String LOST = "lost";
+
+    // Word forms vision and librarians use for the same damage, keyed by stem
+    private static final Map<String, String> WORD_SYNONYMS = Map.ofEntries(
+            Map.entry("tear", "torn"),
+            Map.entry("mould", "mold"),
+            Map.entry("mildew", "mold"),
+            Map.entry("burn", "burnt"),
+            Map.entry("bend", "bent"),
+            Map.entry("break", "broken"),
+            Map.entry("brok", "broken"),
+            Map.entry("dogear", "dog ear")
+    );
+
+    // Phrases that mean a catalog entry without containing its words, matched anywhere in a tag
+    private static final Map<String, String> PHRASE_ALIASES = Map.ofEntries(
+            Map.entry("water stain", "water damage"),
+            Map.entry("water stained", "water damage"),
+            Map.entry("wet", "water damage"),
+            Map.entry("highlighter", "highlighting"),
+            Map.entry("graffiti", "writing/markings added"),
+            Map.entry("scribble", "writing/markings added"),
+            Map.entry("doodle", "writing/markings added"),
+            Map.entry("pen marks", "writing/markings added"),
+            Map.entry("marker", "writing/markings added"),
+            Map.entry("discolored", "discoloration"),
+            Map.entry("discolouration", "discoloration"),
+            Map.entry("yellowed pages", "discoloration")
+    );
+
+    // Bare words that only identify an entry when they are the whole tag; "torn" alone is torn pages,
+    // but "torn cover" is not
+    private static final Map<String, String> TAG_ALIASES = Map.ofEntries(
+            Map.entry("torn", "torn pages"),
+            Map.entry("rip", "ripped pages"),
+            Map.entry("stain", "stains present"),
+            Map.entry("crease", "creased pages")
+    );
+
+    // Whole tags meaning the book itself is gone; "lost pages" or "missing book cover" are not
+    private static final Set<String> LOST_TAGS = Set.of("lost", "lost book", "book lost", "missing book", "book missing");
+
+    private static final int MAX_PERMUTED_WORDS = 3;
+
+    private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+    private final List<Integer> failure = new ArrayList<>();
+    private final List<List<Integer>> outputs = new ArrayList<>();
+    private final List<String> patternTargets = new ArrayList<>();
+    private final List<Integer> patternLengths = new ArrayList<>();
+    private final Map<String, String> tagAliases = new HashMap<>();
+
+    private DamageTagMatcher() {
+        newNode();
+    }
+
+    /**
+     * Compiles the matcher for the given catalog tags.
+     */
+    public static DamageTagMatcher build(Collection<String> catalogTags) {
+        DamageTagMatcher matcher = new DamageTagMatcher();
+        Set<String> catalog = new HashSet<>(catalogTags);
+        for (String tag : catalog) {
+            List<String> words = words(tag);
+            if (words.size() <= MAX_PERMUTED_WORDS) {
+                for (List<String> permutation : permutations(words)) {
+                    matcher.addPattern(permutation, tag);
+                }
+            } else {
+                matcher.addPattern(words, tag);
+            }
+        }
+        PHRASE_ALIASES.forEach((alias, tag) -> {
+            if (catalog.contains(tag)) {
+                matcher.addPattern(words(alias), tag);
+            }
+        });
+        TAG_ALIASES.forEach((alias, tag) -> {
+            if (catalog.contains(tag)) {
+                matcher.tagAliases.put(String.join(" ", words(alias)), tag);
+            }
+        });
+        LOST_TAGS.forEach(alias -> matcher.tagAliases.put(String.join(" ", words(alias)), LOST));
+        matcher.buildFailureLinks();
+        return matcher;
+    }
+
+    /**
+     * Catalog tags found in any of the given tags, each at most once.
+     */
+    public Set<String> match(Collection<String> tags) {
+        Set<String> matched = new LinkedHashSet<>();
+        for (String tag : tags) {
+            if (tag != null && !tag.isBlank()) {
+                matchInto(tag, matched);
+            }
+        }
+        return matched;
+    }
+
+    private void matchInto(String tag, Set<String> matched) {
+        String phrase = String.join(" ", words(tag));
+        String alias = tagAliases.get(phrase);
+        if (alias != null) {
+            matched.add(alias);
+            return;
+        }
+
+        String text = " " + phrase + " ";
+        List<int[]> hits = new ArrayList<>();
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            while (state != 0 && !transitions.get(state).containsKey(c)) {
+                state = failure.get(state);
+            }
+            state = transitions.get(state).getOrDefault(c, 0);
+            for (int pattern : outputs.get(state)) {
+                int end = i + 1;
+                hits.add(new int[]{end - patternLengths.get(pattern), end, pattern});
+            }
+        }
+        if (hits.isEmpty()) {
+            return;
+        }
+
+        // Longest first; a hit is dropped when it shares a word with an accepted one
+        hits.sort(Comparator.<int[]>comparingInt(hit -> hit[1] - hit[0]).reversed().thenComparingInt(hit -> hit[0]));
+        List<int[]> accepted = new ArrayList<>();
+        for (int[] hit : hits) {
+            boolean overlaps = false;
+            for (int[] other : accepted) {
+                // Patterns include their boundary spaces, which neighbouring phrases may share
+                if (hit[0] + 1 < other[1] - 1 && other[0] + 1 < hit[1] - 1) {
+                    overlaps = true;
+                    break;
+                }
+            }
+            if (!overlaps) {
+                accepted.add(hit);
+                matched.add(patternTargets.get(hit[2]));
+            }
+        }
+    }
+
+    private void addPattern(List<String> words, String target) {
+        if (words.isEmpty()) {
+            return;
+        }
+        String pattern = " " + String.join(" ", words) + " ";
+        int state = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            Integer next = transitions.get(state).get(c);
+            if (next == null) {
+                next = newNode();
+                transitions.get(state).put(c, next);
+            }
+            state = next;
+        }
+        int index = patternTargets.size();
+        patternTargets.add(target);
+        patternLengths.add(pattern.length());
+        outputs.get(state).add(index);
+    }
+
+    private int newNode() {
+        transitions.add(new HashMap<>());
+        failure.add(0);
+        outputs.add(new ArrayList<>());
+        return transitions.size() - 1;
+    }
+
+    private void buildFailureLinks() {
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int child : transitions.get(0).values()) {
+            failure.set(child, 0);
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.remove();
+            for (Map.Entry<Character, Integer> edge : transitions.get(state).entrySet()) {
+                char c = edge.getKey();
+                int child = edge.getValue();
+                int fallback = failure.get(state);
+                while (fallback != 0 && !transitions.get(fallback).containsKey(c)) {
+                    fallback = failure.get(fallback);
+                }
+                int target = transitions.get(fallback).getOrDefault(c, 0);
+                failure.set(child, target == child ? 0 : target);
+                outputs.get(child).addAll(outputs.get(failure.get(child)));
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * Lower cases, drops punctuation, stems each word and maps it to its canonical synonym.
+     */
+    static List<String> words(String phrase) {
+        List<String> words = new ArrayList<>();
+        for (String word : phrase.toLowerCase(Locale.ROOT).split("[^a-z0-9]+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            String stem = stem(word);
+            String canonical = WORD_SYNONYMS.getOrDefault(stem, stem);
+            for (String part : canonical.split(" ")) {
+                words.add(part);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Light suffix stripping so plurals and participles meet their base form ("pages", "page";
+     * "creased", "crease"). Not a full Porter stemmer, just enough for damage vocabulary.
+     */
+    static String stem(String word) {
+        String stem = word;
+        if (stem.length() > 4 && stem.endsWith("ies")) {
+            stem = stem.substring(0, stem.length() - 3) + "y";
+        } else if (stem.endsWith("sses")) {
+            stem = stem.substring(0, stem.length() - 2);
+        } else if (stem.length() > 4 && (stem.endsWith("ches") || stem.endsWith("shes") || stem.endsWith("xes"))) {
+            stem = stem.substring(0, stem.length() - 2);
+        } else if (stem.length() > 3 && stem.endsWith("s") && !stem.endsWith("ss") && !stem.endsWith("us")) {
+            stem = stem.substring(0, stem.length() - 1);
+        } else if (stem.length() > 5 && stem.endsWith("ing")) {
+            stem = undouble(stem.substring(0, stem.length() - 3));
+        } else if (stem.length() > 4 && stem.endsWith("ed")) {
+            stem = undouble(stem.substring(0, stem.length() - 2));
+        }
+        if (stem.length() >= 4 && stem.endsWith("e")) {
+            stem = stem.substring(0, stem.length() - 1);
+        }
+        return stem;
+    }
+
+    private static String undouble(String stem) {
+        int length = stem.length();
+        if (length > 2 && stem.charAt(length - 1) == stem.charAt(length - 2) && "lsz".indexOf(stem.charAt(length - 1)) < 0) {
+            return stem.substring(0, length - 1);
+        }
+        return stem;
+    }
+
+    private static List<List<String>> permutations(List<String> words) {
+        if (words.size() <= 1) {
+            return List.of(words);
+        }
+        Set<List<String>> permutations = new LinkedHashSet<>();
+        for (int i = 0; i < words.size(); i++) {
+            List<String> rest = new ArrayList<>(words);
+            String first = rest.remove(i);
+            for (List<String> tail : permutations(rest)) {
+                List<String> permutation = new ArrayList<>();
+                permutation.add(first);
+                permutation.addAll(tail);
+                permutations.add(permutation);
+            }
+        }
+        return new ArrayList<>(permutations);
+    }
+}
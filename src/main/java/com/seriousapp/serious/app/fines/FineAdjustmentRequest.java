@@ -0,0 +1,9 @@
+package com.seriousapp.serious.app.fines;
+
+import lombok.Data;
+
+@Data
+public class FineAdjustmentRequest {
+    private double amount;
+    private String description;
+}
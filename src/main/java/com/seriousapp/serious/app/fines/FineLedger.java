@@ -0,0 +1,104 @@
+package com.seriousapp.serious.app.fines;
+
+import com.seriousapp.serious.app.users.student.StudentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records fine charges, payments and waivers. Every entry is inserted together with a single
+ * {@code UPDATE students SET outstanding_fines = outstanding_fines + ?}, so concurrent returns for the
+ * same student never lose an update and only hold the student row for the rest of their transaction.
+ * Payments and waivers are conditional updates that fail instead of taking a balance below zero.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FineLedger {
+    // Balances are doubles, so allow for rounding when comparing against them
+    private static final double TOLERANCE = 0.005;
+
+    private final FineTransactionRepository fineTransactionRepository;
+    private final StudentRepository studentRepository;
+
+    @Transactional
+    public FineTransaction charge(Long studentId, double amount, String description, Long borrowingRecordId) {
+        requirePositive(amount);
+        if (studentRepository.addToOutstandingFines(studentId, amount) == 0) {
+            throw new RuntimeException("Student not found");
+        }
+        return record(studentId, FineTransactionType.CHARGE, amount, description, borrowingRecordId);
+    }
+
+    @Transactional
+    public FineTransaction pay(Long studentId, double amount, String description) {
+        return deduct(studentId, FineTransactionType.PAYMENT, amount, description);
+    }
+
+    @Transactional
+    public FineTransaction waive(Long studentId, double amount, String description) {
+        return deduct(studentId, FineTransactionType.WAIVER, amount, description);
+    }
+
+    /**
+     * Waives the whole outstanding balance, returns {@code null} when there was nothing to waive.
+     */
+    @Transactional
+    public FineTransaction waiveOutstanding(Long studentId, String description) {
+        double balance = studentRepository.lockOutstandingFines(studentId)
+                .orElseThrow(() -> new RuntimeException("Student not found"));
+        if (balance <= 0) {
+            return null;
+        }
+        return deduct(studentId, FineTransactionType.WAIVER, balance, description);
+    }
+
+    @Transactional(readOnly = true)
+    public double balance(Long studentId) {
+        return studentRepository.findOutstandingFines(studentId)
+                .orElseThrow(() -> new RuntimeException("Student not found"));
+    }
+
+    @Transactional(readOnly = true)
+    public FineStatement statement(Long studentId) {
+        double balance = balance(studentId);
+        List<FineStatement.Entry> entries = new ArrayList<>();
+        double running = 0.0;
+        for (FineTransaction transaction : fineTransactionRepository.findByStudentIdOrderByIdAsc(studentId)) {
+            running += transaction.getAmount();
+            entries.add(new FineStatement.Entry(transaction.getId(), transaction.getType(), transaction.getAmount(),
+                    running, transaction.getDescription(), transaction.getBorrowingRecordId(), transaction.getCreatedAt()));
+        }
+        return new FineStatement(studentId, balance, entries);
+    }
+
+    private FineTransaction deduct(Long studentId, FineTransactionType type, double amount, String description) {
+        requirePositive(amount);
+        if (studentRepository.deductFromOutstandingFines(studentId, amount, amount - TOLERANCE) == 0) {
+            throw new RuntimeException("Amount exceeds the outstanding fines of the student");
+        }
+        return record(studentId, type, -amount, description, null);
+    }
+
+    private FineTransaction record(Long studentId, FineTransactionType type, double amount, String description, Long borrowingRecordId) {
+        FineTransaction transaction = new FineTransaction();
+        transaction.setStudentId(studentId);
+        transaction.setType(type);
+        transaction.setAmount(amount);
+        transaction.setDescription(description);
+        transaction.setBorrowingRecordId(borrowingRecordId);
+        FineTransaction saved = fineTransactionRepository.save(transaction);
+        log.info("Recorded {} of {} for student {}", type, String.format("%.2f", Math.abs(amount)), studentId);
+        return saved;
+    }
+
+    private static void requirePositive(double amount) {
+        if (!(amount > 0)) {
+            throw new RuntimeException("Amount must be greater than zero");
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.seriousapp.serious.app.fines;
+
+import com.seriousapp.serious.app.configurations.SchemaUpgrade;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Opens the ledger of every student whose balance is not the sum of their ledger rows, which are the
+ * balances from before the ledger existed. The difference becomes an entry of its own, so
+ * {@link FineLedger#statement} ends at {@code students.outstanding_fines}, and a second run finds
+ * nothing to do.
+ */
+@Slf4j
+@Component
+public class FineLedgerSchemaUpgrade implements SchemaUpgrade {
+    static final String DESCRIPTION = "Balance before fine ledger";
+
+    @Override
+    public String name() {
+        return "fine-ledger-opening-balances";
+    }
+
+    @Override
+    public void apply(JdbcTemplate jdbcTemplate) {
+        int opened = jdbcTemplate.update("""
+                INSERT INTO fine_transactions (student_id, type, amount, description, created_at)
+                SELECT b.id, CASE WHEN b.missing > 0 THEN 'CHARGE' ELSE 'WAIVER' END, b.missing, ?, now()
+                FROM (
+                    SELECT s.id, s.outstanding_fines - COALESCE(SUM(f.amount), 0) AS missing
+                    FROM students s
+                    LEFT JOIN fine_transactions f ON f.student_id = s.id
+                    GROUP BY s.id, s.outstanding_fines
+                ) b
+                WHERE ABS(b.missing) > 0.005
+                """, DESCRIPTION);
+        if (opened > 0) {
+            log.info("Recorded opening fine balances for {} students", opened);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.seriousapp.serious.app.fines;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A student's fine history, oldest first, with the balance after each entry.
+ */
+public record FineStatement(Long studentId, double balance, List<Entry> entries) {
+
+    public record Entry(Long id, FineTransactionType type, double amount, double balanceAfter,
+                        String description, Long borrowingRecordId, Instant createdAt) {}
+}
@@ -0,0 +1,43 @@
+package com.seriousapp.serious.app.fines;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.Instant;
+
+/**
+ * One change to a student's fine balance. Rows are only ever inserted; the balance in
+ * {@code students.outstanding_fines} always equals the sum of a student's rows.
+ */
+@Data
+@Entity
+@Table(name = "fine_transactions", indexes = {
+        @Index(name = "idx_fine_transactions_student", columnList = "student_id, id")
+})
+public class FineTransaction {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "student_id", nullable = false)
+    private Long studentId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private FineTransactionType type;
+
+    // Change to the balance: positive for charges, negative for payments and waivers
+    @Column(nullable = false)
+    private double amount;
+
+    @Column(length = 500)
+    private String description;
+
+    @Column(name = "borrowing_record_id")
+    private Long borrowingRecordId;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private Instant createdAt;
+}
@@ -0,0 +1,11 @@
+package com.seriousapp.serious.app.fines;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface FineTransactionRepository extends JpaRepository<FineTransaction, Long> {
+    List<FineTransaction> findByStudentIdOrderByIdAsc(Long studentId);
+}
@@ -0,0 +1,7 @@
+package com.seriousapp.serious.app.fines;
+
+public enum FineTransactionType {
+    CHARGE,
+    PAYMENT,
+    WAIVER
+}
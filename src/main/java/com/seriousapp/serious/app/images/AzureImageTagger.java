@@ -0,0 +1,49 @@
+package com.seriousapp.serious.app.images;
+
+import com.azure.ai.vision.imageanalysis.ImageAnalysisClient;
+import com.azure.ai.vision.imageanalysis.models.ImageAnalysisOptions;
+import com.azure.ai.vision.imageanalysis.models.ImageAnalysisResult;
+import com.azure.ai.vision.imageanalysis.models.VisualFeatures;
+import com.azure.core.util.BinaryData;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@Component
+@Profile("!offline")
+@Qualifier(ImageTagger.VISION)
+public class AzureImageTagger implements ImageTagger {
+    private final ImageAnalysisClient client;
+
+    public AzureImageTagger(ImageAnalysisClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public List<String> tagImage(String imageUrl) {
+        return tagNames(client.analyzeFromUrl(
+                imageUrl,
+                Collections.singletonList(VisualFeatures.TAGS),
+                new ImageAnalysisOptions().setGenderNeutralCaption(true)));
+    }
+
+    @Override
+    public List<String> tagImage(byte[] imageData) {
+        return tagNames(client.analyze(
+                BinaryData.fromBytes(imageData),
+                Collections.singletonList(VisualFeatures.TAGS),
+                new ImageAnalysisOptions().setGenderNeutralCaption(true)));
+    }
+
+    private static List<String> tagNames(ImageAnalysisResult result) {
+        List<String> tags = new ArrayList<>();
+        if (result.getTags() != null) {
+            result.getTags().getValues().forEach(tag -> tags.add(tag.getName()));
+        }
+        return tags;
+    }
+}
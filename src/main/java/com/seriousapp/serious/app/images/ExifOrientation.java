@@ -0,0 +1,103 @@
+package com.seriousapp.serious.app.images;
+
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads the EXIF orientation of a JPEG and rotates the pixels accordingly. Phones store photos sideways
+ * and rely on this tag, which is lost when the image is re-encoded.
+ */
+final class ExifOrientation {
+    static final int NORMAL = 1;
+
+    private static final String JPEG_METADATA_FORMAT = "javax_imageio_jpeg_image_1.0";
+    private static final String APP1_MARKER = String.valueOf(0xE1);
+    private static final int ORIENTATION_TAG = 0x0112;
+
+    private ExifOrientation() {
+    }
+
+    static int read(IIOMetadata metadata) {
+        if (metadata == null || !Arrays.asList(metadata.getMetadataFormatNames()).contains(JPEG_METADATA_FORMAT)) {
+            return NORMAL;
+        }
+        Node root = metadata.getAsTree(JPEG_METADATA_FORMAT);
+        for (Node sequence = root.getFirstChild(); sequence != null; sequence = sequence.getNextSibling()) {
+            if (!"markerSequence".equals(sequence.getNodeName())) {
+                continue;
+            }
+            for (Node marker = sequence.getFirstChild(); marker != null; marker = marker.getNextSibling()) {
+                NamedNodeMap attributes = marker.getAttributes();
+                Node markerTag = attributes == null ? null : attributes.getNamedItem("MarkerTag");
+                if ("unknown".equals(marker.getNodeName()) && markerTag != null && APP1_MARKER.equals(markerTag.getNodeValue())
+                        && marker instanceof IIOMetadataNode node && node.getUserObject() instanceof byte[] app1) {
+                    return parse(app1);
+                }
+            }
+        }
+        return NORMAL;
+    }
+
+    static BufferedImage apply(BufferedImage image, int orientation) {
+        // Only the pure rotations, mirrored orientations do not come out of phone cameras
+        int quadrants = switch (orientation) {
+            case 3 -> 2;
+            case 6 -> 1;
+            case 8 -> 3;
+            default -> 0;
+        };
+        if (quadrants == 0) {
+            return image;
+        }
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean swap = quadrants % 2 == 1;
+        BufferedImage rotated = new BufferedImage(swap ? height : width, swap ? width : height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = rotated.createGraphics();
+        try {
+            AffineTransform transform = new AffineTransform();
+            transform.translate(rotated.getWidth() / 2.0, rotated.getHeight() / 2.0);
+            transform.quadrantRotate(quadrants);
+            transform.translate(-width / 2.0, -height / 2.0);
+            graphics.drawImage(image, transform, null);
+        } finally {
+            graphics.dispose();
+        }
+        return rotated;
+    }
+
+    private static int parse(byte[] app1) {
+        if (app1.length < 14 || !"Exif".equals(new String(app1, 0, 4, StandardCharsets.US_ASCII))) {
+            return NORMAL;
+        }
+        ByteBuffer tiff = ByteBuffer.wrap(app1, 6, app1.length - 6).slice();
+        tiff.order(tiff.get(0) == 'I' ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+
+        int ifd = tiff.getInt(4);
+        if (ifd < 0 || ifd + 2 > tiff.limit()) {
+            return NORMAL;
+        }
+        int entries = tiff.getShort(ifd) & 0xFFFF;
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > tiff.limit()) {
+                break;
+            }
+            if ((tiff.getShort(entry) & 0xFFFF) == ORIENTATION_TAG) {
+                return tiff.getShort(entry + 8) & 0xFFFF;
+            }
+        }
+        return NORMAL;
+    }
+}
@@ -0,0 +1,72 @@
+package com.seriousapp.serious.app.images;
+
+import com.seriousapp.serious.app.utils.HashUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Stand-in for the vision service in the offline profile. Tags are derived from a hash of the image
+ * (or its URL), so the same photo always gets the same tags, and each call sleeps for a configurable
+ * latency and fails at a configurable rate to exercise the timeout and circuit breaker.
+ */
+@Component
+@Profile("offline")
+@Qualifier(ImageTagger.VISION)
+public class FakeImageTagger implements ImageTagger {
+    private final FakeImageTaggerProperties properties;
+
+    public FakeImageTagger(FakeImageTaggerProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public List<String> tagImage(String imageUrl) {
+        return tagsFor(HashUtils.sha256(imageUrl));
+    }
+
+    @Override
+    public List<String> tagImage(byte[] imageData) {
+        return tagsFor(HashUtils.newSha256().digest(imageData));
+    }
+
+    private List<String> tagsFor(byte[] hash) {
+        simulateLatency();
+        if (ThreadLocalRandom.current().nextDouble() < properties.getErrorRate()) {
+            throw new RuntimeException("Injected vision failure");
+        }
+
+        List<String> vocabulary = properties.getTags();
+        List<String> tags = new ArrayList<>();
+        if (vocabulary.isEmpty()) {
+            return tags;
+        }
+        for (int i = 0; i < Math.min(properties.getTagsPerImage(), hash.length); i++) {
+            String tag = vocabulary.get(Math.floorMod(hash[i], vocabulary.size()));
+            if (!tags.contains(tag)) {
+                tags.add(tag);
+            }
+        }
+        return tags;
+    }
+
+    private void simulateLatency() {
+        long latency = properties.getLatencyMillis();
+        if (properties.getLatencyJitterMillis() > 0) {
+            latency += ThreadLocalRandom.current().nextLong(properties.getLatencyJitterMillis() + 1);
+        }
+        if (latency <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while simulating vision latency", e);
+        }
+    }
+}
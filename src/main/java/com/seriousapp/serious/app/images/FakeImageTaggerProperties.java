@@ -0,0 +1,23 @@
+package com.seriousapp.serious.app.images;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Component
+@Profile("offline")
+@ConfigurationProperties(prefix = "offline.vision")
+public class FakeImageTaggerProperties {
+    private long latencyMillis = 300;
+    private long latencyJitterMillis = 200;
+    // Share of calls that throw, between 0 and 1
+    private double errorRate = 0;
+    private int tagsPerImage = 5;
+    private List<String> tags = new ArrayList<>(List.of(
+            "book", "text", "paper", "indoor", "table", "handwriting", "cover", "page", "stain", "tear"));
+}
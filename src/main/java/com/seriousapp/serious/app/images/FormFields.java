@@ -0,0 +1,33 @@
+package com.seriousapp.serious.app.images;
+
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Plain form fields read from a streamed multipart request.
+ */
+public class FormFields {
+    private final MultiValueMap<String, String> fields = new LinkedMultiValueMap<>();
+
+    void add(String name, String value) {
+        fields.add(name, value);
+    }
+
+    /**
+     * Values of a form field, accepting both repeated fields and comma separated values like {@code @RequestParam} does.
+     */
+    public List<String> values(String name) {
+        List<String> values = fields.get(name);
+        if (values == null) {
+            return List.of();
+        }
+        return values.stream()
+                .flatMap(value -> Arrays.stream(value.split(",")))
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .toList();
+    }
+}
@@ -0,0 +1,41 @@
+package com.seriousapp.serious.app.images;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A stored image identified by the SHA-256 of its bytes, together with the vision tags computed for it.
+ */
+@Data
+@Entity
+@Table(name = "image_contents")
+public class ImageContent {
+    @Id
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(length = 1024)
+    private String blobUrl;
+
+    @Column(length = 1024)
+    private String thumbnailUrl;
+
+    // PerceptualHash of the decoded image, null for formats that were stored as uploaded
+    @Column(name = "perceptual_hash")
+    private Long perceptualHash;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "image_content_tags", joinColumns = @JoinColumn(name = "content_hash"),
+            indexes = @Index(name = "idx_image_content_tags_hash", columnList = "content_hash"))
+    @Column(name = "tag")
+    private List<String> tags = new ArrayList<>();
+
+    @CreationTimestamp
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,8 @@
+package com.seriousapp.serious.app.images;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ImageContentRepository extends JpaRepository<ImageContent, String> {
+}
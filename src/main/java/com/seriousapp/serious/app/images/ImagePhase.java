@@ -0,0 +1,16 @@
+package com.seriousapp.serious.app.images;
+
+/**
+ * Moment in a borrowing record's life an image was taken at. Images live under
+ * {@code records/{recordId}/{phase}/} in the shared container.
+ */
+public enum ImagePhase {
+    BORROW,
+    RETURN,
+    // Raw uploads waiting for a background job to process them
+    INCOMING;
+
+    public String pathFor(Long recordId) {
+        return "records/" + recordId + "/" + name().toLowerCase();
+    }
+}
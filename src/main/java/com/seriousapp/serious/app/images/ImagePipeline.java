@@ -0,0 +1,514 @@
+package com.seriousapp.serious.app.images;
+
+import com.seriousapp.serious.app.storage.BlobStore;
+import com.seriousapp.serious.app.utils.HashUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.fileupload2.core.DiskFileItem;
+import org.apache.commons.fileupload2.core.DiskFileItemFactory;
+import org.apache.commons.fileupload2.core.FileItemInput;
+import org.apache.commons.fileupload2.core.FileItemInputIterator;
+import org.apache.commons.fileupload2.jakarta.servlet6.JakartaServletFileUpload;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Uploads and tags the images of one borrow/return request concurrently. Each image is re-encoded by the
+ * {@link ImageProcessor} and then runs on its own virtual thread, where the upload and the vision
+ * analysis of the reduced analysis copy run side by side. A per-request semaphore caps how many images
+ * of a single request are in flight at once. Images are identified by content hash, stored in the
+ * {@link BlobStore} under the caller's path prefix (see {@link ImagePhase}), and content that was processed
+ * before is served from {@link VisionTagCache}.
+ */
+@Slf4j
+@Component
+public class ImagePipeline {
+    private static final String IMAGES_FIELD = "images";
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final BlobStore blobStore;
+    private final ImageTagger imageTagger;
+    private final ImageProcessor imageProcessor;
+    private final VisionTagCache visionTagCache;
+    private final int maxParallelism;
+    private final int maxPerceptualDistance;
+    private final int blockSize;
+    private final DataSize maxFileSize;
+    private final DataSize maxRequestSize;
+    private final Timer uploadTimer;
+    private final Timer analyzeTimer;
+    private final Timer totalTimer;
+    private final DistributionSummary uploadSize;
+    private final DistributionSummary uploadThroughput;
+    private final Counter referenceReused;
+    private final Counter referenceMissed;
+
+    public ImagePipeline(
+            BlobStore blobStore,
+            ImageTagger imageTagger,
+            ImageProcessor imageProcessor,
+            VisionTagCache visionTagCache,
+            @Value("${images.pipeline.max-parallelism:4}") int maxParallelism,
+            @Value("${images.perceptual-hash.max-distance:10}") int maxPerceptualDistance,
+            @Value("${images.upload.block-size:4MB}") DataSize blockSize,
+            @Value("${spring.servlet.multipart.max-file-size:1000MB}") DataSize maxFileSize,
+            @Value("${spring.servlet.multipart.max-request-size:1000MB}") DataSize maxRequestSize,
+            MeterRegistry meterRegistry
+    ) {
+        this.blobStore = blobStore;
+        this.imageTagger = imageTagger;
+        this.imageProcessor = imageProcessor;
+        this.visionTagCache = visionTagCache;
+        this.maxParallelism = maxParallelism;
+        this.maxPerceptualDistance = maxPerceptualDistance;
+        this.blockSize = Math.toIntExact(blockSize.toBytes());
+        this.maxFileSize = maxFileSize;
+        this.maxRequestSize = maxRequestSize;
+        this.uploadTimer = stageTimer(meterRegistry, "upload");
+        this.analyzeTimer = stageTimer(meterRegistry, "analyze");
+        this.totalTimer = stageTimer(meterRegistry, "total");
+        this.uploadSize = DistributionSummary.builder("images.upload.size")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.uploadThroughput = DistributionSummary.builder("images.upload.throughput")
+                .baseUnit("bytes/s")
+                .register(meterRegistry);
+        this.referenceReused = referenceCounter(meterRegistry, "reused");
+        this.referenceMissed = referenceCounter(meterRegistry, "analysed");
+    }
+
+    public ImagePipelineResult process(List<MultipartFile> images, String blobPrefix) {
+        return process(images.stream()
+                .map(image -> new ImageSource(image.getOriginalFilename(), image.getSize(), image::getInputStream))
+                .toList(), blobPrefix, List.of());
+    }
+
+    /**
+     * Processes images that were staged as uploaded by {@link #stage}. An image that looks like one of
+     * the references (see {@link PerceptualHash}) takes over its tags instead of being analysed again.
+     */
+    public ImagePipelineResult processStaged(List<String> blobNames, String blobPrefix, List<ReferenceImage> references) {
+        return process(blobNames.stream()
+                .map(blobName -> new ImageSource(blobName, -1, () -> blobStore.openInputStream(blobName)))
+                .toList(), blobPrefix, references);
+    }
+
+    /**
+     * Earlier analysed images that {@link #processStaged} can compare new photos with.
+     */
+    public List<ReferenceImage> referencesFor(Collection<String> contentHashes) {
+        return visionTagCache.references(contentHashes);
+    }
+
+    public void deleteStaged(List<String> blobNames) {
+        for (String blobName : blobNames) {
+            try {
+                blobStore.deleteIfExists(blobName);
+            } catch (RuntimeException e) {
+                log.warn("Could not delete staged image {}: {}", blobName, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Streams the {@code images} parts of a multipart request into the pipeline as they are parsed,
+     * without materialising the request first. Each part is consumed while it arrives, either by the
+     * {@link ImageProcessor} or, for formats it cannot decode, through a single block sized buffer straight
+     * into blob storage. Uploading the renditions and vision tagging run on a virtual thread while the
+     * next part is still being received.
+     */
+    public StreamedImages process(HttpServletRequest request, String blobPrefix) throws IOException {
+        Timer.Sample total = Timer.start();
+        Semaphore permits = new Semaphore(maxParallelism);
+        byte[] buffer = new byte[blockSize];
+        List<CompletableFuture<ImageResult>> futures = new ArrayList<>();
+        try {
+            FormFields fields = readMultipart(request, (filename, in) -> {
+                Supplier<ImageResult> pending = ingest(in, filename, blobPrefix, List.of(), buffer);
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    permits.acquireUninterruptibly();
+                    try {
+                        return pending.get();
+                    } finally {
+                        permits.release();
+                    }
+                }, executor));
+            });
+            return new StreamedImages(collect(futures), fields);
+        } catch (IOException | RuntimeException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw e;
+        } finally {
+            total.stop(totalTimer);
+        }
+    }
+
+    /**
+     * Streams the {@code images} parts of a multipart request into blob storage unchanged, for a
+     * background job to process later with {@link #processStaged}.
+     */
+    public StagedImages stage(HttpServletRequest request, String blobPrefix) throws IOException {
+        List<String> blobNames = new ArrayList<>();
+        try {
+            FormFields fields = readMultipart(request, (filename, in) -> {
+                String blobName = blobPrefix + "/" + UUID.randomUUID() + extensionOf(filename);
+                // Closing the stream commits the blob even when the part failed, so track it up front
+                blobNames.add(blobName);
+                try (OutputStream out = blobStore.openOutputStream(blobName)) {
+                    in.transferTo(out);
+                }
+            });
+            return new StagedImages(blobNames, fields);
+        } catch (IOException | RuntimeException e) {
+            deleteStaged(blobNames);
+            throw e;
+        }
+    }
+
+    private ImagePipelineResult process(List<ImageSource> images, String blobPrefix, List<ReferenceImage> references) {
+        Timer.Sample total = Timer.start();
+        Semaphore permits = new Semaphore(maxParallelism);
+
+        List<CompletableFuture<ImageResult>> futures = new ArrayList<>(images.size());
+        for (ImageSource image : images) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                permits.acquireUninterruptibly();
+                try {
+                    Supplier<ImageResult> pending;
+                    // Images of known size only need a buffer as large as the image itself
+                    try (InputStream in = image.stream().open()) {
+                        byte[] buffer = new byte[image.size() < 0 ? blockSize : (int) Math.min(blockSize, image.size() + 1)];
+                        pending = ingest(in, image.filename(), blobPrefix, references, buffer);
+                    } catch (IOException e) {
+                        log.error("Error uploading image to blob storage: {}", e.getMessage(), e);
+                        return null;
+                    }
+                    return pending.get();
+                } finally {
+                    permits.release();
+                }
+            }, executor));
+        }
+
+        try {
+            return collect(futures);
+        } finally {
+            total.stop(totalTimer);
+        }
+    }
+
+    private FormFields readMultipart(HttpServletRequest request, ImagePartHandler imageHandler) throws IOException {
+        if (!JakartaServletFileUpload.isMultipartContent(request)) {
+            throw new RuntimeException("Expected a multipart/form-data request");
+        }
+
+        JakartaServletFileUpload<DiskFileItem, DiskFileItemFactory> upload = new JakartaServletFileUpload<>();
+        upload.setFileSizeMax(maxFileSize.toBytes());
+        upload.setSizeMax(maxRequestSize.toBytes());
+
+        FormFields fields = new FormFields();
+        FileItemInputIterator parts = upload.getItemIterator(request);
+        while (parts.hasNext()) {
+            FileItemInput part = parts.next();
+            try (InputStream in = part.getInputStream()) {
+                if (part.isFormField()) {
+                    fields.add(part.getFieldName(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+                } else if (IMAGES_FIELD.equals(part.getFieldName()) && part.getName() != null && !part.getName().isBlank()) {
+                    imageHandler.accept(part.getName(), in);
+                }
+            }
+        }
+        return fields;
+    }
+
+    private ImagePipelineResult collect(List<CompletableFuture<ImageResult>> futures) {
+        // Merge in submission order so the result does not depend on which image finished first
+        Set<String> imageUrls = new LinkedHashSet<>();
+        Set<String> tags = new LinkedHashSet<>();
+        Map<String, String> thumbnailUrls = new LinkedHashMap<>();
+        Set<String> contentHashes = new LinkedHashSet<>();
+        boolean degraded = false;
+        try {
+            for (CompletableFuture<ImageResult> future : futures) {
+                ImageResult result = future.join();
+                if (result != null) {
+                    imageUrls.add(result.url());
+                    contentHashes.add(result.contentHash());
+                    tags.addAll(result.tags());
+                    if (result.thumbnailUrl() != null) {
+                        thumbnailUrls.put(result.url(), result.thumbnailUrl());
+                    }
+                    degraded |= !result.analysed();
+                }
+            }
+        } catch (CompletionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+
+        return new ImagePipelineResult(imageUrls, tags, thumbnailUrls, List.copyOf(contentHashes), degraded);
+    }
+
+    /**
+     * Consumes one image from the stream and returns the remaining work (upload of the renditions and
+     * tagging), which no longer needs the stream and can run on another thread.
+     */
+    private Supplier<ImageResult> ingest(InputStream in, String filename, String blobPrefix,
+                                         List<ReferenceImage> references, byte[] buffer) throws IOException {
+        InputStream source = new BufferedInputStream(in);
+        if (imageProcessor.canDecode(source)) {
+            ProcessedImage processed = imageProcessor.process(source);
+            return () -> storeAndTag(processed, blobPrefix, references);
+        }
+
+        log.debug("Storing {} as uploaded, its format cannot be decoded", filename);
+        StoredImage stored = storeOriginal(source, filename, blobPrefix, buffer);
+        return () -> tag(stored);
+    }
+
+    /**
+     * Uploads the renditions of a decoded image and tags it. The analysis copy is sent to the vision
+     * service as bytes, concurrently with the upload, so tagging never waits for storage. An image close
+     * enough to a reference reuses the reference's tags and is not analysed at all.
+     */
+    private ImageResult storeAndTag(ProcessedImage processed, String blobPrefix, List<ReferenceImage> references) {
+        String contentHash = processed.contentHash();
+        var cached = visionTagCache.lookup(contentHash);
+        if (cached.isPresent()) {
+            return new ImageResult(contentHash, cached.get().blobUrl(), cached.get().thumbnailUrl(), cached.get().tags(), true);
+        }
+
+        CompletableFuture<List<String>> tagging;
+        var reference = closestReference(processed.perceptualHash(), references);
+        // Borrowed tags describe another photo, so they are never cached under this image's hash
+        boolean analysed = reference.isEmpty();
+        if (reference.isPresent()) {
+            log.debug("Image {} looks like {}, reusing its tags", contentHash, reference.get().contentHash());
+            tagging = CompletableFuture.completedFuture(reference.get().tags());
+        } else {
+            Timer.Sample analyze = Timer.start();
+            tagging = imageTagger.tagImageAsync(processed.analysis(), executor)
+                    .whenComplete((tags, error) -> analyze.stop(analyzeTimer));
+        }
+
+        String imageUrl;
+        String thumbnailUrl;
+        try {
+            Timer.Sample upload = Timer.start();
+            long started = System.nanoTime();
+            imageUrl = uploadBytes(blobPrefix + "/" + contentHash + ".jpg", processed.storage());
+            thumbnailUrl = uploadBytes(blobPrefix + "/" + contentHash + "-thumb.jpg", processed.thumbnail());
+            recordUpload(upload, started, processed.storage().length + processed.thumbnail().length);
+        } catch (RuntimeException e) {
+            tagging.cancel(true);
+            throw e;
+        }
+
+        List<String> tags;
+        try {
+            tags = tagging.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof VisionUnavailableException unavailable) {
+                log.warn("Image {} stored without vision tags: {}", contentHash, unavailable.getMessage());
+                return new ImageResult(contentHash, imageUrl, thumbnailUrl, List.of(), false);
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+
+        if (analysed) {
+            visionTagCache.store(contentHash, imageUrl, thumbnailUrl, processed.perceptualHash(), tags);
+        }
+        return new ImageResult(contentHash, imageUrl, thumbnailUrl, tags, true);
+    }
+
+    private Optional<ReferenceImage> closestReference(long perceptualHash, List<ReferenceImage> references) {
+        if (references.isEmpty()) {
+            return Optional.empty();
+        }
+        ReferenceImage closest = null;
+        int closestDistance = Integer.MAX_VALUE;
+        for (ReferenceImage reference : references) {
+            int distance = PerceptualHash.distance(perceptualHash, reference.perceptualHash());
+            if (distance < closestDistance) {
+                closest = reference;
+                closestDistance = distance;
+            }
+        }
+        if (closestDistance <= maxPerceptualDistance) {
+            referenceReused.increment();
+            return Optional.of(closest);
+        }
+        referenceMissed.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * Hashes and uploads one image as received, in block sized chunks. An image that fits in a single
+     * block is hashed before anything is sent, so known content costs no upload at all; larger images are
+     * staged block by block and their block list is only committed once the hash turned out to be new.
+     * Blocks that are never committed are discarded.
+     */
+    private StoredImage storeOriginal(InputStream in, String filename, String blobPrefix, byte[] buffer) throws IOException {
+        Timer.Sample upload = Timer.start();
+        long started = System.nanoTime();
+        MessageDigest digest = HashUtils.newSha256();
+        String extension = extensionOf(filename);
+
+        int filled = in.readNBytes(buffer, 0, buffer.length);
+        digest.update(buffer, 0, filled);
+        long size = filled;
+
+        if (filled < buffer.length) {
+            String contentHash = HashUtils.toHex(digest.digest());
+            var cached = visionTagCache.lookup(contentHash);
+            if (cached.isPresent()) {
+                return StoredImage.cached(contentHash, cached.get());
+            }
+            String url = blobStore.put(blobPrefix + "/" + contentHash + extension, new ByteArrayInputStream(buffer, 0, filled), filled);
+            recordUpload(upload, started, size);
+            return new StoredImage(contentHash, url, null, null);
+        }
+
+        BlobStore.BlockUpload blockUpload = blobStore.beginBlockUpload(blobPrefix + "/" + UUID.randomUUID() + extension);
+        try {
+            while (filled > 0) {
+                blockUpload.stage(buffer, filled);
+
+                filled = in.readNBytes(buffer, 0, buffer.length);
+                digest.update(buffer, 0, filled);
+                size += filled;
+            }
+        } catch (IOException | RuntimeException e) {
+            blockUpload.abort();
+            throw e;
+        }
+
+        String contentHash = HashUtils.toHex(digest.digest());
+        var cached = visionTagCache.lookup(contentHash);
+        if (cached.isPresent()) {
+            blockUpload.abort();
+            return StoredImage.cached(contentHash, cached.get());
+        }
+        String url = blockUpload.commit();
+        recordUpload(upload, started, size);
+        return new StoredImage(contentHash, url, null, null);
+    }
+
+    private String uploadBytes(String blobName, byte[] content) {
+        return blobStore.put(blobName, content);
+    }
+
+    /**
+     * Tags an image stored as uploaded, which the vision service fetches from storage by URL.
+     */
+    private ImageResult tag(StoredImage stored) {
+        // Identical photo seen before: reuse its stored blob and tags instead of analysing again
+        if (stored.cachedTags() != null) {
+            return new ImageResult(stored.contentHash(), stored.url(), stored.thumbnailUrl(), stored.cachedTags(), true);
+        }
+
+        Timer.Sample analyze = Timer.start();
+        List<String> tags;
+        try {
+            tags = imageTagger.tagImage(stored.url());
+        } catch (VisionUnavailableException e) {
+            log.warn("Image {} stored without vision tags: {}", stored.contentHash(), e.getMessage());
+            return new ImageResult(stored.contentHash(), stored.url(), stored.thumbnailUrl(), List.of(), false);
+        } finally {
+            analyze.stop(analyzeTimer);
+        }
+
+        visionTagCache.store(stored.contentHash(), stored.url(), stored.thumbnailUrl(), null, tags);
+        return new ImageResult(stored.contentHash(), stored.url(), stored.thumbnailUrl(), tags, true);
+    }
+
+    private void recordUpload(Timer.Sample upload, long startedNanos, long size) {
+        upload.stop(uploadTimer);
+        uploadSize.record(size);
+        double seconds = (System.nanoTime() - startedNanos) / 1_000_000_000.0;
+        if (seconds > 0) {
+            uploadThroughput.record(size / seconds);
+        }
+    }
+
+    private static String extensionOf(String filename) {
+        if (filename == null || filename.lastIndexOf('.') < 0) {
+            return "";
+        }
+        return filename.substring(filename.lastIndexOf('.')).toLowerCase();
+    }
+
+    private static Counter referenceCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("images.perceptual-hash.comparisons")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static Timer stageTimer(MeterRegistry meterRegistry, String stage) {
+        return Timer.builder("images.pipeline.stage")
+                .tag("stage", stage)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    @FunctionalInterface
+    private interface ImagePartHandler {
+        void accept(String filename, InputStream in) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface StreamOpener {
+        InputStream open() throws IOException;
+    }
+
+    private record ImageSource(String filename, long size, StreamOpener stream) {}
+
+    private record StoredImage(String contentHash, String url, String thumbnailUrl, List<String> cachedTags) {
+        static StoredImage cached(String contentHash, VisionTagCache.CachedImage cached) {
+            return new StoredImage(contentHash, cached.blobUrl(), cached.thumbnailUrl(), cached.tags());
+        }
+    }
+
+    // Not analysed means the vision service was unavailable and the image has no tags yet
+    private record ImageResult(String contentHash, String url, String thumbnailUrl, List<String> tags, boolean analysed) {}
+}
@@ -0,0 +1,21 @@
+package com.seriousapp.serious.app.images;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Stored images and their merged tags. {@code degraded} means at least one image could not be analysed
+ * because the vision service was unavailable, so the tags are incomplete. {@code contentHashes} identify
+ * the stored images, for use as {@link ReferenceImage}s later.
+ */
+public record ImagePipelineResult(Set<String> imageUrls, Set<String> tags, Map<String, String> thumbnailUrls,
+                                  List<String> contentHashes, boolean degraded) {
+
+    /**
+     * Thumbnail of a stored image, or the image itself when none was produced.
+     */
+    public String thumbnailFor(String imageUrl) {
+        return thumbnailUrls.getOrDefault(imageUrl, imageUrl);
+    }
+}
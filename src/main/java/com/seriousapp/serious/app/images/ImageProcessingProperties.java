@@ -0,0 +1,24 @@
+package com.seriousapp.serious.app.images;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "images.processing")
+public class ImageProcessingProperties {
+    // Worker threads decoding and re-encoding images, 0 means one per available processor
+    private int threads = 0;
+    // Images waiting for a worker, beyond this new images are rejected instead of queued
+    private int queueCapacity = 32;
+    // Uploads are read into memory before a worker takes them, so this bounds the memory per image
+    private DataSize maxImageSize = DataSize.ofMegabytes(1000);
+    private int storageMaxDimension = 2048;
+    private float storageQuality = 0.85f;
+    private int analysisMaxDimension = 1024;
+    private float analysisQuality = 0.8f;
+    private int thumbnailMaxDimension = 320;
+    private float thumbnailQuality = 0.75f;
+}
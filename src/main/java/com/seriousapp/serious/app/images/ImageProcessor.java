@@ -0,0 +1,221 @@
+package com.seriousapp.serious.app.images;
+
+import com.seriousapp.serious.app.utils.HashUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodes uploaded photos and re-encodes them as a bounded resolution storage copy, a smaller copy for
+ * vision analysis and an email thumbnail. Decoding a phone photo takes tens of megabytes of pixels, so
+ * the work runs on a fixed pool of workers: that pool, not the number of concurrent uploads, bounds how
+ * many decoded images are in memory at once. Uploads are read into memory on the caller's thread first,
+ * so a slow client never holds a worker, and when the bounded queue is full new images are rejected.
+ */
+@Slf4j
+@Component
+public class ImageProcessor {
+    private static final int PROBE_LIMIT = 64 * 1024;
+
+    private final ImageProcessingProperties properties;
+    private final ThreadPoolExecutor workers;
+    private final Timer processTimer;
+    private final Counter rejected;
+
+    public ImageProcessor(ImageProcessingProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        int threads = properties.getThreads() > 0 ? properties.getThreads() : Runtime.getRuntime().availableProcessors();
+        this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.getQueueCapacity()), new CustomizableThreadFactory("image-processor-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.processTimer = Timer.builder("images.pipeline.stage")
+                .tag("stage", "process")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("images.processing.rejected")
+                .register(meterRegistry);
+        Gauge.builder("images.processing.queue.depth", workers, executor -> executor.getQueue().size())
+                .register(meterRegistry);
+
+        // Decode from memory, never through temporary cache files
+        ImageIO.setUseCache(false);
+    }
+
+    /**
+     * Whether the stream starts with a format ImageIO can decode. The stream must support mark/reset
+     * and is left at its start.
+     */
+    public boolean canDecode(InputStream in) throws IOException {
+        in.mark(PROBE_LIMIT);
+        try (ImageInputStream probe = ImageIO.createImageInputStream(in)) {
+            return probe != null && ImageIO.getImageReaders(probe).hasNext();
+        } finally {
+            in.reset();
+        }
+    }
+
+    /**
+     * Reads the stream, up to the configured maximum image size, and returns its renditions, blocking the
+     * caller until a worker has made them.
+     *
+     * @throws RejectedExecutionException when every worker is busy and the queue is full
+     */
+    public ProcessedImage process(InputStream source) throws IOException {
+        byte[] bytes = readCapped(source);
+        Future<ProcessedImage> task;
+        try {
+            task = workers.submit(() -> {
+                Timer.Sample sample = Timer.start();
+                try {
+                    return decodeAndEncode(bytes);
+                } finally {
+                    sample.stop(processTimer);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            task.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while processing image");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException("Image processing failed", e.getCause());
+        }
+    }
+
+    private byte[] readCapped(InputStream source) throws IOException {
+        int limit = (int) Math.min(properties.getMaxImageSize().toBytes(), Integer.MAX_VALUE - 8);
+        byte[] bytes = source.readNBytes(limit);
+        if (bytes.length == limit && source.read() != -1) {
+            throw new IOException("Image is larger than " + properties.getMaxImageSize());
+        }
+        return bytes;
+    }
+
+    private ProcessedImage decodeAndEncode(byte[] source) throws IOException {
+        BufferedImage decoded;
+        int orientation = ExifOrientation.NORMAL;
+        try (ImageInputStream imageInput = ImageIO.createImageInputStream(new ByteArrayInputStream(source))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInput);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInput, true, false);
+                ImageReadParam param = reader.getDefaultReadParam();
+                // Skip source pixels while decoding when the photo is at least twice the storage size
+                int subsampling = Math.max(reader.getWidth(0), reader.getHeight(0)) / properties.getStorageMaxDimension();
+                if (subsampling >= 2) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                decoded = reader.read(0, param);
+                try {
+                    orientation = ExifOrientation.read(reader.getImageMetadata(0));
+                } catch (IOException | RuntimeException e) {
+                    log.debug("Could not read image orientation: {}", e.getMessage());
+                }
+            } finally {
+                reader.dispose();
+            }
+        }
+
+        BufferedImage storage = scaleToFit(ExifOrientation.apply(decoded, orientation), properties.getStorageMaxDimension());
+        BufferedImage analysis = scaleToFit(storage, properties.getAnalysisMaxDimension());
+        BufferedImage thumbnail = scaleToFit(analysis, properties.getThumbnailMaxDimension());
+
+        return new ProcessedImage(
+                HashUtils.toHex(HashUtils.newSha256().digest(source)),
+                PerceptualHash.of(thumbnail),
+                encodeJpeg(storage, properties.getStorageQuality()),
+                encodeJpeg(analysis, properties.getAnalysisQuality()),
+                encodeJpeg(thumbnail, properties.getThumbnailQuality())
+        );
+    }
+
+    /**
+     * Scales the image down to fit the bound, always returning an opaque RGB image the JPEG writer accepts.
+     */
+    private static BufferedImage scaleToFit(BufferedImage image, int maxDimension) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double scale = Math.min(1.0, (double) maxDimension / Math.max(width, height));
+        if (scale == 1.0 && image.getType() == BufferedImage.TYPE_INT_RGB) {
+            return image;
+        }
+
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+        BufferedImage scaled = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, targetWidth, targetHeight, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    private static byte[] encodeJpeg(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutput = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(imageOutput);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdown();
+    }
+}
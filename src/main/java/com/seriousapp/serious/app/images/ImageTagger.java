@@ -0,0 +1,30 @@
+package com.seriousapp.serious.app.images;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Produces descriptive tags for an image, either stored (by URL) or in memory (by its encoded bytes).
+ * Implementations backed by a non-blocking client can override the async variants and the pipeline will
+ * use them without blocking a thread per call.
+ */
+public interface ImageTagger {
+    /**
+     * Qualifier of the tagger that talks to the vision service (or stands in for it), which
+     * {@link ResilientImageTagger} wraps.
+     */
+    String VISION = "vision";
+
+    List<String> tagImage(String imageUrl);
+
+    List<String> tagImage(byte[] imageData);
+
+    default CompletableFuture<List<String>> tagImageAsync(String imageUrl, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> tagImage(imageUrl), executor);
+    }
+
+    default CompletableFuture<List<String>> tagImageAsync(byte[] imageData, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> tagImage(imageData), executor);
+    }
+}
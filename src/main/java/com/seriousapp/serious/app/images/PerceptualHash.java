@@ -0,0 +1,51 @@
+package com.seriousapp.serious.app.images;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * 64 bit difference hash (dHash) of an image: the picture is reduced to a 9x8 grid of average
+ * brightness and each bit records whether a cell is brighter than its right neighbour. Re-encoding,
+ * rescaling and small lighting changes barely move the hash, while a visibly different picture
+ * flips many bits, so the Hamming distance of two hashes tells how alike two photos look.
+ */
+final class PerceptualHash {
+    private static final int COLUMNS = 9;
+    private static final int ROWS = 8;
+
+    private PerceptualHash() {
+    }
+
+    static long of(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+
+        double[] cells = new double[COLUMNS * ROWS];
+        int[] counts = new int[COLUMNS * ROWS];
+        for (int y = 0; y < height; y++) {
+            int row = y * ROWS / height;
+            for (int x = 0; x < width; x++) {
+                int column = x * COLUMNS / width;
+                int rgb = pixels[y * width + x];
+                int cell = row * COLUMNS + column;
+                cells[cell] += 0.299 * ((rgb >> 16) & 0xFF) + 0.587 * ((rgb >> 8) & 0xFF) + 0.114 * (rgb & 0xFF);
+                counts[cell]++;
+            }
+        }
+
+        long hash = 0;
+        for (int row = 0; row < ROWS; row++) {
+            for (int column = 0; column < COLUMNS - 1; column++) {
+                int cell = row * COLUMNS + column;
+                double left = counts[cell] == 0 ? 0 : cells[cell] / counts[cell];
+                double right = counts[cell + 1] == 0 ? 0 : cells[cell + 1] / counts[cell + 1];
+                hash = (hash << 1) | (left > right ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+
+    static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+}
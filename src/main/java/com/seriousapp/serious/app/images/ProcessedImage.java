@@ -0,0 +1,8 @@
+package com.seriousapp.serious.app.images;
+
+/**
+ * JPEG renditions of one decoded photo, identified by the SHA-256 of the original upload, with the
+ * {@link PerceptualHash} of its content.
+ */
+public record ProcessedImage(String contentHash, long perceptualHash, byte[] storage, byte[] analysis, byte[] thumbnail) {
+}
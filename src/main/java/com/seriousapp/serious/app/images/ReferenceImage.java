@@ -0,0 +1,10 @@
+package com.seriousapp.serious.app.images;
+
+import java.util.List;
+
+/**
+ * A previously analysed photo that new photos may be compared with, such as the borrow photos of a
+ * record when it is returned.
+ */
+public record ReferenceImage(String contentHash, long perceptualHash, List<String> tags) {
+}
@@ -0,0 +1,166 @@
+package com.seriousapp.serious.app.images;
+
+import com.seriousapp.serious.app.utils.CircuitBreaker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Guards the vision service with a bulkhead, a per-call timeout and a circuit breaker, so a slow or
+ * failing endpoint costs callers at most the timeout and never more than a fixed number of threads.
+ * Every failure surfaces as {@link VisionUnavailableException}, which the pipeline treats as "no tags".
+ */
+@Primary
+@Component
+public class ResilientImageTagger implements ImageTagger {
+    private final ImageTagger delegate;
+    private final VisionResilienceProperties properties;
+    private final Semaphore bulkhead;
+    private final CircuitBreaker circuitBreaker;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Counter succeeded;
+    private final Counter failed;
+    private final Counter timedOut;
+    private final Counter rejected;
+    private final Counter shortCircuited;
+
+    public ResilientImageTagger(@Qualifier(ImageTagger.VISION) ImageTagger delegate, VisionResilienceProperties properties, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.properties = properties;
+        this.bulkhead = new Semaphore(properties.getMaxConcurrentCalls());
+        this.circuitBreaker = new CircuitBreaker("vision",
+                properties.getWindowSize(),
+                properties.getMinimumCalls(),
+                properties.getFailureRateThreshold(),
+                properties.getOpenDurationMillis(),
+                properties.getHalfOpenCalls(),
+                meterRegistry);
+        this.succeeded = callCounter(meterRegistry, "success");
+        this.failed = callCounter(meterRegistry, "failure");
+        this.timedOut = callCounter(meterRegistry, "timeout");
+        this.rejected = callCounter(meterRegistry, "rejected");
+        this.shortCircuited = callCounter(meterRegistry, "short_circuited");
+    }
+
+    @Override
+    public List<String> tagImage(String imageUrl) {
+        return call(() -> delegate.tagImage(imageUrl));
+    }
+
+    @Override
+    public List<String> tagImage(byte[] imageData) {
+        return call(() -> delegate.tagImage(imageData));
+    }
+
+    private List<String> call(Callable<List<String>> task) {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            shortCircuited.increment();
+            throw new VisionUnavailableException("Vision circuit breaker is open");
+        }
+
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire(properties.getMaxWaitMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            // Shed load without blaming the service, the breaker only counts calls that were made
+            circuitBreaker.releasePermission();
+            rejected.increment();
+            throw new VisionUnavailableException("Vision bulkhead is full");
+        }
+
+        PermitHoldingCall permitHoldingCall = new PermitHoldingCall(task);
+        Future<List<String>> future;
+        try {
+            future = executor.submit(permitHoldingCall);
+        } catch (RejectedExecutionException e) {
+            bulkhead.release();
+            circuitBreaker.releasePermission();
+            throw new VisionUnavailableException("Vision executor is shut down", e);
+        }
+        try {
+            List<String> tags = future.get(properties.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+            circuitBreaker.onSuccess();
+            succeeded.increment();
+            return tags;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            permitHoldingCall.abandon();
+            circuitBreaker.onFailure();
+            timedOut.increment();
+            throw new VisionUnavailableException("Vision call timed out after " + properties.getTimeoutMillis() + "ms", e);
+        } catch (ExecutionException e) {
+            circuitBreaker.onFailure();
+            failed.increment();
+            throw new VisionUnavailableException("Vision call failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            permitHoldingCall.abandon();
+            Thread.currentThread().interrupt();
+            circuitBreaker.onFailure();
+            throw new VisionUnavailableException("Interrupted while waiting for vision call", e);
+        }
+    }
+
+    private static Counter callCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("images.vision.calls")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Holds the bulkhead permit until the delegate call has really ended. Cancelling a blocking SDK call
+     * does not stop it, so a timed-out call keeps counting against the bulkhead until its thread is free.
+     */
+    private final class PermitHoldingCall implements Callable<List<String>> {
+        private final Callable<List<String>> task;
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        private PermitHoldingCall(Callable<List<String>> task) {
+            this.task = task;
+        }
+
+        @Override
+        public List<String> call() throws Exception {
+            if (!started.compareAndSet(false, true)) {
+                throw new CancellationException("Vision call was abandoned before it started");
+            }
+            try {
+                return task.call();
+            } finally {
+                bulkhead.release();
+            }
+        }
+
+        // Returns the permit of a call that was cancelled before it started, a running call returns its own
+        void abandon() {
+            if (started.compareAndSet(false, true)) {
+                bulkhead.release();
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,10 @@
+package com.seriousapp.serious.app.images;
+
+import java.util.List;
+
+/**
+ * Images of a multipart request stored as uploaded for later processing, plus the plain form fields
+ * that arrived alongside them.
+ */
+public record StagedImages(List<String> blobNames, FormFields fields) {
+}
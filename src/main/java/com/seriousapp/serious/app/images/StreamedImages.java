@@ -0,0 +1,8 @@
+package com.seriousapp.serious.app.images;
+
+/**
+ * Outcome of streaming a multipart request through the pipeline: the processed images plus the plain
+ * form fields that arrived alongside them.
+ */
+public record StreamedImages(ImagePipelineResult images, FormFields fields) {
+}
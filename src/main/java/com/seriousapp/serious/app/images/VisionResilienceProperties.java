@@ -0,0 +1,21 @@
+package com.seriousapp.serious.app.images;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "computer.vision.resilience")
+public class VisionResilienceProperties {
+    // Bulkhead: vision calls in flight across the whole instance, and how long a call waits for a slot
+    private int maxConcurrentCalls = 8;
+    private long maxWaitMillis = 100;
+    private long timeoutMillis = 10_000;
+    // Circuit breaker
+    private int windowSize = 20;
+    private int minimumCalls = 10;
+    private double failureRateThreshold = 0.5;
+    private long openDurationMillis = 30_000;
+    private int halfOpenCalls = 2;
+}
@@ -0,0 +1,116 @@
+package com.seriousapp.serious.app.images;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Vision tags and blob location per image content hash: an in-memory LRU in front of the
+ * {@code image_contents} table, so identical photos are neither re-uploaded nor re-analysed.
+ */
+@Component
+public class VisionTagCache {
+    private final ImageContentRepository imageContentRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, CachedImage> lru;
+    private final Counter memoryHits;
+    private final Counter databaseHits;
+    private final Counter misses;
+
+    public VisionTagCache(
+            ImageContentRepository imageContentRepository,
+            JdbcTemplate jdbcTemplate,
+            @Value("${images.tag-cache.max-size:2000}") int maxSize,
+            MeterRegistry meterRegistry
+    ) {
+        this.imageContentRepository = imageContentRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.lru = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedImage> eldest) {
+                return size() > maxSize;
+            }
+        };
+        this.memoryHits = lookupCounter(meterRegistry, "memory");
+        this.databaseHits = lookupCounter(meterRegistry, "database");
+        this.misses = lookupCounter(meterRegistry, "miss");
+    }
+
+    public Optional<CachedImage> lookup(String contentHash) {
+        synchronized (lru) {
+            CachedImage cached = lru.get(contentHash);
+            if (cached != null) {
+                memoryHits.increment();
+                return Optional.of(cached);
+            }
+        }
+
+        Optional<CachedImage> stored = imageContentRepository.findById(contentHash)
+                .map(content -> new CachedImage(content.getBlobUrl(), content.getThumbnailUrl(), List.copyOf(content.getTags())));
+        if (stored.isPresent()) {
+            databaseHits.increment();
+            synchronized (lru) {
+                lru.put(contentHash, stored.get());
+            }
+        } else {
+            misses.increment();
+        }
+        return stored;
+    }
+
+    /**
+     * Records the tags of a newly analysed image. Identical photos may be analysed concurrently, by one
+     * request or several, so the first row wins and later ones are dropped instead of failing the upload.
+     */
+    @Transactional
+    public void store(String contentHash, String blobUrl, String thumbnailUrl, Long perceptualHash, List<String> tags) {
+        int inserted = jdbcTemplate.update("""
+                INSERT INTO image_contents (content_hash, blob_url, thumbnail_url, perceptual_hash, created_at)
+                VALUES (?, ?, ?, ?, now())
+                ON CONFLICT (content_hash) DO NOTHING
+                """, contentHash, blobUrl, thumbnailUrl, perceptualHash);
+        if (inserted == 0) {
+            // The next lookup loads the row that won
+            return;
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO image_content_tags (content_hash, tag) VALUES (?, ?)",
+                tags, tags.size(), (statement, tag) -> {
+                    statement.setString(1, contentHash);
+                    statement.setString(2, tag);
+                });
+
+        synchronized (lru) {
+            lru.put(contentHash, new CachedImage(blobUrl, thumbnailUrl, List.copyOf(tags)));
+        }
+    }
+
+    /**
+     * Analysed images among the given content hashes that new photos can be compared with.
+     */
+    public List<ReferenceImage> references(Collection<String> contentHashes) {
+        if (contentHashes.isEmpty()) {
+            return List.of();
+        }
+        return imageContentRepository.findAllById(contentHashes).stream()
+                .filter(content -> content.getPerceptualHash() != null)
+                .map(content -> new ReferenceImage(content.getContentHash(), content.getPerceptualHash(), List.copyOf(content.getTags())))
+                .toList();
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("images.tag-cache.lookups")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    public record CachedImage(String blobUrl, String thumbnailUrl, List<String> tags) {}
+}
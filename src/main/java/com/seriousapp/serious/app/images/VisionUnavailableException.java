@@ -0,0 +1,14 @@
+package com.seriousapp.serious.app.images;
+
+/**
+ * The vision service could not tag an image: it failed, timed out, or calls are currently shed.
+ */
+public class VisionUnavailableException extends RuntimeException {
+    public VisionUnavailableException(String message) {
+        super(message);
+    }
+
+    public VisionUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,12 +1,17 @@
 package com.seriousapp.serious.app.jwt;
 
-import com.seriousapp.serious.app.jwt.JwtService;
+import com.seriousapp.serious.app.jwt.token.TokenRevocationIndex;
+import com.seriousapp.serious.app.users.SecurityVersionCache;
 import com.seriousapp.serious.app.users.UserService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -16,15 +21,28 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 
+@Slf4j
 @Component
 public class JWTFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserService userDetailsService;
+    private final SecurityVersionCache securityVersionCache;
+    private final TokenRevocationIndex revocationIndex;
+    private final boolean statelessPrincipal;
 
-    public JWTFilter(JwtService jwtService, UserService userDetailsService) {
+    public JWTFilter(
+            JwtService jwtService,
+            UserService userDetailsService,
+            SecurityVersionCache securityVersionCache,
+            TokenRevocationIndex revocationIndex,
+            @Value("${application.security.jwt.stateless-principal:true}") boolean statelessPrincipal
+    ) {
         this.jwtService = jwtService;
         this.userDetailsService = userDetailsService;
+        this.securityVersionCache = securityVersionCache;
+        this.revocationIndex = revocationIndex;
+        this.statelessPrincipal = statelessPrincipal;
     }
 
     @Override
@@ -36,7 +54,7 @@ public class JWTFilter extends OncePerRequestFilter {
 
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
-        final String username;
+        final Claims claims;
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
@@ -44,12 +62,26 @@ public class JWTFilter extends OncePerRequestFilter {
         }
 
         jwt = authHeader.substring(7);
-        username = jwtService.extractUsername(jwt);
+        try {
+            claims = jwtService.parseToken(jwt);
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("Rejected bearer token: {}", e.getMessage());
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        if (jwtService.isRefreshToken(claims) || revocationIndex.isRevoked(claims.getId())) {
+            log.debug("Rejected revoked or refresh bearer token {}", claims.getId());
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        final String username = claims.getSubject();
 
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+            UserDetails userDetails = loadPrincipal(claims);
 
-            if (jwtService.isTokenValid(jwt, userDetails)) {
+            if (userDetails != null && jwtService.isTokenValid(claims, userDetails)) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                         userDetails,
                         null,
@@ -63,4 +95,17 @@ public class JWTFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    private UserDetails loadPrincipal(Claims claims) {
+        if (!statelessPrincipal) {
+            return this.userDetailsService.loadUserByUsername(claims.getSubject());
+        }
+
+        Long userId = jwtService.extractUserId(claims);
+        if (!securityVersionCache.isCurrent(userId, jwtService.extractSecurityVersion(claims))) {
+            log.debug("Rejected stale bearer token for user {}", claims.getSubject());
+            return null;
+        }
+        return jwtService.buildPrincipal(claims);
+    }
+}
@@ -0,0 +1,84 @@
+package com.seriousapp.serious.app.jwt;
+
+import com.seriousapp.serious.app.utils.HashUtils;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of already verified JWT claims, keyed by the SHA-256 digest of the raw token.
+ * Entries are dropped once the token itself expires, so a cached entry is never more permissive
+ * than re-parsing the token would be.
+ */
+@Component
+public class JwtClaimsCache {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final Counter hits;
+    private final Counter misses;
+
+    public JwtClaimsCache(
+            @Value("${application.security.jwt.claims-cache.max-size:10000}") int maxSize,
+            MeterRegistry meterRegistry
+    ) {
+        this.maxSize = maxSize;
+        this.hits = Counter.builder("jwt.claims.cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("jwt.claims.cache")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("jwt.claims.cache.size", entries, Map::size)
+                .register(meterRegistry);
+    }
+
+    public Claims get(String token, Function<String, Claims> verifier) {
+        String key = HashUtils.sha256Hex(token);
+        long now = System.currentTimeMillis();
+
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (entry.expiresAt() > now) {
+                hits.increment();
+                return entry.claims();
+            }
+            entries.remove(key, entry);
+        }
+
+        misses.increment();
+        Claims claims = verifier.apply(token);
+        if (claims.getExpiration() != null && claims.getExpiration().getTime() > now) {
+            makeRoom(now);
+            entries.put(key, new Entry(claims, claims.getExpiration().getTime()));
+        }
+        return claims;
+    }
+
+    public void evict(String token) {
+        entries.remove(HashUtils.sha256Hex(token));
+    }
+
+    private void makeRoom(long now) {
+        if (entries.size() < maxSize) {
+            return;
+        }
+        entries.values().removeIf(entry -> entry.expiresAt() <= now);
+
+        Iterator<String> keys = entries.keySet().iterator();
+        while (entries.size() >= maxSize && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private record Entry(Claims claims, long expiresAt) {}
+}
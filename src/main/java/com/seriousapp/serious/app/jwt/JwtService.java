@@ -1,6 +1,10 @@
 package com.seriousapp.serious.app.jwt;
 import com.seriousapp.serious.app.users.CustomUserDetails;
+import com.seriousapp.serious.app.users.User;
+import com.seriousapp.serious.app.users.admin.Admin;
+import com.seriousapp.serious.app.users.student.Student;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
@@ -9,70 +13,144 @@ import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 @Service
+@RequiredArgsConstructor
 public class JwtService {
     @Value("${application.security.jwt.secret-key}")
     private String secretKey;
     @Value("${application.security.jwt.expiration}")
     private long jwtExpiration;
+    @Value("${application.security.jwt.refresh-token.expiration}")
+    private long refreshExpiration;
+
+    private static final String REFRESH_TOKEN_TYPE = "refresh";
+
+    private final JwtClaimsCache claimsCache;
+
+    // The key and parser are immutable and thread-safe, so build them once instead of per token
+    private Key signInKey;
+    private JwtParser jwtParser;
+
+    @PostConstruct
+    void init() {
+        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
+        this.signInKey = Keys.hmacShaKeyFor(keyBytes);
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signInKey)
+                .build();
+    }
 
     public String generateToken(CustomUserDetails userDetails) {
+        return generateToken(userDetails, null);
+    }
+
+    public String generateToken(CustomUserDetails userDetails, UUID familyId) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("userId", userDetails.getId());
         claims.put("email", userDetails.getEmail());
         claims.put("userType", userDetails.getUserType());
+        claims.put("ver", userDetails.getSecurityVersion());
+        if (familyId != null) {
+            claims.put("fam", familyId.toString());
+        }
 
-        return generateToken(claims, userDetails);
+        return buildToken(claims, userDetails, jwtExpiration);
     }
 
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
+        return buildToken(extraClaims, userDetails, jwtExpiration);
+    }
+
+    public String generateRefreshToken(CustomUserDetails userDetails, UUID familyId) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("userId", userDetails.getId());
+        claims.put("ver", userDetails.getSecurityVersion());
+        claims.put("typ", REFRESH_TOKEN_TYPE);
+        claims.put("fam", familyId.toString());
+
+        return buildToken(claims, userDetails, refreshExpiration);
+    }
+
+    private String buildToken(Map<String, Object> extraClaims, UserDetails userDetails, long expiration) {
         return Jwts.builder()
                 .setClaims(extraClaims)
                 .setSubject(userDetails.getUsername())
+                .setId(UUID.randomUUID().toString())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + jwtExpiration))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .setExpiration(new Date(System.currentTimeMillis() + expiration))
+                .signWith(signInKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    public boolean isRefreshToken(Claims claims) {
+        return REFRESH_TOKEN_TYPE.equals(claims.get("typ", String.class));
+    }
+
+    /**
+     * Verifies the token signature and returns its claims. Verified claims are cached by token
+     * digest until the token expires, so a token presented on every request is only verified once.
+     */
+    public Claims parseToken(String token) {
+        return claimsCache.get(token, this::extractAllClaims);
+    }
+
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        return claims.getSubject().equals(userDetails.getUsername()) && !isTokenExpired(claims);
+    }
+
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+        return isTokenValid(parseToken(token), userDetails);
     }
 
-    public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+    public boolean isTokenExpired(Claims claims) {
+        return claims.getExpiration().before(new Date());
+    }
+
+    /**
+     * Rebuilds the authenticated principal from the claims written by {@link #generateToken(CustomUserDetails)}
+     * without loading the user row. Only identity and role are populated.
+     */
+    public CustomUserDetails buildPrincipal(Claims claims) {
+        User user = "ADMIN".equals(claims.get("userType", String.class)) ? new Admin() : new Student();
+        user.setId(extractUserId(claims));
+        user.setUsername(claims.getSubject());
+        user.setEmail(claims.get("email", String.class));
+        user.setUserType(claims.get("userType", String.class));
+        user.setSecurityVersion(extractSecurityVersion(claims));
+        return new CustomUserDetails(user);
+    }
+
+    public Long extractUserId(Claims claims) {
+        Number userId = claims.get("userId", Number.class);
+        return userId != null ? userId.longValue() : null;
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public int extractSecurityVersion(Claims claims) {
+        Number version = claims.get("ver", Number.class);
+        return version != null ? version.intValue() : 0;
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    public String extractUsername(String token) {
+        return extractClaim(token, Claims::getSubject);
     }
 
     private <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
+        final Claims claims = parseToken(token);
         return claimsResolver.apply(claims);
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
+        return jwtParser
                 .parseClaimsJws(token)
                 .getBody();
     }
-
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
-    }
-}
\ No newline at end of file
+}
@@ -1,19 +1,23 @@
 package com.seriousapp.serious.app.jwt;
 
-import com.seriousapp.serious.app.jwt.token.TokenRepository;
+import com.seriousapp.serious.app.jwt.token.TokenService;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.logout.LogoutHandler;
 import org.springframework.stereotype.Service;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class LogoutService implements LogoutHandler {
 
-    private final TokenRepository tokenRepository;
+    private final TokenService tokenService;
+    private final JwtService jwtService;
 
     @Override
     public void logout(HttpServletRequest request, HttpServletResponse response, Authentication authentication) {
@@ -23,14 +27,12 @@ public class LogoutService implements LogoutHandler {
             return;
         }
         jwt = authHeader.substring(7);
-        var storedToken = tokenRepository.findByToken(jwt)
-                .orElse(null);
-        if (storedToken != null) {
-            storedToken.setExpired(true);
-            storedToken.setRevoked(true);
-            tokenRepository.save(storedToken);
-            SecurityContextHolder.clearContext();
+        try {
+            tokenService.revoke(jwt, jwtService.parseToken(jwt));
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("Ignoring logout with invalid token: {}", e.getMessage());
         }
+        SecurityContextHolder.clearContext();
     }
 
 
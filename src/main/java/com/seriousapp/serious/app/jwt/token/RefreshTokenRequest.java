@@ -0,0 +1,10 @@
+package com.seriousapp.serious.app.jwt.token;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+@Data
+public class RefreshTokenRequest {
+    @JsonProperty("refresh_token")
+    private String refreshToken;
+}
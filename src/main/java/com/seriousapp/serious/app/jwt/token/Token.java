@@ -3,6 +3,7 @@ package com.seriousapp.serious.app.jwt.token;
 import jakarta.persistence.*;
 import lombok.*;
 
+import java.time.Instant;
 import java.util.UUID;
 
 @Data
@@ -12,15 +13,25 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Table(name = "token", indexes = {
+        @Index(name = "idx_token_expires_at", columnList = "expires_at"),
+        @Index(name = "idx_token_family_id", columnList = "family_id")
+})
 public class Token {
     @Id
     @GeneratedValue
     public UUID id;
+    // SHA-256 of the raw JWT; the token itself is never stored
+    @Column(name = "token_hash", unique = true, length = 32)
+    public byte[] tokenHash;
     @Column(unique = true)
-    public String token;
+    public String jti;
+    public Instant expiresAt;
     @Enumerated(EnumType.STRING)
     public TokenType tokenType = TokenType.BEARER;
     public boolean revoked;
     public boolean expired;
     public Long userPrincipalId;
+    // Access and refresh tokens issued from the same login share a family so reuse can revoke them together
+    public UUID familyId;
 }
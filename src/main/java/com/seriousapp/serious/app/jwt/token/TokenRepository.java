@@ -1,12 +1,45 @@
 package com.seriousapp.serious.app.jwt.token;
 
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface TokenRepository extends JpaRepository<Token, UUID> {
-    Optional<Token> findByToken(String token);
+    Optional<Token> findByJti(String jti);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Token t WHERE t.jti = :jti")
+    Optional<Token> findByJtiForUpdate(String jti);
+
+    List<Token> findByFamilyIdAndRevokedFalse(UUID familyId);
+
+    List<RevokedToken> findByRevokedTrueAndTokenTypeAndExpiresAtAfter(TokenType tokenType, Instant now);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+            DELETE FROM token
+            WHERE id IN (
+                SELECT id FROM token
+                WHERE expires_at IS NULL OR expires_at < :cutoff
+                LIMIT :batchSize
+            )
+            """, nativeQuery = true)
+    int deleteExpiredBatch(@Param("cutoff") Instant cutoff, @Param("batchSize") int batchSize);
+
+    interface RevokedToken {
+        String getJti();
+        Instant getExpiresAt();
+    }
 }
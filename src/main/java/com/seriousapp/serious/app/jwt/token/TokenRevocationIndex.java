@@ -0,0 +1,78 @@
+package com.seriousapp.serious.app.jwt.token;
+
+import com.seriousapp.serious.app.utils.BloomFilter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of revoked token ids (jti). Lookups go through a Bloom filter first and only touch
+ * the exact set on a possible match, so the common "not revoked" answer costs a few bit reads.
+ * The index is rebuilt from the token table at startup and on a schedule, which also prunes
+ * entries whose tokens have expired and picks up revocations made by other nodes.
+ */
+@Slf4j
+@Component
+public class TokenRevocationIndex {
+    private static final double FALSE_POSITIVE_RATE = 0.001;
+
+    private final TokenRepository tokenRepository;
+    private final int expectedRevocations;
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private volatile BloomFilter filter;
+
+    public TokenRevocationIndex(
+            TokenRepository tokenRepository,
+            @Value("${application.security.jwt.revocation.expected-size:10000}") int expectedRevocations,
+            MeterRegistry meterRegistry
+    ) {
+        this.tokenRepository = tokenRepository;
+        this.expectedRevocations = expectedRevocations;
+        this.filter = new BloomFilter(expectedRevocations, FALSE_POSITIVE_RATE);
+        Gauge.builder("jwt.revocation.index.size", revoked, Map::size)
+                .register(meterRegistry);
+    }
+
+    public boolean isRevoked(String jti) {
+        return jti != null && filter.mightContain(jti) && revoked.containsKey(jti);
+    }
+
+    public synchronized void revoke(String jti, Instant expiresAt) {
+        revoked.put(jti, expiresAt.toEpochMilli());
+        filter.put(jti);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuild();
+    }
+
+    @Scheduled(
+            fixedDelayString = "${application.security.jwt.revocation.refresh-interval-ms:300000}",
+            initialDelayString = "${application.security.jwt.revocation.refresh-interval-ms:300000}"
+    )
+    public void rebuild() {
+        Instant now = Instant.now();
+        var persisted = tokenRepository.findByRevokedTrueAndTokenTypeAndExpiresAtAfter(TokenType.BEARER, now);
+
+        synchronized (this) {
+            long nowMillis = now.toEpochMilli();
+            revoked.values().removeIf(expiresAt -> expiresAt <= nowMillis);
+            persisted.forEach(token -> revoked.put(token.getJti(), token.getExpiresAt().toEpochMilli()));
+
+            BloomFilter rebuilt = new BloomFilter(Math.max(expectedRevocations, revoked.size() * 2), FALSE_POSITIVE_RATE);
+            revoked.keySet().forEach(rebuilt::put);
+            this.filter = rebuilt;
+        }
+        log.info("Token revocation index rebuilt with {} revoked tokens", revoked.size());
+    }
+}
@@ -0,0 +1,40 @@
+package com.seriousapp.serious.app.jwt.token;
+
+import com.seriousapp.serious.app.configurations.SchemaUpgrade;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Databases created before tokens were stored as digests still have the plaintext {@code token} column
+ * and its unique index. Hashes whatever rows still lack a digest and drops the column.
+ */
+@Slf4j
+@Component
+public class TokenSchemaUpgrade implements SchemaUpgrade {
+
+    @Override
+    public String name() {
+        return "token-digests";
+    }
+
+    @Override
+    public void apply(JdbcTemplate jdbcTemplate) {
+        Boolean hasPlaintextColumn = jdbcTemplate.queryForObject("""
+                SELECT EXISTS (
+                    SELECT 1 FROM information_schema.columns
+                    WHERE table_schema = current_schema() AND table_name = 'token' AND column_name = 'token'
+                )
+                """, Boolean.class);
+        if (!Boolean.TRUE.equals(hasPlaintextColumn)) {
+            return;
+        }
+
+        int hashed = jdbcTemplate.update("""
+                UPDATE token SET token_hash = sha256(convert_to(token, 'UTF8'))
+                WHERE token_hash IS NULL AND token IS NOT NULL
+                """);
+        jdbcTemplate.execute("ALTER TABLE token DROP COLUMN token");
+        log.info("Dropped the plaintext token column after hashing {} remaining tokens", hashed);
+    }
+}
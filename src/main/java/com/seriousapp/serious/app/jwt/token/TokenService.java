@@ -0,0 +1,174 @@
+package com.seriousapp.serious.app.jwt.token;
+
+import com.seriousapp.serious.app.jwt.JwtService;
+import com.seriousapp.serious.app.users.CustomUserDetails;
+import com.seriousapp.serious.app.users.UserRepository;
+import com.seriousapp.serious.app.utils.HashUtils;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TokenService {
+    private final TokenRepository tokenRepository;
+    private final TokenRevocationIndex revocationIndex;
+    private final JwtService jwtService;
+    private final UserRepository userRepository;
+
+    @Value("${application.security.jwt.purge.batch-size:500}")
+    private int purgeBatchSize;
+    @Value("${application.security.jwt.purge.grace-period-ms:3600000}")
+    private long purgeGracePeriodMillis;
+
+    /**
+     * Starts a new token family for a freshly authenticated user and returns its access and refresh tokens.
+     */
+    @Transactional
+    public AuthenticationResponse issueTokens(CustomUserDetails userDetails) {
+        return issueTokens(userDetails, UUID.randomUUID());
+    }
+
+    /**
+     * Exchanges a refresh token for a new access/refresh pair in the same family. Each refresh token is
+     * single use: presenting one that was already rotated is treated as theft and revokes the whole family.
+     */
+    @Transactional(noRollbackFor = BadCredentialsException.class)
+    public AuthenticationResponse rotate(String refreshJwt) {
+        final Claims claims;
+        try {
+            claims = jwtService.parseToken(refreshJwt);
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new BadCredentialsException("Invalid refresh token", e);
+        }
+        if (!jwtService.isRefreshToken(claims)) {
+            throw new BadCredentialsException("Not a refresh token");
+        }
+
+        Token storedToken = tokenRepository.findByJtiForUpdate(claims.getId())
+                .orElseThrow(() -> new BadCredentialsException("Unknown refresh token"));
+
+        if (storedToken.isRevoked()) {
+            log.warn("Refresh token reuse detected for user {}, revoking token family {}",
+                    storedToken.getUserPrincipalId(), storedToken.getFamilyId());
+            revokeFamily(storedToken.getFamilyId());
+            throw new BadCredentialsException("Refresh token has already been used");
+        }
+
+        storedToken.setRevoked(true);
+        storedToken.setExpired(true);
+        tokenRepository.save(storedToken);
+
+        var user = userRepository.findById(jwtService.extractUserId(claims))
+                .filter(u -> u.isEnabled() && u.getSecurityVersion() == jwtService.extractSecurityVersion(claims))
+                .orElse(null);
+        if (user == null) {
+            revokeFamily(storedToken.getFamilyId());
+            throw new BadCredentialsException("Refresh token is no longer valid for this user");
+        }
+
+        return issueTokens(new CustomUserDetails(user), storedToken.getFamilyId());
+    }
+
+    /**
+     * Revokes a presented access token and, when it carries a family, every other token issued from the
+     * same login, so the refresh token cannot mint new pairs after logout.
+     */
+    @Transactional
+    public void revoke(String jwt, Claims claims) {
+        if (claims.getId() == null) {
+            return;
+        }
+        var storedToken = tokenRepository.findByJti(claims.getId())
+                .orElseGet(() -> Token.builder()
+                        .tokenHash(HashUtils.sha256(jwt))
+                        .jti(claims.getId())
+                        .expiresAt(claims.getExpiration().toInstant())
+                        .tokenType(TokenType.BEARER)
+                        .build());
+        storedToken.setExpired(true);
+        storedToken.setRevoked(true);
+        tokenRepository.save(storedToken);
+        revocationIndex.revoke(storedToken.getJti(), storedToken.getExpiresAt());
+
+        String familyId = claims.get("fam", String.class);
+        if (familyId != null) {
+            revokeFamily(UUID.fromString(familyId));
+        }
+    }
+
+    /**
+     * Deletes expired token rows in small batches, each in its own short transaction, so the purge never
+     * holds long locks on the table. Revoked rows are kept until they expire because refresh reuse
+     * detection and the revocation index still need them until then.
+     */
+    @Scheduled(fixedDelayString = "${application.security.jwt.purge.interval-ms:3600000}")
+    public void purgeExpiredTokens() {
+        Instant cutoff = Instant.now().minus(Duration.ofMillis(purgeGracePeriodMillis));
+        int total = 0;
+        int deleted;
+        do {
+            deleted = tokenRepository.deleteExpiredBatch(cutoff, purgeBatchSize);
+            total += deleted;
+        } while (deleted == purgeBatchSize);
+
+        if (total > 0) {
+            log.info("Purged {} expired tokens", total);
+        }
+    }
+
+    private AuthenticationResponse issueTokens(CustomUserDetails userDetails, UUID familyId) {
+        String accessToken = jwtService.generateToken(userDetails, familyId);
+        String refreshToken = jwtService.generateRefreshToken(userDetails, familyId);
+
+        saveUserToken(userDetails.getId(), accessToken, TokenType.BEARER, familyId);
+        saveUserToken(userDetails.getId(), refreshToken, TokenType.REFRESH, familyId);
+
+        return AuthenticationResponse.builder()
+                .accessToken(accessToken)
+                .refreshToken(refreshToken)
+                .role(userDetails.getAuthorities().toString())
+                .build();
+    }
+
+    private void saveUserToken(Long userId, String jwt, TokenType tokenType, UUID familyId) {
+        Claims claims = jwtService.parseToken(jwt);
+        var token = Token.builder()
+                .userPrincipalId(userId)
+                .tokenHash(HashUtils.sha256(jwt))
+                .jti(claims.getId())
+                .expiresAt(claims.getExpiration().toInstant())
+                .tokenType(tokenType)
+                .familyId(familyId)
+                .expired(false)
+                .revoked(false)
+                .build();
+        tokenRepository.save(token);
+    }
+
+    private void revokeFamily(UUID familyId) {
+        if (familyId == null) {
+            return;
+        }
+        var familyTokens = tokenRepository.findByFamilyIdAndRevokedFalse(familyId);
+        familyTokens.forEach(token -> {
+            token.setRevoked(true);
+            token.setExpired(true);
+            if (token.getTokenType() == TokenType.BEARER) {
+                revocationIndex.revoke(token.getJti(), token.getExpiresAt());
+            }
+        });
+        tokenRepository.saveAll(familyTokens);
+    }
+}
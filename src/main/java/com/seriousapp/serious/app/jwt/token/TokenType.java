@@ -1,5 +1,6 @@
 package com.seriousapp.serious.app.jwt.token;
 
 public enum TokenType {
-    BEARER
+    BEARER,
+    REFRESH
 }
@@ -0,0 +1,60 @@
+package com.seriousapp.serious.app.mail;
+
+import com.azure.communication.email.EmailClient;
+import com.azure.communication.email.models.EmailAddress;
+import com.azure.communication.email.models.EmailMessage;
+import com.azure.communication.email.models.EmailSendResult;
+import com.azure.core.util.polling.LongRunningOperationStatus;
+import com.azure.core.util.polling.PollResponse;
+import com.azure.core.util.polling.SyncPoller;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+@Slf4j
+@Component
+@Profile("!offline")
+public class AzureMailSender implements MailSender {
+    private final EmailClient emailClient;
+    private final String senderAddress;
+    private final Duration sendTimeout;
+
+    public AzureMailSender(EmailClient emailClient,
+                           @Value("${azure.email.sender-address:DoNotReply@6393192f-7be1-4d41-b464-0743bbeb3239.azurecomm.net}") String senderAddress,
+                           @Value("${azure.email.send-timeout-ms:60000}") long sendTimeoutMillis,
+                           @Value("${mail.outbox.lease-ms:120000}") long leaseMillis) {
+        // A send still running when the lease ends is claimed again and the email goes out twice
+        if (sendTimeoutMillis >= leaseMillis) {
+            throw new IllegalStateException("azure.email.send-timeout-ms (" + sendTimeoutMillis
+                    + "ms) must be shorter than mail.outbox.lease-ms (" + leaseMillis + "ms)");
+        }
+        this.emailClient = emailClient;
+        this.senderAddress = senderAddress;
+        this.sendTimeout = Duration.ofMillis(sendTimeoutMillis);
+    }
+
+    @Override
+    public void send(List<String> recipients, String subject, String bodyPlainText, String bodyHtml) {
+        List<EmailAddress> toAddresses = recipients.stream()
+                .map(EmailAddress::new)
+                .toList();
+
+        EmailMessage emailMessage = new EmailMessage()
+                .setSenderAddress(senderAddress)
+                .setToRecipients(toAddresses)
+                .setSubject(subject)
+                .setBodyPlainText(bodyPlainText)
+                .setBodyHtml(bodyHtml);
+
+        SyncPoller<EmailSendResult, EmailSendResult> poller = emailClient.beginSend(emailMessage, null);
+        PollResponse<EmailSendResult> result = poller.waitForCompletion(sendTimeout);
+        log.info("Email send status: {}", result.getStatus());
+        if (result.getStatus() != LongRunningOperationStatus.SUCCESSFULLY_COMPLETED) {
+            throw new RuntimeException("Email send ended with status " + result.getStatus());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.seriousapp.serious.app.mail;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Keeps sent emails in memory instead of delivering them, for the offline profile. Only the most recent
+ * messages are retained so a long load test cannot exhaust the heap.
+ */
+@Slf4j
+@Component
+@Profile("offline")
+public class CapturingMailSender implements MailSender {
+    private final Deque<CapturedMail> messages = new ArrayDeque<>();
+    private final int capacity;
+    private final Counter sent;
+
+    public CapturingMailSender(@Value("${offline.mail.capacity:1000}") int capacity, MeterRegistry meterRegistry) {
+        this.capacity = capacity;
+        this.sent = Counter.builder("mail.captured").register(meterRegistry);
+    }
+
+    @Override
+    public void send(List<String> recipients, String subject, String bodyPlainText, String bodyHtml) {
+        var mail = new CapturedMail(List.copyOf(recipients), subject, bodyPlainText, bodyHtml, Instant.now());
+        synchronized (messages) {
+            if (messages.size() >= capacity) {
+                messages.removeFirst();
+            }
+            messages.addLast(mail);
+        }
+        sent.increment();
+        log.debug("Captured email '{}' to {}", subject, recipients);
+    }
+
+    public List<CapturedMail> getMessages() {
+        synchronized (messages) {
+            return List.copyOf(messages);
+        }
+    }
+
+    public void clear() {
+        synchronized (messages) {
+            messages.clear();
+        }
+    }
+
+    public record CapturedMail(List<String> recipients, String subject, String bodyPlainText, String bodyHtml, Instant sentAt) {}
+}
@@ -0,0 +1,4 @@
+package com.seriousapp.serious.app.mail;
+
+public record EmailBody(String plainText, String html) {
+}
@@ -0,0 +1,132 @@
+package com.seriousapp.serious.app.mail;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers queued {@link OutboxEmail}s through the shared {@link MailSender} on a fixed number of
+ * senders, which bounds how many sends are in flight at the mail provider. Emails are only claimed
+ * when a sender is free, so a busy instance leaves them to other instances.
+ */
+@Slf4j
+@Component
+public class EmailDispatcher {
+    private final EmailOutbox emailOutbox;
+    private final MailSender mailSender;
+    private final ExecutorService senders;
+    private final Semaphore freeSenders;
+    private final AtomicLong pending = new AtomicLong();
+    private final Counter sent;
+    private final Counter retried;
+    private final Counter dead;
+    private final Timer sendDuration;
+    private final Timer deliveryDelay;
+
+    public EmailDispatcher(
+            EmailOutbox emailOutbox,
+            MailSender mailSender,
+            @Value("${mail.outbox.max-concurrency:4}") int maxConcurrency,
+            MeterRegistry meterRegistry
+    ) {
+        this.emailOutbox = emailOutbox;
+        this.mailSender = mailSender;
+        this.senders = Executors.newFixedThreadPool(maxConcurrency, new CustomizableThreadFactory("email-dispatcher-"));
+        this.freeSenders = new Semaphore(maxConcurrency);
+        this.sent = outcomeCounter(meterRegistry, "sent");
+        this.retried = outcomeCounter(meterRegistry, "retry");
+        this.dead = outcomeCounter(meterRegistry, "dead");
+        this.sendDuration = Timer.builder("mail.outbox.send.duration")
+                .register(meterRegistry);
+        // Time from enqueue to successful delivery
+        this.deliveryDelay = Timer.builder("mail.outbox.delivery.delay")
+                .register(meterRegistry);
+        Gauge.builder("mail.outbox.depth", pending, AtomicLong::get)
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${mail.outbox.poll-interval-ms:1000}")
+    public void poll() {
+        pending.set(emailOutbox.countPending());
+
+        int free = freeSenders.availablePermits();
+        if (free == 0) {
+            return;
+        }
+
+        List<Long> emailIds = emailOutbox.claim(free);
+        for (Long emailId : emailIds) {
+            freeSenders.acquireUninterruptibly();
+            senders.execute(() -> {
+                try {
+                    deliver(emailId);
+                } finally {
+                    freeSenders.release();
+                }
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${mail.outbox.purge.interval-ms:3600000}")
+    public void purgeSent() {
+        int purged = emailOutbox.purgeSent();
+        if (purged > 0) {
+            log.info("Purged {} sent emails from the outbox", purged);
+        }
+    }
+
+    private void deliver(Long emailId) {
+        var email = emailOutbox.findById(emailId);
+        if (email.isEmpty()) {
+            return;
+        }
+
+        Timer.Sample sample = Timer.start();
+        try {
+            EmailBody body = emailOutbox.bodyOf(email.get());
+            mailSender.send(email.get().getRecipients(), email.get().getSubject(), body.plainText(), body.html());
+        } catch (RuntimeException e) {
+            sample.stop(sendDuration);
+            log.warn("Sending email {} failed: {}", emailId, e.getMessage());
+            if (emailOutbox.fail(emailId, e) == OutboxEmailStatus.DEAD) {
+                dead.increment();
+            } else {
+                retried.increment();
+            }
+            return;
+        }
+        sample.stop(sendDuration);
+
+        emailOutbox.markSent(emailId);
+        sent.increment();
+        if (email.get().getCreatedAt() != null) {
+            deliveryDelay.record(Duration.between(email.get().getCreatedAt(), Instant.now()));
+        }
+    }
+
+    private static Counter outcomeCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("mail.outbox.deliveries")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        senders.shutdown();
+    }
+}
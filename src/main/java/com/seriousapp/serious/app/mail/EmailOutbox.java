@@ -0,0 +1,133 @@
+package com.seriousapp.serious.app.mail;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Transactional outbox for outgoing email. {@link #enqueue} joins the caller's transaction, so an email
+ * exists exactly when the change it reports was committed, and the request never waits on the mail
+ * provider. {@link EmailDispatcher} delivers the queued emails. Bodies are stored encrypted and cleared
+ * once the email is sent or dead-lettered.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EmailOutbox {
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final OutboxEmailRepository outboxEmailRepository;
+    private final OutboxBodyCipher bodyCipher;
+
+    @Value("${mail.outbox.lease-ms:120000}")
+    private long leaseMillis;
+    @Value("${mail.outbox.max-attempts:8}")
+    private int maxAttempts;
+    @Value("${mail.outbox.retry-backoff-ms:5000}")
+    private long retryBackoffMillis;
+    @Value("${mail.outbox.purge.batch-size:500}")
+    private int purgeBatchSize;
+    @Value("${mail.outbox.purge.retention-ms:86400000}")
+    private long retentionMillis;
+
+    @Transactional
+    public OutboxEmail enqueue(List<String> recipients, String subject, String bodyPlainText, String bodyHtml) {
+        OutboxEmail email = new OutboxEmail();
+        email.getRecipients().addAll(recipients);
+        email.setSubject(subject);
+        email.setBodyPlainText(bodyCipher.encrypt(bodyPlainText));
+        email.setBodyHtml(bodyCipher.encrypt(bodyHtml));
+        email.setStatus(OutboxEmailStatus.PENDING);
+        email.setRunAfter(Instant.now());
+        return outboxEmailRepository.save(email);
+    }
+
+    /**
+     * Claims up to {@code limit} due emails for this instance by moving them to SENDING under a lease.
+     */
+    @Transactional
+    public List<Long> claim(int limit) {
+        Instant now = Instant.now();
+        List<Long> ids = outboxEmailRepository.findClaimableIds(now, limit);
+        if (!ids.isEmpty()) {
+            outboxEmailRepository.markSending(ids, now.plusMillis(leaseMillis));
+        }
+        return ids;
+    }
+
+    public Optional<OutboxEmail> findById(Long emailId) {
+        return outboxEmailRepository.findById(emailId);
+    }
+
+    public EmailBody bodyOf(OutboxEmail email) {
+        return new EmailBody(bodyCipher.decrypt(email.getBodyPlainText()), bodyCipher.decrypt(email.getBodyHtml()));
+    }
+
+    @Transactional
+    public void markSent(Long emailId) {
+        outboxEmailRepository.findById(emailId).ifPresent(email -> {
+            email.setStatus(OutboxEmailStatus.SENT);
+            email.setLastError(null);
+            email.setLockedUntil(null);
+            email.setSentAt(Instant.now());
+            clearBody(email);
+            outboxEmailRepository.save(email);
+        });
+    }
+
+    /**
+     * Records a failed delivery and schedules a retry with exponential backoff, or dead-letters the
+     * email once the attempts are used up.
+     */
+    @Transactional
+    public OutboxEmailStatus fail(Long emailId, Exception error) {
+        OutboxEmail email = outboxEmailRepository.findById(emailId)
+                .orElseThrow(() -> new RuntimeException("Outbox email " + emailId + " not found"));
+
+        String message = error.getClass().getSimpleName() + ": " + error.getMessage();
+        email.setLastError(message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message);
+        email.setLockedUntil(null);
+        if (email.getAttempts() >= maxAttempts) {
+            email.setStatus(OutboxEmailStatus.DEAD);
+            clearBody(email);
+            log.error("Email {} to {} dead-lettered after {} attempts", emailId, email.getRecipients(), email.getAttempts());
+        } else {
+            long backoff = retryBackoffMillis << Math.min(email.getAttempts() - 1, 10);
+            email.setStatus(OutboxEmailStatus.PENDING);
+            email.setRunAfter(Instant.now().plusMillis(backoff));
+        }
+        outboxEmailRepository.save(email);
+        return email.getStatus();
+    }
+
+    public long countPending() {
+        return outboxEmailRepository.countByStatus(OutboxEmailStatus.PENDING);
+    }
+
+    // Finished emails are kept for inspection, but their bodies may contain credentials
+    private static void clearBody(OutboxEmail email) {
+        email.setBodyPlainText(null);
+        email.setBodyHtml(null);
+    }
+
+    /**
+     * Deletes sent emails past the retention period in small batches, they may contain credentials.
+     */
+    public int purgeSent() {
+        Instant cutoff = Instant.now().minus(Duration.ofMillis(retentionMillis));
+        int total = 0;
+        int deleted;
+        do {
+            deleted = outboxEmailRepository.deleteSentBatch(cutoff, purgeBatchSize);
+            total += deleted;
+        } while (deleted == purgeBatchSize);
+        return total;
+    }
+}
@@ -0,0 +1,93 @@
+package com.seriousapp.serious.app.mail;
+
+import com.samskivert.mustache.Mustache;
+import com.samskivert.mustache.Template;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Mustache email templates, compiled once at startup. Each email has a {@code <name>.txt.mustache} and a
+ * {@code <name>.html.mustache} variant rendered from the same model; values are HTML-escaped in the HTML
+ * variant only. With {@code mail.templates.reload} on, a template is recompiled when its file changes,
+ * which only applies to templates loaded from a {@code file:} location.
+ */
+@Slf4j
+@Component
+public class EmailTemplates {
+    private static final String TEXT_SUFFIX = ".txt.mustache";
+    private static final String HTML_SUFFIX = ".html.mustache";
+
+    private final String location;
+    private final boolean reload;
+    private final Mustache.Compiler textCompiler = Mustache.compiler().escapeHTML(false).nullValue("");
+    private final Mustache.Compiler htmlCompiler = Mustache.compiler().escapeHTML(true).nullValue("");
+    private final Map<String, CompiledTemplate> templates = new ConcurrentHashMap<>();
+
+    public EmailTemplates(
+            ResourcePatternResolver resourceResolver,
+            @Value("${mail.templates.location:classpath:/templates/mail/}") String location,
+            @Value("${mail.templates.reload:false}") boolean reload
+    ) throws IOException {
+        this.location = location.endsWith("/") ? location : location + "/";
+        this.reload = reload;
+
+        for (Resource resource : resourceResolver.getResources(this.location + "*.mustache")) {
+            String filename = resource.getFilename();
+            if (filename != null) {
+                templates.put(filename, compile(filename, resource));
+            }
+        }
+        log.info("Compiled {} email templates from {}", templates.size(), this.location);
+    }
+
+    public EmailBody render(String name, Map<String, ?> model) {
+        return new EmailBody(
+                template(name + TEXT_SUFFIX).execute(model),
+                template(name + HTML_SUFFIX).execute(model)
+        );
+    }
+
+    private Template template(String filename) {
+        CompiledTemplate compiled = templates.get(filename);
+        if (compiled == null) {
+            throw new IllegalArgumentException("Unknown email template " + filename);
+        }
+        if (reload && compiled.lastModified() < lastModified(compiled.resource())) {
+            compiled = compile(filename, compiled.resource());
+            templates.put(filename, compiled);
+            log.info("Reloaded email template {}", filename);
+        }
+        return compiled.template();
+    }
+
+    private CompiledTemplate compile(String filename, Resource resource) {
+        Mustache.Compiler compiler = filename.endsWith(HTML_SUFFIX) ? htmlCompiler : textCompiler;
+        long lastModified = lastModified(resource);
+        try (Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
+            return new CompiledTemplate(compiler.compile(reader), resource, lastModified);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read email template " + filename, e);
+        }
+    }
+
+    private static long lastModified(Resource resource) {
+        try {
+            return resource.lastModified();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private record CompiledTemplate(Template template, Resource resource, long lastModified) {}
+}
@@ -0,0 +1,11 @@
+package com.seriousapp.serious.app.mail;
+
+import java.util.List;
+
+/**
+ * Delivers one email to a list of recipients, with a plain text and an HTML body.
+ */
+public interface MailSender {
+
+    void send(List<String> recipients, String subject, String bodyPlainText, String bodyHtml);
+}
@@ -0,0 +1,70 @@
+package com.seriousapp.serious.app.mail;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Encrypts email bodies while they wait in the outbox, since some of them carry login credentials.
+ * Bodies are sealed with AES-GCM under {@code mail.outbox.encryption-key} (32 bytes, base64) and a
+ * random IV per value. Values without the {@value #PREFIX} marker were queued before encryption and
+ * are returned as they are.
+ */
+@Component
+public class OutboxBodyCipher {
+    static final String PREFIX = "gcm:";
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+
+    private final SecretKeySpec key;
+    private final SecureRandom random = new SecureRandom();
+
+    public OutboxBodyCipher(@Value("${mail.outbox.encryption-key}") String encodedKey) {
+        byte[] keyBytes = Base64.getDecoder().decode(encodedKey);
+        if (keyBytes.length != 32) {
+            throw new IllegalStateException("mail.outbox.encryption-key must be 32 bytes, got " + keyBytes.length);
+        }
+        this.key = new SecretKeySpec(keyBytes, "AES");
+    }
+
+    public String encrypt(String plainText) {
+        if (plainText == null) {
+            return null;
+        }
+        byte[] iv = new byte[IV_BYTES];
+        random.nextBytes(iv);
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+            byte[] sealed = cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8));
+            return PREFIX + Base64.getEncoder().encodeToString(ByteBuffer.allocate(iv.length + sealed.length)
+                    .put(iv)
+                    .put(sealed)
+                    .array());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not encrypt email body", e);
+        }
+    }
+
+    public String decrypt(String stored) {
+        if (stored == null || !stored.startsWith(PREFIX)) {
+            return stored;
+        }
+        byte[] data = Base64.getDecoder().decode(stored.substring(PREFIX.length()));
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, data, 0, IV_BYTES));
+            return new String(cipher.doFinal(data, IV_BYTES, data.length - IV_BYTES), StandardCharsets.UTF_8);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not decrypt email body", e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.seriousapp.serious.app.mail;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An email written in the transaction of the change it reports, delivered later by {@link EmailDispatcher}.
+ */
+@Data
+@Entity
+@Table(name = "email_outbox", indexes = {
+        @Index(name = "idx_email_outbox_status_run_after", columnList = "status, run_after")
+})
+public class OutboxEmail {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "email_outbox_recipients", joinColumns = @JoinColumn(name = "email_id"),
+            indexes = @Index(name = "idx_email_outbox_recipients_email", columnList = "email_id"))
+    @Column(name = "address", length = 320)
+    private List<String> recipients = new ArrayList<>();
+
+    @Column(length = 998)
+    private String subject;
+
+    @Column(name = "body_plain_text", columnDefinition = "text")
+    private String bodyPlainText;
+
+    @Column(name = "body_html", columnDefinition = "text")
+    private String bodyHtml;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private OutboxEmailStatus status = OutboxEmailStatus.PENDING;
+
+    private int attempts;
+
+    @Column(name = "run_after")
+    private Instant runAfter;
+
+    // Lease of the dispatcher sending the email, an expired lease makes it claimable again
+    @Column(name = "locked_until")
+    private Instant lockedUntil;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @CreationTimestamp
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    @Column(name = "sent_at")
+    private Instant sentAt;
+}
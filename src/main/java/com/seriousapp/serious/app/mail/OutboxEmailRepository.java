@@ -0,0 +1,54 @@
+package com.seriousapp.serious.app.mail;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface OutboxEmailRepository extends JpaRepository<OutboxEmail, Long> {
+
+    /**
+     * Due emails plus emails whose dispatcher lease ran out, skipping rows another dispatcher holds.
+     */
+    @Query(value = """
+            SELECT id FROM email_outbox
+            WHERE (status = 'PENDING' AND run_after <= :now)
+               OR (status = 'SENDING' AND locked_until < :now)
+            ORDER BY id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<Long> findClaimableIds(@Param("now") Instant now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("""
+            UPDATE OutboxEmail e
+            SET e.status = com.seriousapp.serious.app.mail.OutboxEmailStatus.SENDING,
+                e.attempts = e.attempts + 1,
+                e.lockedUntil = :lockedUntil
+            WHERE e.id IN :ids
+            """)
+    int markSending(@Param("ids") List<Long> ids, @Param("lockedUntil") Instant lockedUntil);
+
+    long countByStatus(OutboxEmailStatus status);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+            WITH batch AS (
+                SELECT id FROM email_outbox
+                WHERE status = 'SENT' AND sent_at < :cutoff
+                LIMIT :batchSize
+            ), recipients AS (
+                DELETE FROM email_outbox_recipients WHERE email_id IN (SELECT id FROM batch)
+            )
+            DELETE FROM email_outbox WHERE id IN (SELECT id FROM batch)
+            """, nativeQuery = true)
+    int deleteSentBatch(@Param("cutoff") Instant cutoff, @Param("batchSize") int batchSize);
+}
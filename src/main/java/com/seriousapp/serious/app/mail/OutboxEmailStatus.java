@@ -0,0 +1,9 @@
+package com.seriousapp.serious.app.mail;
+
+public enum OutboxEmailStatus {
+    PENDING,
+    SENDING,
+    SENT,
+    // Gave up after the maximum number of attempts, kept for inspection
+    DEAD
+}
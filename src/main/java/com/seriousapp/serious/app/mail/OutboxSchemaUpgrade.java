@@ -0,0 +1,32 @@
+package com.seriousapp.serious.app.mail;
+
+import com.seriousapp.serious.app.configurations.SchemaUpgrade;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Clears the bodies of emails that were sent or dead-lettered before {@link EmailOutbox} started doing
+ * so itself, they may hold plaintext login credentials.
+ */
+@Slf4j
+@Component
+public class OutboxSchemaUpgrade implements SchemaUpgrade {
+
+    @Override
+    public String name() {
+        return "email-outbox-finished-bodies";
+    }
+
+    @Override
+    public void apply(JdbcTemplate jdbcTemplate) {
+        int cleared = jdbcTemplate.update("""
+                UPDATE email_outbox SET body_plain_text = NULL, body_html = NULL
+                WHERE status IN ('SENT', 'DEAD')
+                  AND (body_plain_text IS NOT NULL OR body_html IS NOT NULL)
+                """);
+        if (cleared > 0) {
+            log.info("Cleared the bodies of {} finished outbox emails", cleared);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.seriousapp.serious.app.notifications;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends the digests of parent addresses whose oldest pending notification has waited for the digest
+ * window, a batch of addresses at a time. Each digest is queued in the email outbox in its own
+ * transaction.
+ */
+@Slf4j
+@Component
+public class ParentDigestScheduler {
+    private final ParentNotificationRepository notificationRepository;
+    private final ParentNotifier parentNotifier;
+    private final long windowMillis;
+    private final int batchSize;
+    private final AtomicLong pending = new AtomicLong();
+    private final Counter digests;
+    private final Counter coalesced;
+
+    public ParentDigestScheduler(
+            ParentNotificationRepository notificationRepository,
+            ParentNotifier parentNotifier,
+            @Value("${notifications.digest.window-ms:86400000}") long windowMillis,
+            @Value("${notifications.digest.batch-size:100}") int batchSize,
+            MeterRegistry meterRegistry
+    ) {
+        this.notificationRepository = notificationRepository;
+        this.parentNotifier = parentNotifier;
+        this.windowMillis = windowMillis;
+        this.batchSize = batchSize;
+        this.digests = Counter.builder("notifications.digests")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("notifications.digest.events")
+                .register(meterRegistry);
+        Gauge.builder("notifications.digest.pending", pending, AtomicLong::get)
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${notifications.digest.flush-interval-ms:60000}")
+    public void flush() {
+        pending.set(notificationRepository.count());
+
+        Instant cutoff = Instant.now().minusMillis(windowMillis);
+        // One batch per run, addresses left over are picked up by the next run
+        for (String recipient : notificationRepository.findDueRecipients(cutoff, batchSize)) {
+            try {
+                int events = parentNotifier.sendDigest(recipient);
+                if (events > 0) {
+                    digests.increment();
+                    coalesced.increment(events);
+                }
+            } catch (RuntimeException e) {
+                log.error("Could not send digest to {}: {}", recipient, e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.seriousapp.serious.app.notifications;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A borrow or return waiting to go out to one parent address in the next digest. The row holds
+ * everything the digest shows, so it renders without loading the record again.
+ */
+@Data
+@Entity
+@Table(name = "parent_notifications", indexes = {
+        @Index(name = "idx_parent_notifications_email_created", columnList = "parent_email, created_at")
+})
+public class ParentNotification {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "parent_email", nullable = false, length = 320)
+    private String parentEmail;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private ParentNotificationType type;
+
+    private String studentName;
+    private Long studentNumber;
+    private String bookTitle;
+    private String bookAuthor;
+    private LocalDate eventDate;
+
+    // Only set for returns
+    private Double amountOwed;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "parent_notification_damages", joinColumns = @JoinColumn(name = "notification_id"))
+    @Column(name = "damage")
+    private Set<String> damages = new HashSet<>();
+
+    // Image URL to thumbnail URL
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "parent_notification_images", joinColumns = @JoinColumn(name = "notification_id"))
+    @MapKeyColumn(name = "url", length = 1024)
+    @Column(name = "thumbnail_url", length = 1024)
+    private Map<String, String> images = new LinkedHashMap<>();
+
+    @CreationTimestamp
+    @Column(name = "created_at")
+    private Instant createdAt;
+}
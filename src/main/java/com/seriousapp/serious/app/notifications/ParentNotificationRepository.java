@@ -0,0 +1,36 @@
+package com.seriousapp.serious.app.notifications;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface ParentNotificationRepository extends JpaRepository<ParentNotification, Long> {
+
+    /**
+     * Parent addresses whose oldest pending notification is older than the cutoff, oldest first.
+     */
+    @Query(value = """
+            SELECT parent_email FROM parent_notifications
+            GROUP BY parent_email
+            HAVING MIN(created_at) <= :cutoff
+            ORDER BY MIN(created_at)
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<String> findDueRecipients(@Param("cutoff") Instant cutoff, @Param("limit") int limit);
+
+    /**
+     * Pending notifications of one address, skipping rows another instance is already sending.
+     */
+    @Query(value = """
+            SELECT id FROM parent_notifications
+            WHERE parent_email = :parentEmail
+            ORDER BY created_at, id
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<Long> lockPendingIds(@Param("parentEmail") String parentEmail);
+}
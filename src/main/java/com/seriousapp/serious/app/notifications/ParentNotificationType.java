@@ -0,0 +1,6 @@
+package com.seriousapp.serious.app.notifications;
+
+public enum ParentNotificationType {
+    BORROW,
+    RETURN
+}
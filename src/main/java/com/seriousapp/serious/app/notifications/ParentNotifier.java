@@ -0,0 +1,198 @@
+package com.seriousapp.serious.app.notifications;
+
+import com.seriousapp.serious.app.book.Book;
+import com.seriousapp.serious.app.borrowing.BorrowingRecord;
+import com.seriousapp.serious.app.images.ImagePipelineResult;
+import com.seriousapp.serious.app.mail.EmailBody;
+import com.seriousapp.serious.app.mail.EmailOutbox;
+import com.seriousapp.serious.app.mail.EmailTemplates;
+import com.seriousapp.serious.app.parent.Parent;
+import com.seriousapp.serious.app.users.student.Student;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tells parents about borrows and returns. By default the events are collected per parent address and
+ * sent as one digest by {@link ParentDigestScheduler}, so a student borrowing a full set of textbooks
+ * causes one email per parent instead of one per book. Parents who opted for immediate notifications,
+ * or everyone when {@code notifications.digest.enabled} is off, get one email per event.
+ */
+@Slf4j
+@Service
+public class ParentNotifier {
+    private final ParentNotificationRepository notificationRepository;
+    private final EmailOutbox emailOutbox;
+    private final EmailTemplates emailTemplates;
+    private final boolean digestEnabled;
+
+    public ParentNotifier(
+            ParentNotificationRepository notificationRepository,
+            EmailOutbox emailOutbox,
+            EmailTemplates emailTemplates,
+            @Value("${notifications.digest.enabled:true}") boolean digestEnabled
+    ) {
+        this.notificationRepository = notificationRepository;
+        this.emailOutbox = emailOutbox;
+        this.emailTemplates = emailTemplates;
+        this.digestEnabled = digestEnabled;
+    }
+
+    @Transactional
+    public void borrowed(BorrowingRecord record, ImagePipelineResult images) {
+        Student student = record.getStudent();
+        Book book = record.getBook();
+
+        List<String> immediate = new ArrayList<>();
+        for (Parent parent : student.getParents()) {
+            if (!digestEnabled || parent.isImmediateNotifications()) {
+                immediate.add(parent.getEmail());
+            } else {
+                notificationRepository.save(notification(parent.getEmail(), ParentNotificationType.BORROW,
+                        student, book, record.getBorrowDate(), images));
+            }
+        }
+        if (immediate.isEmpty()) {
+            return;
+        }
+
+        String subject = String.format("%s has borrowed %s", student.getStudentNumber(), book.getTitle());
+        Map<String, Object> model = emailModel(student, book, images);
+        model.put("borrowDate", record.getBorrowDate());
+        EmailBody body = emailTemplates.render("borrow", model);
+
+        emailOutbox.enqueue(immediate, subject, body.plainText(), body.html());
+    }
+
+    @Transactional
+    public void returned(BorrowingRecord record, ImagePipelineResult images, double amountOwed, Set<String> damages) {
+        Student student = record.getStudent();
+        Book book = record.getBook();
+        if (student.getParents().isEmpty()) {
+            log.warn("No parent emails found for student: {}", student.getStudentNumber());
+            return;
+        }
+
+        LocalDate returnDate = LocalDate.now();
+        List<String> immediate = new ArrayList<>();
+        for (Parent parent : student.getParents()) {
+            if (!digestEnabled || parent.isImmediateNotifications()) {
+                immediate.add(parent.getEmail());
+            } else {
+                ParentNotification notification = notification(parent.getEmail(), ParentNotificationType.RETURN,
+                        student, book, returnDate, images);
+                notification.setAmountOwed(amountOwed);
+                notification.getDamages().addAll(damages);
+                notificationRepository.save(notification);
+            }
+        }
+        if (immediate.isEmpty()) {
+            return;
+        }
+
+        String subject = String.format("%s has returned %s", student.getStudentNumber(), book.getTitle());
+        Map<String, Object> model = emailModel(student, book, images);
+        model.put("returnDate", returnDate);
+        model.put("charged", amountOwed > 0);
+        model.put("damages", damages);
+        model.put("amountOwed", String.format("%.2f", amountOwed));
+        EmailBody body = emailTemplates.render("return", model);
+
+        emailOutbox.enqueue(immediate, subject, body.plainText(), body.html());
+    }
+
+    /**
+     * Renders the pending notifications of one address into a single digest and queues it, removing
+     * them in the same transaction. Returns how many notifications went into the digest.
+     */
+    @Transactional
+    public int sendDigest(String parentEmail) {
+        List<Long> ids = notificationRepository.lockPendingIds(parentEmail);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        List<ParentNotification> notifications = notificationRepository.findAllById(ids).stream()
+                .sorted((a, b) -> Long.compare(a.getId(), b.getId()))
+                .toList();
+
+        List<Map<String, Object>> events = new ArrayList<>();
+        long borrowed = 0;
+        long returned = 0;
+        double totalOwed = 0;
+        for (ParentNotification notification : notifications) {
+            boolean isReturn = notification.getType() == ParentNotificationType.RETURN;
+            double amountOwed = notification.getAmountOwed() == null ? 0 : notification.getAmountOwed();
+            if (isReturn) {
+                returned++;
+                totalOwed += amountOwed;
+            } else {
+                borrowed++;
+            }
+
+            Map<String, Object> event = new HashMap<>();
+            event.put("isReturn", isReturn);
+            event.put("studentName", notification.getStudentName());
+            event.put("studentNumber", notification.getStudentNumber());
+            event.put("bookTitle", notification.getBookTitle());
+            event.put("bookAuthor", notification.getBookAuthor());
+            event.put("eventDate", notification.getEventDate());
+            event.put("charged", isReturn && amountOwed > 0);
+            event.put("amountOwed", String.format("%.2f", amountOwed));
+            event.put("damages", notification.getDamages());
+            event.put("hasImages", !notification.getImages().isEmpty());
+            event.put("images", notification.getImages().entrySet().stream()
+                    .map(image -> Map.of("url", image.getKey(), "thumbnailUrl", image.getValue()))
+                    .toList());
+            events.add(event);
+        }
+
+        Map<String, Object> model = new HashMap<>();
+        model.put("events", events);
+        model.put("charged", totalOwed > 0);
+        model.put("totalOwed", String.format("%.2f", totalOwed));
+        EmailBody body = emailTemplates.render("digest", model);
+
+        String subject = String.format("School library: %d borrowed, %d returned", borrowed, returned);
+        emailOutbox.enqueue(List.of(parentEmail), subject, body.plainText(), body.html());
+        notificationRepository.deleteAll(notifications);
+        return notifications.size();
+    }
+
+    private static ParentNotification notification(String parentEmail, ParentNotificationType type, Student student,
+                                                   Book book, LocalDate eventDate, ImagePipelineResult images) {
+        ParentNotification notification = new ParentNotification();
+        notification.setParentEmail(parentEmail);
+        notification.setType(type);
+        notification.setStudentName(student.getFirstNames() + " " + student.getLastName());
+        notification.setStudentNumber(student.getStudentNumber());
+        notification.setBookTitle(book.getTitle());
+        notification.setBookAuthor(book.getAuthor());
+        notification.setEventDate(eventDate);
+        Map<String, String> imageThumbnails = new LinkedHashMap<>();
+        images.imageUrls().forEach(url -> imageThumbnails.put(url, images.thumbnailFor(url)));
+        notification.setImages(imageThumbnails);
+        return notification;
+    }
+
+    private static Map<String, Object> emailModel(Student student, Book book, ImagePipelineResult images) {
+        Map<String, Object> model = new HashMap<>();
+        model.put("studentName", student.getFirstNames() + " " + student.getLastName());
+        model.put("studentNumber", student.getStudentNumber());
+        model.put("bookTitle", book.getTitle());
+        model.put("bookAuthor", book.getAuthor());
+        model.put("hasImages", !images.imageUrls().isEmpty());
+        model.put("images", images.imageUrls().stream()
+                .map(url -> Map.of("url", url, "thumbnailUrl", images.thumbnailFor(url)))
+                .toList());
+        return model;
+    }
+}
@@ -17,6 +17,10 @@ public class Parent {
     private String name;
     private String relationship;
 
+    // Send each borrow/return email straight away instead of in the periodic digest
+    @Column(name = "immediate_notifications", columnDefinition = "boolean not null default false")
+    private boolean immediateNotifications;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "student_id", referencedColumnName = "id")
     private Student student;
@@ -7,4 +7,5 @@ public class ParentRequest {
     private String email;
     private String name;
     private String relationship;
+    private boolean immediateNotifications;
 }
@@ -10,4 +10,5 @@ public class ParentResponse {
     private String name;
     private String email;
     private String relationship;
+    private boolean immediateNotifications;
 }
@@ -0,0 +1,82 @@
+package com.seriousapp.serious.app.storage;
+
+import com.azure.storage.blob.BlobContainerClient;
+import com.azure.storage.blob.models.ParallelTransferOptions;
+import com.azure.storage.blob.specialized.BlockBlobClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+@Component
+@Profile("!offline")
+public class AzureBlobStore implements BlobStore {
+    private final BlobContainerClient blobContainerClient;
+    private final long blockSize;
+
+    public AzureBlobStore(BlobContainerClient blobContainerClient,
+                          @Value("${images.upload.block-size:4MB}") DataSize blockSize) {
+        this.blobContainerClient = blobContainerClient;
+        this.blockSize = blockSize.toBytes();
+    }
+
+    @Override
+    public String put(String blobName, InputStream content, long length) {
+        var blob = blobContainerClient.getBlobClient(blobName);
+        blob.upload(content, length, true);
+        return blob.getBlobUrl();
+    }
+
+    @Override
+    public BlockUpload beginBlockUpload(String blobName) {
+        BlockBlobClient blockBlob = blobContainerClient.getBlobClient(blobName).getBlockBlobClient();
+        List<String> blockIds = new ArrayList<>();
+        return new BlockUpload() {
+            @Override
+            public void stage(byte[] buffer, int length) {
+                String blockId = Base64.getEncoder().encodeToString(
+                        String.format("%08d", blockIds.size()).getBytes(StandardCharsets.UTF_8));
+                blockBlob.stageBlock(blockId, new ByteArrayInputStream(buffer, 0, length), length);
+                blockIds.add(blockId);
+            }
+
+            @Override
+            public String commit() {
+                blockBlob.commitBlockList(blockIds, true);
+                return blockBlob.getBlobUrl();
+            }
+
+            @Override
+            public void abort() {
+                // Blocks that are never committed are discarded by the storage service
+            }
+        };
+    }
+
+    @Override
+    public OutputStream openOutputStream(String blobName) {
+        var transferOptions = new ParallelTransferOptions()
+                .setBlockSizeLong(blockSize)
+                .setMaxConcurrency(1);
+        return blobContainerClient.getBlobClient(blobName).getBlockBlobClient()
+                .getBlobOutputStream(transferOptions, null, null, null, null);
+    }
+
+    @Override
+    public InputStream openInputStream(String blobName) {
+        return blobContainerClient.getBlobClient(blobName).openInputStream();
+    }
+
+    @Override
+    public void deleteIfExists(String blobName) {
+        blobContainerClient.getBlobClient(blobName).deleteIfExists();
+    }
+}
@@ -0,0 +1,51 @@
+package com.seriousapp.serious.app.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Named blob storage for record images. Blob names are paths relative to the store
+ * (e.g. {@code records/12/borrow/<hash>.jpg}) and every stored blob has a URL that email recipients
+ * and the vision service can fetch.
+ */
+public interface BlobStore {
+
+    /**
+     * Stores the content under the blob name, replacing any existing blob, and returns its URL.
+     */
+    String put(String blobName, InputStream content, long length);
+
+    default String put(String blobName, byte[] content) {
+        return put(blobName, new ByteArrayInputStream(content), content.length);
+    }
+
+    /**
+     * Starts an upload written block by block, which only becomes visible under the blob name once
+     * committed.
+     */
+    BlockUpload beginBlockUpload(String blobName);
+
+    /**
+     * Writes a blob of unknown length, it becomes visible once the stream is closed.
+     */
+    OutputStream openOutputStream(String blobName);
+
+    InputStream openInputStream(String blobName);
+
+    void deleteIfExists(String blobName);
+
+    interface BlockUpload {
+        void stage(byte[] buffer, int length);
+
+        /**
+         * Makes the staged blocks visible as one blob and returns its URL.
+         */
+        String commit();
+
+        /**
+         * Discards the staged blocks.
+         */
+        void abort();
+    }
+}
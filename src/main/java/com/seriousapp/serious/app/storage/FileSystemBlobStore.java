@@ -0,0 +1,171 @@
+package com.seriousapp.serious.app.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+
+/**
+ * Stores blobs as files under a local directory, for running the app without Azure. Writes go to a
+ * temporary file next to the target and are moved into place when complete, so readers never see a
+ * partial blob. URLs point at {@code offline.blob-store.base-url}, which {@link OfflineBlobResources}
+ * serves from the same directory.
+ */
+@Slf4j
+@Component
+@Profile("offline")
+public class FileSystemBlobStore implements BlobStore {
+    private final Path root;
+    private final String baseUrl;
+
+    public FileSystemBlobStore(@Value("${offline.blob-store.root:./offline-blobs}") String root,
+                               @Value("${offline.blob-store.base-url:http://localhost:8080/offline-blobs/}") String baseUrl) throws IOException {
+        this.root = Files.createDirectories(Path.of(root)).toAbsolutePath().normalize();
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+        log.info("Storing blobs under {}", this.root);
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    @Override
+    public String put(String blobName, InputStream content, long length) {
+        Path target = resolve(blobName);
+        Path temp = tempFileFor(target);
+        try {
+            Files.copy(content, temp);
+            moveIntoPlace(temp, target);
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw new UncheckedIOException("Could not store blob " + blobName, e);
+        }
+        return urlOf(blobName);
+    }
+
+    @Override
+    public BlockUpload beginBlockUpload(String blobName) {
+        Path target = resolve(blobName);
+        Path temp = tempFileFor(target);
+        OutputStream out = newOutputStream(temp);
+        return new BlockUpload() {
+            @Override
+            public void stage(byte[] buffer, int length) {
+                try {
+                    out.write(buffer, 0, length);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not stage block of " + blobName, e);
+                }
+            }
+
+            @Override
+            public String commit() {
+                try {
+                    out.close();
+                    moveIntoPlace(temp, target);
+                } catch (IOException e) {
+                    deleteQuietly(temp);
+                    throw new UncheckedIOException("Could not commit blob " + blobName, e);
+                }
+                return urlOf(blobName);
+            }
+
+            @Override
+            public void abort() {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                    // The file is deleted either way
+                }
+                deleteQuietly(temp);
+            }
+        };
+    }
+
+    @Override
+    public OutputStream openOutputStream(String blobName) {
+        Path target = resolve(blobName);
+        Path temp = tempFileFor(target);
+        return new FilterOutputStream(newOutputStream(temp)) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                super.close();
+                moveIntoPlace(temp, target);
+            }
+        };
+    }
+
+    @Override
+    public InputStream openInputStream(String blobName) {
+        try {
+            return Files.newInputStream(resolve(blobName));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read blob " + blobName, e);
+        }
+    }
+
+    @Override
+    public void deleteIfExists(String blobName) {
+        try {
+            Files.deleteIfExists(resolve(blobName));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not delete blob " + blobName, e);
+        }
+    }
+
+    private Path resolve(String blobName) {
+        Path path = root.resolve(blobName).normalize();
+        if (!path.startsWith(root) || path.equals(root)) {
+            throw new IllegalArgumentException("Invalid blob name: " + blobName);
+        }
+        return path;
+    }
+
+    private String urlOf(String blobName) {
+        return baseUrl + blobName;
+    }
+
+    private static Path tempFileFor(Path target) {
+        try {
+            Files.createDirectories(target.getParent());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create directory for " + target, e);
+        }
+        return target.resolveSibling("." + target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+    }
+
+    private static OutputStream newOutputStream(Path path) {
+        try {
+            return Files.newOutputStream(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open " + path, e);
+        }
+    }
+
+    private static void moveIntoPlace(Path temp, Path target) throws IOException {
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete {}: {}", path, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.seriousapp.serious.app.storage;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Serves the files of the {@link FileSystemBlobStore}, so image links in emails and tag requests by
+ * URL keep working offline.
+ */
+@Configuration
+@Profile("offline")
+public class OfflineBlobResources implements WebMvcConfigurer {
+    private final FileSystemBlobStore blobStore;
+
+    public OfflineBlobResources(FileSystemBlobStore blobStore) {
+        this.blobStore = blobStore;
+    }
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        registry.addResourceHandler("/offline-blobs/**")
+                .addResourceLocations(blobStore.getRoot().toUri().toString());
+    }
+}
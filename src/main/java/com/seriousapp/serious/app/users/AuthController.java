@@ -1,11 +1,17 @@
 package com.seriousapp.serious.app.users;
 
+import com.seriousapp.serious.app.configurations.security.AuthenticationExecutor;
 import com.seriousapp.serious.app.jwt.JwtService;
 import com.seriousapp.serious.app.jwt.token.AuthenticationResponse;
+import com.seriousapp.serious.app.jwt.token.RefreshTokenRequest;
+import com.seriousapp.serious.app.jwt.token.TokenService;
 import com.seriousapp.serious.app.users.student.LoginRequest;
 import com.seriousapp.serious.app.users.student.StudentService;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -16,6 +22,8 @@ import org.springframework.web.bind.annotation.*;
 
 import javax.security.auth.login.AccountNotFoundException;
 import java.security.Principal;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 
 @Slf4j
 @RestController
@@ -27,19 +35,29 @@ public class AuthController {
     private final AuthenticationManager authenticationManager;
     private final JwtService jwtService;
     private final UserRepository userRepository;
+    private final TokenService tokenService;
+    private final AuthenticationExecutor authenticationExecutor;
 
     @PostMapping("/login")
-    public AuthenticationResponse login(@RequestBody LoginRequest loginRequest) throws AccountNotFoundException {
+    public ResponseEntity<AuthenticationResponse> login(@RequestBody LoginRequest loginRequest) throws AccountNotFoundException {
         Authentication authentication = null;
         try {
-            authentication = this.authenticationManager.authenticate(
+            authentication = this.authenticationExecutor.execute(() -> this.authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(
                             loginRequest.getEmail(),
                             loginRequest.getPassword()
                     )
-            );
-        } catch (AuthenticationException e) {
-            log.error("Authentication failed for user: {}", loginRequest.getEmail(), e);
+            ));
+        } catch (RejectedExecutionException e) {
+            log.warn("Login queue full, shedding login for user: {}", loginRequest.getEmail());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(authenticationExecutor.getRetryAfterSeconds()))
+                    .build();
+        } catch (ExecutionException e) {
+            log.error("Authentication failed for user: {}", loginRequest.getEmail(), e.getCause());
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new RuntimeException(e);
         }
 
@@ -48,12 +66,21 @@ public class AuthController {
         // Cast to CustomUserDetails to get access to the User entity
         CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
 
-        String jwt = jwtService.generateToken(userDetails);
-        return AuthenticationResponse.builder()
-                .accessToken(jwt)
-                .role(userDetails.getAuthorities().toString())
-                .build();
+        return ResponseEntity.ok(tokenService.issueTokens(userDetails));
+
+    }
 
+    @PostMapping("/refresh")
+    public ResponseEntity<AuthenticationResponse> refresh(@RequestBody RefreshTokenRequest refreshTokenRequest) {
+        if (refreshTokenRequest.getRefreshToken() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(tokenService.rotate(refreshTokenRequest.getRefreshToken()));
+        } catch (AuthenticationException e) {
+            log.warn("Refresh token rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
     }
 
     @GetMapping("/details")
@@ -80,4 +80,8 @@ public class CustomUserDetails implements UserDetails {
     public String getUserType() {
         return user.getUserType();
     }
+
+    public int getSecurityVersion() {
+        return user.getSecurityVersion();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,57 @@
+package com.seriousapp.serious.app.users;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Short-lived cache of each user's security version. A JWT is only accepted while the version it
+ * carries matches the cached one, so password changes and deletions revoke stateless sessions within
+ * one TTL on every node, and immediately on the node that made the change.
+ */
+@Component
+public class SecurityVersionCache {
+    static final int MISSING_USER = -1;
+
+    private final UserRepository userRepository;
+    private final Map<Long, Entry> versions = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+    private final int maxSize;
+
+    public SecurityVersionCache(
+            UserRepository userRepository,
+            @Value("${application.security.jwt.version-cache.ttl-ms:30000}") long ttlMillis,
+            @Value("${application.security.jwt.version-cache.max-size:50000}") int maxSize
+    ) {
+        this.userRepository = userRepository;
+        this.ttlMillis = ttlMillis;
+        this.maxSize = maxSize;
+    }
+
+    public boolean isCurrent(Long userId, int tokenVersion) {
+        return userId != null && currentVersion(userId) == tokenVersion;
+    }
+
+    public int currentVersion(Long userId) {
+        long now = System.currentTimeMillis();
+        Entry entry = versions.get(userId);
+        if (entry != null && entry.loadedAt() + ttlMillis > now) {
+            return entry.version();
+        }
+
+        int version = userRepository.findSecurityVersionById(userId).orElse(MISSING_USER);
+        if (versions.size() >= maxSize) {
+            versions.values().removeIf(e -> e.loadedAt() + ttlMillis <= now);
+        }
+        versions.put(userId, new Entry(version, now));
+        return version;
+    }
+
+    public void evict(Long userId) {
+        versions.remove(userId);
+    }
+
+    private record Entry(int version, long loadedAt) {}
+}
@@ -31,6 +31,10 @@ public class User {
 
     private boolean enabled = true;
 
+    // Bumped whenever credentials change so previously issued JWTs stop being accepted
+    @Column(name = "security_version", columnDefinition = "integer not null default 0")
+    private int securityVersion;
+
     @CreationTimestamp
     @Column(name = "created_at")
     private LocalDateTime createdAt;
@@ -19,4 +19,7 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     @Query("SELECT u FROM User u WHERE u.userType = 'STUDENT' AND u.username = :username")
     Optional<Student> findStudentByUsername(String username);
+
+    @Query("SELECT u.securityVersion FROM User u WHERE u.id = :id")
+    Optional<Integer> findSecurityVersionById(Long id);
 }
@@ -5,6 +5,7 @@ import com.seriousapp.serious.app.users.student.StudentRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
@@ -12,18 +13,21 @@ import org.springframework.stereotype.Service;
 
 @Slf4j
 @Service
-public class UserService implements UserDetailsService {
+public class UserService implements UserDetailsService, UserDetailsPasswordService {
     private final UserRepository userRepository;
     private final StudentRepository studentRepository;
     private final BCryptPasswordEncoder bCryptPasswordEncoder;
+    private final SecurityVersionCache securityVersionCache;
 
     public UserService(
             UserRepository userRepository, StudentRepository studentRepository,
-            BCryptPasswordEncoder bCryptPasswordEncoder
+            BCryptPasswordEncoder bCryptPasswordEncoder,
+            SecurityVersionCache securityVersionCache
     ) {
         this.userRepository = userRepository;
         this.studentRepository = studentRepository;
         this.bCryptPasswordEncoder = bCryptPasswordEncoder;
+        this.securityVersionCache = securityVersionCache;
     }
 
 
@@ -36,65 +40,21 @@ public class UserService implements UserDetailsService {
         return new CustomUserDetails(user);
     }
 
+    @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = userRepository.findByUsername(userDetails.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + userDetails.getUsername()));
+        // Same password with a different BCrypt cost, so the security version is left alone
+        user.setPassword(newPassword);
+        log.info("Re-hashed password for user {} with the current BCrypt strength", user.getId());
+        return new CustomUserDetails(userRepository.save(user));
+    }
+
     public Student update(Student student) {
         return studentRepository.save(student);
     }
 
 
-//    public AuthenticationResponse authenticate(String username, String password) {
-//        var checkEmailExists = userRepository.findByEmail(username);
-//        log.info("Checking if email exists: {}", checkEmailExists);
-//        if (checkEmailExists.isPresent()) {
-//            Authentication authentication = authenticationManager.authenticate(
-//                    new UsernamePasswordAuthenticationToken(
-//                            username,
-//                            password
-//                    )
-//            );
-//            SecurityContextHolder.getContext().setAuthentication(authentication);
-//            UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-//
-//            var findUser = userRepository.findByEmail(username)
-//                    .orElseThrow();
-//
-//            var jwtToken = jwtService.generateToken(userDetails);
-//            var refreshToken = jwtService.generateRefreshToken(userDetails);
-//
-//            revokeAllUserTokens(userDetails.getUsername());
-//
-//            saveUserToken(userDetails, jwtToken);
-//
-//            return AuthenticationResponse.builder()
-//                    .accessToken(jwtToken)
-//                    .refreshToken(refreshToken)
-//                    .build();
-//        } else {
-//            throw new IllegalStateException(String.format("%s not found!", username));
-//        }
-//    }
-
-//    private void saveUserToken(UserPrincipal user, String jwtToken) {
-//        var token = Token.builder()
-//                .userPrincipalId(user.getId())
-//                .token(jwtToken)
-//                .tokenType(TokenType.BEARER)
-//                .expired(false)
-//                .revoked(false)
-//                .build();
-//        tokenRepository.save(token);
-//    }
-
-//    private void revokeAllUserTokens(String username) {
-//        var validUserTokens = tokenRepository.findAllValidTokensByUserId(username);
-//        if (validUserTokens.isEmpty())
-//            return;
-//        validUserTokens.forEach(token -> {
-//            token.setExpired(true);
-//            token.setRevoked(true);
-//        });
-//        tokenRepository.saveAll(validUserTokens);
-//    }
-
     public User getAuthenticatedUser() {
         Authentication authentication = org.springframework.security.core.context.SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !authentication.isAuthenticated()) {
@@ -108,35 +68,6 @@ public class UserService implements UserDetailsService {
         return null;
     }
 
-//    public void refreshToken(
-//            HttpServletRequest request,
-//            HttpServletResponse response
-//    ) throws IOException {
-//        final String authHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
-//        final String refreshToken;
-//        final String userEmail;
-//        if (authHeader == null ||!authHeader.startsWith("Bearer ")) {
-//            return;
-//        }
-//        refreshToken = authHeader.substring(7);
-//        userEmail = jwtService.extractUsername(refreshToken);
-//        if (userEmail != null) {
-//            var user = this.userRepository.findByEmail(userEmail)
-//                    .orElseThrow();
-//            if (jwtService.isTokenValid(refreshToken, user)) {
-//                var accessToken = jwtService.generateToken(user);
-//                revokeAllUserTokens(user);
-//                saveUserToken(user, accessToken);
-//                var authResponse = AuthenticationResponse.builder()
-//                        .accessToken(accessToken)
-//                        .refreshToken(refreshToken)
-//                        .build();
-//                new ObjectMapper().writeValue(response.getOutputStream(), authResponse);
-//            }
-//        }
-//
-//    }
-
     //create method that uploads a display picture to azure blob storage
 //    public User uploadDisplayPicture(User user) {
 //        var findUser = userRepository.findById(user.getId())
@@ -166,7 +97,10 @@ public User updatePassword(User user, Long userId) {
                 .orElseThrow(()-> new IllegalStateException("userPrincipal with id" + user.getId() + "does not exist"));
         var encodedPassword = bCryptPasswordEncoder.encode(user.getPassword());
         findUser.setPassword(encodedPassword);
-        return userRepository.save(findUser);
+        findUser.setSecurityVersion(findUser.getSecurityVersion() + 1);
+        var savedUser = userRepository.save(findUser);
+        securityVersionCache.evict(userId);
+        return savedUser;
     }
 
 
@@ -5,7 +5,17 @@ import com.seriousapp.serious.app.book.BookResponse;
 import com.seriousapp.serious.app.book.BookService;
 import com.seriousapp.serious.app.borrowing.BorrowingRecord;
 import com.seriousapp.serious.app.borrowing.BorrowingRecordService;
-import com.seriousapp.serious.app.configurations.EmailConfiguration;
+import com.seriousapp.serious.app.borrowing.returns.IdempotencyKeyConflictException;
+import com.seriousapp.serious.app.borrowing.returns.ReturnJob;
+import com.seriousapp.serious.app.borrowing.returns.ReturnJobResponse;
+import com.seriousapp.serious.app.borrowing.returns.ReturnJobService;
+import com.seriousapp.serious.app.fines.FineAdjustmentRequest;
+import com.seriousapp.serious.app.fines.FineLedger;
+import com.seriousapp.serious.app.fines.FineStatement;
+import com.seriousapp.serious.app.fines.FineTransaction;
+import com.seriousapp.serious.app.mail.EmailBody;
+import com.seriousapp.serious.app.mail.EmailOutbox;
+import com.seriousapp.serious.app.mail.EmailTemplates;
 import com.seriousapp.serious.app.parent.Parent;
 import com.seriousapp.serious.app.dto.BookRequest;
 import com.seriousapp.serious.app.dto.BorrowRecordResponse;
@@ -19,14 +29,20 @@ import com.seriousapp.serious.app.utils.PasswordGenerator;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 
 @Slf4j
 @RestController
@@ -39,21 +55,30 @@ public class AdminController {
     private final BookService bookService;
     private final BorrowingRecordService borrowingRecordService;
     private final StudentService studentService;
-    private final EmailConfiguration emailConfiguration;
+    private final EmailOutbox emailOutbox;
+    private final EmailTemplates emailTemplates;
     private final PasswordGenerator passwordGenerator;
+    private final ReturnJobService returnJobService;
+    private final FineLedger fineLedger;
 
     public AdminController(AdminService adminService,
                          BookService bookService,
                          BorrowingRecordService borrowingRecordService,
                          StudentService studentService,
-                         EmailConfiguration emailConfiguration,
-                         PasswordGenerator passwordGenerator) {
+                         EmailOutbox emailOutbox,
+                         EmailTemplates emailTemplates,
+                         PasswordGenerator passwordGenerator,
+                         ReturnJobService returnJobService,
+                         FineLedger fineLedger) {
         this.adminService = adminService;
         this.bookService = bookService;
         this.borrowingRecordService = borrowingRecordService;
         this.studentService = studentService;
-        this.emailConfiguration = emailConfiguration;
+        this.emailOutbox = emailOutbox;
+        this.emailTemplates = emailTemplates;
         this.passwordGenerator = passwordGenerator;
+        this.returnJobService = returnJobService;
+        this.fineLedger = fineLedger;
     }
 
     @Operation(
@@ -99,35 +124,79 @@ public class AdminController {
         return ResponseEntity.ok(response);
     }
 
-    @PostMapping("/books/upload-images/{recordId}")
+    /**
+     * Multipart body with {@code images} file parts and {@code knownTags} fields, read as a stream.
+     */
+    @PostMapping(value = "/books/upload-images/{recordId}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<BorrowingRecord> uploadBorrowImages(
             @PathVariable Long recordId,
-            @RequestParam("images") List<MultipartFile> images,
-            @RequestParam List<String> knownTags
-    ) {
-        return ResponseEntity.ok(adminService.uploadBorrowImages(recordId, images, knownTags));
+            HttpServletRequest request
+    ) throws IOException {
+        try {
+            return ResponseEntity.ok(adminService.uploadBorrowImages(recordId, request));
+        } catch (RejectedExecutionException e) {
+            log.warn("Image processing queue full, shedding borrow images for record {}", recordId);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
     }
 
-    @PostMapping("/books/return/{studentNumber}/{bookTitle}")
-    public ResponseEntity<Double> returnBook(
+    /**
+     * Multipart body with {@code images} file parts and {@code knownTags} fields, read as a stream. The
+     * return is committed right away and the damage assessment runs as a background job, whose status is
+     * available at the returned location.
+     */
+    @PostMapping(value = "/books/return/{studentNumber}/{bookTitle}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ReturnJobResponse> returnBook(
             @PathVariable Long studentNumber,
             @PathVariable String bookTitle,
-            @RequestParam("images") List<MultipartFile> images,
-            @RequestParam List<String> knownTags
-    ) {
-        double fineAmount = adminService.returnBook(studentNumber, bookTitle, images, knownTags);
-        return ResponseEntity.ok(fineAmount);
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            HttpServletRequest request
+    ) throws IOException {
+        ReturnJob job;
+        try {
+            job = adminService.acceptReturn(studentNumber, bookTitle, request, idempotencyKey);
+        } catch (IdempotencyKeyConflictException e) {
+            log.warn("Rejecting return of {} by {}: {}", bookTitle, studentNumber, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/admin/books/return/jobs/" + job.getId()))
+                .body(ReturnJobResponse.from(job));
+    }
+
+    @GetMapping("/books/return/jobs/{jobId}")
+    public ResponseEntity<ReturnJobResponse> getReturnJob(@PathVariable Long jobId) {
+        return returnJobService.findById(jobId)
+                .map(job -> ResponseEntity.ok(ReturnJobResponse.from(job)))
+                .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/students/{studentId}/fines")
     public ResponseEntity<Double> getStudentFines(@PathVariable Long studentId) {
-        Student student = studentService.findById(studentId);
-        return ResponseEntity.ok(student.getOutstandingFines());
+        return ResponseEntity.ok(fineLedger.balance(studentId));
+    }
+
+    @Operation(summary = "Fine history of a student with the balance after each entry")
+    @GetMapping("/students/{studentId}/fines/statement")
+    public ResponseEntity<FineStatement> getStudentFineStatement(@PathVariable Long studentId) {
+        return ResponseEntity.ok(fineLedger.statement(studentId));
+    }
+
+    @Operation(summary = "Record a fine payment")
+    @PostMapping("/students/{studentId}/fines/payments")
+    public ResponseEntity<FineTransaction> payStudentFines(@PathVariable Long studentId, @RequestBody FineAdjustmentRequest request) {
+        return ResponseEntity.ok(fineLedger.pay(studentId, request.getAmount(), request.getDescription()));
+    }
+
+    @Operation(summary = "Waive part of the outstanding fines")
+    @PostMapping("/students/{studentId}/fines/waivers")
+    public ResponseEntity<FineTransaction> waiveStudentFines(@PathVariable Long studentId, @RequestBody FineAdjustmentRequest request) {
+        return ResponseEntity.ok(fineLedger.waive(studentId, request.getAmount(), request.getDescription()));
     }
 
     @PutMapping("/students/{studentId}/fines/clear")
     public ResponseEntity<Void> clearStudentFines(@PathVariable Long studentId) {
-        studentService.clearFines(studentId);
+        fineLedger.waiveOutstanding(studentId, "Fines cleared");
         return ResponseEntity.ok().build();
     }
 
@@ -151,7 +220,6 @@ public class AdminController {
         student.setEmail(String.valueOf(generatedStudentNumber));
         student.setStudentNumber(generatedStudentNumber);
         student.setAddress(studentRequest.getAddress());
-        student.setOutstandingFines(studentRequest.getOutstandingFines());
 
         // Handle parents
         Set<Parent> parentSet = new java.util.HashSet<>();
@@ -160,12 +228,16 @@ public class AdminController {
             newParent.setEmail(parent.getEmail());
             newParent.setStudent(student);
             newParent.setRelationship(parent.getRelationship());
+            newParent.setImmediateNotifications(parent.isImmediateNotifications());
             newParent.setName(parent.getName());
             parentSet.add(newParent);
         });
         student.setParents(parentSet);
 
         var savedStudent = studentService.saveStudent(student);
+        if (studentRequest.getOutstandingFines() > 0) {
+            fineLedger.charge(savedStudent.getId(), studentRequest.getOutstandingFines(), "Opening balance", null);
+        }
 
         // Send email to student
 //        sendLoginCredentialsEmail(
@@ -195,6 +267,7 @@ public class AdminController {
                 .name(parent.getName())
                 .email(parent.getEmail())
                 .relationship(parent.getRelationship())
+                .immediateNotifications(parent.isImmediateNotifications())
                 .build())
             .collect(java.util.stream.Collectors.toSet());
 
@@ -206,7 +279,7 @@ public class AdminController {
             .role("STUDENT")
             .parents(parentResponses)
             .address(savedStudent.getAddress())
-            .outstandingFines(savedStudent.getOutstandingFines())
+            .outstandingFines(fineLedger.balance(savedStudent.getId()))
             .borrowedBooks(savedStudent.getBorrowedBooks())
             .build();
 
@@ -227,7 +300,6 @@ public class AdminController {
         student.setFirstNames(studentRequest.getFirstNames());
         student.setLastName(studentRequest.getLastName());
         student.setAddress(studentRequest.getAddress());
-        student.setOutstandingFines(studentRequest.getOutstandingFines());
 
         // Update parents (fix orphan removal issue)
         student.getParents().clear();
@@ -237,6 +309,7 @@ public class AdminController {
                 parent.setEmail(parentDto.getEmail());
                 parent.setName(parentDto.getName());
                 parent.setRelationship(parentDto.getRelationship());
+                parent.setImmediateNotifications(parentDto.isImmediateNotifications());
                 parent.setStudent(student);
                 student.getParents().add(parent);
             });
@@ -250,6 +323,7 @@ public class AdminController {
                 .name(parent.getName())
                 .email(parent.getEmail())
                 .relationship(parent.getRelationship())
+                .immediateNotifications(parent.isImmediateNotifications())
                 .build())
             .collect(java.util.stream.Collectors.toSet());
 
@@ -338,6 +412,7 @@ public class AdminController {
                     .name(parent.getName())
                     .email(parent.getEmail())
                     .relationship(parent.getRelationship())
+                    .immediateNotifications(parent.isImmediateNotifications())
                     .build())
                 .collect(java.util.stream.Collectors.toSet());
 
@@ -379,33 +454,11 @@ public class AdminController {
 
     private void sendLoginCredentialsEmail(List<String> emails, String username, String password, String recipientType) {
         String subject = "School Textbook Tracking Application - Login Credentials";
-        String plainText = String.format("""
-            Welcome to the School Textbook Tracking Application!
-            
-            Here are the login credentials for %s:
-            Username: %s
-            Password: %s
-            
-            Please change your password upon first login.
-            
-            Best regards,
-            School Textbook Tracking Application Team
-            """, recipientType, username, password);
-
-        String htmlBody = String.format("""
-            <html>
-            <body>
-                <h2>Welcome to the School Textbook Tracking Application!</h2>
-                <p>Here are the login credentials for %s:</p>
-                <p><strong>Username:</strong> %s</p>
-                <p><strong>Password:</strong> %s</p>
-                <p>Please change your password upon first login.</p>
-                <br>
-                <p>Best regards,<br>School Textbook Tracking Application Team</p>
-            </body>
-            </html>
-            """, recipientType, username, password);
-
-        emailConfiguration.sendEmail(emails, subject, plainText, htmlBody);
+        EmailBody body = emailTemplates.render("credentials", Map.of(
+                "recipientType", recipientType,
+                "username", username,
+                "password", password));
+
+        emailOutbox.enqueue(emails, subject, body.plainText(), body.html());
     }
 }
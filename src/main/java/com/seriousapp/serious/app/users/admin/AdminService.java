@@ -1,36 +1,39 @@
 package com.seriousapp.serious.app.users.admin;
 
-import com.azure.ai.vision.imageanalysis.ImageAnalysisClient;
-import com.azure.ai.vision.imageanalysis.ImageAnalysisClientBuilder;
-import com.azure.ai.vision.imageanalysis.models.ImageAnalysisOptions;
-import com.azure.ai.vision.imageanalysis.models.ImageAnalysisResult;
-import com.azure.ai.vision.imageanalysis.models.VisualFeatures;
-import com.azure.core.credential.KeyCredential;
-import com.azure.storage.blob.BlobServiceClient;
-import com.azure.storage.blob.models.BlobAccessPolicy;
-import com.azure.storage.blob.models.BlobSignedIdentifier;
-import com.azure.storage.blob.models.PublicAccessType;
 import com.seriousapp.serious.app.book.Book;
 import com.seriousapp.serious.app.book.BookService;
 import com.seriousapp.serious.app.borrowing.BorrowingRecord;
 import com.seriousapp.serious.app.borrowing.BorrowingRecordService;
-import com.seriousapp.serious.app.configurations.EmailConfiguration;
-import com.seriousapp.serious.app.parent.Parent;
+import com.seriousapp.serious.app.borrowing.returns.IdempotencyKeyConflictException;
+import com.seriousapp.serious.app.borrowing.returns.ReturnJob;
+import com.seriousapp.serious.app.borrowing.returns.ReturnJobService;
+import com.seriousapp.serious.app.images.ImagePhase;
+import com.seriousapp.serious.app.images.ImagePipeline;
+import com.seriousapp.serious.app.images.ImagePipelineResult;
+import com.seriousapp.serious.app.images.ReferenceImage;
+import com.seriousapp.serious.app.images.StagedImages;
+import com.seriousapp.serious.app.images.StreamedImages;
+import com.seriousapp.serious.app.notifications.ParentNotifier;
+import com.seriousapp.serious.app.damage.DamageAssessment;
+import com.seriousapp.serious.app.damage.DamagePriceCatalog;
+import com.seriousapp.serious.app.damage.DamageTagMatcher;
+import com.seriousapp.serious.app.fines.FineLedger;
 import com.seriousapp.serious.app.dto.BorrowRecordResponse;
 import com.seriousapp.serious.app.dto.UserRequest;
 import com.seriousapp.serious.app.users.student.Student;
 import com.seriousapp.serious.app.users.student.StudentService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
 import java.time.LocalDate;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 @Transactional
@@ -40,28 +43,35 @@ public class AdminService {
     private final BookService bookService;
     private final StudentService studentService;
     private final BorrowingRecordService borrowingRecordService;
-    private final BlobServiceClient blobServiceClient;
-    private final EmailConfiguration emailConfiguration;
+    private final ParentNotifier parentNotifier;
     private final BCryptPasswordEncoder bCryptPasswordEncoder;
-
-    @Value("${computer.vision.endpoint}")
-    private String computerVisionEndpoint;
-    @Value("${computer.vision.key}")
-    private String computerVisionKey;
+    private final ImagePipeline imagePipeline;
+    private final ReturnJobService returnJobService;
+    private final DamagePriceCatalog damagePriceCatalog;
+    private final FineLedger fineLedger;
+    private final TransactionTemplate transactionTemplate;
 
     public AdminService(AdminRepository adminRepository,
                         BookService bookService,
                         StudentService studentService,
                         BorrowingRecordService borrowingRecordService,
-                        BlobServiceClient blobServiceClient,
-                        EmailConfiguration emailConfiguration, BCryptPasswordEncoder bCryptPasswordEncoder) {
+                        ParentNotifier parentNotifier, BCryptPasswordEncoder bCryptPasswordEncoder,
+                        ImagePipeline imagePipeline,
+                        ReturnJobService returnJobService,
+                        DamagePriceCatalog damagePriceCatalog,
+                        FineLedger fineLedger,
+                        PlatformTransactionManager transactionManager) {
         this.adminRepository = adminRepository;
         this.bookService = bookService;
         this.studentService = studentService;
         this.borrowingRecordService = borrowingRecordService;
-        this.blobServiceClient = blobServiceClient;
-        this.emailConfiguration = emailConfiguration;
+        this.parentNotifier = parentNotifier;
         this.bCryptPasswordEncoder = bCryptPasswordEncoder;
+        this.imagePipeline = imagePipeline;
+        this.returnJobService = returnJobService;
+        this.damagePriceCatalog = damagePriceCatalog;
+        this.fineLedger = fineLedger;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     public Admin findByEmail(String email) {
@@ -111,430 +121,177 @@ public class AdminService {
         return borrowRecordResponse;
     }
 
-    private String sanitizeContainerName(String name) {
-        return name.toLowerCase()
-                  .replaceAll("\\s+", "-")
-                  .replaceAll("[^a-z0-9-]", "")
-                  .replaceAll("-+", "-")
-                  .replaceAll("^-|-$", "")
-                  .substring(0, Math.min(name.length(), 63));
-    }
-
-    public BorrowingRecord uploadBorrowImages(Long recordId, List<MultipartFile> images, List<String> knownTags) {
-        var record = borrowingRecordService.findById(recordId);
-
-        if (record.isEmpty()) {
+    /**
+     * Streams the borrow photos through the pipeline outside any transaction, then records them on the
+     * borrowing record in one short transaction.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BorrowingRecord uploadBorrowImages(Long recordId, HttpServletRequest imagesRequest) throws IOException {
+        Boolean exists = transactionTemplate.execute(status -> borrowingRecordService.findById(recordId).isPresent());
+        if (!Boolean.TRUE.equals(exists)) {
             throw new RuntimeException("Record not found");
         }
 
-        BlobSignedIdentifier blobSignedIdentifier = new BlobSignedIdentifier()
-                .setId("name")
-                .setAccessPolicy(new BlobAccessPolicy());
-
-        String currentMills = String.valueOf(System.currentTimeMillis());
-        String bookTitle = record.get().getBook().getTitle();
-
-        var containerName = sanitizeContainerName(bookTitle + "-" + currentMills);
-        var blobContainerClient = blobServiceClient.createBlobContainerIfNotExists(containerName);
-        blobContainerClient.setAccessPolicy(PublicAccessType.CONTAINER, List.of(blobSignedIdentifier));
-
-        Set<String> computerVisionTags = new HashSet<>();
-        Set<String> imagesURLS = new HashSet<>();
-
-        ImageAnalysisClient client = new ImageAnalysisClientBuilder()
-                .endpoint(computerVisionEndpoint)
-                .credential(new KeyCredential(computerVisionKey))
-                .buildClient();
+        StreamedImages upload = imagePipeline.process(imagesRequest, ImagePhase.BORROW.pathFor(recordId));
+        Set<String> computerVisionTags = new LinkedHashSet<>(upload.images().tags());
+        Set<String> imagesURLS = new LinkedHashSet<>(upload.images().imageUrls());
+        computerVisionTags.addAll(upload.fields().values("knownTags"));
 
-        for (MultipartFile image : images) {
-            String blobName = (image.getOriginalFilename() != null ? image.getOriginalFilename() : "unnamed-" + System.currentTimeMillis())
-                    .replaceAll("\\s+", "-")
-                    .toLowerCase();
+        return transactionTemplate.execute(status -> {
+            var record = borrowingRecordService.findById(recordId)
+                    .orElseThrow(() -> new RuntimeException("Record not found"));
+            record.setImages(imagesURLS);
+            record.setTags(computerVisionTags);
+            record.setImageContentHashes(new LinkedHashSet<>(upload.images().contentHashes()));
+            record.setNeedsReanalysis(upload.images().degraded());
+            BorrowingRecord savedRecord = borrowingRecordService.save(record);
 
-            var imageBlob = blobContainerClient.getBlobClient(blobName);
+            parentNotifier.borrowed(savedRecord, upload.images());
 
-            try {
-                imageBlob.deleteIfExists();
-                imageBlob.upload(image.getInputStream());
-                String imageUrl = imageBlob.getBlobUrl();
-                imagesURLS.add(imageUrl);
-
-                ImageAnalysisResult result = client.analyzeFromUrl(
-                        imageUrl,
-                        Collections.singletonList(VisualFeatures.TAGS),
-                        new ImageAnalysisOptions().setGenderNeutralCaption(true));
+            return savedRecord;
+        });
+    }
 
-                if (result.getTags() != null) {
-                    result.getTags().getValues().forEach(tag -> computerVisionTags.add(tag.getName()));
-                }
-            } catch (IOException e) {
-                log.error("Error uploading image to blob storage: {}", e.getMessage(), e);
+    /**
+     * Stages the images of a return, then commits the return together with a {@link ReturnJob} that does
+     * the damage assessment. The upload is received outside any transaction. The idempotency key is claimed
+     * before the upload is read, so a retried or concurrent request with the same key gets the job of the
+     * attempt that claimed it, as long as that job is for the same return.
+     *
+     * @throws IdempotencyKeyConflictException when the key was used for a return of another student or book
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ReturnJob acceptReturn(Long studentNumber, String bookTitle, HttpServletRequest imagesRequest, String idempotencyKey) throws IOException {
+        if (idempotencyKey != null) {
+            var existingJob = returnJobService.findByIdempotencyKey(idempotencyKey);
+            if (existingJob.isPresent()) {
+                // The return may be committed already, so match the job's record by student and book
+                return sameReturn(existingJob.get(), studentNumber, bookTitle, idempotencyKey);
             }
         }
 
-        if (knownTags != null) {
-            computerVisionTags.addAll(knownTags);
-        }
-
-        record.get().setImages(imagesURLS);
-        record.get().setTags(computerVisionTags);
-        BorrowingRecord savedRecord = borrowingRecordService.save(record.get());
-
-        sendBorrowEmail(savedRecord, imagesURLS);
-
-        return savedRecord;
-    }
-
-    public double returnBook(Long studentNumber, String bookTitle, List<MultipartFile> images, List<String> knownTags) {
-        var bookBeingReturned = studentService.returnBook(studentNumber, bookTitle, knownTags);
-
-        String containerNameBase = String.format("%s-%s-%d-%s-%s",
-            bookBeingReturned.getBook().getTitle(),
-            bookBeingReturned.getStudent().getFirstNames() + bookBeingReturned.getStudent().getLastName(),
-            bookBeingReturned.getStudent().getStudentNumber(),
-            LocalDate.now(),
-            System.currentTimeMillis()
-        );
-
-        var containerName = sanitizeContainerName(containerNameBase);
-        var blobContainerClient = blobServiceClient.createBlobContainerIfNotExists(containerName);
-        blobContainerClient.setAccessPolicy(PublicAccessType.CONTAINER,
-            List.of(new BlobSignedIdentifier().setId("name").setAccessPolicy(new BlobAccessPolicy())));
-
-        Set<String> computerVisionTags = new HashSet<>();
-        Set<String> imagesURLS = new HashSet<>();
-
-        ImageAnalysisClient client = new ImageAnalysisClientBuilder()
-                .endpoint(computerVisionEndpoint)
-                .credential(new KeyCredential(computerVisionKey))
-                .buildClient();
-
-        if (!images.isEmpty()) {
-            for (MultipartFile image : images) {
-                if (image.getOriginalFilename() == null) continue;
-                if (image.getOriginalFilename().isEmpty()) continue;
-
-                String blobName = (image.getOriginalFilename() != null ? image.getOriginalFilename() : "unnamed-" + System.currentTimeMillis())
-                        .replaceAll("\\s+", "-")
-                        .toLowerCase();
-
-                var imageBlob = blobContainerClient.getBlobClient(blobName);
-
-                try {
-                    imageBlob.deleteIfExists();
-                    imageBlob.upload(image.getInputStream());
-                    String imageUrl = imageBlob.getBlobUrl();
-                    imagesURLS.add(imageUrl);
-
-                    ImageAnalysisResult result = client.analyzeFromUrl(
-                            imageUrl,
-                            Collections.singletonList(VisualFeatures.TAGS),
-                            new ImageAnalysisOptions().setGenderNeutralCaption(true));
-
-                    if (result.getTags() != null) {
-                        result.getTags().getValues().forEach(tag -> computerVisionTags.add(tag.getName()));
-                    }
-                } catch (IOException e) {
-                    log.error("Error uploading image to blob storage: {}", e.getMessage(), e);
+        Long recordId = studentService.findActiveBorrowing(studentNumber, bookTitle).getId();
+        ReturnJob claim = null;
+        if (idempotencyKey != null) {
+            var claimed = returnJobService.claimIdempotencyKey(idempotencyKey, recordId);
+            if (claimed.isEmpty()) {
+                ReturnJob winner = returnJobService.findByIdempotencyKey(idempotencyKey)
+                        .orElseThrow(() -> new RuntimeException("Return job for idempotency key " + idempotencyKey + " not found"));
+                if (!recordId.equals(winner.getRecordId())) {
+                    throw new IdempotencyKeyConflictException(idempotencyKey);
                 }
+                return winner;
             }
+            claim = claimed.get();
         }
 
-        if (knownTags != null) {
-            computerVisionTags.addAll(knownTags);
+        StagedImages staged;
+        try {
+            staged = imagePipeline.stage(imagesRequest, ImagePhase.INCOMING.pathFor(recordId));
+        } catch (IOException | RuntimeException e) {
+            releaseClaim(claim);
+            throw e;
         }
 
-        var savedTags = bookBeingReturned.getTags().stream()
-                .map(String::toLowerCase)
-                .collect(Collectors.toSet());
-
-        var computerVisionAndKnowTagsInLowercase = computerVisionTags.stream()
-                .map(String::toLowerCase)
-                .collect(Collectors.toSet());
-
-        computerVisionAndKnowTagsInLowercase.removeIf(savedTags::contains);
-
-        double amountOwed;
-        if (computerVisionAndKnowTagsInLowercase.contains("lost")) {
-            amountOwed = bookBeingReturned.getBook().getPrice();
-        } else {
-            amountOwed = calculateDamageFines(computerVisionAndKnowTagsInLowercase);
+        List<String> knownTags = staged.fields().values("knownTags");
+        ReturnJob claimedJob = claim;
+        try {
+            return transactionTemplate.execute(status -> {
+                var bookBeingReturned = studentService.returnBook(studentNumber, bookTitle, knownTags);
+                return returnJobService.enqueue(bookBeingReturned.getId(), claimedJob, staged.blobNames(), knownTags);
+            });
+        } catch (RuntimeException e) {
+            imagePipeline.deleteStaged(staged.blobNames());
+            releaseClaim(claim);
+            throw e;
         }
-
-        double existingFines = bookBeingReturned.getStudent().getOutstandingFines();
-        bookBeingReturned.getStudent().setOutstandingFines(existingFines + amountOwed);
-        studentService.saveStudent(bookBeingReturned.getStudent());
-
-        sendReturnEmail(bookBeingReturned, imagesURLS, amountOwed, computerVisionTags);
-
-        return amountOwed;
     }
 
-    private double calculateDamageFines(Set<String> newTags) {
-        Map<String, Double> tagPrices = getDamageTagPrices();
-        double defaultPrice = 0.0;
-        double amountOwed = 0.0;
-
-        for (String tag : newTags) {
-            amountOwed += tagPrices.getOrDefault(tag.toLowerCase(), defaultPrice);
+    private ReturnJob sameReturn(ReturnJob job, Long studentNumber, String bookTitle, String idempotencyKey) {
+        Boolean same = transactionTemplate.execute(status -> borrowingRecordService.findById(job.getRecordId())
+                .filter(record -> studentNumber.equals(record.getStudent().getStudentNumber())
+                        && record.getBook() != null && bookTitle.equals(record.getBook().getTitle()))
+                .isPresent());
+        if (!Boolean.TRUE.equals(same)) {
+            throw new IdempotencyKeyConflictException(idempotencyKey);
         }
-
-        return amountOwed;
-    }
-
-    private Map<String, Double> getDamageTagPrices() {
-        Map<String, Double> tagPrices = new HashMap<>();
-        tagPrices.put("missing book cover", 90.0);
-        tagPrices.put("torn pages", 50.0);
-        tagPrices.put("water damage", 40.0);
-        tagPrices.put("writing/markings added", 15.0);
-        tagPrices.put("highlighting", 10.0);
-        tagPrices.put("bent cover", 25.0);
-        tagPrices.put("bent pages", 15.0);
-        tagPrices.put("sticker", 5.0);
-        tagPrices.put("scratched cover", 30.0);
-        tagPrices.put("dog ear", 10.0);
-        tagPrices.put("faded cover", 20.0);
-        tagPrices.put("loose pages", 35.0);
-        tagPrices.put("mold", 60.0);
-        tagPrices.put("tape", 10.0);
-        tagPrices.put("pages missing", 80.0);
-        tagPrices.put("burnt pages", 100.0);
-        tagPrices.put("bent spine", 30.0);
-        tagPrices.put("broken spine", 70.0);
-        tagPrices.put("stains present", 8.0);
-        tagPrices.put("dirty cover", 15.0);
-        tagPrices.put("scratched pages", 20.0);
-        tagPrices.put("ripped cover", 50.0);
-        tagPrices.put("ripped pages", 40.0);
-        tagPrices.put("folded pages", 10.0);
-        tagPrices.put("cracked cover", 45.0);
-        tagPrices.put("cracked pages", 30.0);
-        tagPrices.put("peeling cover", 35.0);
-        tagPrices.put("peeling pages", 20.0);
-        tagPrices.put("discoloration", 25.0);
-        tagPrices.put("faded pages", 15.0);
-        tagPrices.put("creased cover", 20.0);
-        tagPrices.put("creased pages", 10.0);
-        tagPrices.put("frayed edges", 15.0);
-        tagPrices.put("loose binding", 40.0);
-        tagPrices.put("broken binding", 80.0);
-        tagPrices.put("missing dust jacket", 30.0);
-        tagPrices.put("damaged dust jacket", 25.0);
-        tagPrices.put("damaged cover page", 30.0);
-        tagPrices.put("damaged back cover", 30.0);
-        tagPrices.put("loose cover", 40.0);
-        tagPrices.put("loose back cover", 40.0);
-        tagPrices.put("broken cover", 70.0);
-        tagPrices.put("broken back cover", 70.0);
-        tagPrices.put("missing cover page", 90.0);
-        tagPrices.put("missing back cover", 90.0);
-        return tagPrices;
-    }
-
-    private void sendBorrowEmail(BorrowingRecord record, Set<String> imagesURLS) {
-        Student student = record.getStudent();
-        Book book = record.getBook();
-        List<String> parentEmails = new ArrayList<>(student.getParents().stream()
-                .map(Parent::getEmail)
-                .toList());
-
-        String subject = String.format("%s has borrowed %s", student.getStudentNumber(), book.getTitle());
-        String plainText = createBorrowEmailPlainText(student, book, record, imagesURLS);
-        String htmlText = createBorrowEmailHtml(student, book, record, imagesURLS);
-
-        emailConfiguration.sendEmail(parentEmails, subject, plainText, htmlText);
+        return job;
     }
 
-    private void sendReturnEmail(BorrowingRecord record, Set<String> imagesURLS, double amountOwed, Set<String> damages) {
-        Student student = record.getStudent();
-        Book book = record.getBook();
-        List<String> parentEmails = student.getParents().stream()
-                .map(Parent::getEmail)
-                .toList();
-
-        if (parentEmails.isEmpty()) {
-            log.warn("No parent emails found for student: {}", student.getStudentNumber());
-            return;
+    /**
+     * Runs a claimed return job: tags the staged images, then charges damage fines, notifies the parents
+     * and completes the job in one short transaction. No transaction or lock is held while the images are
+     * processed; the job is only completed if it is still running afterwards, so a retried job never
+     * charges twice.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Optional<ReturnJob> assessReturn(Long jobId) {
+        var job = returnJobService.findRunning(jobId);
+        if (job.isEmpty()) {
+            log.info("Return job {} is no longer running, skipping", jobId);
+            return Optional.empty();
         }
 
-        String subject = String.format("%s has returned %s", student.getStudentNumber(), book.getTitle());
-        String plainText = createReturnEmailPlainText(student, book, imagesURLS, amountOwed, damages);
-        String htmlText = createReturnEmailHtml(student, book, imagesURLS, amountOwed, damages);
+        Long recordId = job.get().getRecordId();
+        // Photos of an unchanged book take over the tags of the matching borrow photo instead of being analysed
+        List<ReferenceImage> borrowImages = transactionTemplate.execute(status -> imagePipeline.referencesFor(
+                borrowingRecordService.findById(recordId)
+                        .orElseThrow(() -> new RuntimeException("Record not found"))
+                        .getImageContentHashes()));
 
-        emailConfiguration.sendEmail(parentEmails, subject, plainText, htmlText);
-    }
+        List<String> stagedImages = job.get().getImageBlobs().stream().sorted().toList();
+        ImagePipelineResult images = imagePipeline.processStaged(stagedImages, ImagePhase.RETURN.pathFor(recordId), borrowImages);
 
-    // Helper methods for email content creation
-    private String createBorrowEmailPlainText(Student student, Book book, BorrowingRecord record, Set<String> imagesURLS) {
-        StringBuilder body = new StringBuilder();
-        body.append("Dear Parent/Guardian,\n\n");
-        body.append("We are pleased to inform you that your child has borrowed a book from the school library.\n\n");
-        body.append("Student Details:\n");
-        body.append("  Name: ").append(student.getFirstNames()).append(" ").append(student.getLastName()).append("\n");
-        body.append("  Student Number: ").append(student.getStudentNumber()).append("\n\n");
-        body.append("Book Details:\n");
-        body.append("  Title: ").append(book.getTitle()).append("\n");
-        body.append("  Author: ").append(book.getAuthor()).append("\n");
-        body.append("  Borrow Date: ").append(record.getBorrowDate()).append("\n\n");
-        body.append("Please ensure the book is returned by the due date in good condition to avoid any fines.\n");
-        body.append("If you would like to see the condition of the book at the time of borrowing, you can view the following images:\n");
-        for (String url : imagesURLS) {
-            body.append("  ").append(url).append("\n");
-        }
-        body.append("\nIf you have any questions, please contact the school library.\n\n");
-        body.append("Best regards,\n");
-        body.append("School Library Team");
-        return body.toString();
+        return transactionTemplate.execute(status -> chargeReturn(jobId, images));
     }
 
-    private String createBorrowEmailHtml(Student student, Book book, BorrowingRecord record, Set<String> imagesURLS) {
-        StringBuilder html = new StringBuilder();
-        html.append("<html><body style=\"font-family: Arial, sans-serif; line-height: 1.6; color: #333;\">");
-
-        html.append("<p>Dear Parent/Guardian,</p>");
-        html.append("<p>We are pleased to inform you that your child has borrowed a book from the school library.</p>");
-
-        html.append("<div style=\"margin: 20px 0;\">");
-        html.append("<h3 style=\"color: #2c5282;\">Student Details:</h3>");
-        html.append("<ul style=\"list-style-type: none; padding-left: 20px;\">");
-        html.append("<li><strong>Name:</strong> ").append(student.getFirstNames()).append(" ").append(student.getLastName()).append("</li>");
-        html.append("<li><strong>Student Number:</strong> ").append(student.getStudentNumber()).append("</li>");
-        html.append("</ul>");
-        html.append("</div>");
-
-        html.append("<div style=\"margin: 20px 0;\">");
-        html.append("<h3 style=\"color: #2c5282;\">Book Details:</h3>");
-        html.append("<ul style=\"list-style-type: none; padding-left: 20px;\">");
-        html.append("<li><strong>Title:</strong> ").append(book.getTitle()).append("</li>");
-        html.append("<li><strong>Author:</strong> ").append(book.getAuthor()).append("</li>");
-        html.append("<li><strong>Borrow Date:</strong> ").append(record.getBorrowDate()).append("</li>");
-        html.append("</ul>");
-        html.append("</div>");
-
-        html.append("<p style=\"color: #744210; background-color: #fefcbf; padding: 15px; border-radius: 4px;\">");
-        html.append("Please ensure the book is returned by the due date in good condition to avoid any fines.");
-        html.append("</p>");
-
-        if (!imagesURLS.isEmpty()) {
-            html.append("<div style=\"margin: 20px 0;\">");
-            html.append("<p>If you would like to see the condition of the book at the time of borrowing, you can view the following images:</p>");
-            html.append("<div style=\"display: flex; flex-wrap: wrap; gap: 10px;\">");
-            for (String url : imagesURLS) {
-                html.append("<div>");
-                html.append("<img src=\"").append(url).append("\" alt=\"Book condition\" ");
-                html.append("style=\"max-width: 300px; border: 1px solid #e2e8f0; border-radius: 4px; margin: 5px;\"/>");
-                html.append("</div>");
-            }
-            html.append("</div>");
-            html.append("</div>");
+    private Optional<ReturnJob> chargeReturn(Long jobId, ImagePipelineResult images) {
+        var job = returnJobService.lockRunning(jobId);
+        if (job.isEmpty()) {
+            log.info("Return job {} was finished by another worker, skipping", jobId);
+            return Optional.empty();
         }
 
-        html.append("<p style=\"margin-top: 20px;\">If you have any questions, please contact the school library.</p>");
-
-        html.append("<p style=\"margin-top: 30px;\">");
-        html.append("Best regards,<br>");
-        html.append("School Library Team");
-        html.append("</p>");
-
-        html.append("</body></html>");
-        return html.toString();
-    }
-
-    private String createReturnEmailPlainText(Student student, Book book, Set<String> imagesURLS, double amountOwed, Set<String> damages) {
-        StringBuilder body = new StringBuilder();
-        body.append("Dear Parent/Guardian,\n\n");
-        body.append("We have received the returned book from your child.\n\n");
-        body.append("Student Details:\n");
-        body.append("  Name: ").append(student.getFirstNames()).append(" ").append(student.getLastName()).append("\n");
-        body.append("  Student Number: ").append(student.getStudentNumber()).append("\n\n");
-        body.append("Book Details:\n");
-        body.append("  Title: ").append(book.getTitle()).append("\n");
-        body.append("  Author: ").append(book.getAuthor()).append("\n");
-        body.append("  Return Date: ").append(LocalDate.now()).append("\n\n");
+        var bookBeingReturned = borrowingRecordService.findById(job.get().getRecordId())
+                .orElseThrow(() -> new RuntimeException("Record not found"));
 
-        if (amountOwed > 0) {
-            body.append("Damage Details:\n");
-            for (String tag : damages) {
-                body.append("  - ").append(tag).append("\n");
-            }
-            body.append("\n");
-            body.append("Total Amount Owed: R").append(String.format("%.2f", amountOwed)).append("\n");
-        } else {
-            body.append("The book has been returned in good condition. No fines are due.\n");
-        }
-
-        body.append("\nIf you would like to see the condition of the book upon return, you can view the following images:\n");
-        for (String url : imagesURLS) {
-            body.append("  ").append(url).append("\n");
+        Set<String> computerVisionTags = new LinkedHashSet<>(images.tags());
+        computerVisionTags.addAll(job.get().getKnownTags());
+        if (images.degraded()) {
+            // Vision is down: charge for what the librarian reported and look at the photos again later
+            log.warn("Assessing return of record {} with known tags only", bookBeingReturned.getId());
+            bookBeingReturned.setNeedsReanalysis(true);
+            borrowingRecordService.save(bookBeingReturned);
         }
-        body.append("\nIf you have any questions, please contact the school library.\n\n");
-        body.append("Best regards,\n");
-        body.append("School Library Team");
-        return body.toString();
-    }
 
-    private String createReturnEmailHtml(Student student, Book book, Set<String> imagesURLS, double amountOwed, Set<String> damages) {
-        StringBuilder html = new StringBuilder();
-        html.append("<html><body style=\"font-family: Arial, sans-serif; line-height: 1.6; color: #333;\">");
-
-        html.append("<p>Dear Parent/Guardian,</p>");
-        html.append("<p>We have received the returned book from your child.</p>");
-
-        html.append("<div style=\"margin: 20px 0;\">");
-        html.append("<h3 style=\"color: #2c5282;\">Student Details:</h3>");
-        html.append("<ul style=\"list-style-type: none; padding-left: 20px;\">");
-        html.append("<li><strong>Name:</strong> ").append(student.getFirstNames()).append(" ").append(student.getLastName()).append("</li>");
-        html.append("<li><strong>Student Number:</strong> ").append(student.getStudentNumber()).append("</li>");
-        html.append("</ul>");
-        html.append("</div>");
-
-        html.append("<div style=\"margin: 20px 0;\">");
-        html.append("<h3 style=\"color: #2c5282;\">Book Details:</h3>");
-        html.append("<ul style=\"list-style-type: none; padding-left: 20px;\">");
-        html.append("<li><strong>Title:</strong> ").append(book.getTitle()).append("</li>");
-        html.append("<li><strong>Author:</strong> ").append(book.getAuthor()).append("</li>");
-        html.append("<li><strong>Return Date:</strong> ").append(LocalDate.now()).append("</li>");
-        html.append("</ul>");
-        html.append("</div>");
-
-        if (amountOwed > 0) {
-            html.append("<div style=\"color: #744210; background-color: #fefcbf; padding: 15px; border-radius: 4px; margin: 20px 0;\">");
-            html.append("<h4 style=\"margin: 0;\">Damage Details:</h4>");
-            html.append("<ul style=\"list-style-type: none; padding-left: 20px; margin: 10px 0;\">");
-            for (String tag : damages) {
-                html.append("<li>").append(tag).append("</li>");
-            }
-            html.append("</ul>");
-            html.append("<p style=\"margin: 0;\">Total Amount Owed: <strong>R").append(String.format("%.2f", amountOwed)).append("</strong></p>");
-            html.append("</div>");
+        // Damage the book already had when it was borrowed is not charged again, however it was worded
+        DamageAssessment assessment = damagePriceCatalog.assess(computerVisionTags, bookBeingReturned.getTags());
+        double amountOwed;
+        Set<String> damages;
+        if (assessment.lost()) {
+            amountOwed = bookBeingReturned.getBook().getPrice();
+            damages = Set.of(DamageTagMatcher.LOST);
         } else {
-            html.append("<p style=\"color: #2f855a;\">The book has been returned in good condition. No fines are due.</p>");
+            amountOwed = assessment.amount();
+            damages = assessment.damages();
         }
 
-        if (!imagesURLS.isEmpty()) {
-            html.append("<div style=\"margin: 20px 0;\">");
-            html.append("<p>If you would like to see the condition of the book upon return, you can view the following images:</p>");
-            html.append("<div style=\"display: flex; flex-wrap: wrap; gap: 10px;\">");
-            for (String url : imagesURLS) {
-                html.append("<div>");
-                html.append("<img src=\"").append(url).append("\" alt=\"Book condition\" ");
-                html.append("style=\"max-width: 300px; border: 1px solid #e2e8f0; border-radius: 4px; margin: 5px;\"/>");
-                html.append("</div>");
-            }
-            html.append("</div>");
-            html.append("</div>");
+        if (amountOwed > 0) {
+            fineLedger.charge(bookBeingReturned.getStudent().getId(), amountOwed,
+                    "Returned " + bookBeingReturned.getBook().getTitle() + ": " + String.join(", ", damages),
+                    bookBeingReturned.getId());
         }
 
-        html.append("<p style=\"margin-top: 20px;\">If you have any questions, please contact the school library.</p>");
+        parentNotifier.returned(bookBeingReturned, images, amountOwed, damages);
 
-        html.append("<p style=\"margin-top: 30px;\">");
-        html.append("Best regards,<br>");
-        html.append("School Library Team");
-        html.append("</p>");
+        returnJobService.complete(job.get(), amountOwed);
+        return job;
+    }
 
-        html.append("</body></html>");
-        return html.toString();
+    private void releaseClaim(ReturnJob claim) {
+        if (claim != null) {
+            returnJobService.releaseClaim(claim);
+        }
     }
 
     public Admin createAdmin(Admin admin) {
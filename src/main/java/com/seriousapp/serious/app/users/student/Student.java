@@ -29,6 +29,9 @@ public class Student extends User {
     private Set<Parent> parents = new HashSet<>();
 
     private String address;
+
+    // Kept by FineLedger with atomic updates, saving a student never writes it back
+    @Column(name = "outstanding_fines", updatable = false)
     private double outstandingFines;
 
     @OneToMany(mappedBy = "student", cascade = CascadeType.ALL)
@@ -1,6 +1,7 @@
 package com.seriousapp.serious.app.users.student;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -30,4 +31,23 @@ public interface StudentRepository extends JpaRepository<Student, Long> {
     Student findByEmail(@Param("email") String email);
 
     Student findByUsername(String username);
+
+    // Fines are only changed through FineLedger, with these single-statement updates
+    @Modifying
+    @Query(value = "UPDATE students SET outstanding_fines = outstanding_fines + :amount WHERE id = :studentId", nativeQuery = true)
+    int addToOutstandingFines(@Param("studentId") Long studentId, @Param("amount") double amount);
+
+    @Modifying
+    @Query(value = """
+            UPDATE students SET outstanding_fines = outstanding_fines - :amount
+            WHERE id = :studentId AND outstanding_fines >= :minimumBalance
+            """, nativeQuery = true)
+    int deductFromOutstandingFines(@Param("studentId") Long studentId, @Param("amount") double amount,
+                                   @Param("minimumBalance") double minimumBalance);
+
+    @Query(value = "SELECT outstanding_fines FROM students WHERE id = :studentId", nativeQuery = true)
+    Optional<Double> findOutstandingFines(@Param("studentId") Long studentId);
+
+    @Query(value = "SELECT outstanding_fines FROM students WHERE id = :studentId FOR UPDATE", nativeQuery = true)
+    Optional<Double> lockOutstandingFines(@Param("studentId") Long studentId);
 }
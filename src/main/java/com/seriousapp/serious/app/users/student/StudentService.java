@@ -8,23 +8,17 @@ import java.util.stream.Collectors;
 import com.seriousapp.serious.app.borrowing.BorrowingRecord;
 import com.seriousapp.serious.app.borrowing.BorrowingRecordService;
 import com.seriousapp.serious.app.parent.ParentService;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.seriousapp.serious.app.book.Book;
 import com.seriousapp.serious.app.book.BookService;
 import com.seriousapp.serious.app.dto.UserRequest;
-import com.azure.ai.vision.imageanalysis.ImageAnalysisClient;
-import com.azure.ai.vision.imageanalysis.ImageAnalysisClientBuilder;
-import com.azure.ai.vision.imageanalysis.models.ImageAnalysisOptions;
-import com.azure.ai.vision.imageanalysis.models.ImageAnalysisResult;
-import com.azure.ai.vision.imageanalysis.models.VisualFeatures;
-import com.azure.core.credential.KeyCredential;
-import com.azure.storage.blob.BlobServiceClient;
-import com.azure.storage.blob.models.BlobAccessPolicy;
-import com.azure.storage.blob.models.BlobSignedIdentifier;
-import com.azure.storage.blob.models.PublicAccessType;
+import com.seriousapp.serious.app.images.ImagePhase;
+import com.seriousapp.serious.app.images.ImagePipeline;
+import com.seriousapp.serious.app.images.ImagePipelineResult;
 
 import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
@@ -37,13 +31,10 @@ public class StudentService {
     private final StudentRepository studentRepository;
     private final BookService bookService;
     private final BorrowingRecordService borrowingRecordService;
-    @Value("${computer.vision.endpoint}")
-    private String computerVisionEndpoint;
-    @Value("${computer.vision.key}")
-    private String computerVisionKey;
     private final ParentService parentService;
     private final BCryptPasswordEncoder bCryptPasswordEncoder;
-    private final BlobServiceClient blobServiceClient;
+    private final ImagePipeline imagePipeline;
+    private final TransactionTemplate transactionTemplate;
 
     public StudentService(
             StudentRepository studentRepository,
@@ -51,100 +42,88 @@ public class StudentService {
             BorrowingRecordService borrowingRecordService,
             ParentService parentService,
             BCryptPasswordEncoder bCryptPasswordEncoder,
-            BlobServiceClient blobServiceClient
+            ImagePipeline imagePipeline,
+            PlatformTransactionManager transactionManager
     ) {
         this.studentRepository = studentRepository;
         this.bookService = bookService;
         this.borrowingRecordService = borrowingRecordService;
         this.parentService = parentService;
         this.bCryptPasswordEncoder = bCryptPasswordEncoder;
-        this.blobServiceClient = blobServiceClient;
+        this.imagePipeline = imagePipeline;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
-    @Transactional
+    /**
+     * Records the loan, then uploads and tags the borrow photos outside any transaction and stores their
+     * tags on the record, so damage the book already had is not charged when it is returned.
+     */
     public void borrowBook(UserRequest userRequest, String bookName, List<MultipartFile> images) throws IOException, IllegalAccessException {
-        Book book = bookService.getBookByName(bookName);
-
-        if (book == null) {
-            throw new RuntimeException("Book not found");
-        }
-
-        Student student = this.studentRepository.findByFullName(userRequest.getFullName())
-                .or(() -> this.studentRepository.findByStudentNumber(userRequest.getStudentNumber()))
-                .orElse(new Student());
-
-        //student.setFullName(userRequest.getFullName());
-        student.setStudentNumber(userRequest.getStudentNumber());
-        // Use safe collection replacement methods
-        //student.re(userRequest.getEmails());
-        //student.replacePhoneNumbers(userRequest.getPhoneNumbers());
-        student.setAddress(userRequest.getAddress());
-        student.setOutstandingFines(0);
-
-        BlobSignedIdentifier blobSignedIdentifier = new BlobSignedIdentifier()
-                .setId("name")
-                .setAccessPolicy(new BlobAccessPolicy());
-
-        var originalContainerName = bookName.replaceAll("\\s+", "-").toLowerCase();
-        var blobContainerClient = blobServiceClient.createBlobContainerIfNotExists(originalContainerName);
-        blobContainerClient.setAccessPolicy(PublicAccessType.CONTAINER, List.of(blobSignedIdentifier));
-
-        Set<String> computerVisionTags = new java.util.HashSet<>();
-        if (computerVisionEndpoint == null || computerVisionKey == null) {
-            log.error("Missing environment variable 'VISION_ENDPOINT' or 'VISION_KEY'.");
-            log.error("Set them before running this sample.");
-        }
-
-        // Create a synchronous client using API key authentication
-        ImageAnalysisClient client = new ImageAnalysisClientBuilder()
-                .endpoint(computerVisionEndpoint)
-                .credential(new KeyCredential(computerVisionKey))
-                .buildClient();
-
-        for (MultipartFile image : images) {
-            var imageBlob = blobContainerClient.getBlobClient(image.getOriginalFilename()
-                    .replaceAll("\\s+", "-").toLowerCase());
-
-            try {
-                imageBlob.upload(image.getInputStream());
-                String imageUrl = imageBlob.getBlobUrl();
-
-                log.info("Image uploaded to blob storage: {}", imageUrl);
+        BorrowingRecord savedRecord = transactionTemplate.execute(status -> {
+            Book book = bookService.getBookByName(bookName);
 
-                ImageAnalysisResult result = client.analyzeFromUrl(
-                        imageUrl,
-                        Collections.singletonList(VisualFeatures.TAGS),
-                        new ImageAnalysisOptions().setGenderNeutralCaption(true));
-
-                log.info("Image tags: {}", result.getTags());
-
-                computerVisionTags.add(result.getTags().toString());
-
-            } catch (IOException e) {
-                log.error("Error uploading image to blob storage: {}", e.getMessage(), e);
+            if (book == null) {
+                throw new RuntimeException("Book not found");
             }
-        }
-
-//        book.setImagesURL(blobContainerClient.getBlobContainerUrl());
-//        book.setImages(images.stream().map(MultipartFile::getOriginalFilename).toList());
-//        book.setTags(computerVisionTags);
 
-        // Create borrowing record
-        LocalDate borrowDate = LocalDate.now();
+            Student student = this.studentRepository.findByFullName(userRequest.getFullName())
+                    .or(() -> this.studentRepository.findByStudentNumber(userRequest.getStudentNumber()))
+                    .orElse(new Student());
+
+            //student.setFullName(userRequest.getFullName());
+            student.setStudentNumber(userRequest.getStudentNumber());
+            // Use safe collection replacement methods
+            //student.re(userRequest.getEmails());
+            //student.replacePhoneNumbers(userRequest.getPhoneNumbers());
+            student.setAddress(userRequest.getAddress());
+            student.setOutstandingFines(0);
+
+            // Create borrowing record
+            LocalDate borrowDate = LocalDate.now();
+
+            BorrowingRecord record = new BorrowingRecord();
+            record.setStudent(student);
+            record.setBook(book);
+            record.setBorrowDate(borrowDate);
+
+
+            this.studentRepository.save(student);
+            this.bookService.saveBook(book);
+            return this.borrowingRecordService.save(record);
+        });
+
+        // Images are stored under the record, so it has to exist first
+        ImagePipelineResult pipelineResult = imagePipeline.process(images, ImagePhase.BORROW.pathFor(savedRecord.getId()));
+        Set<String> computerVisionTags = new LinkedHashSet<>(pipelineResult.tags());
+        log.info("Image tags: {}", computerVisionTags);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            BorrowingRecord record = this.borrowingRecordService.findById(savedRecord.getId())
+                    .orElseThrow(() -> new RuntimeException("Record not found"));
+            record.setImages(new LinkedHashSet<>(pipelineResult.imageUrls()));
+            record.setTags(computerVisionTags);
+            record.setImageContentHashes(new LinkedHashSet<>(pipelineResult.contentHashes()));
+            record.setNeedsReanalysis(pipelineResult.degraded());
+            this.borrowingRecordService.save(record);
+        });
+    }
 
-        BorrowingRecord record = new BorrowingRecord();
-        record.setStudent(student);
-        record.setBook(book);
-        record.setBorrowDate(borrowDate);
+    public BorrowingRecord returnBook(Long studentNumber, String bookName, List<String> tags) {
+        BorrowingRecord record = findActiveBorrowing(studentNumber, bookName);
+        Book book = record.getBook();
 
+        // Update return date
+        record.setReturnDate(LocalDate.now());
+        record.setReturnTags(tags.stream().map(String::toLowerCase).collect(Collectors.toSet()));
 
-        this.studentRepository.save(student);
+        // Update book quantity
         this.bookService.saveBook(book);
-        this.borrowingRecordService.save(record);
 
+        // Save updated record
+        return this.borrowingRecordService.save(record);
     }
 
-    public BorrowingRecord returnBook(Long studentNumber, String bookName, List<String> tags) {
+    public BorrowingRecord findActiveBorrowing(Long studentNumber, String bookName) {
         Book book = bookService.getBookByName(bookName);
 
         Student student = this.studentRepository.findByStudentNumber(studentNumber)
@@ -154,21 +133,9 @@ public class StudentService {
                         )
                 );
 
-        // Find active borrowing record
-        BorrowingRecord record = this.borrowingRecordService
+        return this.borrowingRecordService
                 .findByStudentAndBookAndReturnDateIsNull(student, book)
                 .orElseThrow(() -> new RuntimeException("record has been closed, no active borrowing found because book has been returned"));
-
-
-        // Update return date
-        record.setReturnDate(LocalDate.now());
-        record.setReturnTags(tags.stream().map(String::toLowerCase).collect(Collectors.toSet()));
-
-        // Update book quantity
-        this.bookService.saveBook(book);
-
-        // Save updated record
-        return this.borrowingRecordService.save(record);
     }
 
     public List<Student> getAllUsers() {
@@ -200,14 +167,6 @@ public class StudentService {
         return this.studentRepository.findById(studentId).orElse(null);
     }
 
-    @Transactional
-    public void clearFines(Long studentId) {
-        Student student = this.studentRepository.findById(studentId)
-                .orElseThrow(() -> new RuntimeException("Student not found"));
-        student.setOutstandingFines(0);
-        this.studentRepository.save(student);
-    }
-
     @Transactional
     public Student createStudent(Student student) {
         // Encrypt the password
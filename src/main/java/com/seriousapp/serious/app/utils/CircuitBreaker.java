@@ -0,0 +1,150 @@
+package com.seriousapp.serious.app.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Count-based circuit breaker. It opens when the failure rate over the last {@code windowSize} calls
+ * reaches the threshold, rejects calls while open, and after {@code openDuration} lets a few trial calls
+ * through (half open): all of them succeeding closes it again, any failure re-opens it.
+ * State is exposed as the {@code circuitbreaker.state} gauge (0 closed, 1 open, 2 half open) and every
+ * change is counted in {@code circuitbreaker.transitions}.
+ */
+@Slf4j
+public class CircuitBreaker {
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final MeterRegistry meterRegistry;
+    private final boolean[] window;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openDurationNanos;
+    private final int halfOpenCalls;
+
+    private State state = State.CLOSED;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+    private long openedAt;
+    private int halfOpenInFlight;
+    private int halfOpenSuccesses;
+
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold,
+                          long openDurationMillis, int halfOpenCalls, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.meterRegistry = meterRegistry;
+        this.window = new boolean[Math.max(windowSize, 1)];
+        this.minimumCalls = Math.max(minimumCalls, 1);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationNanos = openDurationMillis * 1_000_000;
+        this.halfOpenCalls = Math.max(halfOpenCalls, 1);
+        Gauge.builder("circuitbreaker.state", this, breaker -> breaker.getState().ordinal())
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether a call may proceed. Every permitted call must be followed by {@link #onSuccess},
+     * {@link #onFailure} or {@link #releasePermission}.
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openDurationNanos) {
+                return false;
+            }
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenInFlight >= halfOpenCalls) {
+                return false;
+            }
+            halfOpenInFlight++;
+        }
+        return true;
+    }
+
+    /**
+     * Hands back a permission that ended up not being used for a call.
+     */
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN && halfOpenInFlight > 0) {
+            halfOpenInFlight--;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        switch (state) {
+            case HALF_OPEN -> {
+                halfOpenInFlight--;
+                if (++halfOpenSuccesses >= halfOpenCalls) {
+                    transition(State.CLOSED);
+                }
+            }
+            case CLOSED -> record(false);
+            case OPEN -> {
+                // A call permitted before the breaker opened, it no longer counts
+            }
+        }
+    }
+
+    public synchronized void onFailure() {
+        switch (state) {
+            case HALF_OPEN -> transition(State.OPEN);
+            case CLOSED -> {
+                record(true);
+                if (windowCount >= minimumCalls && (double) windowFailures / windowCount >= failureRateThreshold) {
+                    transition(State.OPEN);
+                }
+            }
+            case OPEN -> {
+                // A call permitted before the breaker opened, it no longer counts
+            }
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (windowCount == window.length) {
+            if (window[windowIndex]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private void transition(State to) {
+        log.warn("Circuit breaker {} changed from {} to {}", name, state, to);
+        Counter.builder("circuitbreaker.transitions")
+                .tag("name", name)
+                .tag("from", state.name().toLowerCase())
+                .tag("to", to.name().toLowerCase())
+                .register(meterRegistry)
+                .increment();
+
+        state = to;
+        windowIndex = 0;
+        windowCount = 0;
+        windowFailures = 0;
+        halfOpenInFlight = 0;
+        halfOpenSuccesses = 0;
+        if (to == State.OPEN) {
+            openedAt = System.nanoTime();
+        }
+    }
+}
@@ -3,7 +3,8 @@ package com.seriousapp.serious.app;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+// Throwaway outbox key, deployed environments provide MAIL_OUTBOX_ENCRYPTION_KEY
+@SpringBootTest(properties = "mail.outbox.encryption-key=zDBeVoQL81ItXpTt432cNbuiiczTk0AJ4V3ZnZ/OnH4=")
 class SeriousAppApplicationTests {
 
 	@Test
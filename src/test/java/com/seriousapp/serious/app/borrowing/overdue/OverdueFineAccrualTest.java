@@ -0,0 +1,157 @@
+package com.seriousapp.serious.app.borrowing.overdue;
+
+import com.seriousapp.serious.app.PostgresTestSupport;
+import com.seriousapp.serious.app.borrowing.BorrowingRecord;
+import com.seriousapp.serious.app.borrowing.BorrowingRecordRepository;
+import com.seriousapp.serious.app.users.student.Student;
+import com.seriousapp.serious.app.users.student.StudentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OverdueFineAccrualTest extends PostgresTestSupport {
+    private static final LocalDate TODAY = LocalDate.of(2026, 5, 20);
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private StudentRepository studentRepository;
+    @Autowired
+    private BorrowingRecordRepository borrowingRecordRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private OverdueFineAccrual accrual;
+
+    @BeforeEach
+    void setUp() {
+        accrual = new OverdueFineAccrual(namedParameterJdbcTemplate, meterRegistry);
+        ReflectionTestUtils.setField(accrual, "dailyFine", 1.0);
+        ReflectionTestUtils.setField(accrual, "maxFinePerLoan", 50.0);
+        ReflectionTestUtils.setField(accrual, "chunkSize", 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM fine_transactions");
+        borrowingRecordRepository.deleteAll();
+        studentRepository.deleteAll();
+    }
+
+    @Test
+    void chargesEachOverdueDayOnceAcrossChunks() {
+        Student student = student();
+        for (int i = 0; i < 5; i++) {
+            loan(student, TODAY.minusDays(3), null);
+        }
+
+        accrual.accrue(TODAY);
+        accrual.accrue(TODAY);
+
+        assertThat(outstandingFines(student)).isEqualTo(15.0);
+        assertThat(jdbcTemplate.queryForObject("SELECT SUM(amount) FROM fine_transactions WHERE student_id = ?",
+                Double.class, student.getId())).isEqualTo(15.0);
+        assertThat(rowsProcessed()).isEqualTo(5);
+
+        accrual.accrue(TODAY.plusDays(1));
+        assertThat(outstandingFines(student)).isEqualTo(20.0);
+    }
+
+    @Test
+    void leavesReturnedAndNotYetDueLoansAlone() {
+        Student student = student();
+        Long returned = loan(student, TODAY.minusDays(3), TODAY.minusDays(1));
+        Long notDue = loan(student, TODAY, null);
+
+        accrual.accrue(TODAY);
+
+        assertThat(outstandingFines(student)).isZero();
+        assertThat(accruedThrough(returned)).isNull();
+        assertThat(accruedThrough(notDue)).isNull();
+        assertThat(rowsProcessed()).isZero();
+    }
+
+    @Test
+    void stopsTouchingLoansOnceTheyReachTheCap() {
+        Student student = student();
+        Long loan = loan(student, TODAY.minusDays(80), null);
+
+        accrual.accrue(TODAY);
+        assertThat(overdueFine(loan)).isEqualTo(50.0);
+        assertThat(rowsProcessed()).isEqualTo(1);
+
+        accrual.accrue(TODAY.plusDays(1));
+
+        assertThat(overdueFine(loan)).isEqualTo(50.0);
+        assertThat(accruedThrough(loan)).isEqualTo(TODAY);
+        assertThat(rowsProcessed()).as("the capped loan is not counted again").isEqualTo(1);
+        assertThat(outstandingFines(student)).isEqualTo(50.0);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM fine_transactions", Long.class)).isEqualTo(1);
+    }
+
+    @Test
+    void createsThePartialIndexOnce() {
+        OverdueSchemaUpgrade upgrade = new OverdueSchemaUpgrade();
+
+        upgrade.apply(jdbcTemplate);
+        upgrade.apply(jdbcTemplate);
+
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT indexdef FROM pg_indexes WHERE indexname = 'idx_borrowing_record_open_due'", String.class))
+                .contains("WHERE (return_date IS NULL)");
+    }
+
+    private Student student() {
+        Student student = new Student();
+        String name = UUID.randomUUID().toString();
+        student.setUsername(name);
+        student.setEmail(name + "@school");
+        student.setPassword("secret");
+        return studentRepository.save(student);
+    }
+
+    private Long loan(Student student, LocalDate dueDate, LocalDate returnDate) {
+        BorrowingRecord record = new BorrowingRecord();
+        record.setStudent(student);
+        record.setBorrowDate(dueDate.minusDays(14));
+        record.setDueDate(dueDate);
+        record.setReturnDate(returnDate);
+        return borrowingRecordRepository.save(record).getId();
+    }
+
+    private double outstandingFines(Student student) {
+        return jdbcTemplate.queryForObject("SELECT outstanding_fines FROM students WHERE id = ?", Double.class, student.getId());
+    }
+
+    private double overdueFine(Long recordId) {
+        return jdbcTemplate.queryForObject("SELECT overdue_fine FROM borrowing_record WHERE id = ?", Double.class, recordId);
+    }
+
+    private LocalDate accruedThrough(Long recordId) {
+        Date date = jdbcTemplate.queryForObject("SELECT overdue_accrued_through FROM borrowing_record WHERE id = ?", Date.class, recordId);
+        return date == null ? null : date.toLocalDate();
+    }
+
+    private double rowsProcessed() {
+        return meterRegistry.get("fines.overdue.accrual.rows").counter().count();
+    }
+}
@@ -0,0 +1,172 @@
+package com.seriousapp.serious.app.borrowing.returns;
+
+import com.seriousapp.serious.app.PostgresTestSupport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ReturnJobService.class, ReturnJobSchemaUpgrade.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReturnJobServiceTest extends PostgresTestSupport {
+    private static final long LEASE_MILLIS = 300_000;
+
+    @Autowired
+    private ReturnJobService returnJobService;
+    @Autowired
+    private ReturnJobRepository returnJobRepository;
+    @Autowired
+    private ReturnJobSchemaUpgrade schemaUpgrade;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        leaseMillis(LEASE_MILLIS);
+        returnJobRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentPollersNeverClaimTheSameJob() throws Exception {
+        for (long recordId = 1; recordId <= 6; recordId++) {
+            returnJobService.enqueue(recordId, null, List.of(), List.of());
+        }
+        CountDownLatch firstClaimed = new CountDownLatch(1);
+        CountDownLatch secondClaimed = new CountDownLatch(1);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        // The first poller keeps its rows locked until the second one has claimed
+        Future<List<Long>> first = executor.submit(() -> transactionTemplate.execute(status -> {
+            List<Long> ids = returnJobService.claim(3);
+            firstClaimed.countDown();
+            await(secondClaimed);
+            return ids;
+        }));
+        assertThat(firstClaimed.await(5, TimeUnit.SECONDS)).isTrue();
+        List<Long> second = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> returnJobService.claim(3));
+        secondClaimed.countDown();
+
+        assertThat(second).hasSize(3);
+        assertThat(first.get(5, TimeUnit.SECONDS)).hasSize(3).doesNotContainAnyElementsOf(second);
+        assertThat(returnJobService.claim(3)).isEmpty();
+    }
+
+    @Test
+    void onlyOneConcurrentAttemptClaimsAnIdempotencyKey() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Optional<ReturnJob>>> attempts = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            attempts.add(executor.submit(() -> {
+                await(start);
+                return returnJobService.claimIdempotencyKey("key-1", 42L);
+            }));
+        }
+        start.countDown();
+
+        int claimed = 0;
+        for (Future<Optional<ReturnJob>> attempt : attempts) {
+            if (attempt.get(10, TimeUnit.SECONDS).isPresent()) {
+                claimed++;
+            }
+        }
+        assertThat(claimed).isEqualTo(1);
+        assertThat(returnJobRepository.findAll()).singleElement()
+                .extracting(ReturnJob::getStatus).isEqualTo(ReturnJobStatus.RECEIVING);
+        assertThat(returnJobService.findByIdempotencyKey("key-1")).isPresent();
+    }
+
+    @Test
+    void queuesTheAssessmentOnTheClaimedJob() {
+        ReturnJob claim = returnJobService.claimIdempotencyKey("key-1", 42L).orElseThrow();
+        assertThat(returnJobService.claim(5)).as("jobs still receiving are not run").isEmpty();
+
+        ReturnJob job = returnJobService.enqueue(42L, claim, List.of("records/42/incoming/a.jpg"), List.of("torn pages"));
+
+        assertThat(job.getId()).isEqualTo(claim.getId());
+        assertThat(job.getStatus()).isEqualTo(ReturnJobStatus.PENDING);
+        assertThat(returnJobService.claim(5)).containsExactly(claim.getId());
+        assertThat(returnJobService.findRunning(claim.getId())).get().satisfies(running -> {
+            assertThat(running.getImageBlobs()).containsExactly("records/42/incoming/a.jpg");
+            assertThat(running.getKnownTags()).containsExactly("torn pages");
+            assertThat(running.getAttempts()).isEqualTo(1);
+        });
+    }
+
+    @Test
+    void releasedClaimsLetARetryStartAfresh() {
+        ReturnJob claim = returnJobService.claimIdempotencyKey("key-1", 42L).orElseThrow();
+
+        returnJobService.releaseClaim(claim);
+
+        assertThat(returnJobService.findByIdempotencyKey("key-1")).isEmpty();
+        assertThat(returnJobService.claimIdempotencyKey("key-1", 42L)).isPresent();
+    }
+
+    @Test
+    void takesOverAClaimWhoseAttemptDied() {
+        leaseMillis(-1_000);
+        ReturnJob abandoned = returnJobService.claimIdempotencyKey("key-1", 42L).orElseThrow();
+        leaseMillis(LEASE_MILLIS);
+
+        Optional<ReturnJob> takeover = returnJobService.claimIdempotencyKey("key-1", 42L);
+
+        assertThat(takeover).get().extracting(ReturnJob::getId).isEqualTo(abandoned.getId());
+        // The abandoned attempt no longer owns the claim
+        returnJobService.releaseClaim(abandoned);
+        assertThat(returnJobService.findByIdempotencyKey("key-1")).isPresent();
+        assertThat(returnJobService.claimIdempotencyKey("key-1", 42L)).isEmpty();
+    }
+
+    @Test
+    void dropsStatusChecksThatPredateReceiving() {
+        jdbcTemplate.execute("ALTER TABLE return_jobs DROP CONSTRAINT IF EXISTS return_jobs_status_check");
+        jdbcTemplate.execute("ALTER TABLE return_jobs ADD CONSTRAINT return_jobs_status_check"
+                + " CHECK (status IN ('PENDING', 'RUNNING', 'DONE', 'FAILED'))");
+
+        schemaUpgrade.apply(jdbcTemplate);
+        schemaUpgrade.apply(jdbcTemplate);
+
+        assertThat(returnJobService.claimIdempotencyKey("key-1", 42L)).isPresent();
+    }
+
+    private void leaseMillis(long leaseMillis) {
+        ReflectionTestUtils.setField(AopTestUtils.getTargetObject(returnJobService), "leaseMillis", leaseMillis);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
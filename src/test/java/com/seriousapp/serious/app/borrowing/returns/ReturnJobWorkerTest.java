@@ -0,0 +1,85 @@
+package com.seriousapp.serious.app.borrowing.returns;
+
+import com.seriousapp.serious.app.images.ImagePipeline;
+import com.seriousapp.serious.app.users.admin.AdminService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReturnJobWorkerTest {
+    private final ReturnJobService returnJobService = mock(ReturnJobService.class);
+    private final AdminService adminService = mock(AdminService.class);
+    private final ImagePipeline imagePipeline = mock(ImagePipeline.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ReturnJobWorker worker = new ReturnJobWorker(returnJobService, adminService, imagePipeline, 1, meterRegistry);
+
+    @AfterEach
+    void tearDown() {
+        worker.shutdown();
+    }
+
+    @Test
+    void deletesTheStagedImagesOfAJobThatCompleted() {
+        ReturnJob job = job();
+        when(returnJobService.claim(1)).thenReturn(List.of(5L));
+        when(adminService.assessReturn(5L)).thenReturn(Optional.of(job));
+
+        worker.poll();
+
+        verify(imagePipeline, timeout(5000)).deleteStaged(List.of("records/12/incoming/a.jpg"));
+    }
+
+    @Test
+    void keepsTheStagedImagesOfAJobThatWillBeRetried() {
+        RuntimeException error = new RuntimeException("vision down");
+        when(returnJobService.claim(1)).thenReturn(List.of(5L));
+        when(adminService.assessReturn(5L)).thenThrow(error);
+        when(returnJobService.fail(5L, error)).thenReturn(ReturnJobStatus.PENDING);
+
+        worker.poll();
+
+        verify(returnJobService, timeout(5000)).fail(5L, error);
+        verify(imagePipeline, after(200).never()).deleteStaged(anyList());
+        assertThat(outcome("retry")).isEqualTo(1);
+    }
+
+    @Test
+    void deletesTheStagedImagesOfAJobThatFailedForGood() {
+        RuntimeException error = new RuntimeException("corrupt image");
+        when(returnJobService.claim(1)).thenReturn(List.of(5L));
+        when(adminService.assessReturn(5L)).thenThrow(error);
+        when(returnJobService.fail(eq(5L), any())).thenReturn(ReturnJobStatus.FAILED);
+        when(returnJobService.findById(5L)).thenReturn(Optional.of(job()));
+
+        worker.poll();
+
+        verify(imagePipeline, timeout(5000)).deleteStaged(List.of("records/12/incoming/a.jpg"));
+        assertThat(outcome("failed")).isEqualTo(1);
+    }
+
+    private double outcome(String outcome) {
+        return meterRegistry.get("returns.jobs").tag("outcome", outcome).counter().count();
+    }
+
+    private static ReturnJob job() {
+        ReturnJob job = new ReturnJob();
+        job.setId(5L);
+        job.setRecordId(12L);
+        job.getImageBlobs().add("records/12/incoming/a.jpg");
+        return job;
+    }
+}
@@ -0,0 +1,44 @@
+package com.seriousapp.serious.app.configurations;
+
+import com.seriousapp.serious.app.images.VisionResilienceProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ComputerVisionConfigurationTest {
+
+    @Test
+    void buildsTheClientWhenAllAttemptsFitTheCallTimeout() {
+        assertThat(configuration(1500, 3000, 1, 500).imageAnalysisClient(resilience(10_000))).isNotNull();
+    }
+
+    @Test
+    void refusesRetriesThatOutlastTheCallTimeout() {
+        ComputerVisionConfiguration configuration = configuration(5000, 15000, 2, 2000);
+
+        assertThatThrownBy(() -> configuration.imageAnalysisClient(resilience(10_000)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("64000ms");
+    }
+
+    private static VisionResilienceProperties resilience(long timeoutMillis) {
+        VisionResilienceProperties properties = new VisionResilienceProperties();
+        properties.setTimeoutMillis(timeoutMillis);
+        return properties;
+    }
+
+    private static ComputerVisionConfiguration configuration(long connectMillis, long responseMillis, int retries, long maxDelayMillis) {
+        ComputerVisionConfiguration configuration = new ComputerVisionConfiguration();
+        ReflectionTestUtils.setField(configuration, "computerVisionEndpoint", "https://vision.example.com/");
+        ReflectionTestUtils.setField(configuration, "computerVisionKey", "key");
+        ReflectionTestUtils.setField(configuration, "maxConnections", 4);
+        ReflectionTestUtils.setField(configuration, "connectTimeoutMillis", connectMillis);
+        ReflectionTestUtils.setField(configuration, "responseTimeoutMillis", responseMillis);
+        ReflectionTestUtils.setField(configuration, "maxRetries", retries);
+        ReflectionTestUtils.setField(configuration, "retryBaseDelayMillis", 100L);
+        ReflectionTestUtils.setField(configuration, "retryMaxDelayMillis", maxDelayMillis);
+        return configuration;
+    }
+}
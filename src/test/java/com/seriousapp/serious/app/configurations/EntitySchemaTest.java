@@ -0,0 +1,50 @@
+package com.seriousapp.serious.app.configurations;
+
+import com.seriousapp.serious.app.PostgresTestSupport;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The schema comes from the entity mappings and {@link SchemaUpgrade}s only, so the indexes and defaults
+ * the queries rely on have to be declared there.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class EntitySchemaTest extends PostgresTestSupport {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void createsTheIndexesTheQueriesUse() {
+        assertThat(jdbcTemplate.queryForList("SELECT indexname FROM pg_indexes WHERE schemaname = 'public'", String.class))
+                .contains(
+                        "idx_token_expires_at",
+                        "idx_token_family_id",
+                        "idx_image_content_tags_hash",
+                        "idx_email_outbox_recipients_email",
+                        "idx_email_outbox_status_run_after",
+                        "idx_return_jobs_status_run_after",
+                        "idx_parent_notifications_email_created",
+                        "idx_fine_transactions_student");
+    }
+
+    @Test
+    void givesColumnsAddedToExistingTablesADefault() {
+        assertThat(columnDefault("users", "security_version")).isEqualTo("0");
+        assertThat(columnDefault("borrowing_record", "needs_reanalysis")).isEqualTo("false");
+        assertThat(columnDefault("borrowing_record", "overdue_fine")).isEqualTo("0");
+        assertThat(columnDefault("parents", "immediate_notifications")).isEqualTo("false");
+    }
+
+    private String columnDefault(String table, String column) {
+        return jdbcTemplate.queryForObject("""
+                SELECT column_default FROM information_schema.columns
+                WHERE table_name = ? AND column_name = ? AND is_nullable = 'NO'
+                """, String.class, table, column);
+    }
+}
@@ -0,0 +1,75 @@
+package com.seriousapp.serious.app.configurations.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AuthenticationExecutorTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AuthenticationExecutor executor = new AuthenticationExecutor(1, 1, 3, meterRegistry);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    void returnsTheResultOfTheTask() throws Exception {
+        assertThat(executor.execute(() -> "authenticated")).isEqualTo("authenticated");
+    }
+
+    @Test
+    void propagatesTaskFailures() {
+        assertThatThrownBy(() -> executor.execute(() -> {
+            throw new IllegalStateException("bad credentials");
+        })).isInstanceOf(ExecutionException.class).hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void rejectsWorkOnceThePoolAndQueueAreFull() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CompletableFuture.runAsync(() -> call(() -> {
+            running.countDown();
+            release.await();
+            return null;
+        }));
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+        // Occupies the single queue slot
+        CompletableFuture.runAsync(() -> call(() -> {
+            release.await();
+            return null;
+        }));
+        waitUntilQueued();
+
+        assertThatThrownBy(() -> executor.execute(() -> "shed")).isInstanceOf(RejectedExecutionException.class);
+        assertThat(meterRegistry.get("auth.executor.rejected").counter().count()).isEqualTo(1.0);
+        assertThat(executor.getRetryAfterSeconds()).isEqualTo(3);
+    }
+
+    private void waitUntilQueued() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("auth.executor.queue.depth").gauge().value() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private void call(Callable<?> task) {
+        try {
+            executor.execute(task);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.seriousapp.serious.app.configurations.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CalibratedBCryptPasswordEncoderTest {
+
+    @Test
+    void asksToRehashPasswordsStoredWithAnotherCost() {
+        CalibratedBCryptPasswordEncoder encoder = new CalibratedBCryptPasswordEncoder(5);
+
+        assertThat(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("secret"))).isTrue();
+        assertThat(encoder.upgradeEncoding(encoder.encode("secret"))).isFalse();
+    }
+
+    @Test
+    void ignoresValuesThatAreNotBcryptHashes() {
+        CalibratedBCryptPasswordEncoder encoder = new CalibratedBCryptPasswordEncoder(5);
+
+        assertThat(encoder.upgradeEncoding(null)).isFalse();
+        assertThat(encoder.upgradeEncoding("")).isFalse();
+        assertThat(encoder.upgradeEncoding("plain-text")).isFalse();
+    }
+
+    @Test
+    void calibratesWithinTheGivenBounds() {
+        CalibratedBCryptPasswordEncoder encoder = CalibratedBCryptPasswordEncoder.calibrate(10_000, 4, 5);
+
+        assertThat(encoder.getStrength()).isBetween(4, 5);
+        assertThat(encoder.matches("secret", encoder.encode("secret"))).isTrue();
+    }
+}
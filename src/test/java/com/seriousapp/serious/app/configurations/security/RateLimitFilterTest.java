@@ -0,0 +1,133 @@
+package com.seriousapp.serious.app.configurations.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitFilterTest {
+    private final RateLimitFilter filter = new RateLimitFilter(properties(), new ObjectMapper(), new SimpleMeterRegistry());
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void limitsLoginsPerUsernameRatherThanPerSharedAddress() throws Exception {
+        assertThat(login("alice@school", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(login("alice@school", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(login("alice@school", "10.0.0.1").getStatus()).isEqualTo(429);
+
+        // Someone else behind the same NAT still gets their own budget
+        assertThat(login("bob@school", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(login("ALICE@school ", "10.0.0.2").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void capsTheWholeAddressWithTheAddressBudget() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            assertThat(login("user" + i + "@school", "10.0.0.1").getStatus()).isEqualTo(200);
+        }
+
+        MockHttpServletResponse response = login("user9@school", "10.0.0.1");
+        assertThat(response.getStatus()).isEqualTo(429);
+        assertThat(response.getHeader("Retry-After")).isNotNull();
+    }
+
+    @Test
+    void leavesTheLoginBodyReadableForTheController() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(loginRequest("alice@school", "10.0.0.1"), new MockHttpServletResponse(), chain);
+
+        byte[] body = chain.getRequest().getInputStream().readAllBytes();
+        assertThat(new String(body, StandardCharsets.UTF_8)).contains("\"alice@school\"");
+    }
+
+    @Test
+    void limitsAuthenticatedCallersPerUser() throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "librarian", null, AuthorityUtils.createAuthorityList("ROLE_ADMIN")));
+
+        assertThat(get("/api/admin/books", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(get("/api/admin/books", "10.0.0.2").getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    void ignoresRoutesOutsideEveryGroup() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertThat(get("/actuator/health", "10.0.0.1").getStatus()).isEqualTo(200);
+        }
+    }
+
+    @Test
+    void appliesMethodRestrictedGroupsOnlyToThoseMethods() throws Exception {
+        assertThat(request("POST", "/api/admin/books/return/1/atlas", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(request("POST", "/api/admin/books/return/1/atlas", "10.0.0.1").getStatus()).isEqualTo(429);
+
+        // Polling the job falls through to the general API group instead of spending the upload budget
+        assertThat(get("/api/admin/books/return/jobs/5", "10.0.0.1").getStatus()).isEqualTo(200);
+    }
+
+    private MockHttpServletResponse login(String email, String address) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(loginRequest(email, address), response, new MockFilterChain());
+        return response;
+    }
+
+    private MockHttpServletResponse get(String path, String address) throws Exception {
+        return request("GET", path, address);
+    }
+
+    private MockHttpServletResponse request(String method, String path, String address) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setRemoteAddr(address);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletRequest loginRequest(String email, String address) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/auth/login");
+        request.setRemoteAddr(address);
+        request.setContentType("application/json");
+        request.setContent(("{\"email\":\"" + email + "\",\"password\":\"secret\"}").getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    private static RateLimitProperties properties() {
+        RateLimitProperties properties = new RateLimitProperties();
+        RateLimitProperties.Group login = new RateLimitProperties.Group();
+        login.setPatterns(List.of("/api/auth/login"));
+        login.setKeyField("email");
+        login.setCapacity(2);
+        login.setRefillPerSecond(0.001);
+        login.setAddressCapacity(4);
+        login.setAddressRefillPerSecond(0.001);
+        RateLimitProperties.Group images = new RateLimitProperties.Group();
+        images.setPatterns(List.of("/api/admin/books/return/**"));
+        images.setMethods(List.of("POST"));
+        images.setCapacity(1);
+        images.setRefillPerSecond(0.001);
+        RateLimitProperties.Group api = new RateLimitProperties.Group();
+        api.setPatterns(List.of("/api/**"));
+        api.setCapacity(1);
+        api.setRefillPerSecond(0.001);
+        properties.getGroups().put("login", login);
+        properties.getGroups().put("images", images);
+        properties.getGroups().put("api", api);
+        return properties;
+    }
+}
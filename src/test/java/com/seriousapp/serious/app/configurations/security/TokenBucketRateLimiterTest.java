@@ -0,0 +1,45 @@
+package com.seriousapp.serious.app.configurations.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketRateLimiterTest {
+    private final TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(4);
+
+    @Test
+    void admitsABurstUpToCapacity() {
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire("client", 3, 0.001)).isTrue();
+        }
+        assertThat(limiter.tryAcquire("client", 3, 0.001)).isFalse();
+    }
+
+    @Test
+    void keepsSeparateBucketsPerKey() {
+        assertThat(limiter.tryAcquire("a", 1, 0.001)).isTrue();
+        assertThat(limiter.tryAcquire("a", 1, 0.001)).isFalse();
+        assertThat(limiter.tryAcquire("b", 1, 0.001)).isTrue();
+    }
+
+    @Test
+    void refillsOverTime() throws InterruptedException {
+        assertThat(limiter.tryAcquire("client", 1, 100)).isTrue();
+        assertThat(limiter.tryAcquire("client", 1, 100)).isFalse();
+
+        Thread.sleep(50);
+
+        assertThat(limiter.tryAcquire("client", 1, 100)).isTrue();
+    }
+
+    @Test
+    void evictsIdleBuckets() {
+        limiter.tryAcquire("a", 1, 1);
+        limiter.tryAcquire("b", 1, 1);
+        assertThat(limiter.size()).isEqualTo(2);
+
+        limiter.evictIdle(0);
+
+        assertThat(limiter.size()).isZero();
+    }
+}
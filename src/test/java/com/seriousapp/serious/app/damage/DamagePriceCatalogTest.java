@@ -0,0 +1,167 @@
+package com.seriousapp.serious.app.damage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DamagePriceCatalogTest {
+    private final DamagePriceRepository repository = mock(DamagePriceRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DamagePriceCatalog catalog = new DamagePriceCatalog(repository, meterRegistry);
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void normalizesCaseAndWhitespace() {
+        assertThat(DamagePriceCatalog.normalize("  Torn   PAGES ")).isEqualTo("torn pages");
+        assertThat(DamagePriceCatalog.normalize("water\tdamage\n")).isEqualTo("water damage");
+        assertThat(DamagePriceCatalog.normalize("   ")).isEmpty();
+    }
+
+    @Test
+    void returnsAlreadyNormalizedTagsAsTheyAre() {
+        String tag = "torn pages";
+
+        assertThat(DamagePriceCatalog.normalize(tag)).isSameAs(tag);
+        assertThat(DamagePriceCatalog.normalize("Torn pages")).isEqualTo("torn pages");
+    }
+
+    @Test
+    void pricesFromTheLoadedSnapshot() {
+        when(repository.findAll()).thenReturn(List.of(price("Torn Pages", 50), price("water damage", 40)));
+
+        catalog.reload();
+
+        assertThat(catalog.priceOf("torn pages")).isEqualTo(50);
+        assertThat(catalog.priceOf("sticker")).isZero();
+        assertThat(catalog.current().version()).isEqualTo(1);
+        assertThat(meterRegistry.get("damage.prices.version").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsTheVersionWhenNothingChanged() {
+        when(repository.findAll()).thenReturn(List.of(price("torn pages", 50)));
+        catalog.reload();
+        DamagePriceCatalog.Snapshot loaded = catalog.current();
+
+        catalog.reload();
+
+        assertThat(catalog.current()).isSameAs(loaded);
+    }
+
+    @Test
+    void chargesOnlyDamagesThatWereNotThereAtBorrowing() {
+        when(repository.findAll()).thenReturn(List.of(price("torn pages", 50), price("water damage", 40)));
+        catalog.reload();
+
+        DamageAssessment assessment = catalog.assess(List.of("torn pages", "water damage"), List.of("water damage"));
+
+        assertThat(assessment.damages()).containsExactly("torn pages");
+        assertThat(assessment.amount()).isEqualTo(50);
+    }
+
+    @Test
+    void assessesABookReportedLostAsLostOnly() {
+        when(repository.findAll()).thenReturn(List.of(price("torn pages", 50)));
+        catalog.reload();
+
+        assertThat(catalog.assess(List.of("torn pages", "Lost book"), List.of()))
+                .isEqualTo(new DamageAssessment(Set.of(), 0.0, true));
+        assertThat(catalog.assess(List.of("lost"), List.of("lost")).lost()).isFalse();
+    }
+
+    @Test
+    void neverReplacesANewerSnapshotWithAnOlderRead() throws Exception {
+        CountDownLatch oldReadStarted = new CountDownLatch(1);
+        CountDownLatch releaseOldRead = new CountDownLatch(1);
+        when(repository.findAll())
+                .thenAnswer(invocation -> {
+                    oldReadStarted.countDown();
+                    releaseOldRead.await(5, TimeUnit.SECONDS);
+                    return List.of(price("torn pages", 50));
+                })
+                .thenReturn(List.of(price("torn pages", 75)));
+
+        Future<?> stale = executor.submit(catalog::reload);
+        assertThat(oldReadStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<?> fresh = executor.submit(catalog::reload);
+        // Give the second reload time to overtake the first one if it could
+        Thread.sleep(100);
+        releaseOldRead.countDown();
+        stale.get(5, TimeUnit.SECONDS);
+        fresh.get(5, TimeUnit.SECONDS);
+
+        assertThat(catalog.priceOf("torn pages")).isEqualTo(75);
+        assertThat(catalog.current().version()).isEqualTo(2);
+    }
+
+    @Test
+    void seedsTheDefaultsIntoAnEmptyTable() {
+        when(repository.count()).thenReturn(0L);
+        when(repository.findAll()).thenReturn(List.of(price("torn pages", 50)));
+
+        catalog.seedAndLoad();
+
+        verify(repository).saveAll(anyList());
+        assertThat(catalog.current().prices()).isEqualTo(Map.of("torn pages", 50.0));
+    }
+
+    @Test
+    void leavesAnExistingCatalogAlone() {
+        when(repository.count()).thenReturn(3L);
+        when(repository.findAll()).thenReturn(List.of());
+
+        catalog.seedAndLoad();
+
+        verify(repository, never()).saveAll(anyList());
+        assertThat(catalog.assess(Set.of("torn pages"), Set.of()).amount()).isZero();
+    }
+
+    @Test
+    void loadsTheCatalogBeforeTheApplicationRuns() {
+        when(repository.count()).thenReturn(1L);
+        when(repository.findAll()).thenReturn(List.of(price("torn pages", 50)));
+
+        catalog.afterSingletonsInstantiated();
+
+        assertThat(catalog.current().version()).isEqualTo(1);
+        assertThat(catalog.assess(Set.of("torn pages"), Set.of()).amount()).isEqualTo(50);
+    }
+
+    @Test
+    void countsAnEmptyTableAsLoaded() {
+        when(repository.findAll()).thenReturn(List.of());
+
+        catalog.reload();
+
+        assertThat(catalog.current().version()).isEqualTo(1);
+        assertThat(catalog.current().prices()).isEmpty();
+    }
+
+    static DamagePrice price(String tag, double amount) {
+        DamagePrice price = new DamagePrice();
+        price.setTag(tag);
+        price.setPrice(amount);
+        return price;
+    }
+}
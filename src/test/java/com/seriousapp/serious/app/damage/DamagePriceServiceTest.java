@@ -0,0 +1,78 @@
+package com.seriousapp.serious.app.damage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DamagePriceServiceTest {
+    private final DamagePriceRepository repository = mock(DamagePriceRepository.class);
+    private final DamagePriceCatalog catalog = mock(DamagePriceCatalog.class);
+    private final DamagePriceService service = new DamagePriceService(repository, catalog);
+
+    @Test
+    void storesNewPricesUnderTheNormalizedTagAndReloadsTheCatalog() {
+        when(repository.findByTag("torn pages")).thenReturn(Optional.empty());
+        when(repository.save(any(DamagePrice.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        DamagePrice saved = service.create(request("  Torn  Pages ", 50));
+
+        assertThat(saved.getTag()).isEqualTo("torn pages");
+        assertThat(saved.getPrice()).isEqualTo(50);
+        verify(catalog).reload();
+    }
+
+    @Test
+    void rejectsADuplicateTag() {
+        when(repository.findByTag("torn pages")).thenReturn(Optional.of(DamagePriceCatalogTest.price("torn pages", 50)));
+
+        assertThatThrownBy(() -> service.create(request("Torn pages", 60))).hasMessageContaining("already exists");
+        verify(repository, never()).save(any());
+        verify(catalog, never()).reload();
+    }
+
+    @Test
+    void rejectsBlankTagsAndNegativePrices() {
+        assertThatThrownBy(() -> service.create(request(" ", 10))).hasMessageContaining("required");
+        assertThatThrownBy(() -> service.create(request("sticker", -1))).hasMessageContaining("negative");
+    }
+
+    @Test
+    void renamesAPriceUnlessAnotherEntryHasTheTag() {
+        DamagePrice sticker = DamagePriceCatalogTest.price("sticker", 5);
+        sticker.setId(1L);
+        DamagePrice tape = DamagePriceCatalogTest.price("tape", 10);
+        tape.setId(2L);
+        when(repository.findById(1L)).thenReturn(Optional.of(sticker));
+        when(repository.findByTag("tape")).thenReturn(Optional.of(tape));
+        when(repository.findByTag("stickers")).thenReturn(Optional.empty());
+        when(repository.save(any(DamagePrice.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertThatThrownBy(() -> service.update(1L, request("Tape", 5))).hasMessageContaining("already exists");
+
+        assertThat(service.update(1L, request("Stickers", 6)).getTag()).isEqualTo("stickers");
+        verify(catalog).reload();
+    }
+
+    @Test
+    void reloadsTheCatalogAfterADelete() {
+        service.delete(4L);
+
+        verify(repository).deleteById(4L);
+        verify(catalog).reload();
+    }
+
+    private static DamagePriceRequest request(String tag, double price) {
+        DamagePriceRequest request = new DamagePriceRequest();
+        request.setTag(tag);
+        request.setPrice(price);
+        return request;
+    }
+}
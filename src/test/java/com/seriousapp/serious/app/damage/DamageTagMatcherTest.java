@@ -0,0 +1,67 @@
+package com.seriousapp.serious.app.damage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DamageTagMatcherTest {
+    private final DamageTagMatcher matcher = DamageTagMatcher.build(DamagePriceDefaults.PRICES.keySet());
+
+    @Test
+    void matchesReorderedAndInflectedPhrases() {
+        assertThat(matcher.match(List.of("page torn"))).containsExactly("torn pages");
+        assertThat(matcher.match(List.of("Pages Torn"))).containsExactly("torn pages");
+        assertThat(matcher.match(List.of("mould"))).containsExactly("mold");
+    }
+
+    @Test
+    void matchesBareWordsOnlyWhenTheyAreTheWholeTag() {
+        assertThat(matcher.match(List.of("Tears"))).containsExactly("torn pages");
+        assertThat(matcher.match(List.of("torn"))).containsExactly("torn pages");
+        assertThat(matcher.match(List.of("torn cover"))).isEmpty();
+    }
+
+    @Test
+    void matchesAliasPhrasesWithPunctuation() {
+        assertThat(matcher.match(List.of("water-stained"))).containsExactly("water damage");
+        assertThat(matcher.match(List.of("Water stained pages"))).containsExactly("water damage");
+    }
+
+    @Test
+    void letsTheLongestOverlappingPhraseWin() {
+        DamageTagMatcher bindings = DamageTagMatcher.build(Set.of("broken binding", "binding"));
+
+        assertThat(bindings.match(List.of("broken binding"))).containsExactly("broken binding");
+        assertThat(bindings.match(List.of("binding broken"))).containsExactly("broken binding");
+        assertThat(bindings.match(List.of("binding"))).containsExactly("binding");
+        assertThat(matcher.match(List.of("missing book cover"))).containsExactly("missing book cover");
+    }
+
+    @Test
+    void reportsEachEntryOnceAcrossTags() {
+        assertThat(matcher.match(List.of("pages torn", "torn page", "mould", "book", "indoor")))
+                .containsExactly("torn pages", "mold");
+        assertThat(matcher.match(Arrays.asList("text", null, " "))).isEmpty();
+    }
+
+    @Test
+    void recognisesLostBooksWhateverTheCatalog() {
+        assertThat(matcher.match(List.of("Lost"))).containsExactly(DamageTagMatcher.LOST);
+        assertThat(matcher.match(List.of("missing book"))).containsExactly(DamageTagMatcher.LOST);
+        assertThat(DamageTagMatcher.build(Set.of()).match(List.of("book lost"))).containsExactly(DamageTagMatcher.LOST);
+        assertThat(matcher.match(List.of("lost pages"))).isEmpty();
+    }
+
+    @Test
+    void stemsPluralsAndParticiples() {
+        assertThat(DamageTagMatcher.stem("pages")).isEqualTo("pag");
+        assertThat(DamageTagMatcher.stem("page")).isEqualTo("pag");
+        assertThat(DamageTagMatcher.stem("creased")).isEqualTo(DamageTagMatcher.stem("crease"));
+        assertThat(DamageTagMatcher.stem("peeling")).isEqualTo("peel");
+        assertThat(DamageTagMatcher.words("Dog-eared!")).containsExactly("dog", "ear");
+    }
+}
@@ -0,0 +1,139 @@
+package com.seriousapp.serious.app.fines;
+
+import com.seriousapp.serious.app.PostgresTestSupport;
+import com.seriousapp.serious.app.users.student.Student;
+import com.seriousapp.serious.app.users.student.StudentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({FineLedger.class, FineLedgerSchemaUpgrade.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class FineLedgerTest extends PostgresTestSupport {
+    @Autowired
+    private FineLedger fineLedger;
+    @Autowired
+    private FineLedgerSchemaUpgrade schemaUpgrade;
+    @Autowired
+    private StudentRepository studentRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        jdbcTemplate.update("DELETE FROM fine_transactions");
+        studentRepository.deleteAll();
+    }
+
+    @Test
+    void keepsTheBalanceEqualToTheStatement() {
+        Long studentId = student();
+
+        fineLedger.charge(studentId, 30.0, "Returned Atlas: torn pages", 12L);
+        fineLedger.pay(studentId, 10.0, "Cash");
+        fineLedger.waive(studentId, 5.0, "Goodwill");
+
+        FineStatement statement = fineLedger.statement(studentId);
+        assertThat(statement.balance()).isEqualTo(15.0);
+        assertThat(statement.entries()).extracting(FineStatement.Entry::balanceAfter).containsExactly(30.0, 20.0, 15.0);
+        assertThat(statement.entries()).extracting(FineStatement.Entry::type)
+                .containsExactly(FineTransactionType.CHARGE, FineTransactionType.PAYMENT, FineTransactionType.WAIVER);
+        assertThat(statement.entries().get(0).borrowingRecordId()).isEqualTo(12L);
+    }
+
+    @Test
+    void rejectsPaymentsAboveTheBalanceWithoutRecordingThem() {
+        Long studentId = student();
+        fineLedger.charge(studentId, 10.0, "Overdue", null);
+
+        assertThatThrownBy(() -> fineLedger.pay(studentId, 10.01, "Cash"))
+                .hasMessage("Amount exceeds the outstanding fines of the student");
+        assertThatThrownBy(() -> fineLedger.charge(studentId, 0.0, "Nothing", null))
+                .hasMessage("Amount must be greater than zero");
+
+        assertThat(fineLedger.balance(studentId)).isEqualTo(10.0);
+        assertThat(fineLedger.statement(studentId).entries()).hasSize(1);
+    }
+
+    @Test
+    void waivesTheWholeOutstandingBalance() {
+        Long studentId = student();
+        assertThat(fineLedger.waiveOutstanding(studentId, "Graduated")).isNull();
+
+        fineLedger.charge(studentId, 12.5, "Overdue", null);
+        FineTransaction waiver = fineLedger.waiveOutstanding(studentId, "Graduated");
+
+        assertThat(waiver.getAmount()).isEqualTo(-12.5);
+        assertThat(fineLedger.balance(studentId)).isZero();
+    }
+
+    @Test
+    void concurrentChargesNeverLoseAnUpdate() throws Exception {
+        Long studentId = student();
+        List<Future<FineTransaction>> charges = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            charges.add(executor.submit(() -> fineLedger.charge(studentId, 2.5, "Overdue", null)));
+        }
+        for (Future<FineTransaction> charge : charges) {
+            charge.get(10, TimeUnit.SECONDS);
+        }
+
+        assertThat(fineLedger.balance(studentId)).isEqualTo(100.0);
+        assertThat(fineLedger.statement(studentId).entries()).hasSize(40).last()
+                .extracting(FineStatement.Entry::balanceAfter).isEqualTo(100.0);
+    }
+
+    @Test
+    void opensTheLedgerWithBalancesFromBeforeIt() {
+        Long untouched = student();
+        Long charged = student();
+        Long clean = student();
+        jdbcTemplate.update("UPDATE students SET outstanding_fines = 20 WHERE id IN (?, ?)", untouched, charged);
+        // Charged after the ledger shipped but before the upgrade ran
+        fineLedger.charge(charged, 5.0, "Overdue", null);
+
+        schemaUpgrade.apply(jdbcTemplate);
+        schemaUpgrade.apply(jdbcTemplate);
+
+        assertThat(fineLedger.statement(untouched).entries())
+                .extracting(FineStatement.Entry::type, FineStatement.Entry::amount, FineStatement.Entry::description)
+                .containsExactly(tuple(FineTransactionType.CHARGE, 20.0, FineLedgerSchemaUpgrade.DESCRIPTION));
+        FineStatement statement = fineLedger.statement(charged);
+        assertThat(statement.entries()).hasSize(2).last()
+                .extracting(FineStatement.Entry::balanceAfter).isEqualTo(statement.balance());
+        assertThat(statement.balance()).isEqualTo(25.0);
+        assertThat(fineLedger.statement(clean).entries()).isEmpty();
+    }
+
+    private Long student() {
+        Student student = new Student();
+        String name = UUID.randomUUID().toString();
+        student.setUsername(name);
+        student.setEmail(name + "@school");
+        student.setPassword("secret");
+        return studentRepository.save(student).getId();
+    }
+}
@@ -0,0 +1,72 @@
+package com.seriousapp.serious.app.images;
+
+import com.azure.ai.vision.imageanalysis.ImageAnalysisClient;
+import com.azure.ai.vision.imageanalysis.models.DetectedTag;
+import com.azure.ai.vision.imageanalysis.models.ImageAnalysisOptions;
+import com.azure.ai.vision.imageanalysis.models.ImageAnalysisResult;
+import com.azure.ai.vision.imageanalysis.models.TagsResult;
+import com.azure.ai.vision.imageanalysis.models.VisualFeatures;
+import com.azure.core.util.BinaryData;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AzureImageTaggerTest {
+    private final ImageAnalysisClient client = mock(ImageAnalysisClient.class);
+    private final AzureImageTagger tagger = new AzureImageTagger(client);
+
+    @Test
+    void returnsTagNamesInTheOrderTheServiceReportsThem() {
+        ImageAnalysisResult result = result("book", "text", "stain");
+        when(client.analyzeFromUrl(eq("https://blobs/1.jpg"), any(), any(ImageAnalysisOptions.class))).thenReturn(result);
+
+        assertThat(tagger.tagImage("https://blobs/1.jpg")).containsExactly("book", "text", "stain");
+        verify(client).analyzeFromUrl(eq("https://blobs/1.jpg"), eq(List.of(VisualFeatures.TAGS)), any(ImageAnalysisOptions.class));
+    }
+
+    @Test
+    void returnsNoTagsWhenTheResultHasNone() {
+        ImageAnalysisResult result = mock(ImageAnalysisResult.class);
+        when(client.analyzeFromUrl(any(String.class), any(), any(ImageAnalysisOptions.class))).thenReturn(result);
+
+        assertThat(tagger.tagImage("https://blobs/1.jpg")).isEmpty();
+    }
+
+    @Test
+    void sendsImageBytesForAnalysis() {
+        byte[] image = {1, 2, 3, 4};
+        ImageAnalysisResult result = result("book");
+        when(client.analyze(any(BinaryData.class), any(), any(ImageAnalysisOptions.class))).thenReturn(result);
+
+        assertThat(tagger.tagImage(image)).containsExactly("book");
+
+        ArgumentCaptor<BinaryData> sent = ArgumentCaptor.forClass(BinaryData.class);
+        verify(client).analyze(sent.capture(), eq(List.of(VisualFeatures.TAGS)), any(ImageAnalysisOptions.class));
+        assertThat(sent.getValue().toBytes()).isEqualTo(image);
+        verify(client, never()).analyzeFromUrl(any(String.class), any(), any());
+    }
+
+    static ImageAnalysisResult result(String... names) {
+        List<DetectedTag> tags = new ArrayList<>();
+        for (String name : names) {
+            DetectedTag tag = mock(DetectedTag.class);
+            when(tag.getName()).thenReturn(name);
+            tags.add(tag);
+        }
+        TagsResult tagsResult = mock(TagsResult.class);
+        when(tagsResult.getValues()).thenReturn(tags);
+        ImageAnalysisResult result = mock(ImageAnalysisResult.class);
+        when(result.getTags()).thenReturn(tagsResult);
+        return result;
+    }
+}
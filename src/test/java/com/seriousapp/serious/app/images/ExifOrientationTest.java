@@ -0,0 +1,75 @@
+package com.seriousapp.serious.app.images;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExifOrientationTest {
+
+    @Test
+    void readsTheOrientationTag() throws IOException {
+        byte[] jpeg = TestImages.jpeg(100, 80, 0);
+
+        assertThat(orientationOf(TestImages.withOrientation(jpeg, 6))).isEqualTo(6);
+        assertThat(orientationOf(TestImages.withOrientation(jpeg, 3))).isEqualTo(3);
+    }
+
+    @Test
+    void treatsImagesWithoutExifAsUpright() throws IOException {
+        assertThat(orientationOf(TestImages.jpeg(100, 80, 0))).isEqualTo(ExifOrientation.NORMAL);
+        assertThat(ExifOrientation.read(null)).isEqualTo(ExifOrientation.NORMAL);
+    }
+
+    @Test
+    void rotatesClockwiseForOrientationSix() {
+        BufferedImage rotated = ExifOrientation.apply(marked(), 6);
+
+        assertThat(rotated.getWidth()).isEqualTo(2);
+        assertThat(rotated.getHeight()).isEqualTo(4);
+        assertThat(rotated.getRGB(1, 0) & 0xFFFFFF).isEqualTo(0xFF0000);
+    }
+
+    @Test
+    void rotatesHalfWayForOrientationThreeAndCounterClockwiseForEight() {
+        assertThat(ExifOrientation.apply(marked(), 3).getRGB(3, 1) & 0xFFFFFF).isEqualTo(0xFF0000);
+
+        BufferedImage rotated = ExifOrientation.apply(marked(), 8);
+        assertThat(rotated.getWidth()).isEqualTo(2);
+        assertThat(rotated.getRGB(0, 3) & 0xFFFFFF).isEqualTo(0xFF0000);
+    }
+
+    @Test
+    void leavesUprightAndMirroredImagesAlone() {
+        BufferedImage image = marked();
+
+        assertThat(ExifOrientation.apply(image, ExifOrientation.NORMAL)).isSameAs(image);
+        assertThat(ExifOrientation.apply(image, 2)).isSameAs(image);
+    }
+
+    // 4x2 image with a red top left pixel
+    private static BufferedImage marked() {
+        BufferedImage image = new BufferedImage(4, 2, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, 0xFF0000);
+        return image;
+    }
+
+    private static int orientationOf(byte[] jpeg) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(jpeg))) {
+            ImageReader reader = ImageIO.getImageReaders(in).next();
+            try {
+                reader.setInput(in, true, false);
+                reader.read(0);
+                return ExifOrientation.read(reader.getImageMetadata(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.seriousapp.serious.app.images;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FakeImageTaggerTest {
+
+    @Test
+    void tagsTheSameImageTheSameWay() {
+        FakeImageTagger tagger = new FakeImageTagger(properties());
+        byte[] image = "photo".getBytes(StandardCharsets.UTF_8);
+
+        List<String> tags = tagger.tagImage(image);
+
+        assertThat(tags).isNotEmpty().doesNotHaveDuplicates().hasSizeLessThanOrEqualTo(5);
+        assertThat(properties().getTags()).containsAll(tags);
+        assertThat(tagger.tagImage(image.clone())).isEqualTo(tags);
+        assertThat(tagger.tagImage("https://blobs/a.jpg")).isEqualTo(tagger.tagImage("https://blobs/a.jpg"));
+    }
+
+    @Test
+    void boundsTheNumberOfTags() {
+        FakeImageTaggerProperties properties = properties();
+        properties.setTagsPerImage(1);
+
+        assertThat(new FakeImageTagger(properties).tagImage("https://blobs/a.jpg")).hasSize(1);
+    }
+
+    @Test
+    void returnsNoTagsForAnEmptyVocabulary() {
+        FakeImageTaggerProperties properties = properties();
+        properties.setTags(List.of());
+
+        assertThat(new FakeImageTagger(properties).tagImage("https://blobs/a.jpg")).isEmpty();
+    }
+
+    @Test
+    void injectsFailuresAtTheConfiguredRate() {
+        FakeImageTaggerProperties properties = properties();
+        properties.setErrorRate(1);
+
+        assertThatThrownBy(() -> new FakeImageTagger(properties).tagImage("https://blobs/a.jpg"))
+                .hasMessageContaining("Injected vision failure");
+    }
+
+    @Test
+    void sleepsForTheConfiguredLatency() {
+        FakeImageTaggerProperties properties = properties();
+        properties.setLatencyMillis(50);
+        FakeImageTagger tagger = new FakeImageTagger(properties);
+
+        long start = System.nanoTime();
+        tagger.tagImage("https://blobs/a.jpg");
+
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(50_000_000L);
+    }
+
+    private static FakeImageTaggerProperties properties() {
+        FakeImageTaggerProperties properties = new FakeImageTaggerProperties();
+        properties.setLatencyMillis(0);
+        properties.setLatencyJitterMillis(0);
+        return properties;
+    }
+}
@@ -0,0 +1,15 @@
+package com.seriousapp.serious.app.images;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImagePhaseTest {
+
+    @Test
+    void placesImagesUnderTheirRecordAndPhase() {
+        assertThat(ImagePhase.BORROW.pathFor(12L)).isEqualTo("records/12/borrow");
+        assertThat(ImagePhase.RETURN.pathFor(12L)).isEqualTo("records/12/return");
+        assertThat(ImagePhase.INCOMING.pathFor(7L)).isEqualTo("records/7/incoming");
+    }
+}
@@ -0,0 +1,236 @@
+package com.seriousapp.serious.app.images;
+
+import com.seriousapp.serious.app.storage.BlobStore;
+import com.seriousapp.serious.app.storage.FileSystemBlobStore;
+import com.seriousapp.serious.app.utils.HashUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ImagePipelineTest {
+    private static final int MAX_PARALLELISM = 2;
+
+    @TempDir
+    Path root;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final VisionTagCache visionTagCache = mock(VisionTagCache.class);
+    private FileSystemBlobStore blobStore;
+    private ImageProcessor imageProcessor;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        blobStore = new FileSystemBlobStore(root.toString(), "http://blobs/");
+        ImageProcessingProperties properties = new ImageProcessingProperties();
+        properties.setThreads(MAX_PARALLELISM);
+        imageProcessor = new ImageProcessor(properties, meterRegistry);
+        when(visionTagCache.lookup(anyString())).thenReturn(Optional.empty());
+    }
+
+    @AfterEach
+    void tearDown() {
+        imageProcessor.shutdown();
+    }
+
+    @Test
+    void mergesResultsInSubmissionOrderWhateverOrderTheyFinishIn() {
+        // Earlier images take longer to tag, so they finish last
+        ImagePipeline pipeline = pipeline(new WidthTagger(width -> (200 - width) * 2L));
+        List<byte[]> images = List.of(TestImages.jpeg(100, 80, 0), TestImages.jpeg(110, 80, 20),
+                TestImages.jpeg(120, 80, 40), TestImages.jpeg(130, 80, 60));
+
+        ImagePipelineResult result = pipeline.processStaged(stage(images), "records/1/return", List.of());
+
+        assertThat(result.tags()).containsExactly("width-100", "width-110", "width-120", "width-130");
+        List<String> expectedHashes = images.stream().map(image -> HashUtils.toHex(HashUtils.newSha256().digest(image))).toList();
+        assertThat(result.contentHashes()).containsExactlyElementsOf(expectedHashes);
+        assertThat(result.imageUrls()).containsExactlyElementsOf(
+                expectedHashes.stream().map(hash -> "http://blobs/records/1/return/" + hash + ".jpg").toList());
+        assertThat(result.thumbnailFor("http://blobs/records/1/return/" + expectedHashes.get(0) + ".jpg"))
+                .isEqualTo("http://blobs/records/1/return/" + expectedHashes.get(0) + "-thumb.jpg");
+        assertThat(result.degraded()).isFalse();
+    }
+
+    @Test
+    void tagsImagesConcurrentlyUpToTheParallelismCap() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        CountDownLatch bothStarted = new CountDownLatch(MAX_PARALLELISM);
+        ImagePipeline pipeline = pipeline(new WidthTagger(width -> 0L) {
+            @Override
+            public List<String> tagImage(byte[] imageData) {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    bothStarted.countDown();
+                    bothStarted.await(2, TimeUnit.SECONDS);
+                    Thread.sleep(20);
+                    return super.tagImage(imageData);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            }
+        });
+        List<byte[]> images = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            images.add(TestImages.jpeg(100 + i, 80, i * 10));
+        }
+
+        ImagePipelineResult result = pipeline.processStaged(stage(images), "records/1/return", List.of());
+
+        assertThat(result.tags()).hasSize(6);
+        assertThat(maxInFlight).hasValue(MAX_PARALLELISM);
+        assertThat(meterRegistry.get("images.pipeline.stage").tag("stage", "analyze").timer().count()).isEqualTo(6);
+        assertThat(meterRegistry.get("images.pipeline.stage").tag("stage", "upload").timer().count()).isEqualTo(6);
+        assertThat(meterRegistry.get("images.pipeline.stage").tag("stage", "total").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void storesImagesWithoutTagsWhenVisionIsUnavailable() {
+        ImagePipeline pipeline = pipeline(new WidthTagger(width -> 0L) {
+            @Override
+            public List<String> tagImage(byte[] imageData) {
+                throw new VisionUnavailableException("circuit open");
+            }
+        });
+
+        ImagePipelineResult result = pipeline.processStaged(stage(List.of(TestImages.jpeg(100, 80, 0))), "records/1/return", List.of());
+
+        assertThat(result.degraded()).isTrue();
+        assertThat(result.tags()).isEmpty();
+        assertThat(result.imageUrls()).hasSize(1);
+        verify(visionTagCache, never()).store(anyString(), anyString(), any(), any(), any());
+    }
+
+    @Test
+    void reusesTheBlobAndTagsOfKnownContent() {
+        byte[] image = TestImages.jpeg(100, 80, 0);
+        String contentHash = HashUtils.toHex(HashUtils.newSha256().digest(image));
+        when(visionTagCache.lookup(contentHash))
+                .thenReturn(Optional.of(new VisionTagCache.CachedImage("http://blobs/known.jpg", null, List.of("book"))));
+        ImageTagger tagger = mock(ImageTagger.class);
+
+        ImagePipelineResult result = pipeline(tagger).processStaged(stage(List.of(image)), "records/1/return", List.of());
+
+        assertThat(result.imageUrls()).containsExactly("http://blobs/known.jpg");
+        assertThat(result.tags()).containsExactly("book");
+        verify(tagger, never()).tagImageAsync(any(byte[].class), any());
+        assertThat(root.resolve("records/1/return")).doesNotExist();
+    }
+
+    @Test
+    void reusesReferenceTagsWithoutCachingThemForTheNewImage() {
+        byte[] image = TestImages.jpeg(100, 80, 0);
+        ReferenceImage borrowPhoto = new ReferenceImage("borrow-hash",
+                PerceptualHash.of(TestImages.decode(image)), List.of("book", "cover"));
+        ImageTagger tagger = mock(ImageTagger.class);
+
+        ImagePipelineResult result = pipeline(tagger).processStaged(stage(List.of(image)), "records/1/return", List.of(borrowPhoto));
+
+        assertThat(result.tags()).containsExactly("book", "cover");
+        assertThat(result.imageUrls()).singleElement().asString().startsWith("http://blobs/records/1/return/");
+        verify(tagger, never()).tagImageAsync(any(byte[].class), any());
+        verify(visionTagCache, never()).store(anyString(), anyString(), any(), any(), any());
+        assertThat(meterRegistry.get("images.perceptual-hash.comparisons").tag("result", "reused").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void tagsTheAnalysisCopyWhileTheUploadIsStillRunning() throws IOException {
+        CountDownLatch tagging = new CountDownLatch(1);
+        BlobStore uploadWaitingForTagging = new FileSystemBlobStore(root.toString(), "http://blobs/") {
+            @Override
+            public String put(String blobName, InputStream content, long length) {
+                if (blobName.startsWith("records/1/return/")) {
+                    try {
+                        assertThat(tagging.await(2, TimeUnit.SECONDS)).as("tagging started during upload").isTrue();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                return super.put(blobName, content, length);
+            }
+        };
+        List<String> staged = stage(List.of(TestImages.jpeg(100, 80, 0)));
+        ImageTagger tagger = mock(ImageTagger.class);
+        when(tagger.tagImageAsync(any(byte[].class), any())).thenAnswer(invocation -> {
+            tagging.countDown();
+            return CompletableFuture.completedFuture(List.of("book"));
+        });
+
+        ImagePipelineResult result = pipeline(uploadWaitingForTagging, tagger).processStaged(staged, "records/1/return", List.of());
+
+        assertThat(result.tags()).containsExactly("book");
+        verify(tagger, never()).tagImage(anyString());
+        verify(tagger, never()).tagImageAsync(anyString(), any());
+    }
+
+    private ImagePipeline pipeline(ImageTagger tagger) {
+        return pipeline(blobStore, tagger);
+    }
+
+    private ImagePipeline pipeline(BlobStore blobStore, ImageTagger tagger) {
+        return new ImagePipeline(blobStore, tagger, imageProcessor, visionTagCache, MAX_PARALLELISM, 10,
+                DataSize.ofMegabytes(4), DataSize.ofMegabytes(10), DataSize.ofMegabytes(50), meterRegistry);
+    }
+
+    private List<String> stage(List<byte[]> images) {
+        List<String> blobNames = new ArrayList<>();
+        for (int i = 0; i < images.size(); i++) {
+            String blobName = "records/1/incoming/" + i + ".jpg";
+            blobStore.put(blobName, images.get(i));
+            blobNames.add(blobName);
+        }
+        return blobNames;
+    }
+
+    /**
+     * Tags an image with its width, sleeping for a width dependent time first.
+     */
+    static class WidthTagger implements ImageTagger {
+        private final IntFunction<Long> delayMillis;
+
+        WidthTagger(IntFunction<Long> delayMillis) {
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public List<String> tagImage(String imageUrl) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<String> tagImage(byte[] imageData) {
+            int width = TestImages.decode(imageData).getWidth();
+            try {
+                Thread.sleep(delayMillis.apply(width));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return List.of("width-" + width);
+        }
+    }
+}
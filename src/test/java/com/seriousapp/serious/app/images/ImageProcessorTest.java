@@ -0,0 +1,162 @@
+package com.seriousapp.serious.app.images;
+
+import com.seriousapp.serious.app.utils.HashUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ImageProcessorTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ImageProcessor processor = new ImageProcessor(properties(), meterRegistry);
+    private final ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        processor.shutdown();
+    }
+
+    @Test
+    void producesBoundedRenditions() throws IOException {
+        byte[] photo = TestImages.jpeg(800, 600, 100);
+
+        ProcessedImage processed = processor.process(new ByteArrayInputStream(photo));
+
+        assertThat(size(processed.storage())).isEqualTo("400x300");
+        assertThat(size(processed.analysis())).isEqualTo("200x150");
+        assertThat(size(processed.thumbnail())).isEqualTo("80x60");
+        assertThat(processed.storage().length).isLessThan(photo.length);
+        assertThat(meterRegistry.get("images.pipeline.stage").tag("stage", "process").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsSmallImagesAtTheirSize() throws IOException {
+        ProcessedImage processed = processor.process(new ByteArrayInputStream(TestImages.png(120, 90)));
+
+        assertThat(size(processed.storage())).isEqualTo("120x90");
+        assertThat(size(processed.analysis())).isEqualTo("120x90");
+        assertThat(size(processed.thumbnail())).isEqualTo("80x60");
+    }
+
+    @Test
+    void hashesTheBytesAsUploaded() throws IOException {
+        byte[] photo = TestImages.jpeg(300, 200, 0);
+
+        ProcessedImage processed = processor.process(new ByteArrayInputStream(photo));
+
+        assertThat(processed.contentHash()).isEqualTo(HashUtils.toHex(HashUtils.newSha256().digest(photo)));
+        assertThat(processor.process(new ByteArrayInputStream(photo)).perceptualHash()).isEqualTo(processed.perceptualHash());
+    }
+
+    @Test
+    void uprightsPhotosTakenSideways() throws IOException {
+        byte[] photo = TestImages.withOrientation(TestImages.jpeg(300, 200, 0), 6);
+
+        ProcessedImage processed = processor.process(new ByteArrayInputStream(photo));
+
+        assertThat(size(processed.storage())).isEqualTo("200x300");
+    }
+
+    @Test
+    void probesWithoutConsumingTheStream() throws IOException {
+        byte[] photo = TestImages.jpeg(50, 50, 0);
+        InputStream in = new BufferedInputStream(new ByteArrayInputStream(photo));
+
+        assertThat(processor.canDecode(in)).isTrue();
+        assertThat(in.readAllBytes()).isEqualTo(photo);
+        assertThat(processor.canDecode(new BufferedInputStream(new ByteArrayInputStream("not an image".getBytes())))).isFalse();
+    }
+
+    @Test
+    void rejectsUndecodableContent() {
+        assertThatThrownBy(() -> processor.process(new ByteArrayInputStream("not an image".getBytes())))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void readsSlowUploadsWithoutHoldingTheWorker() throws Exception {
+        byte[] photo = TestImages.jpeg(50, 50, 0);
+        PipedOutputStream slowClient = new PipedOutputStream();
+        PipedInputStream slowUpload = new PipedInputStream(slowClient, photo.length);
+        slowClient.write(photo, 0, 100);
+        Future<ProcessedImage> slow = callers.submit(() -> processor.process(slowUpload));
+
+        // The only worker is free while the first upload is still arriving
+        ProcessedImage fast = processor.process(new ByteArrayInputStream(TestImages.jpeg(60, 40, 0)));
+
+        assertThat(size(fast.storage())).isEqualTo("60x40");
+        assertThat(slow).isNotDone();
+        slowClient.write(photo, 100, photo.length - 100);
+        slowClient.close();
+        assertThat(size(slow.get(5, TimeUnit.SECONDS).storage())).isEqualTo("50x50");
+    }
+
+    @Test
+    void rejectsImagesLargerThanTheLimit() {
+        byte[] photo = TestImages.jpeg(300, 200, 0);
+        ImageProcessingProperties properties = properties();
+        properties.setMaxImageSize(DataSize.ofBytes(photo.length - 1));
+        ImageProcessor limited = new ImageProcessor(properties, meterRegistry);
+        try {
+            assertThatThrownBy(() -> limited.process(new ByteArrayInputStream(photo)))
+                    .isInstanceOf(IOException.class)
+                    .hasMessageContaining("larger than");
+            assertThat(limited.process(new ByteArrayInputStream(TestImages.jpeg(30, 20, 0)))).isNotNull();
+        } finally {
+            limited.shutdown();
+        }
+    }
+
+    @Test
+    void rejectsImagesWhenTheQueueIsFull() throws Exception {
+        ThreadPoolExecutor workers = (ThreadPoolExecutor) ReflectionTestUtils.getField(processor, "workers");
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // Occupy the only worker and the only queue slot
+            workers.submit(() -> release.await(5, TimeUnit.SECONDS));
+            workers.submit(() -> release.await(5, TimeUnit.SECONDS));
+
+            assertThatThrownBy(() -> processor.process(new ByteArrayInputStream(TestImages.jpeg(50, 50, 0))))
+                    .isInstanceOf(RejectedExecutionException.class);
+            assertThat(meterRegistry.get("images.processing.rejected").counter().count()).isEqualTo(1);
+        } finally {
+            release.countDown();
+        }
+        assertThat(processor.process(new ByteArrayInputStream(TestImages.jpeg(50, 50, 0)))).isNotNull();
+    }
+
+    private static String size(byte[] encoded) {
+        BufferedImage image = TestImages.decode(encoded);
+        return image.getWidth() + "x" + image.getHeight();
+    }
+
+    private static ImageProcessingProperties properties() {
+        ImageProcessingProperties properties = new ImageProcessingProperties();
+        properties.setThreads(1);
+        properties.setQueueCapacity(1);
+        properties.setStorageMaxDimension(400);
+        properties.setAnalysisMaxDimension(200);
+        properties.setThumbnailMaxDimension(80);
+        return properties;
+    }
+}
@@ -0,0 +1,74 @@
+package com.seriousapp.serious.app.images;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PerceptualHashTest {
+
+    @Test
+    void setsABitWhereACellIsBrighterThanItsRightNeighbour() {
+        // White everywhere except a dark block in the top right third, so only the cells left of it are brighter
+        long hash = PerceptualHash.of(darkBlock(180, 160));
+
+        assertThat(Long.bitCount(hash)).isEqualTo(3);
+        assertThat(PerceptualHash.of(fadingToTheRight(180, 160))).isEqualTo(-1L);
+    }
+
+    @Test
+    void barelyMovesForARescaledCopy() {
+        BufferedImage original = darkBlock(180, 160);
+
+        assertThat(PerceptualHash.distance(PerceptualHash.of(original), PerceptualHash.of(scale(original, 90, 80))))
+                .isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void farFromAVisiblyDifferentPicture() {
+        assertThat(PerceptualHash.distance(PerceptualHash.of(darkBlock(180, 160)), PerceptualHash.of(fadingToTheRight(180, 160))))
+                .isGreaterThan(50);
+    }
+
+    @Test
+    void countsDifferingBits() {
+        assertThat(PerceptualHash.distance(0b1011L, 0b0110L)).isEqualTo(3);
+        assertThat(PerceptualHash.distance(-1L, 0L)).isEqualTo(64);
+        assertThat(PerceptualHash.distance(42L, 42L)).isZero();
+    }
+
+    private static BufferedImage darkBlock(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, width, height);
+        graphics.setColor(Color.BLACK);
+        graphics.fillRect(width * 2 / 3, 0, width / 3, height / 3);
+        graphics.dispose();
+        return image;
+    }
+
+    private static BufferedImage fadingToTheRight(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < width; x++) {
+            int value = 255 - x * 255 / width;
+            for (int y = 0; y < height; y++) {
+                image.setRGB(x, y, new Color(value, value, value).getRGB());
+            }
+        }
+        return image;
+    }
+
+    private static BufferedImage scale(BufferedImage source, int width, int height) {
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(source, 0, 0, width, height, null);
+        graphics.dispose();
+        return scaled;
+    }
+}
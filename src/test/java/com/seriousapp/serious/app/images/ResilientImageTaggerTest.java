@@ -0,0 +1,136 @@
+package com.seriousapp.serious.app.images;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ResilientImageTaggerTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private ResilientImageTagger tagger;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (tagger != null) {
+            tagger.shutdown();
+        }
+    }
+
+    @Test
+    void passesTagsThrough() {
+        tagger = new ResilientImageTagger(delegate(() -> List.of("book")), properties(1, 1_000), meterRegistry);
+
+        assertThat(tagger.tagImage("https://blobs/a.jpg")).containsExactly("book");
+        assertThat(calls("success")).isEqualTo(1);
+    }
+
+    @Test
+    void turnsFailuresIntoUnavailable() {
+        tagger = new ResilientImageTagger(delegate(() -> {
+            throw new IllegalStateException("boom");
+        }), properties(1, 1_000), meterRegistry);
+
+        assertThatThrownBy(() -> tagger.tagImage(new byte[]{1}))
+                .isInstanceOf(VisionUnavailableException.class)
+                .hasMessageContaining("boom");
+        assertThat(calls("failure")).isEqualTo(1);
+    }
+
+    @Test
+    void aTimedOutCallKeepsItsBulkheadSlotUntilItReallyEnds() throws Exception {
+        CountDownLatch ended = new CountDownLatch(1);
+        // Like a blocking HTTP call, ignores interrupts until its own timeout
+        tagger = new ResilientImageTagger(delegate(() -> {
+            awaitUninterruptibly(release);
+            ended.countDown();
+            return List.of("book");
+        }), properties(1, 50), meterRegistry);
+
+        assertThatThrownBy(() -> tagger.tagImage("https://blobs/a.jpg")).hasMessageContaining("timed out");
+        assertThatThrownBy(() -> tagger.tagImage("https://blobs/b.jpg")).hasMessageContaining("bulkhead is full");
+        assertThat(calls("rejected")).isEqualTo(1);
+
+        release.countDown();
+        assertThat(ended.await(2, TimeUnit.SECONDS)).isTrue();
+        List<String> tags = null;
+        for (int attempt = 0; attempt < 100 && tags == null; attempt++) {
+            try {
+                tags = tagger.tagImage("https://blobs/c.jpg");
+            } catch (VisionUnavailableException e) {
+                Thread.sleep(10);
+            }
+        }
+        assertThat(tags).as("the slot is free once the abandoned call ended").containsExactly("book");
+    }
+
+    @Test
+    void shortCircuitsOnceTheBreakerOpens() {
+        VisionResilienceProperties properties = properties(4, 1_000);
+        properties.setMinimumCalls(2);
+        properties.setWindowSize(2);
+        tagger = new ResilientImageTagger(delegate(() -> {
+            throw new IllegalStateException("down");
+        }), properties, meterRegistry);
+
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> tagger.tagImage("https://blobs/a.jpg")).isInstanceOf(VisionUnavailableException.class);
+        }
+
+        assertThatThrownBy(() -> tagger.tagImage("https://blobs/a.jpg")).hasMessageContaining("circuit breaker is open");
+        assertThat(calls("short_circuited")).isEqualTo(1);
+    }
+
+    private double calls(String outcome) {
+        return meterRegistry.get("images.vision.calls").tag("outcome", outcome).counter().count();
+    }
+
+    private static VisionResilienceProperties properties(int maxConcurrentCalls, long timeoutMillis) {
+        VisionResilienceProperties properties = new VisionResilienceProperties();
+        properties.setMaxConcurrentCalls(maxConcurrentCalls);
+        properties.setMaxWaitMillis(10);
+        properties.setTimeoutMillis(timeoutMillis);
+        return properties;
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ImageTagger delegate(TagSupplier tags) {
+        return new ImageTagger() {
+            @Override
+            public List<String> tagImage(String imageUrl) {
+                return tags.get();
+            }
+
+            @Override
+            public List<String> tagImage(byte[] imageData) {
+                return tags.get();
+            }
+        };
+    }
+
+    @FunctionalInterface
+    private interface TagSupplier {
+        List<String> get();
+    }
+}
@@ -0,0 +1,146 @@
+package com.seriousapp.serious.app.images;
+
+import com.seriousapp.serious.app.storage.FileSystemBlobStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StreamedUploadTest {
+    private static final String BOUNDARY = "----upload-boundary";
+
+    @TempDir
+    Path root;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final VisionTagCache visionTagCache = mock(VisionTagCache.class);
+    private final ImageTagger imageTagger = mock(ImageTagger.class);
+    private FileSystemBlobStore blobStore;
+    private ImageProcessor imageProcessor;
+    private ImagePipeline pipeline;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        blobStore = new FileSystemBlobStore(root.toString(), "http://blobs/");
+        imageProcessor = new ImageProcessor(new ImageProcessingProperties(), meterRegistry);
+        when(visionTagCache.lookup(anyString())).thenReturn(Optional.empty());
+        // Small blocks so undecodable uploads go through the block upload path
+        pipeline = new ImagePipeline(blobStore, imageTagger, imageProcessor, visionTagCache, 2, 10,
+                DataSize.ofKilobytes(1), DataSize.ofKilobytes(64), DataSize.ofKilobytes(256), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        imageProcessor.shutdown();
+    }
+
+    @Test
+    void readsFieldsAndStoresUndecodableImagesInBlocks() throws IOException {
+        byte[] scan = new byte[5000];
+        for (int i = 0; i < scan.length; i++) {
+            scan[i] = (byte) (i * 31);
+        }
+        when(imageTagger.tagImage(anyString())).thenReturn(List.of("paper"));
+        MockHttpServletRequest request = multipart(
+                Part.field("knownTags", "torn pages, stains present"),
+                Part.file("images", "scan.heic", scan),
+                Part.file("other", "ignored.jpg", TestImages.jpeg(50, 50, 0)));
+
+        StreamedImages upload = pipeline.process(request, "records/1/borrow");
+
+        assertThat(upload.fields().values("knownTags")).containsExactly("torn pages", "stains present");
+        assertThat(upload.images().tags()).containsExactly("paper");
+        String url = upload.images().imageUrls().iterator().next();
+        assertThat(url).startsWith("http://blobs/records/1/borrow/").endsWith(".heic");
+        assertThat(Files.readAllBytes(root.resolve(url.substring("http://blobs/".length())))).isEqualTo(scan);
+        assertThat(meterRegistry.get("images.upload.size").summary().totalAmount()).isEqualTo(scan.length);
+    }
+
+    @Test
+    void stagesImagesAsUploaded() throws IOException {
+        byte[] photo = TestImages.jpeg(60, 40, 0);
+
+        StagedImages staged = pipeline.stage(multipart(Part.file("images", "photo.JPG", photo)), "records/1/incoming");
+
+        assertThat(staged.blobNames()).singleElement().satisfies(blobName -> {
+            assertThat(blobName).startsWith("records/1/incoming/").endsWith(".jpg");
+            assertThat(Files.readAllBytes(root.resolve(blobName))).isEqualTo(photo);
+        });
+    }
+
+    @Test
+    void rejectsAnOversizedImageWithoutLeavingStagedBlobs() {
+        MockHttpServletRequest request = multipart(
+                Part.file("images", "first.jpg", TestImages.jpeg(60, 40, 0)),
+                Part.file("images", "huge.jpg", new byte[100 * 1024]));
+
+        assertThatThrownBy(() -> pipeline.stage(request, "records/1/incoming")).isInstanceOf(IOException.class);
+        assertThat(blobsUnder("records/1/incoming")).isEmpty();
+    }
+
+    @Test
+    void refusesRequestsThatAreNotMultipart() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/admin/books/return");
+        request.setContentType("application/json");
+
+        assertThatThrownBy(() -> pipeline.stage(request, "records/1/incoming")).isInstanceOf(RuntimeException.class);
+    }
+
+    private List<Path> blobsUnder(String prefix) {
+        Path directory = root.resolve(prefix);
+        if (!Files.exists(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.toList();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MockHttpServletRequest multipart(Part... parts) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (Part part : parts) {
+            String disposition = part.filename() == null
+                    ? "form-data; name=\"" + part.name() + "\""
+                    : "form-data; name=\"" + part.name() + "\"; filename=\"" + part.filename() + "\"";
+            body.writeBytes(("--" + BOUNDARY + "\r\nContent-Disposition: " + disposition + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            body.writeBytes(part.content());
+            body.writeBytes("\r\n".getBytes(StandardCharsets.UTF_8));
+        }
+        body.writeBytes(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/admin/books/return");
+        request.setContentType("multipart/form-data; boundary=" + BOUNDARY);
+        request.setContent(body.toByteArray());
+        return request;
+    }
+
+    private record Part(String name, String filename, byte[] content) {
+        static Part field(String name, String value) {
+            return new Part(name, null, value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Part file(String name, String filename, byte[] content) {
+            return new Part(name, filename, content);
+        }
+    }
+}
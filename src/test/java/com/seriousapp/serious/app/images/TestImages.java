@@ -0,0 +1,73 @@
+package com.seriousapp.serious.app.images;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Small generated photos for image tests. The width identifies an image after re-encoding, and the
+ * square drawn at {@code offset} gives images distinct perceptual hashes.
+ */
+final class TestImages {
+    private TestImages() {
+    }
+
+    static byte[] jpeg(int width, int height, int offset) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, width, height);
+        graphics.setColor(Color.BLACK);
+        graphics.fillRect(offset % width, offset % height, width / 3, height / 3);
+        graphics.dispose();
+        return encode(image, "jpg");
+    }
+
+    static byte[] png(int width, int height) {
+        return encode(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png");
+    }
+
+    /**
+     * Inserts an EXIF segment carrying only the orientation tag after the JFIF header of a JPEG written by ImageIO.
+     */
+    static byte[] withOrientation(byte[] jpeg, int orientation) {
+        byte[] tiff = {'M', 'M', 0, 42, 0, 0, 0, 8, 0, 1,
+                0x01, 0x12, 0, 3, 0, 0, 0, 1, 0, (byte) orientation, 0, 0,
+                0, 0, 0, 0};
+        ByteArrayOutputStream app1 = new ByteArrayOutputStream();
+        app1.writeBytes(new byte[]{'E', 'x', 'i', 'f', 0, 0});
+        app1.writeBytes(tiff);
+        int length = app1.size() + 2;
+        int insertAt = 4 + (((jpeg[4] & 0xFF) << 8) | (jpeg[5] & 0xFF));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(jpeg, 0, insertAt);
+        out.writeBytes(new byte[]{(byte) 0xFF, (byte) 0xE1, (byte) (length >> 8), (byte) length});
+        out.writeBytes(app1.toByteArray());
+        out.write(jpeg, insertAt, jpeg.length - insertAt);
+        return out.toByteArray();
+    }
+
+    static BufferedImage decode(byte[] encoded) {
+        try {
+            return ImageIO.read(new ByteArrayInputStream(encoded));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] encode(BufferedImage image, String format) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, format, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,81 @@
+package com.seriousapp.serious.app.images;
+
+import com.seriousapp.serious.app.PostgresTestSupport;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class VisionTagCacheStoreTest extends PostgresTestSupport {
+    @Autowired
+    private ImageContentRepository imageContentRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        imageContentRepository.deleteAll();
+    }
+
+    @Test
+    void keepsTheFirstRowWhenTheSamePhotoIsStoredConcurrently() throws Exception {
+        int callers = 4;
+        CyclicBarrier start = new CyclicBarrier(callers);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        List<Future<?>> stores = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            // Each caller has missed its own cache, like parallel uploads on different instances
+            VisionTagCache cache = new VisionTagCache(imageContentRepository, jdbcTemplate, 10, new SimpleMeterRegistry());
+            stores.add(executor.submit(() -> {
+                start.await(5, TimeUnit.SECONDS);
+                transactionTemplate.executeWithoutResult(status ->
+                        cache.store("abc", "https://blobs/abc.jpg", null, 5L, List.of("book", "stain")));
+                return null;
+            }));
+        }
+        for (Future<?> store : stores) {
+            store.get(10, TimeUnit.SECONDS);
+        }
+
+        assertThat(imageContentRepository.findAll()).singleElement().satisfies(content -> {
+            assertThat(content.getContentHash()).isEqualTo("abc");
+            assertThat(content.getPerceptualHash()).isEqualTo(5L);
+            assertThat(content.getTags()).containsExactlyInAnyOrder("book", "stain");
+        });
+    }
+
+    @Test
+    void storesImagesWithoutAPerceptualHashOrTags() {
+        VisionTagCache cache = new VisionTagCache(imageContentRepository, jdbcTemplate, 10, new SimpleMeterRegistry());
+
+        cache.store("raw", "https://blobs/raw.heic", null, null, List.of());
+
+        VisionTagCache fresh = new VisionTagCache(imageContentRepository, jdbcTemplate, 10, new SimpleMeterRegistry());
+        assertThat(fresh.lookup("raw")).contains(new VisionTagCache.CachedImage("https://blobs/raw.heic", null, List.of()));
+    }
+}
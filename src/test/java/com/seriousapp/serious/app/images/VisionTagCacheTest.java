@@ -0,0 +1,109 @@
+package com.seriousapp.serious.app.images;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class VisionTagCacheTest {
+    private final ImageContentRepository repository = mock(ImageContentRepository.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final VisionTagCache cache = new VisionTagCache(repository, jdbcTemplate, 2, meterRegistry);
+
+    @BeforeEach
+    void setUp() {
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(1);
+    }
+
+    @Test
+    void servesStoredImagesFromMemory() {
+        cache.store("a", "https://blobs/a.jpg", "https://blobs/a-thumb.jpg", 5L, List.of("book", "stain"));
+
+        var cached = cache.lookup("a");
+
+        assertThat(cached).contains(new VisionTagCache.CachedImage("https://blobs/a.jpg", "https://blobs/a-thumb.jpg", List.of("book", "stain")));
+        verify(jdbcTemplate).update(anyString(), any(Object[].class));
+        verify(repository, times(0)).findById("a");
+        assertThat(lookups("memory")).isEqualTo(1);
+    }
+
+    @Test
+    void leavesAnImageAnotherCallerStoredFirstToTheTable() {
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(0);
+        when(repository.findById("a")).thenReturn(Optional.of(content("a", 5L, "book")));
+
+        cache.store("a", "https://blobs/a.jpg", null, 7L, List.of("stain"));
+
+        assertThat(cache.lookup("a")).map(VisionTagCache.CachedImage::tags).contains(List.of("book"));
+        assertThat(lookups("database")).isEqualTo(1);
+    }
+
+    @Test
+    void loadsFromTheTableOnceAndThenFromMemory() {
+        when(repository.findById("a")).thenReturn(Optional.of(content("a", 5L, "book")));
+
+        assertThat(cache.lookup("a")).map(VisionTagCache.CachedImage::tags).contains(List.of("book"));
+        assertThat(cache.lookup("a")).isPresent();
+
+        verify(repository, times(1)).findById("a");
+        assertThat(lookups("database")).isEqualTo(1);
+        assertThat(lookups("memory")).isEqualTo(1);
+    }
+
+    @Test
+    void countsMisses() {
+        when(repository.findById("a")).thenReturn(Optional.empty());
+
+        assertThat(cache.lookup("a")).isEmpty();
+        assertThat(lookups("miss")).isEqualTo(1);
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntry() {
+        cache.store("a", "https://blobs/a.jpg", null, null, List.of());
+        cache.store("b", "https://blobs/b.jpg", null, null, List.of());
+        cache.lookup("a");
+        cache.store("c", "https://blobs/c.jpg", null, null, List.of());
+        when(repository.findById("b")).thenReturn(Optional.empty());
+
+        assertThat(cache.lookup("a")).isPresent();
+        assertThat(cache.lookup("c")).isPresent();
+        assertThat(cache.lookup("b")).isEmpty();
+        verify(repository).findById("b");
+    }
+
+    @Test
+    void offersOnlyImagesWithAPerceptualHashAsReferences() {
+        when(repository.findAllById(List.of("a", "b")))
+                .thenReturn(List.of(content("a", 5L, "book"), content("b", null, "book")));
+
+        assertThat(cache.references(List.of("a", "b")))
+                .containsExactly(new ReferenceImage("a", 5L, List.of("book")));
+        assertThat(cache.references(List.of())).isEmpty();
+    }
+
+    private double lookups(String result) {
+        return meterRegistry.get("images.tag-cache.lookups").tag("result", result).counter().count();
+    }
+
+    private static ImageContent content(String contentHash, Long perceptualHash, String... tags) {
+        ImageContent content = new ImageContent();
+        content.setContentHash(contentHash);
+        content.setBlobUrl("https://blobs/" + contentHash + ".jpg");
+        content.setPerceptualHash(perceptualHash);
+        content.setTags(List.of(tags));
+        return content;
+    }
+}
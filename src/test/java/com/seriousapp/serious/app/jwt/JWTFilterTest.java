@@ -0,0 +1,99 @@
+package com.seriousapp.serious.app.jwt;
+
+import com.seriousapp.serious.app.jwt.token.TokenRevocationIndex;
+import com.seriousapp.serious.app.users.CustomUserDetails;
+import com.seriousapp.serious.app.users.SecurityVersionCache;
+import com.seriousapp.serious.app.users.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JWTFilterTest {
+    private final JwtService jwtService = JwtTestSupport.jwtService();
+    private final UserService userService = mock(UserService.class);
+    private final SecurityVersionCache securityVersionCache = mock(SecurityVersionCache.class);
+    private final TokenRevocationIndex revocationIndex = mock(TokenRevocationIndex.class);
+    private final JWTFilter filter = new JWTFilter(jwtService, userService, securityVersionCache, revocationIndex, true);
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void authenticatesFromClaimsWithoutLoadingTheUser() throws Exception {
+        when(securityVersionCache.isCurrent(7L, 1)).thenReturn(true);
+        String token = jwtService.generateToken(JwtTestSupport.admin(7L, "librarian@school", 1));
+
+        filter.doFilter(bearer(token), new MockHttpServletResponse(), new MockFilterChain());
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertThat(authentication).isNotNull();
+        CustomUserDetails principal = (CustomUserDetails) authentication.getPrincipal();
+        assertThat(principal.getId()).isEqualTo(7L);
+        assertThat(principal.getUsername()).isEqualTo("librarian@school");
+        assertThat(authentication.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_ADMIN");
+        verify(userService, never()).loadUserByUsername(anyString());
+    }
+
+    @Test
+    void rejectsTokensWithAStaleSecurityVersion() throws Exception {
+        when(securityVersionCache.isCurrent(7L, 1)).thenReturn(false);
+        String token = jwtService.generateToken(JwtTestSupport.student(7L, "1234567890", 1));
+
+        filter.doFilter(bearer(token), new MockHttpServletResponse(), new MockFilterChain());
+
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+    }
+
+    @Test
+    void rejectsRevokedTokens() throws Exception {
+        when(securityVersionCache.isCurrent(7L, 0)).thenReturn(true);
+        String token = jwtService.generateToken(JwtTestSupport.student(7L, "1234567890", 0));
+        when(revocationIndex.isRevoked(jwtService.parseToken(token).getId())).thenReturn(true);
+
+        filter.doFilter(bearer(token), new MockHttpServletResponse(), new MockFilterChain());
+
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+    }
+
+    @Test
+    void rejectsRefreshTokensAsBearerTokens() throws Exception {
+        when(securityVersionCache.isCurrent(7L, 0)).thenReturn(true);
+        String token = jwtService.generateRefreshToken(JwtTestSupport.student(7L, "1234567890", 0), UUID.randomUUID());
+
+        filter.doFilter(bearer(token), new MockHttpServletResponse(), new MockFilterChain());
+
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+    }
+
+    @Test
+    void passesRequestsWithAnInvalidTokenThroughUnauthenticated() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(bearer("not-a-jwt"), new MockHttpServletResponse(), chain);
+
+        assertThat(chain.getRequest()).isNotNull();
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+    }
+
+    private static MockHttpServletRequest bearer(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/admin/books");
+        request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+}
@@ -0,0 +1,80 @@
+package com.seriousapp.serious.app.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtClaimsCacheTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void verifiesEachTokenOnlyOnceWhileItIsValid() {
+        JwtClaimsCache cache = new JwtClaimsCache(10, meterRegistry);
+        AtomicInteger verifications = new AtomicInteger();
+        Function<String, Claims> verifier = token -> {
+            verifications.incrementAndGet();
+            return claimsExpiringIn(60_000);
+        };
+
+        Claims first = cache.get("token", verifier);
+        Claims second = cache.get("token", verifier);
+
+        assertThat(second).isSameAs(first);
+        assertThat(verifications).hasValue(1);
+        assertThat(meterRegistry.get("jwt.claims.cache").tag("result", "hit").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void doesNotCacheExpiredClaims() {
+        JwtClaimsCache cache = new JwtClaimsCache(10, meterRegistry);
+        AtomicInteger verifications = new AtomicInteger();
+        Function<String, Claims> verifier = token -> {
+            verifications.incrementAndGet();
+            return claimsExpiringIn(-1_000);
+        };
+
+        cache.get("token", verifier);
+        cache.get("token", verifier);
+
+        assertThat(verifications).hasValue(2);
+    }
+
+    @Test
+    void evictedTokensAreVerifiedAgain() {
+        JwtClaimsCache cache = new JwtClaimsCache(10, meterRegistry);
+        AtomicInteger verifications = new AtomicInteger();
+        Function<String, Claims> verifier = token -> {
+            verifications.incrementAndGet();
+            return claimsExpiringIn(60_000);
+        };
+
+        cache.get("token", verifier);
+        cache.evict("token");
+        cache.get("token", verifier);
+
+        assertThat(verifications).hasValue(2);
+    }
+
+    @Test
+    void staysWithinItsMaximumSize() {
+        JwtClaimsCache cache = new JwtClaimsCache(3, meterRegistry);
+        for (int i = 0; i < 10; i++) {
+            cache.get("token-" + i, token -> claimsExpiringIn(60_000));
+        }
+
+        assertThat(meterRegistry.get("jwt.claims.cache.size").gauge().value()).isLessThanOrEqualTo(3.0);
+    }
+
+    private static Claims claimsExpiringIn(long millis) {
+        Claims claims = Jwts.claims();
+        claims.setExpiration(new Date(System.currentTimeMillis() + millis));
+        return claims;
+    }
+}
@@ -0,0 +1,75 @@
+package com.seriousapp.serious.app.jwt;
+
+import com.seriousapp.serious.app.users.CustomUserDetails;
+import com.seriousapp.serious.app.users.admin.Admin;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtServiceTest {
+    private final JwtService jwtService = JwtTestSupport.jwtService();
+
+    @Test
+    void parsesTheClaimsItSigned() {
+        CustomUserDetails user = JwtTestSupport.student(7L, "1234567890", 3);
+        UUID familyId = UUID.randomUUID();
+
+        Claims claims = jwtService.parseToken(jwtService.generateToken(user, familyId));
+
+        assertThat(claims.getSubject()).isEqualTo("1234567890");
+        assertThat(claims.getId()).isNotBlank();
+        assertThat(jwtService.extractUserId(claims)).isEqualTo(7L);
+        assertThat(jwtService.extractSecurityVersion(claims)).isEqualTo(3);
+        assertThat(claims.get("fam", String.class)).isEqualTo(familyId.toString());
+        assertThat(jwtService.isRefreshToken(claims)).isFalse();
+        assertThat(jwtService.isTokenValid(claims, user)).isTrue();
+    }
+
+    @Test
+    void returnsCachedClaimsForARepeatedToken() {
+        String token = jwtService.generateToken(JwtTestSupport.student(7L, "1234567890", 0));
+
+        assertThat(jwtService.parseToken(token)).isSameAs(jwtService.parseToken(token));
+    }
+
+    @Test
+    void rejectsATamperedToken() {
+        String token = jwtService.generateToken(JwtTestSupport.student(7L, "1234567890", 0));
+        String other = jwtService.generateToken(JwtTestSupport.admin(8L, "admin@school", 0));
+        // Claims of one token with the signature of another
+        String tampered = other.substring(0, other.lastIndexOf('.')) + token.substring(token.lastIndexOf('.'));
+
+        assertThatThrownBy(() -> jwtService.parseToken(tampered)).isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void rejectsATokenSignedWithAnotherKey() {
+        JwtService other = JwtTestSupport.jwtService();
+        ReflectionTestUtils.setField(other, "secretKey",
+                "b3RoZXItc2VjcmV0LWtleS10aGF0LWlzLWxvbmctZW5vdWdoLWZvci1obWFj");
+        other.init();
+        String token = other.generateToken(JwtTestSupport.student(7L, "1234567890", 0));
+
+        assertThatThrownBy(() -> jwtService.parseToken(token)).isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void rebuildsThePrincipalFromClaims() {
+        Claims claims = jwtService.parseToken(jwtService.generateToken(JwtTestSupport.admin(9L, "librarian@school", 4)));
+
+        CustomUserDetails principal = jwtService.buildPrincipal(claims);
+
+        assertThat(principal.getUser()).isInstanceOf(Admin.class);
+        assertThat(principal.getId()).isEqualTo(9L);
+        assertThat(principal.getUsername()).isEqualTo("librarian@school");
+        assertThat(principal.getSecurityVersion()).isEqualTo(4);
+        assertThat(principal.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_ADMIN");
+    }
+}
@@ -0,0 +1,47 @@
+package com.seriousapp.serious.app.jwt;
+
+import com.seriousapp.serious.app.users.CustomUserDetails;
+import com.seriousapp.serious.app.users.User;
+import com.seriousapp.serious.app.users.admin.Admin;
+import com.seriousapp.serious.app.users.student.Student;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Builds a {@link JwtService} with a test key, the way Spring would after property injection.
+ */
+public final class JwtTestSupport {
+    public static final String SECRET = "c2VyaW91cy1hcHAtdGVzdC1zZWNyZXQta2V5LWZvci1qd3Qtc2lnbmluZyE=";
+
+    private JwtTestSupport() {}
+
+    public static JwtService jwtService() {
+        return jwtService(60_000, 120_000);
+    }
+
+    public static JwtService jwtService(long accessExpirationMillis, long refreshExpirationMillis) {
+        JwtService jwtService = new JwtService(new JwtClaimsCache(1_000, new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", accessExpirationMillis);
+        ReflectionTestUtils.setField(jwtService, "refreshExpiration", refreshExpirationMillis);
+        jwtService.init();
+        return jwtService;
+    }
+
+    public static CustomUserDetails student(long id, String username, int securityVersion) {
+        return userDetails(new Student(), id, username, "STUDENT", securityVersion);
+    }
+
+    public static CustomUserDetails admin(long id, String username, int securityVersion) {
+        return userDetails(new Admin(), id, username, "ADMIN", securityVersion);
+    }
+
+    private static CustomUserDetails userDetails(User user, long id, String username, String userType, int securityVersion) {
+        user.setId(id);
+        user.setUsername(username);
+        user.setEmail(username);
+        user.setUserType(userType);
+        user.setSecurityVersion(securityVersion);
+        return new CustomUserDetails(user);
+    }
+}
@@ -0,0 +1,62 @@
+package com.seriousapp.serious.app.jwt.token;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TokenRevocationIndexTest {
+    private final TokenRepository tokenRepository = mock(TokenRepository.class);
+    private final TokenRevocationIndex index = new TokenRevocationIndex(tokenRepository, 100, new SimpleMeterRegistry());
+
+    @Test
+    void knowsTokensRevokedOnThisNode() {
+        index.revoke("jti-1", Instant.now().plusSeconds(60));
+
+        assertThat(index.isRevoked("jti-1")).isTrue();
+        assertThat(index.isRevoked("jti-2")).isFalse();
+        assertThat(index.isRevoked(null)).isFalse();
+    }
+
+    @Test
+    void rebuildPicksUpRevocationsFromOtherNodes() {
+        when(tokenRepository.findByRevokedTrueAndTokenTypeAndExpiresAtAfter(eq(TokenType.BEARER), any()))
+                .thenReturn(List.of(new Revoked("jti-remote", Instant.now().plusSeconds(60))));
+
+        index.rebuild();
+
+        assertThat(index.isRevoked("jti-remote")).isTrue();
+    }
+
+    @Test
+    void rebuildDropsExpiredTokens() {
+        when(tokenRepository.findByRevokedTrueAndTokenTypeAndExpiresAtAfter(eq(TokenType.BEARER), any()))
+                .thenReturn(List.of());
+        index.revoke("jti-expired", Instant.now().minusSeconds(1));
+        index.revoke("jti-live", Instant.now().plusSeconds(60));
+
+        index.rebuild();
+
+        assertThat(index.isRevoked("jti-expired")).isFalse();
+        assertThat(index.isRevoked("jti-live")).isTrue();
+    }
+
+    private record Revoked(String jti, Instant expiresAt) implements TokenRepository.RevokedToken {
+        @Override
+        public String getJti() {
+            return jti;
+        }
+
+        @Override
+        public Instant getExpiresAt() {
+            return expiresAt;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.seriousapp.serious.app.jwt.token;
+
+import com.seriousapp.serious.app.PostgresTestSupport;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class TokenSchemaUpgradeTest extends PostgresTestSupport {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TokenRepository tokenRepository;
+
+    private final TokenSchemaUpgrade upgrade = new TokenSchemaUpgrade();
+
+    @Test
+    void hashesLegacyTokensAndDropsThePlaintextColumn() throws Exception {
+        jdbcTemplate.execute("ALTER TABLE token ADD COLUMN token varchar(255) UNIQUE");
+        jdbcTemplate.update("INSERT INTO token (id, token, jti, token_type, revoked, expired) VALUES (?, 'legacy.jwt.value', 'j1', 'BEARER', false, false)",
+                UUID.randomUUID());
+
+        upgrade.apply(jdbcTemplate);
+
+        assertThat(plaintextColumnExists()).isFalse();
+        byte[] expected = MessageDigest.getInstance("SHA-256").digest("legacy.jwt.value".getBytes(StandardCharsets.UTF_8));
+        assertThat(tokenRepository.findByJti("j1")).get().extracting(Token::getTokenHash).isEqualTo(expected);
+    }
+
+    @Test
+    void doesNothingOnAnUpgradedSchema() {
+        upgrade.apply(jdbcTemplate);
+        upgrade.apply(jdbcTemplate);
+
+        assertThat(plaintextColumnExists()).isFalse();
+    }
+
+    @Test
+    void deletesExpiredTokensOneBatchAtATime() {
+        Instant now = Instant.now();
+        for (int i = 0; i < 3; i++) {
+            tokenRepository.save(token(now.minus(1, ChronoUnit.DAYS)));
+        }
+        Token live = tokenRepository.save(token(now.plus(1, ChronoUnit.DAYS)));
+
+        assertThat(tokenRepository.deleteExpiredBatch(now, 2)).isEqualTo(2);
+        assertThat(tokenRepository.deleteExpiredBatch(now, 2)).isEqualTo(1);
+        assertThat(tokenRepository.deleteExpiredBatch(now, 2)).isZero();
+        assertThat(tokenRepository.findAll()).extracting(Token::getId).containsExactly(live.getId());
+    }
+
+    private boolean plaintextColumnExists() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM information_schema.columns WHERE table_name = 'token' AND column_name = 'token')",
+                Boolean.class));
+    }
+
+    private static Token token(Instant expiresAt) {
+        return Token.builder()
+                .jti(UUID.randomUUID().toString())
+                .expiresAt(expiresAt)
+                .tokenType(TokenType.REFRESH)
+                .build();
+    }
+}
@@ -0,0 +1,154 @@
+package com.seriousapp.serious.app.jwt.token;
+
+import com.seriousapp.serious.app.jwt.JwtService;
+import com.seriousapp.serious.app.jwt.JwtTestSupport;
+import com.seriousapp.serious.app.users.CustomUserDetails;
+import com.seriousapp.serious.app.users.UserRepository;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TokenServiceTest {
+    private final JwtService jwtService = JwtTestSupport.jwtService();
+    private final TokenRepository tokenRepository = mock(TokenRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final TokenRevocationIndex revocationIndex = mock(TokenRevocationIndex.class);
+    private final TokenService tokenService = new TokenService(tokenRepository, revocationIndex, jwtService, userRepository);
+
+    // Stored tokens by jti, standing in for the token table
+    private final Map<String, Token> tokens = new ConcurrentHashMap<>();
+    private final CustomUserDetails user = JwtTestSupport.student(7L, "1234567890", 0);
+
+    @BeforeEach
+    void storeTokensInMemory() {
+        when(tokenRepository.save(any(Token.class))).thenAnswer(invocation -> {
+            Token token = invocation.getArgument(0);
+            tokens.put(token.getJti(), token);
+            return token;
+        });
+        when(tokenRepository.saveAll(any())).thenAnswer(invocation -> {
+            Iterable<Token> saved = invocation.getArgument(0);
+            saved.forEach(token -> tokens.put(token.getJti(), token));
+            return saved;
+        });
+        when(tokenRepository.findByJtiForUpdate(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(tokens.get(invocation.<String>getArgument(0))));
+        when(tokenRepository.findByJti(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(tokens.get(invocation.<String>getArgument(0))));
+        when(tokenRepository.findByFamilyIdAndRevokedFalse(any())).thenAnswer(invocation -> {
+            List<Token> family = new ArrayList<>();
+            tokens.values().stream()
+                    .filter(token -> invocation.getArgument(0).equals(token.getFamilyId()) && !token.isRevoked())
+                    .forEach(family::add);
+            return family;
+        });
+        when(userRepository.findById(7L)).thenReturn(Optional.of(user.getUser()));
+    }
+
+    @Test
+    void issuesAnAccessAndRefreshTokenInOneFamily() {
+        AuthenticationResponse response = tokenService.issueTokens(user);
+
+        Claims access = jwtService.parseToken(response.getAccessToken());
+        Claims refresh = jwtService.parseToken(response.getRefreshToken());
+        assertThat(jwtService.isRefreshToken(refresh)).isTrue();
+        assertThat(access.get("fam", String.class)).isEqualTo(refresh.get("fam", String.class));
+        assertThat(tokens).hasSize(2);
+        assertThat(tokens.values()).allSatisfy(token -> assertThat(token.getTokenHash()).hasSize(32));
+    }
+
+    @Test
+    void rotatesARefreshTokenOnce() {
+        AuthenticationResponse first = tokenService.issueTokens(user);
+
+        AuthenticationResponse second = tokenService.rotate(first.getRefreshToken());
+
+        assertThat(second.getRefreshToken()).isNotEqualTo(first.getRefreshToken());
+        assertThat(storedToken(first.getRefreshToken()).isRevoked()).isTrue();
+        assertThat(storedToken(second.getRefreshToken()).isRevoked()).isFalse();
+    }
+
+    @Test
+    void reusingARotatedRefreshTokenRevokesTheWholeFamily() {
+        AuthenticationResponse first = tokenService.issueTokens(user);
+        AuthenticationResponse second = tokenService.rotate(first.getRefreshToken());
+
+        assertThatThrownBy(() -> tokenService.rotate(first.getRefreshToken()))
+                .isInstanceOf(BadCredentialsException.class);
+
+        assertThat(storedToken(second.getAccessToken()).isRevoked()).isTrue();
+        assertThat(storedToken(second.getRefreshToken()).isRevoked()).isTrue();
+    }
+
+    @Test
+    void refusesToRotateAnAccessToken() {
+        AuthenticationResponse response = tokenService.issueTokens(user);
+
+        assertThatThrownBy(() -> tokenService.rotate(response.getAccessToken()))
+                .isInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    void refusesToRotateForAUserWhoseCredentialsChanged() {
+        AuthenticationResponse response = tokenService.issueTokens(user);
+        when(userRepository.findById(7L)).thenReturn(Optional.of(JwtTestSupport.student(7L, "1234567890", 1).getUser()));
+
+        assertThatThrownBy(() -> tokenService.rotate(response.getRefreshToken()))
+                .isInstanceOf(BadCredentialsException.class);
+        assertThat(storedToken(response.getAccessToken()).isRevoked()).isTrue();
+    }
+
+    @Test
+    void logoutRevokesTheRefreshTokenOfTheSameLogin() {
+        AuthenticationResponse response = tokenService.issueTokens(user);
+
+        tokenService.revoke(response.getAccessToken(), jwtService.parseToken(response.getAccessToken()));
+
+        assertThat(storedToken(response.getAccessToken()).isRevoked()).isTrue();
+        assertThat(storedToken(response.getRefreshToken()).isRevoked()).isTrue();
+        assertThatThrownBy(() -> tokenService.rotate(response.getRefreshToken()))
+                .isInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    void logoutWithoutAFamilyRevokesOnlyThatToken() {
+        String legacy = jwtService.generateToken(user);
+
+        tokenService.revoke(legacy, jwtService.parseToken(legacy));
+
+        assertThat(storedToken(legacy).isRevoked()).isTrue();
+        assertThat(tokens).hasSize(1);
+    }
+
+    @Test
+    void purgeKeepsDeletingWhileBatchesComeBackFull() {
+        ReflectionTestUtils.setField(tokenService, "purgeBatchSize", 2);
+        when(tokenRepository.deleteExpiredBatch(any(), eq(2))).thenReturn(2, 2, 1);
+
+        tokenService.purgeExpiredTokens();
+
+        verify(tokenRepository, times(3)).deleteExpiredBatch(any(), eq(2));
+    }
+
+    private Token storedToken(String jwt) {
+        return tokens.get(jwtService.parseToken(jwt).getId());
+    }
+}
@@ -0,0 +1,61 @@
+package com.seriousapp.serious.app.mail;
+
+import com.azure.communication.email.EmailClient;
+import com.azure.communication.email.models.EmailMessage;
+import com.azure.communication.email.models.EmailSendResult;
+import com.azure.core.util.polling.LongRunningOperationStatus;
+import com.azure.core.util.polling.PollResponse;
+import com.azure.core.util.polling.SyncPoller;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AzureMailSenderTest {
+    private final EmailClient emailClient = mock(EmailClient.class);
+    @SuppressWarnings("unchecked")
+    private final SyncPoller<EmailSendResult, EmailSendResult> poller = mock(SyncPoller.class);
+
+    @Test
+    void waitsForTheSendNoLongerThanTheTimeout() {
+        when(emailClient.beginSend(any(EmailMessage.class), isNull())).thenReturn(poller);
+        when(poller.waitForCompletion(any(Duration.class)))
+                .thenReturn(new PollResponse<>(LongRunningOperationStatus.SUCCESSFULLY_COMPLETED, null));
+
+        new AzureMailSender(emailClient, "noreply@school", 30_000, 120_000)
+                .send(List.of("parent@home"), "Book returned", "plain", "<p>html</p>");
+
+        verify(poller).waitForCompletion(Duration.ofSeconds(30));
+        ArgumentCaptor<EmailMessage> message = ArgumentCaptor.forClass(EmailMessage.class);
+        verify(emailClient).beginSend(message.capture(), isNull());
+        assertThat(message.getValue().getSenderAddress()).isEqualTo("noreply@school");
+        assertThat(message.getValue().getSubject()).isEqualTo("Book returned");
+    }
+
+    @Test
+    void failsTheSendWhenTheProviderDidNotDeliver() {
+        when(emailClient.beginSend(any(EmailMessage.class), isNull())).thenReturn(poller);
+        when(poller.waitForCompletion(any(Duration.class)))
+                .thenReturn(new PollResponse<>(LongRunningOperationStatus.FAILED, null));
+        AzureMailSender sender = new AzureMailSender(emailClient, "noreply@school", 30_000, 120_000);
+
+        assertThatThrownBy(() -> sender.send(List.of("parent@home"), "Book returned", "plain", "<p>html</p>"))
+                .hasMessageContaining("FAILED");
+    }
+
+    @Test
+    void refusesATimeoutThatOutlastsTheOutboxLease() {
+        assertThatThrownBy(() -> new AzureMailSender(emailClient, "noreply@school", 120_000, 120_000))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("mail.outbox.lease-ms");
+    }
+}
@@ -0,0 +1,54 @@
+package com.seriousapp.serious.app.mail;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CapturingMailSenderTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CapturingMailSender sender = new CapturingMailSender(2, meterRegistry);
+
+    @Test
+    void capturesEmailsInsteadOfSendingThem() {
+        sender.send(List.of("parent@home"), "Book returned", "plain", "<p>html</p>");
+
+        assertThat(sender.getMessages()).singleElement().satisfies(mail -> {
+            assertThat(mail.recipients()).containsExactly("parent@home");
+            assertThat(mail.subject()).isEqualTo("Book returned");
+            assertThat(mail.bodyPlainText()).isEqualTo("plain");
+            assertThat(mail.bodyHtml()).isEqualTo("<p>html</p>");
+            assertThat(mail.sentAt()).isNotNull();
+        });
+        assertThat(meterRegistry.get("mail.captured").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsOnlyTheMostRecentEmails() {
+        sender.send(List.of("a@home"), "first", "", "");
+        sender.send(List.of("b@home"), "second", "", "");
+        sender.send(List.of("c@home"), "third", "", "");
+
+        assertThat(sender.getMessages()).extracting(CapturingMailSender.CapturedMail::subject)
+                .containsExactly("second", "third");
+        assertThat(meterRegistry.get("mail.captured").counter().count()).isEqualTo(3);
+    }
+
+    @Test
+    void copiesTheRecipientsAndTheSnapshot() {
+        List<String> recipients = new ArrayList<>(List.of("a@home"));
+        sender.send(recipients, "first", "", "");
+        List<CapturingMailSender.CapturedMail> snapshot = sender.getMessages();
+
+        recipients.add("b@home");
+        sender.clear();
+
+        assertThat(snapshot).singleElement()
+                .extracting(CapturingMailSender.CapturedMail::recipients)
+                .isEqualTo(List.of("a@home"));
+        assertThat(sender.getMessages()).isEmpty();
+    }
+}
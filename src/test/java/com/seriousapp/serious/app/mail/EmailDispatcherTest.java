@@ -0,0 +1,90 @@
+package com.seriousapp.serious.app.mail;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EmailDispatcherTest {
+    private final EmailOutbox outbox = mock(EmailOutbox.class);
+    private final MailSender mailSender = mock(MailSender.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final EmailDispatcher dispatcher = new EmailDispatcher(outbox, mailSender, 2, meterRegistry);
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void sendsTheDecryptedBodyAndMarksTheEmailSent() {
+        OutboxEmail email = queued();
+        when(outbox.bodyOf(email)).thenReturn(new EmailBody("plain", "<p>html</p>"));
+
+        dispatcher.poll();
+
+        verify(outbox, timeout(2000)).markSent(7L);
+        verify(mailSender).send(List.of("parent@home"), "Book returned", "plain", "<p>html</p>");
+        verify(outbox, never()).fail(any(), any());
+    }
+
+    @Test
+    void recordsAFailedSendForRetry() {
+        OutboxEmail email = queued();
+        when(outbox.bodyOf(email)).thenReturn(new EmailBody("plain", "<p>html</p>"));
+        RuntimeException error = new RuntimeException("throttled");
+        doThrow(error).when(mailSender).send(any(), any(), any(), any());
+        when(outbox.fail(7L, error)).thenReturn(OutboxEmailStatus.PENDING);
+
+        dispatcher.poll();
+
+        verify(outbox, timeout(2000)).fail(eq(7L), same(error));
+        verify(outbox, never()).markSent(any());
+    }
+
+    @Test
+    void treatsAnUnreadableBodyAsAFailedSend() {
+        OutboxEmail email = queued();
+        when(outbox.bodyOf(email)).thenThrow(new IllegalStateException("Could not decrypt email body"));
+        when(outbox.fail(any(), any())).thenReturn(OutboxEmailStatus.DEAD);
+
+        dispatcher.poll();
+
+        verify(outbox, timeout(2000)).fail(eq(7L), any(IllegalStateException.class));
+        verify(mailSender, never()).send(any(), any(), any(), any());
+    }
+
+    @Test
+    void claimsOnlyAsManyEmailsAsThereAreFreeSenders() {
+        when(outbox.claim(anyInt())).thenReturn(List.of());
+
+        dispatcher.poll();
+
+        verify(outbox).claim(2);
+        assertThat(meterRegistry.get("mail.outbox.depth").gauge().value()).isZero();
+    }
+
+    private OutboxEmail queued() {
+        OutboxEmail email = new OutboxEmail();
+        email.setId(7L);
+        email.getRecipients().add("parent@home");
+        email.setSubject("Book returned");
+        when(outbox.claim(anyInt())).thenReturn(List.of(7L));
+        when(outbox.findById(7L)).thenReturn(Optional.of(email));
+        return email;
+    }
+}
@@ -0,0 +1,85 @@
+package com.seriousapp.serious.app.mail;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EmailOutboxTest {
+    private final OutboxEmailRepository repository = mock(OutboxEmailRepository.class);
+    private final OutboxBodyCipher cipher = new OutboxBodyCipher(OutboxBodyCipherTest.KEY);
+    private final EmailOutbox outbox = new EmailOutbox(repository, cipher);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(outbox, "maxAttempts", 3);
+        ReflectionTestUtils.setField(outbox, "retryBackoffMillis", 1000L);
+        when(repository.save(any(OutboxEmail.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void storesBodiesEncryptedAndHandsThemBackDecrypted() {
+        OutboxEmail email = outbox.enqueue(List.of("parent@home"), "Login Credentials",
+                "Password: hunter2", "<p>Password: hunter2</p>");
+
+        assertThat(email.getStatus()).isEqualTo(OutboxEmailStatus.PENDING);
+        assertThat(email.getBodyPlainText()).doesNotContain("hunter2");
+        assertThat(email.getBodyHtml()).doesNotContain("hunter2");
+        assertThat(outbox.bodyOf(email)).isEqualTo(new EmailBody("Password: hunter2", "<p>Password: hunter2</p>"));
+    }
+
+    @Test
+    void clearsTheBodyOnceSent() {
+        OutboxEmail email = queued(1);
+
+        outbox.markSent(7L);
+
+        assertThat(email.getStatus()).isEqualTo(OutboxEmailStatus.SENT);
+        assertThat(email.getSentAt()).isNotNull();
+        assertThat(email.getBodyPlainText()).isNull();
+        assertThat(email.getBodyHtml()).isNull();
+    }
+
+    @Test
+    void keepsTheBodyForARetryWithBackoff() {
+        OutboxEmail email = queued(2);
+        Instant before = Instant.now();
+
+        assertThat(outbox.fail(7L, new RuntimeException("throttled"))).isEqualTo(OutboxEmailStatus.PENDING);
+
+        assertThat(email.getRunAfter()).isAfterOrEqualTo(before.plusMillis(2000));
+        assertThat(email.getLastError()).isEqualTo("RuntimeException: throttled");
+        assertThat(outbox.bodyOf(email).plainText()).isEqualTo("Password: hunter2");
+    }
+
+    @Test
+    void clearsTheBodyOnceDeadLettered() {
+        OutboxEmail email = queued(3);
+
+        assertThat(outbox.fail(7L, new RuntimeException("rejected"))).isEqualTo(OutboxEmailStatus.DEAD);
+
+        assertThat(email.getBodyPlainText()).isNull();
+        assertThat(email.getBodyHtml()).isNull();
+        assertThat(email.getLastError()).isEqualTo("RuntimeException: rejected");
+    }
+
+    private OutboxEmail queued(int attempts) {
+        OutboxEmail email = new OutboxEmail();
+        email.setId(7L);
+        email.getRecipients().add("parent@home");
+        email.setBodyPlainText(cipher.encrypt("Password: hunter2"));
+        email.setBodyHtml(cipher.encrypt("<p>Password: hunter2</p>"));
+        email.setStatus(OutboxEmailStatus.SENDING);
+        email.setAttempts(attempts);
+        when(repository.findById(7L)).thenReturn(Optional.of(email));
+        return email;
+    }
+}
@@ -0,0 +1,79 @@
+package com.seriousapp.serious.app.mail;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EmailTemplatesTest {
+
+    @Test
+    void escapesValuesInTheHtmlVariantOnly() throws IOException {
+        EmailTemplates templates = new EmailTemplates(new PathMatchingResourcePatternResolver(), "classpath:/templates/mail/", false);
+
+        Map<String, Object> model = borrowModel();
+        model.put("bookTitle", "Tom & Jerry <Vol 2>");
+
+        EmailBody body = templates.render("borrow", model);
+
+        assertThat(body.html()).contains("Tom &amp; Jerry &lt;Vol 2&gt;").doesNotContain("<Vol 2>");
+        assertThat(body.plainText()).contains("Title: Tom & Jerry <Vol 2>");
+    }
+
+    @Test
+    void rendersNullValuesAsEmpty() throws IOException {
+        EmailTemplates templates = new EmailTemplates(new PathMatchingResourcePatternResolver(), "classpath:/templates/mail/", false);
+        Map<String, Object> model = borrowModel();
+        model.put("bookAuthor", null);
+
+        EmailBody body = templates.render("borrow", model);
+
+        assertThat(body.plainText()).contains("  Author: \n");
+        assertThat(body.html()).contains("<li><strong>Author:</strong> </li>");
+    }
+
+    @Test
+    void rejectsAnUnknownTemplate() throws IOException {
+        EmailTemplates templates = new EmailTemplates(new PathMatchingResourcePatternResolver(), "classpath:/templates/mail/", false);
+
+        assertThatThrownBy(() -> templates.render("missing", Map.of()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("missing.txt.mustache");
+    }
+
+    @Test
+    void recompilesAChangedFileWhenReloading(@TempDir Path directory) throws IOException {
+        Path text = Files.writeString(directory.resolve("note.txt.mustache"), "Hello {{name}}");
+        Files.writeString(directory.resolve("note.html.mustache"), "<p>Hello {{name}}</p>");
+        EmailTemplates templates = new EmailTemplates(new PathMatchingResourcePatternResolver(), directory.toUri().toString(), true);
+        assertThat(templates.render("note", Map.of("name", "Lerato")).plainText()).isEqualTo("Hello Lerato");
+
+        Files.writeString(text, "Goodbye {{name}}");
+        Files.setLastModifiedTime(text, FileTime.from(Instant.now().plusSeconds(60)));
+
+        assertThat(templates.render("note", Map.of("name", "Lerato")).plainText()).isEqualTo("Goodbye Lerato");
+    }
+
+    private static Map<String, Object> borrowModel() {
+        Map<String, Object> model = new HashMap<>();
+        model.put("studentName", "Thabo Mokoena");
+        model.put("studentNumber", "2023045678");
+        model.put("bookTitle", "Mathematics Grade 10");
+        model.put("bookAuthor", "Siyavula");
+        model.put("borrowDate", "2026-03-14");
+        model.put("images", List.of());
+        model.put("hasImages", false);
+        return model;
+    }
+}
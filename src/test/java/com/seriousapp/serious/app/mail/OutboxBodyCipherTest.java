@@ -0,0 +1,72 @@
+package com.seriousapp.serious.app.mail;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OutboxBodyCipherTest {
+    // Throwaway key for tests only
+    static final String KEY = "zDBeVoQL81ItXpTt432cNbuiiczTk0AJ4V3ZnZ/OnH4=";
+
+    private final OutboxBodyCipher cipher = new OutboxBodyCipher(KEY);
+
+    @Test
+    void encryptsBodiesSoTheStoredValueDoesNotShowThem() {
+        String stored = cipher.encrypt("Password: hunter2");
+
+        assertThat(stored).startsWith(OutboxBodyCipher.PREFIX).doesNotContain("hunter2");
+        assertThat(cipher.decrypt(stored)).isEqualTo("Password: hunter2");
+    }
+
+    @Test
+    void usesAFreshIvForEveryValue() {
+        assertThat(cipher.encrypt("same body")).isNotEqualTo(cipher.encrypt("same body"));
+    }
+
+    @Test
+    void passesNullAndBodiesQueuedBeforeEncryptionThrough() {
+        assertThat(cipher.encrypt(null)).isNull();
+        assertThat(cipher.decrypt(null)).isNull();
+        assertThat(cipher.decrypt("<p>queued earlier</p>")).isEqualTo("<p>queued earlier</p>");
+    }
+
+    @Test
+    void rejectsATamperedValue() {
+        String stored = cipher.encrypt("Password: hunter2");
+        char[] chars = stored.toCharArray();
+        int last = chars.length - 3;
+        chars[last] = chars[last] == 'A' ? 'B' : 'A';
+
+        assertThatThrownBy(() -> cipher.decrypt(new String(chars))).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void rejectsAValueSealedWithAnotherKey() {
+        String stored = new OutboxBodyCipher("MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=").encrypt("body");
+
+        assertThatThrownBy(() -> cipher.decrypt(stored)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void requiresA256BitKey() {
+        assertThatThrownBy(() -> new OutboxBodyCipher("c2hvcnQ="))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("32 bytes");
+    }
+
+    @Test
+    void requiresAKey() {
+        assertThatThrownBy(() -> new OutboxBodyCipher(""))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void takesTheKeyFromTheEnvironmentOnly() throws Exception {
+        var properties = PropertiesLoaderUtils.loadProperties(new ClassPathResource("application.properties"));
+
+        assertThat(properties.getProperty("mail.outbox.encryption-key")).isEqualTo("${MAIL_OUTBOX_ENCRYPTION_KEY}");
+    }
+}
@@ -0,0 +1,98 @@
+package com.seriousapp.serious.app.notifications;
+
+import com.seriousapp.serious.app.PostgresTestSupport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ParentNotificationRepositoryTest extends PostgresTestSupport {
+    @Autowired
+    private ParentNotificationRepository repository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        repository.deleteAll();
+    }
+
+    @Test
+    void findsAddressesWhoseOldestNotificationWaitedForTheWindowOldestFirst() {
+        Instant now = Instant.now();
+        save("recent@home", now.minusSeconds(60));
+        save("old@home", now.minus(Duration.ofHours(30)));
+        save("older@home", now.minus(Duration.ofHours(40)));
+        save("older@home", now.minusSeconds(10));
+
+        Instant cutoff = now.minus(Duration.ofDays(1));
+
+        assertThat(repository.findDueRecipients(cutoff, 10)).containsExactly("older@home", "old@home");
+        assertThat(repository.findDueRecipients(cutoff, 1)).containsExactly("older@home");
+    }
+
+    @Test
+    void skipsNotificationsAnotherInstanceIsSending() throws Exception {
+        Long first = save("mother@home", Instant.now().minusSeconds(20));
+        Long second = save("mother@home", Instant.now().minusSeconds(10));
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch checked = new CountDownLatch(1);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        Future<List<Long>> sending = executor.submit(() -> transactionTemplate.execute(status -> {
+            List<Long> ids = repository.lockPendingIds("mother@home");
+            locked.countDown();
+            try {
+                checked.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return ids;
+        }));
+        assertThat(locked.await(5, TimeUnit.SECONDS)).isTrue();
+
+        List<Long> concurrent = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> transactionTemplate.execute(status -> repository.lockPendingIds("mother@home")));
+        checked.countDown();
+
+        assertThat(sending.get(5, TimeUnit.SECONDS)).containsExactly(first, second);
+        assertThat(concurrent).isEmpty();
+    }
+
+    private Long save(String parentEmail, Instant createdAt) {
+        ParentNotification notification = new ParentNotification();
+        notification.setParentEmail(parentEmail);
+        notification.setType(ParentNotificationType.BORROW);
+        Long id = repository.save(notification).getId();
+        // created_at is set by Hibernate on insert
+        jdbcTemplate.update("UPDATE parent_notifications SET created_at = ? WHERE id = ?", Timestamp.from(createdAt), id);
+        return id;
+    }
+}
@@ -0,0 +1,189 @@
+package com.seriousapp.serious.app.notifications;
+
+import com.seriousapp.serious.app.book.Book;
+import com.seriousapp.serious.app.borrowing.BorrowingRecord;
+import com.seriousapp.serious.app.images.ImagePipelineResult;
+import com.seriousapp.serious.app.mail.EmailOutbox;
+import com.seriousapp.serious.app.mail.EmailTemplates;
+import com.seriousapp.serious.app.parent.Parent;
+import com.seriousapp.serious.app.users.student.Student;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ParentNotifierTest {
+    private final ParentNotificationRepository repository = mock(ParentNotificationRepository.class);
+    private final EmailOutbox outbox = mock(EmailOutbox.class);
+    private final EmailTemplates templates;
+
+    ParentNotifierTest() throws IOException {
+        templates = new EmailTemplates(new PathMatchingResourcePatternResolver(), "classpath:/templates/mail/", false);
+    }
+
+    @Test
+    void queuesBorrowsForTheDigestOfParentsWhoDidNotOptOut() {
+        BorrowingRecord record = record(parent("mother@home", false));
+
+        notifier(true).borrowed(record, images());
+
+        ArgumentCaptor<ParentNotification> saved = ArgumentCaptor.forClass(ParentNotification.class);
+        verify(repository).save(saved.capture());
+        assertThat(saved.getValue().getParentEmail()).isEqualTo("mother@home");
+        assertThat(saved.getValue().getType()).isEqualTo(ParentNotificationType.BORROW);
+        assertThat(saved.getValue().getStudentName()).isEqualTo("Thabo Mokoena");
+        assertThat(saved.getValue().getBookTitle()).isEqualTo("Mathematics Grade 10");
+        assertThat(saved.getValue().getEventDate()).isEqualTo(LocalDate.of(2026, 3, 14));
+        assertThat(saved.getValue().getImages()).containsEntry("https://blobs/a.jpg", "https://blobs/a-thumb.jpg");
+        verify(outbox, never()).enqueue(any(), any(), any(), any());
+    }
+
+    @Test
+    void emailsParentsWhoAskedForImmediateNotificationsStraightAway() {
+        BorrowingRecord record = record(parent("mother@home", false), parent("father@home", true));
+
+        notifier(true).borrowed(record, images());
+
+        verify(repository, times(1)).save(any());
+        verify(outbox).enqueue(eq(List.of("father@home")), eq("2023045678 has borrowed Mathematics Grade 10"),
+                contains("Mathematics Grade 10"), contains("https://blobs/a-thumb.jpg"));
+    }
+
+    @Test
+    void emailsEveryoneWhenDigestsAreOff() {
+        BorrowingRecord record = record(parent("mother@home", false), parent("father@home", false));
+
+        notifier(false).borrowed(record, images());
+
+        verify(repository, never()).save(any());
+        ArgumentCaptor<List<String>> recipients = recipientsCaptor();
+        verify(outbox).enqueue(recipients.capture(), anyString(), anyString(), anyString());
+        assertThat(recipients.getValue()).containsExactlyInAnyOrder("mother@home", "father@home");
+    }
+
+    @Test
+    void keepsTheChargeAndDamagesOfAReturnForTheDigest() {
+        BorrowingRecord record = record(parent("mother@home", false));
+
+        notifier(true).returned(record, images(), 150, Set.of("torn page"));
+
+        ArgumentCaptor<ParentNotification> saved = ArgumentCaptor.forClass(ParentNotification.class);
+        verify(repository).save(saved.capture());
+        assertThat(saved.getValue().getType()).isEqualTo(ParentNotificationType.RETURN);
+        assertThat(saved.getValue().getAmountOwed()).isEqualTo(150);
+        assertThat(saved.getValue().getDamages()).containsExactly("torn page");
+    }
+
+    @Test
+    void ignoresReturnsOfStudentsWithoutParents() {
+        notifier(true).returned(record(), images(), 150, Set.of("torn page"));
+
+        verify(repository, never()).save(any());
+        verify(outbox, never()).enqueue(any(), any(), any(), any());
+    }
+
+    @Test
+    void coalescesPendingNotificationsIntoOneDigest() {
+        when(repository.lockPendingIds("mother@home")).thenReturn(List.of(1L, 2L, 3L));
+        List<ParentNotification> pending = List.of(
+                pending(3L, ParentNotificationType.RETURN, "Life Sciences", 80.0),
+                pending(1L, ParentNotificationType.BORROW, "Mathematics Grade 10", null),
+                pending(2L, ParentNotificationType.BORROW, "English Home Language", null));
+        when(repository.findAllById(List.of(1L, 2L, 3L))).thenReturn(pending);
+
+        int events = notifier(true).sendDigest("mother@home");
+
+        assertThat(events).isEqualTo(3);
+        ArgumentCaptor<String> text = ArgumentCaptor.forClass(String.class);
+        verify(outbox).enqueue(eq(List.of("mother@home")), eq("School library: 2 borrowed, 1 returned"),
+                text.capture(), contains("R80.00"));
+        assertThat(text.getValue())
+                .containsSubsequence("Mathematics Grade 10", "English Home Language", "Returned on", "Life Sciences")
+                .contains("Total Amount Owed: R80.00");
+        verify(repository).deleteAll(pending);
+    }
+
+    @Test
+    void sendsNothingWhenAnotherInstanceHoldsThePendingNotifications() {
+        when(repository.lockPendingIds("mother@home")).thenReturn(List.of());
+
+        assertThat(notifier(true).sendDigest("mother@home")).isZero();
+
+        verify(outbox, never()).enqueue(any(), any(), any(), any());
+        verify(repository, never()).deleteAll(any());
+    }
+
+    private ParentNotifier notifier(boolean digestEnabled) {
+        return new ParentNotifier(repository, outbox, templates, digestEnabled);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<List<String>> recipientsCaptor() {
+        return ArgumentCaptor.forClass(List.class);
+    }
+
+    private static BorrowingRecord record(Parent... parents) {
+        Student student = new Student();
+        student.setFirstNames("Thabo");
+        student.setLastName("Mokoena");
+        student.setStudentNumber(2023045678L);
+        for (Parent parent : parents) {
+            parent.setStudent(student);
+            student.getParents().add(parent);
+        }
+        Book book = new Book();
+        book.setTitle("Mathematics Grade 10");
+        book.setAuthor("Siyavula");
+        BorrowingRecord record = new BorrowingRecord();
+        record.setStudent(student);
+        record.setBook(book);
+        record.setBorrowDate(LocalDate.of(2026, 3, 14));
+        return record;
+    }
+
+    private static Parent parent(String email, boolean immediate) {
+        Parent parent = new Parent();
+        parent.setEmail(email);
+        parent.setImmediateNotifications(immediate);
+        return parent;
+    }
+
+    private static ImagePipelineResult images() {
+        return new ImagePipelineResult(new LinkedHashSet<>(List.of("https://blobs/a.jpg")), Set.of("book"),
+                Map.of("https://blobs/a.jpg", "https://blobs/a-thumb.jpg"), List.of("hash"), false);
+    }
+
+    private static ParentNotification pending(Long id, ParentNotificationType type, String bookTitle, Double amountOwed) {
+        ParentNotification notification = new ParentNotification();
+        notification.setId(id);
+        notification.setParentEmail("mother@home");
+        notification.setType(type);
+        notification.setStudentName("Thabo Mokoena");
+        notification.setStudentNumber(2023045678L);
+        notification.setBookTitle(bookTitle);
+        notification.setBookAuthor("Siyavula");
+        notification.setEventDate(LocalDate.of(2026, 3, 14));
+        notification.setAmountOwed(amountOwed);
+        if (amountOwed != null) {
+            notification.getDamages().add("water damage");
+        }
+        return notification;
+    }
+}
@@ -0,0 +1,60 @@
+package com.seriousapp.serious.app.storage;
+
+import com.azure.storage.blob.BlobClient;
+import com.azure.storage.blob.BlobContainerClient;
+import com.azure.storage.blob.specialized.BlockBlobClient;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.util.unit.DataSize;
+
+import java.io.InputStream;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+class AzureBlobStoreTest {
+    private final BlobContainerClient container = mock(BlobContainerClient.class);
+    private final BlobClient blob = mock(BlobClient.class);
+    private final BlockBlobClient blockBlob = mock(BlockBlobClient.class);
+    private final AzureBlobStore store = new AzureBlobStore(container, DataSize.ofMegabytes(4));
+
+    @Test
+    void storesBlobsByPathInTheSharedContainer() {
+        when(container.getBlobClient("records/12/borrow/abc.jpg")).thenReturn(blob);
+        when(blob.getBlobUrl()).thenReturn("https://account/books/records/12/borrow/abc.jpg");
+
+        String url = store.put("records/12/borrow/abc.jpg", new byte[]{1, 2, 3});
+
+        assertThat(url).isEqualTo("https://account/books/records/12/borrow/abc.jpg");
+        verify(blob).upload(any(InputStream.class), eq(3L), eq(true));
+        verify(container).getBlobClient("records/12/borrow/abc.jpg");
+        verifyNoMoreInteractions(container);
+    }
+
+    @Test
+    void commitsStagedBlocksInOrder() {
+        when(container.getBlobClient("records/12/return/big.heic")).thenReturn(blob);
+        when(blob.getBlockBlobClient()).thenReturn(blockBlob);
+        when(blockBlob.getBlobUrl()).thenReturn("https://account/books/records/12/return/big.heic");
+
+        BlobStore.BlockUpload upload = store.beginBlockUpload("records/12/return/big.heic");
+        upload.stage(new byte[8], 8);
+        upload.stage(new byte[8], 4);
+        String url = upload.commit();
+
+        ArgumentCaptor<String> staged = ArgumentCaptor.forClass(String.class);
+        verify(blockBlob).stageBlock(staged.capture(), any(InputStream.class), eq(8L));
+        verify(blockBlob).stageBlock(anyString(), any(InputStream.class), eq(4L));
+        ArgumentCaptor<List<String>> committed = ArgumentCaptor.captor();
+        verify(blockBlob).commitBlockList(committed.capture(), eq(true));
+        assertThat(committed.getValue()).hasSize(2).startsWith(staged.getValue()).doesNotHaveDuplicates();
+        assertThat(url).isEqualTo("https://account/books/records/12/return/big.heic");
+    }
+}
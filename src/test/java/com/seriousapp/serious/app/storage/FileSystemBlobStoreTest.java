@@ -0,0 +1,111 @@
+package com.seriousapp.serious.app.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FileSystemBlobStoreTest {
+    @TempDir
+    Path root;
+
+    private FileSystemBlobStore store;
+
+    @BeforeEach
+    void createStore() throws IOException {
+        store = new FileSystemBlobStore(root.toString(), "http://localhost:8080/offline-blobs");
+    }
+
+    @Test
+    void storesBlobsUnderTheRootAndServesThemFromTheBaseUrl() throws IOException {
+        String url = store.put("records/12/borrow/a.jpg", bytes("cover"));
+
+        assertThat(url).isEqualTo("http://localhost:8080/offline-blobs/records/12/borrow/a.jpg");
+        assertThat(root.resolve("records/12/borrow/a.jpg")).hasContent("cover");
+        try (InputStream in = store.openInputStream("records/12/borrow/a.jpg")) {
+            assertThat(in.readAllBytes()).isEqualTo(bytes("cover"));
+        }
+    }
+
+    @Test
+    void replacesAnExistingBlob() {
+        store.put("a.jpg", bytes("old"));
+        store.put("a.jpg", bytes("new"));
+
+        assertThat(root.resolve("a.jpg")).hasContent("new");
+    }
+
+    @Test
+    void showsBlockUploadsOnlyOnceCommitted() throws IOException {
+        BlobStore.BlockUpload upload = store.beginBlockUpload("records/1/return/b.jpg");
+        upload.stage(bytes("first-"), 6);
+        upload.stage(bytes("second-and-unused"), 6);
+
+        assertThat(root.resolve("records/1/return/b.jpg")).doesNotExist();
+
+        assertThat(upload.commit()).endsWith("/records/1/return/b.jpg");
+        assertThat(root.resolve("records/1/return/b.jpg")).hasContent("first-second");
+        assertThat(files()).containsExactly(root.resolve("records/1/return/b.jpg"));
+    }
+
+    @Test
+    void leavesNothingBehindWhenAnUploadIsAborted() throws IOException {
+        BlobStore.BlockUpload upload = store.beginBlockUpload("records/1/return/b.jpg");
+        upload.stage(bytes("partial"), 7);
+
+        upload.abort();
+
+        assertThat(files()).isEmpty();
+    }
+
+    @Test
+    void showsStreamedBlobsOnlyOnceClosed() throws IOException {
+        OutputStream out = store.openOutputStream("c.jpg");
+        out.write(bytes("streamed"));
+
+        assertThat(root.resolve("c.jpg")).doesNotExist();
+
+        out.close();
+        assertThat(root.resolve("c.jpg")).hasContent("streamed");
+    }
+
+    @Test
+    void deletesBlobsAndIgnoresMissingOnes() {
+        store.put("a.jpg", bytes("cover"));
+
+        store.deleteIfExists("a.jpg");
+        store.deleteIfExists("a.jpg");
+
+        assertThat(root.resolve("a.jpg")).doesNotExist();
+    }
+
+    @Test
+    void rejectsNamesOutsideTheRoot() {
+        assertThatThrownBy(() -> store.put("../escape.jpg", bytes("x")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> store.openInputStream("records/../../escape.jpg"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(root.resolveSibling("escape.jpg")).doesNotExist();
+    }
+
+    private List<Path> files() throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths.filter(Files::isRegularFile).toList();
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
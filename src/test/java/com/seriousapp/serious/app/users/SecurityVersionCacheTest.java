@@ -0,0 +1,56 @@
+package com.seriousapp.serious.app.users;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SecurityVersionCacheTest {
+    private final UserRepository userRepository = mock(UserRepository.class);
+
+    @Test
+    void loadsEachVersionOncePerTtl() {
+        when(userRepository.findSecurityVersionById(1L)).thenReturn(Optional.of(2));
+        SecurityVersionCache cache = new SecurityVersionCache(userRepository, 60_000, 100);
+
+        assertThat(cache.isCurrent(1L, 2)).isTrue();
+        assertThat(cache.isCurrent(1L, 1)).isFalse();
+
+        verify(userRepository, times(1)).findSecurityVersionById(1L);
+    }
+
+    @Test
+    void reloadsAfterEviction() {
+        when(userRepository.findSecurityVersionById(1L)).thenReturn(Optional.of(2), Optional.of(3));
+        SecurityVersionCache cache = new SecurityVersionCache(userRepository, 60_000, 100);
+
+        assertThat(cache.isCurrent(1L, 2)).isTrue();
+        cache.evict(1L);
+
+        assertThat(cache.isCurrent(1L, 2)).isFalse();
+        assertThat(cache.isCurrent(1L, 3)).isTrue();
+    }
+
+    @Test
+    void reloadsOnceTheTtlHasPassed() {
+        when(userRepository.findSecurityVersionById(1L)).thenReturn(Optional.of(2), Optional.of(3));
+        SecurityVersionCache cache = new SecurityVersionCache(userRepository, 0, 100);
+
+        assertThat(cache.currentVersion(1L)).isEqualTo(2);
+        assertThat(cache.currentVersion(1L)).isEqualTo(3);
+    }
+
+    @Test
+    void rejectsTokensOfDeletedUsers() {
+        when(userRepository.findSecurityVersionById(1L)).thenReturn(Optional.empty());
+        SecurityVersionCache cache = new SecurityVersionCache(userRepository, 60_000, 100);
+
+        assertThat(cache.isCurrent(1L, 0)).isFalse();
+        assertThat(cache.isCurrent(null, 0)).isFalse();
+    }
+}
@@ -0,0 +1,86 @@
+package com.seriousapp.serious.app.users.admin;
+
+import com.seriousapp.serious.app.book.BookService;
+import com.seriousapp.serious.app.borrowing.BorrowingRecord;
+import com.seriousapp.serious.app.borrowing.BorrowingRecordService;
+import com.seriousapp.serious.app.borrowing.returns.ReturnJobService;
+import com.seriousapp.serious.app.damage.DamagePriceCatalog;
+import com.seriousapp.serious.app.fines.FineLedger;
+import com.seriousapp.serious.app.images.FormFields;
+import com.seriousapp.serious.app.images.ImagePipeline;
+import com.seriousapp.serious.app.images.ImagePipelineResult;
+import com.seriousapp.serious.app.images.StreamedImages;
+import com.seriousapp.serious.app.notifications.ParentNotifier;
+import com.seriousapp.serious.app.users.student.StudentService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AdminServiceBorrowImagesTest {
+    private final BorrowingRecordService borrowingRecordService = mock(BorrowingRecordService.class);
+    private final ParentNotifier parentNotifier = mock(ParentNotifier.class);
+    private final ImagePipeline imagePipeline = mock(ImagePipeline.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final AdminService adminService = new AdminService(mock(AdminRepository.class), mock(BookService.class),
+            mock(StudentService.class), borrowingRecordService, parentNotifier, mock(BCryptPasswordEncoder.class), imagePipeline,
+            mock(ReturnJobService.class), mock(DamagePriceCatalog.class), mock(FineLedger.class), transactionManager);
+
+    private final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/admin/books/upload-images/12");
+    private final BorrowingRecord record = new BorrowingRecord();
+
+    @BeforeEach
+    void setUp() {
+        record.setId(12L);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        when(borrowingRecordService.findById(12L)).thenReturn(Optional.of(record));
+        when(borrowingRecordService.save(record)).thenReturn(record);
+    }
+
+    @Test
+    void processesTheImagesBetweenTwoShortTransactions() throws Exception {
+        ImagePipelineResult images = new ImagePipelineResult(Set.of("https://blobs/a.jpg"), Set.of("torn pages"),
+                Map.of(), List.of("hash-a"), true);
+        when(imagePipeline.process(request, "records/12/borrow")).thenReturn(new StreamedImages(images, new FormFields()));
+
+        BorrowingRecord saved = adminService.uploadBorrowImages(12L, request);
+
+        assertThat(saved.getImages()).containsExactly("https://blobs/a.jpg");
+        assertThat(saved.getTags()).containsExactly("torn pages");
+        assertThat(saved.getImageContentHashes()).containsExactly("hash-a");
+        assertThat(saved.isNeedsReanalysis()).isTrue();
+        InOrder order = inOrder(transactionManager, imagePipeline, borrowingRecordService, parentNotifier);
+        order.verify(transactionManager).commit(any());
+        order.verify(imagePipeline).process(request, "records/12/borrow");
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(borrowingRecordService).save(record);
+        order.verify(parentNotifier).borrowed(record, images);
+        order.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void readsNoUploadForAnUnknownRecord() throws Exception {
+        when(borrowingRecordService.findById(12L)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> adminService.uploadBorrowImages(12L, request)).hasMessage("Record not found");
+        verify(imagePipeline, never()).process(any(MockHttpServletRequest.class), anyString());
+    }
+}
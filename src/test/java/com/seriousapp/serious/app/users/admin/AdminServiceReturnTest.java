@@ -0,0 +1,230 @@
+package com.seriousapp.serious.app.users.admin;
+
+import com.seriousapp.serious.app.book.Book;
+import com.seriousapp.serious.app.book.BookService;
+import com.seriousapp.serious.app.borrowing.BorrowingRecord;
+import com.seriousapp.serious.app.borrowing.BorrowingRecordService;
+import com.seriousapp.serious.app.borrowing.returns.IdempotencyKeyConflictException;
+import com.seriousapp.serious.app.borrowing.returns.ReturnJob;
+import com.seriousapp.serious.app.borrowing.returns.ReturnJobService;
+import com.seriousapp.serious.app.borrowing.returns.ReturnJobStatus;
+import com.seriousapp.serious.app.damage.DamageAssessment;
+import com.seriousapp.serious.app.damage.DamagePriceCatalog;
+import com.seriousapp.serious.app.fines.FineLedger;
+import com.seriousapp.serious.app.images.FormFields;
+import com.seriousapp.serious.app.images.ImagePipeline;
+import com.seriousapp.serious.app.images.ImagePipelineResult;
+import com.seriousapp.serious.app.images.StagedImages;
+import com.seriousapp.serious.app.notifications.ParentNotifier;
+import com.seriousapp.serious.app.users.student.Student;
+import com.seriousapp.serious.app.users.student.StudentService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AdminServiceReturnTest {
+    private final StudentService studentService = mock(StudentService.class);
+    private final BorrowingRecordService borrowingRecordService = mock(BorrowingRecordService.class);
+    private final ParentNotifier parentNotifier = mock(ParentNotifier.class);
+    private final ImagePipeline imagePipeline = mock(ImagePipeline.class);
+    private final ReturnJobService returnJobService = mock(ReturnJobService.class);
+    private final DamagePriceCatalog damagePriceCatalog = mock(DamagePriceCatalog.class);
+    private final FineLedger fineLedger = mock(FineLedger.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final AdminService adminService = new AdminService(mock(AdminRepository.class), mock(BookService.class),
+            studentService, borrowingRecordService, parentNotifier, mock(BCryptPasswordEncoder.class), imagePipeline,
+            returnJobService, damagePriceCatalog, fineLedger, transactionManager);
+
+    private final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/admin/books/return/1/Atlas");
+    private final BorrowingRecord record = record();
+    private final StagedImages staged = new StagedImages(List.of("records/12/incoming/a.jpg"), new FormFields());
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        when(studentService.findActiveBorrowing(1L, "Atlas")).thenReturn(record);
+        when(studentService.returnBook(eq(1L), eq("Atlas"), anyList())).thenReturn(record);
+        when(borrowingRecordService.findById(12L)).thenReturn(Optional.of(record));
+    }
+
+    @Test
+    void receivesTheImagesBeforeTheTransactionThatCommitsTheReturn() throws Exception {
+        ReturnJob claim = job(5L, ReturnJobStatus.RECEIVING);
+        when(returnJobService.findByIdempotencyKey("key-1")).thenReturn(Optional.empty());
+        when(returnJobService.claimIdempotencyKey("key-1", 12L)).thenReturn(Optional.of(claim));
+        when(imagePipeline.stage(request, "records/12/incoming")).thenReturn(staged);
+        when(returnJobService.enqueue(12L, claim, staged.blobNames(), List.of())).thenReturn(job(5L, ReturnJobStatus.PENDING));
+
+        ReturnJob job = adminService.acceptReturn(1L, "Atlas", request, "key-1");
+
+        assertThat(job.getStatus()).isEqualTo(ReturnJobStatus.PENDING);
+        InOrder order = inOrder(returnJobService, imagePipeline, transactionManager, studentService);
+        order.verify(returnJobService).claimIdempotencyKey("key-1", 12L);
+        order.verify(imagePipeline).stage(request, "records/12/incoming");
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(studentService).returnBook(eq(1L), eq("Atlas"), anyList());
+        order.verify(returnJobService).enqueue(12L, claim, staged.blobNames(), List.of());
+        order.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void returnsTheJobOfTheAttemptThatClaimedTheKey() throws Exception {
+        ReturnJob winner = job(5L, ReturnJobStatus.RECEIVING);
+        when(returnJobService.findByIdempotencyKey("key-1")).thenReturn(Optional.empty(), Optional.of(winner));
+        when(returnJobService.claimIdempotencyKey("key-1", 12L)).thenReturn(Optional.empty());
+
+        assertThat(adminService.acceptReturn(1L, "Atlas", request, "key-1")).isSameAs(winner);
+        verify(imagePipeline, never()).stage(any(), anyString());
+        verify(studentService, never()).returnBook(any(), any(), anyList());
+    }
+
+    @Test
+    void replaysTheJobOfACommittedReturnWithTheSameKey() throws Exception {
+        ReturnJob existing = job(5L, ReturnJobStatus.DONE);
+        when(returnJobService.findByIdempotencyKey("key-1")).thenReturn(Optional.of(existing));
+
+        assertThat(adminService.acceptReturn(1L, "Atlas", request, "key-1")).isSameAs(existing);
+        verify(studentService, never()).findActiveBorrowing(any(), anyString());
+        verify(imagePipeline, never()).stage(any(), anyString());
+    }
+
+    @Test
+    void refusesAKeyReplayedForAnotherBook() throws Exception {
+        when(returnJobService.findByIdempotencyKey("key-1")).thenReturn(Optional.of(job(5L, ReturnJobStatus.PENDING)));
+
+        assertThatThrownBy(() -> adminService.acceptReturn(1L, "Dune", request, "key-1"))
+                .isInstanceOf(IdempotencyKeyConflictException.class);
+        assertThatThrownBy(() -> adminService.acceptReturn(2L, "Atlas", request, "key-1"))
+                .isInstanceOf(IdempotencyKeyConflictException.class);
+        verify(imagePipeline, never()).stage(any(), anyString());
+        verify(studentService, never()).returnBook(any(), any(), anyList());
+    }
+
+    @Test
+    void refusesAKeyClaimedConcurrentlyForAnotherRecord() throws Exception {
+        ReturnJob other = job(5L, ReturnJobStatus.RECEIVING);
+        other.setRecordId(99L);
+        when(returnJobService.findByIdempotencyKey("key-1")).thenReturn(Optional.empty(), Optional.of(other));
+        when(returnJobService.claimIdempotencyKey("key-1", 12L)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> adminService.acceptReturn(1L, "Atlas", request, "key-1"))
+                .isInstanceOf(IdempotencyKeyConflictException.class);
+        verify(imagePipeline, never()).stage(any(), anyString());
+    }
+
+    @Test
+    void givesUpTheClaimAndStagedImagesWhenTheReturnCannotBeCommitted() throws Exception {
+        ReturnJob claim = job(5L, ReturnJobStatus.RECEIVING);
+        when(returnJobService.findByIdempotencyKey("key-1")).thenReturn(Optional.empty());
+        when(returnJobService.claimIdempotencyKey("key-1", 12L)).thenReturn(Optional.of(claim));
+        when(imagePipeline.stage(request, "records/12/incoming")).thenReturn(staged);
+        when(studentService.returnBook(eq(1L), eq("Atlas"), anyList())).thenThrow(new RuntimeException("already returned"));
+
+        assertThatThrownBy(() -> adminService.acceptReturn(1L, "Atlas", request, "key-1")).hasMessage("already returned");
+
+        verify(transactionManager).rollback(any());
+        verify(imagePipeline).deleteStaged(staged.blobNames());
+        verify(returnJobService).releaseClaim(claim);
+    }
+
+    @Test
+    void processesImagesBeforeLockingTheJob() {
+        ReturnJob running = job(5L, ReturnJobStatus.RUNNING);
+        ImagePipelineResult images = new ImagePipelineResult(Set.of("https://blobs/a.jpg"), Set.of("torn pages"), Map.of(), List.of("a"), false);
+        when(returnJobService.findRunning(5L)).thenReturn(Optional.of(running));
+        when(imagePipeline.referencesFor(any())).thenReturn(List.of());
+        when(imagePipeline.processStaged(List.of("records/12/incoming/a.jpg"), "records/12/return", List.of())).thenReturn(images);
+        when(returnJobService.lockRunning(5L)).thenReturn(Optional.of(running));
+        when(damagePriceCatalog.assess(any(), any())).thenReturn(new DamageAssessment(Set.of("torn pages"), 30.0, false));
+
+        assertThat(adminService.assessReturn(5L)).contains(running);
+
+        InOrder order = inOrder(returnJobService, imagePipeline, transactionManager, fineLedger, parentNotifier);
+        order.verify(returnJobService).findRunning(5L);
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(imagePipeline).referencesFor(any());
+        order.verify(transactionManager).commit(any());
+        order.verify(imagePipeline).processStaged(anyList(), anyString(), anyList());
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(returnJobService).lockRunning(5L);
+        order.verify(fineLedger).charge(eq(3L), eq(30.0), anyString(), eq(12L));
+        order.verify(parentNotifier).returned(record, images, 30.0, Set.of("torn pages"));
+        order.verify(returnJobService).complete(running, 30.0);
+        order.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void chargesTheBookPriceForABookTheMatcherReportsLost() {
+        ReturnJob running = job(5L, ReturnJobStatus.RUNNING);
+        running.getKnownTags().add("Lost book");
+        ImagePipelineResult images = new ImagePipelineResult(Set.of(), Set.of(), Map.of(), List.of(), false);
+        when(returnJobService.findRunning(5L)).thenReturn(Optional.of(running));
+        when(imagePipeline.processStaged(anyList(), anyString(), anyList())).thenReturn(images);
+        when(returnJobService.lockRunning(5L)).thenReturn(Optional.of(running));
+        when(damagePriceCatalog.assess(Set.of("Lost book"), record.getTags())).thenReturn(new DamageAssessment(Set.of(), 0.0, true));
+
+        adminService.assessReturn(5L);
+
+        verify(fineLedger).charge(eq(3L), eq(120.0), eq("Returned Atlas: lost"), eq(12L));
+        verify(parentNotifier).returned(record, images, 120.0, Set.of("lost"));
+        verify(returnJobService).complete(running, 120.0);
+    }
+
+    @Test
+    void chargesNothingWhenAnotherWorkerFinishedTheJobMeanwhile() {
+        ReturnJob running = job(5L, ReturnJobStatus.RUNNING);
+        when(returnJobService.findRunning(5L)).thenReturn(Optional.of(running));
+        when(imagePipeline.processStaged(anyList(), anyString(), anyList()))
+                .thenReturn(new ImagePipelineResult(Set.of(), Set.of(), Map.of(), List.of(), false));
+        when(returnJobService.lockRunning(5L)).thenReturn(Optional.empty());
+
+        assertThat(adminService.assessReturn(5L)).isEmpty();
+        verify(fineLedger, never()).charge(any(), anyDouble(), anyString(), any());
+        verify(returnJobService, never()).complete(any(), anyDouble());
+    }
+
+    private static ReturnJob job(Long id, ReturnJobStatus status) {
+        ReturnJob job = new ReturnJob();
+        job.setId(id);
+        job.setRecordId(12L);
+        job.setStatus(status);
+        job.getImageBlobs().add("records/12/incoming/a.jpg");
+        return job;
+    }
+
+    private static BorrowingRecord record() {
+        Book book = new Book();
+        book.setTitle("Atlas");
+        book.setPrice(120.0);
+        Student student = new Student();
+        student.setId(3L);
+        student.setStudentNumber(1L);
+        BorrowingRecord record = new BorrowingRecord();
+        record.setId(12L);
+        record.setBook(book);
+        record.setStudent(student);
+        return record;
+    }
+}
@@ -0,0 +1,82 @@
+package com.seriousapp.serious.app.users.student;
+
+import com.seriousapp.serious.app.book.Book;
+import com.seriousapp.serious.app.book.BookService;
+import com.seriousapp.serious.app.borrowing.BorrowingRecord;
+import com.seriousapp.serious.app.borrowing.BorrowingRecordService;
+import com.seriousapp.serious.app.dto.UserRequest;
+import com.seriousapp.serious.app.images.ImagePipeline;
+import com.seriousapp.serious.app.images.ImagePipelineResult;
+import com.seriousapp.serious.app.parent.ParentService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StudentServiceBorrowTest {
+    private final StudentRepository studentRepository = mock(StudentRepository.class);
+    private final BookService bookService = mock(BookService.class);
+    private final BorrowingRecordService borrowingRecordService = mock(BorrowingRecordService.class);
+    private final ImagePipeline imagePipeline = mock(ImagePipeline.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final StudentService studentService = new StudentService(studentRepository, bookService, borrowingRecordService,
+            mock(ParentService.class), mock(BCryptPasswordEncoder.class), imagePipeline, transactionManager);
+
+    private final BorrowingRecord record = new BorrowingRecord();
+    private final List<MultipartFile> images = List.of(new MockMultipartFile("images", "a.jpg", "image/jpeg", new byte[]{1}));
+
+    @BeforeEach
+    void setUp() {
+        Book book = new Book();
+        book.setTitle("Atlas");
+        record.setId(12L);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        when(bookService.getBookByName("Atlas")).thenReturn(book);
+        when(studentRepository.findByFullName("Ada Lovelace")).thenReturn(Optional.of(new Student()));
+        when(borrowingRecordService.save(any(BorrowingRecord.class))).thenReturn(record);
+        when(borrowingRecordService.findById(12L)).thenReturn(Optional.of(record));
+    }
+
+    @Test
+    void keepsTheBorrowTagsOnTheRecordAndTagsOutsideTheTransaction() throws Exception {
+        ImagePipelineResult result = new ImagePipelineResult(Set.of("https://blobs/a.jpg"), Set.of("torn pages"),
+                Map.of(), List.of("hash-a"), false);
+        when(imagePipeline.process(images, "records/12/borrow")).thenReturn(result);
+
+        studentService.borrowBook(request(), "Atlas", images);
+
+        assertThat(record.getImages()).containsExactly("https://blobs/a.jpg");
+        assertThat(record.getTags()).containsExactly("torn pages");
+        assertThat(record.getImageContentHashes()).containsExactly("hash-a");
+        assertThat(record.isNeedsReanalysis()).isFalse();
+        InOrder order = inOrder(transactionManager, imagePipeline, borrowingRecordService);
+        order.verify(transactionManager).commit(any());
+        order.verify(imagePipeline).process(images, "records/12/borrow");
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(borrowingRecordService).findById(12L);
+        order.verify(borrowingRecordService).save(record);
+        order.verify(transactionManager).commit(any());
+    }
+
+    private static UserRequest request() {
+        UserRequest request = new UserRequest();
+        request.setFullName("Ada Lovelace");
+        request.setStudentNumber(1234567890L);
+        return request;
+    }
+}
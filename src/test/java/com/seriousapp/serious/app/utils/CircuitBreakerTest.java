@@ -0,0 +1,103 @@
+package com.seriousapp.serious.app.utils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void staysClosedUntilTheMinimumNumberOfCalls() {
+        CircuitBreaker breaker = breaker(60_000);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(breaker.tryAcquirePermission()).isTrue();
+            breaker.onFailure();
+        }
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void opensAtTheFailureRateAndRejectsCalls() {
+        CircuitBreaker breaker = breaker(60_000);
+
+        fail(breaker, 2);
+        succeed(breaker, 2);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+        assertThat(meterRegistry.get("circuitbreaker.state").tag("name", "test").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void oldCallsLeaveTheWindow() {
+        CircuitBreaker breaker = breaker(60_000);
+
+        fail(breaker, 1);
+        succeed(breaker, 3);
+        fail(breaker, 1);
+        succeed(breaker, 1);
+
+        // The first failure dropped out of the window of four, one in four is below the threshold
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void closesAfterSuccessfulTrialCalls() {
+        CircuitBreaker breaker = breaker(0);
+        fail(breaker, 4);
+
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).as("only two trial calls").isFalse();
+        breaker.onSuccess();
+        breaker.onSuccess();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void reopensWhenATrialCallFails() {
+        CircuitBreaker breaker = breaker(0);
+        fail(breaker, 4);
+
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        breaker.onFailure();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void releasedPermissionsFreeATrialSlot() {
+        CircuitBreaker breaker = breaker(0);
+        fail(breaker, 4);
+        breaker.tryAcquirePermission();
+        breaker.tryAcquirePermission();
+
+        breaker.releasePermission();
+
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+    }
+
+    private CircuitBreaker breaker(long openDurationMillis) {
+        return new CircuitBreaker("test", 4, 4, 0.5, openDurationMillis, 2, meterRegistry);
+    }
+
+    private static void fail(CircuitBreaker breaker, int calls) {
+        for (int i = 0; i < calls; i++) {
+            breaker.tryAcquirePermission();
+            breaker.onFailure();
+        }
+    }
+
+    private static void succeed(CircuitBreaker breaker, int calls) {
+        for (int i = 0; i < calls; i++) {
+            breaker.tryAcquirePermission();
+            breaker.onSuccess();
+        }
+    }
+}
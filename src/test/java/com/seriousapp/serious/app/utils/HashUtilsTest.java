@@ -0,0 +1,19 @@
+package com.seriousapp.serious.app.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HashUtilsTest {
+
+    @Test
+    void hashesWithSha256() {
+        assertThat(HashUtils.sha256Hex("abc"))
+                .isEqualTo("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+    }
+
+    @Test
+    void hexEncodesBytes() {
+        assertThat(HashUtils.toHex(new byte[]{0x00, 0x0f, (byte) 0xff})).isEqualTo("000fff");
+    }
+}